@@ -0,0 +1,59 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.WeatherAPIService;
+import model.AirQuality;
+import model.Forecast;
+import model.WeatherData;
+
+// End-to-end response handling in WeatherAPIService against a local stub server
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiBenchmark {
+    private StubWeatherServer server;
+    private WeatherAPIService apiService;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubWeatherServer();
+        apiService = new WeatherAPIService(server.getBaseUrl());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public WeatherData currentWeather() throws IOException {
+        return apiService.getCurrentWeather("London");
+    }
+
+    @Benchmark
+    public Forecast forecast() throws IOException {
+        return apiService.getForecast("London");
+    }
+
+    @Benchmark
+    public AirQuality airQuality() throws IOException {
+        return apiService.getAirQuality("London");
+    }
+}
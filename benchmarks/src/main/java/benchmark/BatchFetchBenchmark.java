@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.BatchWeatherService;
+import controller.WeatherAPIService;
+import model.WeatherData;
+
+// One dashboard refresh against the stub server with simulated per-call latency.
+// "group" knows every city ID up front (20 cities per call); "single" fetches each city by name.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BatchFetchBenchmark {
+    @Param({"60"})
+    public int cities;
+
+    @Param({"group", "single"})
+    public String mode;
+
+    @Param({"50"})
+    public long latencyMillis;
+
+    @Param({"1000", "20"})
+    public double requestsPerSecond;
+
+    @Param({"8"})
+    public int concurrency;
+
+    private StubWeatherServer server;
+    private List<String> cityNames;
+    private BatchWeatherService batchService;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubWeatherServer();
+        server.setLatencyMillis(latencyMillis);
+        cityNames = new ArrayList<>(cities);
+        for (int i = 0; i < cities; i++) {
+            cityNames.add("Site " + i);
+        }
+    }
+
+    // A fresh service per refresh, so "single" never learns IDs from an earlier run
+    @Setup(Level.Invocation)
+    public void createService() {
+        batchService = new BatchWeatherService(new WeatherAPIService(server.getBaseUrl()), concurrency, requestsPerSecond);
+        if (mode.equals("group")) {
+            for (String cityName : cityNames) {
+                batchService.rememberCityId(cityName, StubWeatherServer.cityId(cityName));
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownService() {
+        batchService.shutdown();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public int refresh() {
+        AtomicInteger results = new AtomicInteger();
+        batchService.fetchAll(cityNames, new BatchWeatherService.Listener() {
+            @Override
+            public void onResult(String cityName, WeatherData weatherData) {
+                results.incrementAndGet();
+            }
+
+            @Override
+            public void onError(String cityName, Throwable error) {
+                throw new IllegalStateException(cityName + ": " + error.getMessage(), error);
+            }
+        }).join();
+        return results.get();
+    }
+}
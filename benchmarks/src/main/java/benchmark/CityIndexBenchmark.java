@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.CityIndex;
+import model.CitySuggestion;
+
+// Type-ahead lookups and index build over a synthetic city list the size of OpenWeatherMap's
+// city.list.json. The packed size of the index is printed during setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CityIndexBenchmark {
+    private static final String[] SYLLABLES = {"lon", "don", "par", "is", "ber", "lin", "ma", "drid", "ro", "me",
+            "san", "to", "ki", "o", "new", "york", "sa", "o", "pau", "lo", "del", "hi", "ca", "iro", "la", "gos"};
+    private static final String[] COUNTRIES = {"GB", "FR", "DE", "ES", "IT", "US", "JP", "BR", "IN", "EG", "NG"};
+
+    @Param({"200000"})
+    public int cities;
+
+    private String cityListJson;
+    private CityIndex index;
+
+    @Setup
+    public void setUp() {
+        cityListJson = syntheticCityList(cities);
+        index = CityIndex.parse(cityListJson);
+        System.out.printf("%n%d cities, ~%,d bytes packed (%.1f per city)%n", index.size(),
+                index.estimatedMemoryBytes(), index.estimatedMemoryBytes() / (double) index.size());
+    }
+
+    @Benchmark
+    public List<CitySuggestion> suggestThreeLetters() {
+        return index.suggest("lon", 8);
+    }
+
+    // Matches a large share of the list; the scan stops at the limit
+    @Benchmark
+    public List<CitySuggestion> suggestOneLetter() {
+        return index.suggest("s", 8);
+    }
+
+    @Benchmark
+    public List<CitySuggestion> suggestNoMatch() {
+        return index.suggest("zzq", 8);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CityIndex build() {
+        return CityIndex.parse(cityListJson);
+    }
+
+    static String syntheticCityList(int count) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(count * 110).append('[');
+        for (int i = 0; i < count; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(100000 + i)
+                    .append(",\"name\":\"").append(name)
+                    .append("\",\"state\":\"\",\"country\":\"").append(COUNTRIES[random.nextInt(COUNTRIES.length)])
+                    .append("\",\"coord\":{\"lon\":").append(random.nextDouble() * 360 - 180)
+                    .append(",\"lat\":").append(random.nextDouble() * 180 - 90).append("}}");
+        }
+        return json.append(']').toString();
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.DailyForecastAggregator;
+import controller.ForecastParser;
+import model.DailyForecast;
+import model.Forecast;
+
+// Daily aggregation over forecast series longer than the API's 40 slots, built by repeating the fixture
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DailyAggregationBenchmark {
+    private static final long SLOT_SECONDS = 3 * 3600;
+
+    @Param({"40", "400", "4000"})
+    public int slots;
+
+    private Forecast forecast;
+
+    @Setup
+    public void setUp() {
+        Forecast fixture = ForecastParser.parse(Fixtures.load(Fixtures.FORECAST));
+        long[] timestamps = new long[slots];
+        double[] temperatures = new double[slots];
+        double[] minTemperatures = new double[slots];
+        double[] maxTemperatures = new double[slots];
+        int[] humidity = new int[slots];
+        double[] windSpeeds = new double[slots];
+        double[] precipitation = new double[slots];
+        byte[] conditionIndexes = new byte[slots];
+        int[] conditionIds = new int[fixture.getConditionCount()];
+        String[] descriptions = new String[fixture.getConditionCount()];
+        for (int i = 0; i < conditionIds.length; i++) {
+            conditionIds[i] = fixture.getConditionIdAt(i);
+            descriptions[i] = fixture.getConditionDescription(i);
+        }
+        for (int i = 0; i < slots; i++) {
+            int source = i % fixture.size();
+            timestamps[i] = fixture.getTimestamp(0) + i * SLOT_SECONDS;
+            temperatures[i] = fixture.getTemperature(source);
+            minTemperatures[i] = fixture.getMinTemperature(source);
+            maxTemperatures[i] = fixture.getMaxTemperature(source);
+            humidity[i] = fixture.getHumidity(source);
+            windSpeeds[i] = fixture.getWindSpeed(source);
+            precipitation[i] = fixture.getPrecipitationProbability(source);
+            conditionIndexes[i] = (byte) fixture.getConditionIndex(source);
+        }
+        forecast = new Forecast(timestamps, temperatures, minTemperatures, maxTemperatures, humidity, windSpeeds,
+                precipitation, conditionIndexes, conditionIds, descriptions, fixture.getTimezoneOffsetSeconds());
+    }
+
+    @Benchmark
+    public List<DailyForecast> aggregate() {
+        return DailyForecastAggregator.aggregate(forecast);
+    }
+}
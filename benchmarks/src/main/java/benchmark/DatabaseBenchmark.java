@@ -0,0 +1,98 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.DatabaseHandler;
+
+// Search history persistence against a scratch database pre-filled with history rows.
+// The rows are written before DatabaseHandler opens the file, so its schema migration backfills
+// the cities table from them exactly as it would for an existing user database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+    private static final int DISTINCT_CITIES = 500;
+
+    @Param({"10000", "100000", "1000000"})
+    public int historyRows;
+
+    private File databaseFile;
+    private DatabaseHandler dbHandler;
+    private int nextCity;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        databaseFile = File.createTempFile("weather-bench", ".db");
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        fillHistory(url);
+        // No retention limit, so the benchmark keeps the row count it asked for
+        dbHandler = new DatabaseHandler(url, Integer.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHandler.closeConnection();
+        databaseFile.delete();
+    }
+
+    // Waits for the commit; a single saver gets no group commit, so this is the worst case
+    @Benchmark
+    public void saveSearch() {
+        dbHandler.saveSearch("City " + (nextCity++ % DISTINCT_CITIES)).join();
+    }
+
+    @Benchmark
+    public List<String> getRecentSearches() {
+        return dbHandler.getRecentSearches(5);
+    }
+
+    private void fillHistory(String url) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE search_history " +
+                        "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "city_name TEXT NOT NULL, " +
+                        "search_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO search_history (city_name, search_time) VALUES (?, datetime('now', ?))")) {
+                for (int i = 0; i < historyRows; i++) {
+                    insert.setString(1, "City " + (i % DISTINCT_CITIES));
+                    insert.setString(2, "-" + (historyRows - i) + " seconds");
+                    insert.addBatch();
+                    if (i % 10000 == 9999) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.DatabaseHandler;
+
+// Soak test for DatabaseHandler: many threads save searches while others keep reading, then
+// latency percentiles and resource counts are printed. Exits with status 1 if file descriptors
+// or cached statements grow with the number of searches, i.e. something is leaking.
+//
+//   java -cp target/benchmarks.jar benchmark.DatabaseSoak [searches] [saver threads] [reader threads]
+public class DatabaseSoak {
+    private static final int DISTINCT_CITIES = 500;
+    private static final int CHECKPOINTS = 5;
+    private static final int FD_SLACK = 4; // Allows for e.g. the WAL index being mapped lazily
+    private static final int MAX_STATEMENTS = 20;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int searches = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int savers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        File databaseFile = File.createTempFile("weather-soak", ".db");
+        DatabaseHandler dbHandler = new DatabaseHandler("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        // Open and warm up before taking the baseline counts
+        dbHandler.saveSearch("Warm up").join();
+        dbHandler.getRecentSearches(5);
+        dbHandler.getCoordinates("warm up");
+        int baselineFds = openFileDescriptors();
+        int baselineStatements = dbHandler.getCachedStatementCount();
+
+        long[] enqueueNanos = new long[searches];
+        long[] commitNanos = new long[searches];
+        List<Long> readNanos = new ArrayList<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean saving = new AtomicBoolean(true);
+        CountDownLatch saversDone = new CountDownLatch(savers);
+        int checkpointEvery = Math.max(1, searches / CHECKPOINTS);
+        List<String> checkpoints = new ArrayList<>();
+
+        long started = System.nanoTime();
+        for (int t = 0; t < savers; t++) {
+            new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < searches) {
+                    long before = System.nanoTime();
+                    CompletableFuture<Void> committed = dbHandler.saveSearch("City " + (i % DISTINCT_CITIES));
+                    enqueueNanos[i] = System.nanoTime() - before;
+                    // Like the search flow, each saver waits for its write before the next one,
+                    // so concurrent savers share commits
+                    committed.join();
+                    commitNanos[i] = System.nanoTime() - before;
+                    if ((i + 1) % checkpointEvery == 0) {
+                        synchronized (checkpoints) {
+                            checkpoints.add(String.format("  after %,6d searches: %d open files, %d pending writes",
+                                    i + 1, openFileDescriptors(), dbHandler.getPendingWriteCount()));
+                        }
+                    }
+                }
+                saversDone.countDown();
+            }, "soak-saver-" + t).start();
+        }
+
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int t = 0; t < readers; t++) {
+            Thread reader = new Thread(() -> {
+                List<Long> local = new ArrayList<>();
+                while (saving.get()) {
+                    long before = System.nanoTime();
+                    dbHandler.getRecentSearches(5);
+                    dbHandler.getCoordinates("city " + (local.size() % DISTINCT_CITIES));
+                    local.add(System.nanoTime() - before);
+                }
+                synchronized (readNanos) {
+                    readNanos.addAll(local);
+                }
+            }, "soak-reader-" + t);
+            reader.start();
+            readerThreads.add(reader);
+        }
+
+        saversDone.await();
+        long elapsed = System.nanoTime() - started;
+        saving.set(false);
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+
+        int fds = openFileDescriptors();
+        int statements = dbHandler.getCachedStatementCount();
+        List<String> recent = dbHandler.getRecentSearches(DISTINCT_CITIES + 10);
+        dbHandler.closeConnection();
+        int fdsAfterClose = openFileDescriptors();
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+
+        System.out.printf("%,d searches from %d threads with %d readers in %d ms (%,.0f searches/s)%n", searches,
+                savers, readers, TimeUnit.NANOSECONDS.toMillis(elapsed), searches / (elapsed / 1e9));
+        System.out.println("Save, caller blocked: " + percentiles(enqueueNanos));
+        System.out.println("Save, until committed: " + percentiles(commitNanos));
+        System.out.println("Read (recent searches + coordinates): " + percentiles(toArray(readNanos)));
+        System.out.println("Distinct cities stored: " + recent.size());
+        checkpoints.forEach(System.out::println);
+        System.out.printf("Open files: %d before, %d after, %d after close%n", baselineFds, fds, fdsAfterClose);
+        System.out.printf("Cached read statements: %d before, %d after%n", baselineStatements, statements);
+
+        boolean leaking = baselineFds >= 0 && fds > baselineFds + FD_SLACK || statements > MAX_STATEMENTS;
+        if (recent.size() != DISTINCT_CITIES + 1 || leaking) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    // Linux only; -1 elsewhere, which skips the file check
+    private static int openFileDescriptors() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds == null ? -1 : fds.length;
+    }
+
+    private static String percentiles(long[] nanos) {
+        if (nanos.length == 0) {
+            return "no samples";
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms (%,d samples)",
+                at(sorted, 0.50), at(sorted, 0.95), at(sorted, 0.99), sorted[sorted.length - 1] / 1e6, sorted.length);
+    }
+
+    private static double at(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1e6;
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,191 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import controller.CircuitBreaker;
+import controller.HttpTransport;
+import controller.PersistentWeatherService;
+import controller.PooledHttpTransport;
+import controller.ResilientTransport;
+import controller.WeatherAPIService;
+import controller.WeatherService;
+import model.DatabaseHandler;
+
+// Runs the API client against the stub server with faults injected at fixed call numbers, once
+// over the plain transport and once through ResilientTransport, and checks that the resilient
+// client hides the faults and keeps the tail latency bounded. One client at a time and a seeded
+// jitter make every run see the same faults at the same calls. Exits with status 1 on any failed check.
+//
+//   java -cp target/benchmarks.jar benchmark.FaultInjectionTest [calls per scenario]
+public class FaultInjectionTest {
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final long SEED = 42;
+    private static final long BREAKER_OPEN_MILLIS = 2000;
+    private static final int OUTAGE_CALLS = 50; // Each one logs that stored data was served
+    private static final long BASE_LATENCY_MILLIS = 10;
+    private static final long SLOW_MILLIS = 1000;
+    private static final long MAX_HEDGED_P99_MILLIS = 500;
+    private static final long MAX_FAIL_FAST_MILLIS = 20;
+    private static final int FAILURES_TO_OPEN = 5; // Consecutive failed calls that open a breaker
+
+    private static boolean failed;
+
+    // Outcome of one run of calls
+    private static class Run {
+        private final long[] latencies;
+        private int ok;
+        private long upstreamCalls;
+
+        Run(int calls) {
+            latencies = new long[calls];
+        }
+
+        int getFailed() {
+            return latencies.length - ok;
+        }
+
+        // Slowest of the calls from the given one on, in milliseconds
+        double maxFrom(int first) {
+            return Arrays.stream(latencies, first, latencies.length).max().orElse(0) / 1e6;
+        }
+
+        double percentile(double quantile) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        try (StubWeatherServer server = new StubWeatherServer()) {
+            server.setLatencyMillis(BASE_LATENCY_MILLIS);
+            System.out.printf("%-12s %-10s %6s %6s %9s %9s %9s %9s%n",
+                    "scenario", "client", "ok", "failed", "p50 ms", "p99 ms", "max ms", "upstream");
+
+            // Every 10th call fails with a 503
+            Run plain = run(server, "errors", calls, plainClient(server), () -> server.setErrorEvery(10));
+            Run resilient = run(server, "errors", calls, resilientClient(server, false),
+                    () -> server.setErrorEvery(10));
+            check(plain.getFailed() > 0, "plain client sees the injected 503s");
+            check(resilient.getFailed() == 0, "retries hide every injected 503");
+
+            // Every 10th connection is dropped without an answer. HttpURLConnection already sends a
+            // GET again once when a kept-alive connection drops, so the plain client copes as well
+            run(server, "drops", calls, plainClient(server), () -> server.setDropEvery(10));
+            resilient = run(server, "drops", calls, resilientClient(server, false), () -> server.setDropEvery(10));
+            check(resilient.getFailed() == 0, "retries hide every dropped connection");
+
+            // Every 25th call takes a second longer
+            plain = run(server, "slow tail", calls, plainClient(server), () -> server.setSlowEvery(25, SLOW_MILLIS));
+            resilient = run(server, "slow tail", calls, resilientClient(server, true),
+                    () -> server.setSlowEvery(25, SLOW_MILLIS));
+            check(plain.percentile(0.99) >= SLOW_MILLIS, "plain client's p99 includes the slow calls");
+            check(resilient.percentile(0.99) < MAX_HEDGED_P99_MILLIS, "hedging keeps p99 under "
+                    + MAX_HEDGED_P99_MILLIS + " ms");
+
+            outage(server);
+        }
+        if (failed) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    // The endpoint goes down after a city has been fetched once. Callers get the stored weather,
+    // the breaker opens and stops further calls, and once the endpoint is back a test call closes it.
+    private static void outage(StubWeatherServer server) throws IOException, InterruptedException {
+        File databaseFile = File.createTempFile("weather-faults", ".db");
+        DatabaseHandler dbHandler = new DatabaseHandler("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        ResilientTransport transport = resilientTransport(false);
+        PersistentWeatherService service = new PersistentWeatherService(
+                new WeatherAPIService(server.getBaseUrl(), transport), dbHandler);
+        try {
+            server.resetFaults();
+            service.getCurrentWeather("London");
+            while (service.getStoredCurrentWeather("London") == null) {
+                Thread.sleep(10); // Stored by the database writer thread
+            }
+
+            int calls = OUTAGE_CALLS;
+            Run run = run(server, "outage", calls, service, () -> server.setOutage(true));
+            check(run.getFailed() == 0, "stored weather is served throughout the outage");
+            check(transport.getBreakerState(WEATHER_PATH) != CircuitBreaker.State.CLOSED, "breaker opened");
+            check(run.upstreamCalls <= FAILURES_TO_OPEN * (ResilientTransport.DEFAULT_MAX_RETRIES + 1),
+                    "open breaker stops calls to the failing endpoint (" + run.upstreamCalls + " made)");
+            check(transport.getRejectedCount() == calls - FAILURES_TO_OPEN,
+                    "breaker rejected every call after it opened");
+            check(run.maxFrom(FAILURES_TO_OPEN) < MAX_FAIL_FAST_MILLIS, "calls fail fast while the breaker is open");
+
+            server.setOutage(false);
+            Thread.sleep(BREAKER_OPEN_MILLIS);
+            service.getCurrentWeather("London");
+            check(transport.getBreakerState(WEATHER_PATH) == CircuitBreaker.State.CLOSED,
+                    "breaker closes once the endpoint recovers");
+            check(!service.isServingStale("London"), "fresh weather is served after recovery");
+        } finally {
+            dbHandler.closeConnection();
+            databaseFile.delete();
+            new File(databaseFile.getPath() + "-wal").delete();
+            new File(databaseFile.getPath() + "-shm").delete();
+        }
+    }
+
+    private static Run run(StubWeatherServer server, String scenario, int calls, WeatherService client,
+                           Runnable faults) {
+        server.resetFaults();
+        faults.run();
+        long before = server.getCallCount(WEATHER_PATH);
+        Run run = new Run(calls);
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            try {
+                client.getCurrentWeather("London");
+                run.ok++;
+            } catch (IOException e) {
+                // Counted as failed
+            }
+            run.latencies[i] = System.nanoTime() - start;
+        }
+        run.upstreamCalls = server.getCallCount(WEATHER_PATH) - before;
+        server.resetFaults();
+        System.out.printf("%-12s %-10s %6d %6d %9.1f %9.1f %9.1f %9d%n", scenario,
+                client instanceof PersistentWeatherService ? "stored" : isResilient(client) ? "resilient" : "plain",
+                run.ok, run.getFailed(), run.percentile(0.50), run.percentile(0.99), run.percentile(1.0),
+                run.upstreamCalls);
+        return run;
+    }
+
+    private static WeatherAPIService plainClient(StubWeatherServer server) {
+        return new WeatherAPIService(server.getBaseUrl(), new PooledHttpTransport());
+    }
+
+    private static WeatherAPIService resilientClient(StubWeatherServer server, boolean hedging) {
+        return new ResilientClient(server.getBaseUrl(), resilientTransport(hedging));
+    }
+
+    private static ResilientTransport resilientTransport(boolean hedging) {
+        return new ResilientTransport(new PooledHttpTransport(), ResilientTransport.DEFAULT_MAX_RETRIES, hedging,
+                BREAKER_OPEN_MILLIS, new Random(SEED));
+    }
+
+    private static boolean isResilient(WeatherService client) {
+        return client instanceof ResilientClient;
+    }
+
+    // Only tells the two clients apart in the results
+    private static class ResilientClient extends WeatherAPIService {
+        ResilientClient(String baseUrl, HttpTransport transport) {
+            super(baseUrl, transport);
+        }
+    }
+
+    private static void check(boolean passed, String description) {
+        System.out.println((passed ? "  ok   " : "  FAIL ") + description);
+        failed |= !passed;
+    }
+}
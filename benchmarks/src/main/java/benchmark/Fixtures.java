@@ -0,0 +1,36 @@
+package benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Recorded OpenWeatherMap responses bundled under /fixtures
+public final class Fixtures {
+    public static final String CURRENT = "current.json";
+    public static final String FORECAST = "forecast.json";
+    public static final String GEO = "geo.json";
+    public static final String AIR_POLLUTION = "air_pollution.json";
+    public static final String ONE_CALL = "onecall.json";
+
+    private Fixtures() {
+    }
+
+    public static String load(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
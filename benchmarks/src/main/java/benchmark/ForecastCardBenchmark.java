@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.ForecastParser;
+import model.Forecast;
+import view.ForecastCard;
+import view.ForecastCardBuilder;
+
+// The forecast-to-card transformation behind the hourly and daily panels
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForecastCardBenchmark {
+    private Forecast forecast;
+    private JSONArray forecastList;
+    private ForecastCardBuilder cardBuilder;
+
+    @Setup
+    public void setUp() {
+        String json = Fixtures.load(Fixtures.FORECAST);
+        forecast = ForecastParser.parse(json);
+        forecastList = new JSONObject(json).getJSONArray("list");
+        cardBuilder = new ForecastCardBuilder();
+    }
+
+    @Benchmark
+    public List<ForecastCard> hourlyCards() {
+        return cardBuilder.buildHourlyCards(forecast, 8);
+    }
+
+    @Benchmark
+    public List<ForecastCard> dailyCards() {
+        return cardBuilder.buildDailyCards(forecast, 10);
+    }
+
+    // The old daily path: sample every 8th slot from the JSON tree and re-parse dt_txt each time
+    @Benchmark
+    public void dailyCardsStrideSampling(Blackhole blackhole) throws ParseException {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("E");
+        SimpleDateFormat dateFormat = new SimpleDateFormat("M/d");
+        for (int i = 0; i < 10; i++) {
+            int index = Math.min(i * 8, forecastList.length() - 1);
+            JSONObject timepoint = forecastList.getJSONObject(index);
+            JSONObject main = timepoint.getJSONObject("main");
+            JSONObject weather = timepoint.getJSONArray("weather").getJSONObject(0);
+            Date forecastDate = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(timepoint.getString("dt_txt"));
+            blackhole.consume(dayFormat.format(forecastDate));
+            blackhole.consume(dateFormat.format(forecastDate));
+            blackhole.consume(weather.getString("description").toLowerCase());
+            blackhole.consume(String.format("%.0f° / %.0f°", main.getDouble("temp_max"), main.getDouble("temp_min")));
+        }
+    }
+}
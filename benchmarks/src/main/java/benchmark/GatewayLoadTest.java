@@ -0,0 +1,199 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import controller.PooledHttpTransport;
+import controller.QuotaGovernor;
+import controller.RateLimiter;
+import controller.WeatherServices;
+import model.DatabaseHandler;
+import server.WeatherGateway;
+
+// Load test for the HTTP gateway: a thousand clients with keep-alive connections ask for the
+// current weather (and sometimes the forecast) of random cities, revalidating with the ETag
+// they last saw. The gateway talks to a local stub upstream with added latency.
+// Prints requests/s, latency percentiles, the mix of 200s and 304s, and how many upstream
+// calls all of that took. Exits with status 1 if any request failed.
+//
+//   java -cp target/benchmarks.jar benchmark.GatewayLoadTest [clients] [seconds] [cities] [upstream ms] [threads]
+public class GatewayLoadTest {
+    private static final int WARM_UP_SECONDS = 3;
+    private static final double FORECAST_SHARE = 0.2;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        int cities = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long upstreamMillis = args.length > 3 ? Long.parseLong(args[3]) : 50;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : WeatherGateway.DEFAULT_THREADS;
+        // Every client keeps its connection; the JDK only pools 5 per host unless told otherwise
+        System.setProperty("http.maxConnections", String.valueOf(clients + 50));
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(clients + 50));
+
+        File databaseFile = File.createTempFile("weather-gateway", ".db");
+        DatabaseHandler dbHandler = new DatabaseHandler("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        StubWeatherServer upstream = new StubWeatherServer();
+        upstream.setLatencyMillis(upstreamMillis);
+        // No rate limit: this measures the gateway, not the key's quota
+        QuotaGovernor quotaGovernor = new QuotaGovernor(new PooledHttpTransport(), dbHandler,
+                new RateLimiter(1_000_000), Long.MAX_VALUE);
+        WeatherServices services = new WeatherServices(dbHandler, upstream.getBaseUrl(), quotaGovernor, cities);
+        WeatherGateway gateway = new WeatherGateway(services.getApiService(), 0, threads, cities);
+        gateway.start();
+        String baseUrl = "http://127.0.0.1:" + gateway.getPort();
+
+        long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(1); // Time for every client thread to start
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARM_UP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<long[]> latencies = new ArrayList<>();
+        AtomicLong ok = new AtomicLong();
+        AtomicLong notModified = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong bytesRead = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            Thread client = new Thread(() -> {
+                Map<String, String> etags = new HashMap<>();
+                long[] samples = new long[1024];
+                int count = 0;
+                byte[] buffer = new byte[8192];
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                sleepUntil(start);
+                while (true) {
+                    long before = System.nanoTime();
+                    if (before >= end) {
+                        break;
+                    }
+                    String path = random.nextDouble() < FORECAST_SHARE ? "/v1/forecast" : "/v1/weather";
+                    String url = baseUrl + path + "?city=" + encode("City " + random.nextInt(cities));
+                    int status;
+                    try {
+                        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+                        String etag = etags.get(url);
+                        if (etag != null) {
+                            connection.setRequestProperty("If-None-Match", etag);
+                        }
+                        status = connection.getResponseCode();
+                        // Read to the end so the connection goes back to the keep-alive pool
+                        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                        if (body != null) {
+                            try (InputStream in = body) {
+                                int n;
+                                while ((n = in.read(buffer)) > 0) {
+                                    bytesRead.addAndGet(n);
+                                }
+                            }
+                        }
+                        if (status == HttpURLConnection.HTTP_OK) {
+                            etags.put(url, connection.getHeaderField("ETag"));
+                        }
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    long after = System.nanoTime();
+                    if (before < measureFrom) {
+                        continue;
+                    }
+                    if (status == HttpURLConnection.HTTP_OK) {
+                        ok.incrementAndGet();
+                    } else if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        notModified.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                    if (count == samples.length) {
+                        samples = Arrays.copyOf(samples, count * 2);
+                    }
+                    samples[count++] = after - before;
+                }
+                synchronized (latencies) {
+                    latencies.add(Arrays.copyOf(samples, count));
+                }
+                done.countDown();
+            }, "load-client-" + c);
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+
+        long total = 0;
+        for (long[] samples : latencies) {
+            total += samples.length;
+        }
+        long[] all = new long[(int) total];
+        int offset = 0;
+        for (long[] samples : latencies) {
+            System.arraycopy(samples, 0, all, offset, samples.length);
+            offset += samples.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%,d clients for %d s against %d cities, upstream latency %d ms, %d handler threads%n",
+                clients, seconds, cities, upstreamMillis, threads);
+        System.out.printf("%,d requests, %,.0f requests/s, %,.1f MB/s of bodies%n",
+                total, total / (double) seconds, bytesRead.get() / 1e6 / (seconds + WARM_UP_SECONDS));
+        System.out.println("Latency: " + percentiles(all));
+        System.out.printf("Responses: %,d 200, %,d 304, %,d failed%n", ok.get(), notModified.get(), failed.get());
+        System.out.printf("Upstream calls (whole run): %,d current weather, %,d forecast for %d cities%n",
+                upstream.getCallCount("/data/2.5/weather"), upstream.getCallCount("/data/2.5/forecast"), cities);
+
+        gateway.stop();
+        services.shutdown();
+        upstream.close();
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+        if (failed.get() > 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static String encode(String city) {
+        try {
+            return URLEncoder.encode(city, "UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "no samples";
+        }
+        return String.format("p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms", at(sorted, 0.50),
+                at(sorted, 0.90), at(sorted, 0.99), at(sorted, 0.999), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double at(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1e6;
+    }
+}
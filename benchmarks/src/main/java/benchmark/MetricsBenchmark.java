@@ -0,0 +1,62 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.WeatherAPIService;
+import metrics.Metrics;
+import metrics.StageTimer;
+import model.WeatherData;
+
+// Cost of the stage metrics on the hot path. Whether they record is fixed when the JVM starts,
+// so this class runs with them off and the Enabled subclass runs the same benchmarks with them on.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    private static final StageTimer TIMER = Metrics.timer("benchmark_stage_seconds", "Benchmark stage");
+
+    private String currentJson;
+
+    @Setup
+    public void setUp() {
+        currentJson = Fixtures.load(Fixtures.CURRENT);
+    }
+
+    // A bare start/stop pair
+    @Benchmark
+    public void timedStage() {
+        TIMER.stop(TIMER.start());
+    }
+
+    // The same pair contended by several threads, as on the gateway's request pool
+    @Benchmark
+    @Threads(4)
+    public void timedStageContended() {
+        TIMER.stop(TIMER.start());
+    }
+
+    // A real stage, for scale: parsing a /weather response, which is timed inside
+    @Benchmark
+    public WeatherData parseCurrentWeather() {
+        return WeatherAPIService.parseCurrentWeather(currentJson);
+    }
+
+    @Fork(value = 1, jvmArgsAppend = "-Dweather.metrics=true")
+    public static class Enabled extends MetricsBenchmark {
+    }
+}
@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.DatabaseHandler;
+import model.ObservationBucket;
+import model.WeatherData;
+
+// Observation history queries against a scratch database holding a year of 10-minute samples per city.
+// Whole-hour buckets come from the hourly rollups, finer ones from the raw observations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObservationBenchmark {
+    private static final long SAMPLE_SECONDS = 600;
+    private static final long YEAR_SECONDS = 365 * 24 * 3600L;
+    private static final long START = 1700000000L;
+    private static final long END = START + YEAR_SECONDS;
+    private static final int WRITE_BATCH = 50;
+
+    @Param({"1", "20"})
+    public int cities;
+
+    private File databaseFile;
+    private DatabaseHandler dbHandler;
+    private long nextObservedAt = END;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseFile = File.createTempFile("weather-observations", ".db");
+        dbHandler = new DatabaseHandler("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+
+        long started = System.nanoTime();
+        List<WeatherData> batch = new ArrayList<>();
+        int rows = 0;
+        for (long observedAt = START; observedAt < END; observedAt += SAMPLE_SECONDS) {
+            for (int city = 1; city <= cities; city++) {
+                batch.add(observation(city, observedAt));
+            }
+            if (batch.size() >= 1000) {
+                rows += batch.size();
+                dbHandler.addObservations(batch).join();
+                batch.clear();
+            }
+        }
+        rows += batch.size();
+        dbHandler.addObservations(batch).join();
+        System.out.printf("%nWrote %,d observations in %d ms%n", rows,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dbHandler.closeConnection();
+        databaseFile.delete();
+        new File(databaseFile.getPath() + "-wal").delete();
+        new File(databaseFile.getPath() + "-shm").delete();
+    }
+
+    // What the history chart asks for
+    @Benchmark
+    public List<ObservationBucket> weekIn3HourBuckets() {
+        return dbHandler.getObservationBuckets(1, END - 7 * 24 * 3600L, END, 3 * 3600);
+    }
+
+    @Benchmark
+    public List<ObservationBucket> yearInDailyBuckets() {
+        return dbHandler.getObservationBuckets(1, START, END, 24 * 3600);
+    }
+
+    @Benchmark
+    public List<ObservationBucket> dayIn30MinuteBucketsFromRaw() {
+        return dbHandler.getObservationBuckets(1, END - 24 * 3600L, END, 1800);
+    }
+
+    // Worst case: every raw sample of the year is scanned
+    @Benchmark
+    public List<ObservationBucket> yearIn90MinuteBucketsFromRaw() {
+        return dbHandler.getObservationBuckets(1, START, END, 5400);
+    }
+
+    @Benchmark
+    public void addObservationBatch() {
+        List<WeatherData> batch = new ArrayList<>(WRITE_BATCH);
+        for (int i = 0; i < WRITE_BATCH; i++) {
+            batch.add(observation(1 + i % cities, nextObservedAt));
+            if (i % cities == cities - 1) {
+                nextObservedAt += SAMPLE_SECONDS;
+            }
+        }
+        dbHandler.addObservations(batch).join();
+    }
+
+    // A daily temperature cycle on top of a seasonal one
+    private static WeatherData observation(int cityId, long observedAt) {
+        double day = (observedAt - START) / 86400.0;
+        double temperature = 10 + 8 * Math.sin(day * 2 * Math.PI / 365) + 5 * Math.sin(day * 2 * Math.PI) + cityId % 7;
+        double pressure = 1013 + 10 * Math.sin(day / 3);
+        return new WeatherData("City " + cityId, Math.round(temperature * 100) / 100.0, "clear sky", 70, 3.2,
+                temperature - 1, "01d", Math.round(pressure), 10000, null, cityId, observedAt);
+    }
+}
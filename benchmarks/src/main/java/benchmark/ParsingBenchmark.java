@@ -0,0 +1,80 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.ForecastParser;
+import controller.WeatherAPIService;
+import model.Forecast;
+import model.WeatherData;
+
+// Response parsing and WeatherData handling, without any network I/O
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+    private String currentJson;
+    private String forecastJson;
+    private WeatherData weatherData;
+
+    @Setup
+    public void setUp() {
+        currentJson = Fixtures.load(Fixtures.CURRENT);
+        forecastJson = Fixtures.load(Fixtures.FORECAST);
+        weatherData = WeatherAPIService.parseCurrentWeather(currentJson);
+    }
+
+    @Benchmark
+    public WeatherData parseCurrentWeather() {
+        return WeatherAPIService.parseCurrentWeather(currentJson);
+    }
+
+    @Benchmark
+    public WeatherData constructWeatherData() {
+        return new WeatherData("London", 14.21, "broken clouds", 82, 4.63, 13.72, "04d", 1013, 10000);
+    }
+
+    @Benchmark
+    public String weatherDataToString() {
+        return weatherData.toString();
+    }
+
+    @Benchmark
+    public Forecast parseForecastStreaming() {
+        return ForecastParser.parse(forecastJson);
+    }
+
+    // The previous path: build a JSONObject tree and walk it for the same fields
+    @Benchmark
+    public void parseForecastOrgJson(Blackhole blackhole) {
+        JSONArray list = new JSONObject(forecastJson).getJSONArray("list");
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject timepoint = list.getJSONObject(i);
+            JSONObject main = timepoint.getJSONObject("main");
+            JSONObject weather = timepoint.getJSONArray("weather").getJSONObject(0);
+            blackhole.consume(timepoint.getLong("dt"));
+            blackhole.consume(main.getDouble("temp"));
+            blackhole.consume(main.getDouble("temp_min"));
+            blackhole.consume(main.getDouble("temp_max"));
+            blackhole.consume(main.getInt("humidity"));
+            blackhole.consume(timepoint.getJSONObject("wind").getDouble("speed"));
+            blackhole.consume(weather.getString("description"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.SnapshotCodec;
+import controller.WeatherAPIService;
+import model.Forecast;
+import model.WeatherData;
+
+// Binary snapshots against the JSON they replace: size is printed during setup, speed is measured
+// for single snapshots and for many cities packed into one buffer. Setup also checks that the
+// recorded responses survive a round trip unchanged.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"1000"})
+    public int cities;
+
+    private String currentJson;
+    private String forecastJson;
+    private WeatherData weatherData;
+    private Forecast forecast;
+    private byte[] currentSnapshot;
+    private byte[] forecastSnapshot;
+    private ByteBuffer packed;
+
+    @Setup
+    public void setUp() {
+        currentJson = Fixtures.load(Fixtures.CURRENT);
+        forecastJson = Fixtures.load(Fixtures.FORECAST);
+        weatherData = WeatherAPIService.parseCurrentWeather(currentJson);
+        forecast = WeatherAPIService.parseForecast(forecastJson);
+        currentSnapshot = SnapshotCodec.encodeWeatherData(weatherData);
+        forecastSnapshot = SnapshotCodec.encodeForecast(forecast);
+
+        if (!weatherData.equals(SnapshotCodec.decodeWeatherData(currentSnapshot))) {
+            throw new IllegalStateException("Current weather changed in a snapshot round trip");
+        }
+        if (!forecast.equals(SnapshotCodec.decodeForecast(forecastSnapshot))) {
+            throw new IllegalStateException("Forecast changed in a snapshot round trip");
+        }
+
+        packed = ByteBuffer.allocateDirect(cities * (currentSnapshot.length + forecastSnapshot.length));
+        writeAll();
+        System.out.printf("%ncurrent: %d bytes JSON, %d bytes snapshot; forecast: %d bytes JSON, %d bytes snapshot%n",
+                currentJson.getBytes(StandardCharsets.UTF_8).length, currentSnapshot.length,
+                forecastJson.getBytes(StandardCharsets.UTF_8).length, forecastSnapshot.length);
+    }
+
+    @Benchmark
+    public WeatherData decodeCurrentSnapshot() {
+        return SnapshotCodec.decodeWeatherData(currentSnapshot);
+    }
+
+    @Benchmark
+    public WeatherData parseCurrentJson() {
+        return WeatherAPIService.parseCurrentWeather(currentJson);
+    }
+
+    @Benchmark
+    public Forecast decodeForecastSnapshot() {
+        return SnapshotCodec.decodeForecast(forecastSnapshot);
+    }
+
+    @Benchmark
+    public Forecast parseForecastJson() {
+        return WeatherAPIService.parseForecast(forecastJson);
+    }
+
+    @Benchmark
+    public byte[] encodeForecast() {
+        return SnapshotCodec.encodeForecast(forecast);
+    }
+
+    // Current weather and forecast for every city, written back to back into one direct buffer
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int writeAllCities() {
+        writeAll();
+        return packed.position();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void readAllCities(Blackhole blackhole) {
+        packed.flip();
+        while (packed.hasRemaining()) {
+            blackhole.consume(SnapshotCodec.readWeatherData(packed));
+            blackhole.consume(SnapshotCodec.readForecast(packed));
+        }
+    }
+
+    private void writeAll() {
+        packed.clear();
+        for (int i = 0; i < cities; i++) {
+            SnapshotCodec.writeWeatherData(packed, weatherData);
+            SnapshotCodec.writeForecast(packed, forecast);
+        }
+    }
+}
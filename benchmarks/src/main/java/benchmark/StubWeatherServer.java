@@ -0,0 +1,188 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local stand-in for api.openweathermap.org that serves the recorded fixtures.
+// Counts calls per path and can add a fixed latency to every response.
+// Faults are injected by call number rather than at random, so a run with one client is repeatable:
+// every Nth call can fail with a 503, drop the connection, or be slowed down, and an outage fails them all.
+// Current weather by name and the group endpoint echo the requested cities, each with a stable ID.
+public class StubWeatherServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<>();
+    private volatile long latencyMillis;
+    private final AtomicLong calls = new AtomicLong(); // All paths; numbers the calls for fault injection
+    private volatile int errorEvery;
+    private volatile int dropEvery;
+    private volatile int slowEvery;
+    private volatile long slowMillis;
+    private volatile boolean outage;
+
+    static {
+        // Without TCP_NODELAY the header and body writes hit delayed-ACK stalls of ~40ms each
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    public StubWeatherServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        String current = Fixtures.load(Fixtures.CURRENT);
+        serve("/data/2.5/weather", query -> currentWeather(current, query));
+        serve("/data/2.5/group", query -> group(current, query));
+        serve("/data/2.5/forecast", Fixtures.load(Fixtures.FORECAST));
+        serve("/geo/1.0/direct", Fixtures.load(Fixtures.GEO));
+        serve("/data/2.5/air_pollution", Fixtures.load(Fixtures.AIR_POLLUTION));
+        serve("/data/3.0/onecall", Fixtures.load(Fixtures.ONE_CALL));
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    // Every Nth call answers 503 Service Unavailable; 0 turns it off
+    public void setErrorEvery(int errorEvery) {
+        this.errorEvery = errorEvery;
+    }
+
+    // Every Nth call closes the connection without answering
+    public void setDropEvery(int dropEvery) {
+        this.dropEvery = dropEvery;
+    }
+
+    // Every Nth call takes this much longer
+    public void setSlowEvery(int slowEvery, long slowMillis) {
+        this.slowEvery = slowEvery;
+        this.slowMillis = slowMillis;
+    }
+
+    // While set, every call answers 503
+    public void setOutage(boolean outage) {
+        this.outage = outage;
+    }
+
+    // Numbering restarts, so each scenario sees the same faults at the same calls
+    public void resetFaults() {
+        errorEvery = 0;
+        dropEvery = 0;
+        slowEvery = 0;
+        outage = false;
+        calls.set(0);
+    }
+
+    public long getCallCount(String path) {
+        AtomicLong count = callCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    // Stable fake OpenWeatherMap ID for a city name
+    public static long cityId(String cityName) {
+        return (cityName.toLowerCase().hashCode() & 0x7fffffffL) % 10_000_000L + 1;
+    }
+
+    private void serve(String path, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        callCounts.put(path, new AtomicLong());
+        server.createContext(path, exchange -> respond(exchange, path, bytes));
+    }
+
+    private void serve(String path, Function<String, String> bodyForQuery) {
+        callCounts.put(path, new AtomicLong());
+        server.createContext(path, exchange -> respond(exchange, path,
+                bodyForQuery.apply(exchange.getRequestURI().getRawQuery()).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Lat/lon queries get the fixture unchanged
+    private static String currentWeather(String template, String query) {
+        String cityName = queryParameter(query, "q");
+        if (cityName == null) {
+            return template;
+        }
+        return new JSONObject(template).put("name", cityName).put("id", cityId(cityName)).toString();
+    }
+
+    private static String group(String template, String query) {
+        String[] ids = queryParameter(query, "id").split(",");
+        JSONArray list = new JSONArray();
+        for (String id : ids) {
+            list.put(new JSONObject(template).put("name", "City " + id).put("id", Long.parseLong(id)));
+        }
+        return new JSONObject().put("cnt", ids.length).put("list", list).toString();
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void respond(HttpExchange exchange, String path, byte[] body) throws IOException {
+        callCounts.get(path).incrementAndGet();
+        long call = calls.incrementAndGet();
+        if (outage || isNth(call, errorEvery)) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        if (isNth(call, dropEvery)) {
+            exchange.close(); // Before any response, so the connection is dropped
+            return;
+        }
+        long delay = latencyMillis + (isNth(call, slowEvery) ? slowMillis : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static boolean isNth(long call, int every) {
+        return every > 0 && call % every == 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
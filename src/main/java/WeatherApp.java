@@ -1,6 +1,26 @@
+import java.util.Arrays;
+
+import cli.WeatherBatch;
+import controller.PooledHttpTransport;
+import server.GatewayMain;
+import view.StartupTimer;
 import view.WeatherAppUI;
 public class WeatherApp {
     public static void main(String[] args) {
+        // Idle keep-alive connections the JDK keeps per host; only applied if the user hasn't chosen one
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(PooledHttpTransport.MAX_IDLE_CONNECTIONS_PER_HOST));
+        }
+
+        // Headless modes (batch, HTTP gateway); neither touches the view package, so AWT isn't loaded
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(WeatherBatch.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            GatewayMain.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        StartupTimer.markMainStarted();
         new WeatherAppUI();
     }
 }
\ No newline at end of file
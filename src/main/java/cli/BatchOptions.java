@@ -0,0 +1,125 @@
+package cli;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line of the headless batch mode; see USAGE
+public class BatchOptions {
+    public static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: WeatherApp --batch [options] [city ...]",
+            "Fetches the current weather for each city and writes one result per line to stdout.",
+            "Cities come from the arguments, from --file, or one per line on stdin if neither is given.",
+            "",
+            "  --file PATH         read cities from PATH, one per line ('-' for stdin; '#' starts a comment)",
+            "  --format jsonl|csv  output format (default jsonl)",
+            "  --concurrency N     cities fetched at once (default " + BatchOptions.DEFAULT_CONCURRENCY + ")",
+            "  --rpm N             API requests per minute (default: the API key's limit)",
+            "  --base-url URL      API server, e.g. a local stub (default: OpenWeatherMap)",
+            "  --db PATH           SQLite database for caching and history (default weather_app.db)",
+            "",
+            "A summary with throughput and latency percentiles is written to stderr.",
+            "Exit status: 0 if every city was fetched, 2 if any failed, 1 on bad usage.");
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final String DEFAULT_DB_PATH = "weather_app.db";
+
+    private final List<String> cities = new ArrayList<>();
+    private String file;
+    private ResultFormat format = ResultFormat.JSONL;
+    private int concurrency = DEFAULT_CONCURRENCY;
+    private double requestsPerMinute; // 0 keeps the key's default limit
+    private String baseUrl;
+    private String dbPath = DEFAULT_DB_PATH;
+
+    // Throws IllegalArgumentException with a message for the user on anything it can't accept
+    public static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--file":
+                    options.file = value(args, ++i, arg);
+                    break;
+                case "--format":
+                    options.format = ResultFormat.forName(value(args, ++i, arg));
+                    break;
+                case "--concurrency":
+                    options.concurrency = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                case "--rpm":
+                    options.requestsPerMinute = positiveInt(value(args, ++i, arg), arg);
+                    break;
+                case "--base-url":
+                    options.baseUrl = value(args, ++i, arg);
+                    break;
+                case "--db":
+                    options.dbPath = value(args, ++i, arg);
+                    break;
+                case "--":
+                    // Everything after is a city, even if it starts with "--"
+                    while (++i < args.length) {
+                        options.cities.add(args[i]);
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                    options.cities.add(arg);
+            }
+        }
+        if (options.file != null && !options.cities.isEmpty()) {
+            throw new IllegalArgumentException("Give cities as arguments or with --file, not both");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int positiveInt(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive whole number, not " + value);
+    }
+
+    // Getters
+    public List<String> getCities() {
+        return cities;
+    }
+
+    // Null when the cities are given as arguments, or should be read from stdin
+    public String getFile() {
+        return file;
+    }
+
+    public ResultFormat getFormat() {
+        return format;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public double getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getDbPath() {
+        return dbPath;
+    }
+}
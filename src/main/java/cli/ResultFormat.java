@@ -0,0 +1,114 @@
+package cli;
+
+import java.util.Locale;
+
+import org.json.JSONObject;
+
+import model.Coordinates;
+import model.WeatherData;
+
+// How batch results are written: one JSON object per line, or CSV with a header row.
+// Numbers are always written with a '.' decimal point, whatever the default locale.
+public enum ResultFormat {
+    JSONL {
+        @Override
+        public String header() {
+            return null;
+        }
+
+        @Override
+        public String format(String city, WeatherData data, String error, double latencyMillis) {
+            // Built by hand to keep the fields in a fixed order
+            StringBuilder line = new StringBuilder(256);
+            line.append("{\"city\":").append(JSONObject.quote(city));
+            line.append(",\"status\":\"").append(data != null ? "ok" : "error").append('"');
+            if (data != null) {
+                line.append(",\"name\":").append(JSONObject.quote(data.getCityName()));
+                line.append(",\"city_id\":").append(data.getCityId());
+                line.append(",\"observed_at\":").append(data.getObservedAt());
+                line.append(",\"temperature\":").append(number(data.getTemperature()));
+                line.append(",\"feels_like\":").append(number(data.getFeelsLike()));
+                line.append(",\"humidity\":").append(data.getHumidity());
+                line.append(",\"pressure\":").append(number(data.getPressure()));
+                line.append(",\"wind_speed\":").append(number(data.getWindSpeed()));
+                line.append(",\"visibility\":").append(data.getVisibility());
+                line.append(",\"description\":").append(JSONObject.quote(data.getWeatherDescription()));
+                line.append(",\"icon\":").append(JSONObject.quote(data.getIconCode()));
+                Coordinates coordinates = data.getCoordinates();
+                if (coordinates != null) {
+                    line.append(",\"lat\":").append(number(coordinates.getLatitude()));
+                    line.append(",\"lon\":").append(number(coordinates.getLongitude()));
+                }
+            } else {
+                line.append(",\"error\":").append(JSONObject.quote(error));
+            }
+            line.append(",\"latency_ms\":").append(String.format(Locale.ROOT, "%.1f", latencyMillis));
+            return line.append('}').toString();
+        }
+    },
+
+    CSV {
+        @Override
+        public String header() {
+            return "city,status,name,city_id,observed_at,temperature,feels_like,humidity,pressure,wind_speed,"
+                    + "visibility,description,icon,lat,lon,latency_ms,error";
+        }
+
+        @Override
+        public String format(String city, WeatherData data, String error, double latencyMillis) {
+            StringBuilder line = new StringBuilder(160);
+            line.append(quote(city)).append(',').append(data != null ? "ok" : "error").append(',');
+            if (data != null) {
+                Coordinates coordinates = data.getCoordinates();
+                line.append(quote(data.getCityName())).append(',')
+                        .append(data.getCityId()).append(',')
+                        .append(data.getObservedAt()).append(',')
+                        .append(number(data.getTemperature())).append(',')
+                        .append(number(data.getFeelsLike())).append(',')
+                        .append(data.getHumidity()).append(',')
+                        .append(number(data.getPressure())).append(',')
+                        .append(number(data.getWindSpeed())).append(',')
+                        .append(data.getVisibility()).append(',')
+                        .append(quote(data.getWeatherDescription())).append(',')
+                        .append(quote(data.getIconCode())).append(',')
+                        .append(coordinates != null ? number(coordinates.getLatitude()) : "").append(',')
+                        .append(coordinates != null ? number(coordinates.getLongitude()) : "").append(',');
+            } else {
+                line.append(",,,,,,,,,,,,,");
+            }
+            line.append(String.format(Locale.ROOT, "%.1f", latencyMillis)).append(',');
+            return line.append(data != null ? "" : quote(error)).toString();
+        }
+    };
+
+    // First line of the output, or null if the format has none
+    public abstract String header();
+
+    // One line for a city: its weather, or the error that kept it from being fetched
+    public abstract String format(String city, WeatherData data, String error, double latencyMillis);
+
+    public static ResultFormat forName(String name) {
+        for (ResultFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format " + name + "; use jsonl or csv");
+    }
+
+    private static String number(double value) {
+        // Double.toString is locale independent and gives the shortest exact form, e.g. 14.21
+        return Double.toString(value);
+    }
+
+    // RFC 4180: fields with a comma, quote or line break are quoted, with quotes doubled
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
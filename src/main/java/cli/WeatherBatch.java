@@ -0,0 +1,190 @@
+package cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import controller.AsyncWeatherService;
+import controller.PooledHttpTransport;
+import controller.QuotaGovernor;
+import controller.RateLimiter;
+import controller.WeatherService;
+import controller.WeatherServices;
+import model.DatabaseHandler;
+import model.WeatherData;
+
+// Headless front end: fetches the current weather for a list of cities through the same service
+// stack as the desktop app (cache, database, quota) and streams the results to stdout.
+// Only the controller and model packages are used, so no AWT class is ever loaded.
+public class WeatherBatch {
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_USAGE = 1;
+    private static final int EXIT_SOME_FAILED = 2;
+
+    private final BatchOptions options;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Guarded by this
+    private long[] latencies = new long[64];
+    private int fetched;
+    private int failed;
+
+    public WeatherBatch(BatchOptions options, PrintStream out, PrintStream err) {
+        this.options = options;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    // Returns the exit status rather than exiting, for callers that want to decide
+    public static int run(String[] args) {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BatchOptions.USAGE);
+            return EXIT_USAGE;
+        }
+        PrintStream out;
+        try {
+            // Flushed per line by println, so results show up as they arrive, e.g. through a pipe
+            out = new PrintStream(System.out, true, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported
+        }
+        try {
+            return new WeatherBatch(options, out, System.err).fetchAll();
+        } catch (IOException e) {
+            System.err.println("Error reading cities: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_SOME_FAILED;
+        }
+    }
+
+    public int fetchAll() throws IOException, InterruptedException {
+        DatabaseHandler dbHandler = new DatabaseHandler("jdbc:sqlite:" + options.getDbPath());
+        QuotaGovernor quotaGovernor = options.getRequestsPerMinute() > 0
+                ? new QuotaGovernor(new PooledHttpTransport(), dbHandler,
+                        new RateLimiter(options.getRequestsPerMinute() / 60.0), QuotaGovernor.REQUESTS_PER_MONTH)
+                : new QuotaGovernor(new PooledHttpTransport(), dbHandler);
+        WeatherServices services = new WeatherServices(dbHandler, options.getBaseUrl(), quotaGovernor);
+        WeatherService apiService = services.getApiService();
+        int concurrency = options.getConcurrency();
+        // At most one city waiting per worker, so a long list is read as it's fetched rather than up front.
+        // The queue holds every city let in: a worker still finishing a callback hasn't taken the next one yet.
+        int maxInFlight = concurrency * 2;
+        AsyncWeatherService asyncService = new AsyncWeatherService(apiService, concurrency, maxInFlight);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        String header = options.getFormat().header();
+        if (header != null) {
+            out.println(header);
+        }
+        long started = System.nanoTime();
+        String quotaSummary;
+        try (BufferedReader reader = openCityList()) {
+            Iterator<String> cities = reader != null ? reader.lines().iterator() : options.getCities().iterator();
+            while (cities.hasNext()) {
+                String city = cities.next().trim();
+                if (city.isEmpty() || city.startsWith("#")) {
+                    continue;
+                }
+                inFlight.acquire();
+                asyncService.submit(() -> fetch(apiService, city)).whenComplete((line, error) -> {
+                    if (error != null) {
+                        // Only if the task itself never ran, e.g. the pool was shut down
+                        line = options.getFormat().format(city, null, String.valueOf(AsyncWeatherService.unwrap(error)), 0);
+                        record(0, false);
+                    }
+                    out.println(line);
+                    inFlight.release();
+                });
+            }
+        } finally {
+            inFlight.acquire(maxInFlight);
+            // Before the database the quota may read from is closed
+            quotaSummary = quotaGovernor.describe() + "\nUpstream " + services.getResilientTransport();
+            asyncService.shutdown();
+            services.shutdown();
+        }
+        long elapsed = System.nanoTime() - started;
+
+        printSummary(elapsed, quotaSummary);
+        synchronized (this) {
+            return failed > 0 ? EXIT_SOME_FAILED : EXIT_OK;
+        }
+    }
+
+    // Null when the cities were given as arguments
+    private BufferedReader openCityList() throws IOException {
+        String file = options.getFile();
+        if (file == null && !options.getCities().isEmpty()) {
+            return null;
+        }
+        if (file == null || file.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+    }
+
+    // Runs on a worker thread; the latency covers waiting for the rate limit as well as the request
+    private String fetch(WeatherService apiService, String city) {
+        long start = System.nanoTime();
+        WeatherData data = null;
+        String error = null;
+        try {
+            data = apiService.getCurrentWeather(city);
+        } catch (IOException e) {
+            error = e.getMessage();
+        }
+        long latency = System.nanoTime() - start;
+        record(latency, data != null);
+        return options.getFormat().format(city, data, error, latency / 1e6);
+    }
+
+    private synchronized void record(long latencyNanos, boolean ok) {
+        if (!ok) {
+            failed++;
+        }
+        if (fetched == latencies.length) {
+            latencies = Arrays.copyOf(latencies, fetched * 2);
+        }
+        latencies[fetched++] = latencyNanos;
+    }
+
+    private synchronized void printSummary(long elapsedNanos, String quotaSummary) {
+        double seconds = elapsedNanos / 1e9;
+        err.printf("Fetched %,d cities in %.2f s (%.1f cities/s): %,d ok, %,d failed%n",
+                fetched, seconds, seconds > 0 ? fetched / seconds : 0, fetched - failed, failed);
+        if (fetched > 0) {
+            long[] sorted = Arrays.copyOf(latencies, fetched);
+            Arrays.sort(sorted);
+            err.printf("Latency p50 %.1f ms, p90 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.95),
+                    percentile(sorted, 0.99), TimeUnit.NANOSECONDS.toMicros(sorted[sorted.length - 1]) / 1e3);
+        }
+        err.println(quotaSummary);
+    }
+
+    // Nearest-rank percentile in milliseconds
+    private static double percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, rank - 1)]) / 1e3;
+    }
+}
@@ -0,0 +1,46 @@
+package controller;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+// Thrown when the API answers with a non-200 status, as opposed to the network failing
+public class ApiResponseException extends IOException {
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    private final int responseCode;
+    private final long retryAfterMillis;
+
+    public ApiResponseException(String message, int responseCode) {
+        this(message, responseCode, -1);
+    }
+
+    public ApiResponseException(String message, int responseCode, long retryAfterMillis) {
+        super(message + " Response code: " + responseCode);
+        this.responseCode = responseCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    // 5xx responses mean the service is having trouble, not that the request was wrong
+    public boolean isServerError() {
+        return responseCode >= 500;
+    }
+
+    // 401: the key isn't valid for this endpoint, e.g. One Call without a subscription
+    public boolean isUnauthorized() {
+        return responseCode == HttpURLConnection.HTTP_UNAUTHORIZED;
+    }
+
+    // 429: the key is over its rate limit or quota
+    public boolean isRateLimited() {
+        return responseCode == TOO_MANY_REQUESTS;
+    }
+
+    // How long the server asked us to wait, or -1 if it didn't say
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
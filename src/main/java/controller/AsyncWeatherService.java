@@ -0,0 +1,127 @@
+package controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.AirQuality;
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// Runs blocking API and database calls on a bounded worker pool so callers never wait on I/O
+public class AsyncWeatherService {
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_CAPACITY = 32;
+
+    private final WeatherService apiService;
+    private final ThreadPoolExecutor executor;
+
+    public AsyncWeatherService(WeatherService apiService) {
+        this(apiService, POOL_SIZE, QUEUE_CAPACITY);
+    }
+
+    // Pool size bounds how many calls run at once; tasks beyond the queue capacity are rejected
+    public AsyncWeatherService(WeatherService apiService, int poolSize, int queueCapacity) {
+        this.apiService = apiService;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new WorkerThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public CompletableFuture<WeatherData> getCurrentWeather(String cityName) {
+        return submit(() -> apiService.getCurrentWeather(cityName));
+    }
+
+    public CompletableFuture<Forecast> getForecast(String cityName) {
+        return submit(() -> apiService.getForecast(cityName));
+    }
+
+    public CompletableFuture<AirQuality> getAirQuality(String cityName) {
+        return submit(() -> apiService.getAirQuality(cityName));
+    }
+
+    public CompletableFuture<Double> getUvIndex(String cityName) {
+        return submit(() -> apiService.getUvIndex(cityName));
+    }
+
+    public CompletableFuture<WeatherData> getCurrentWeather(String cityName, CancellationToken token) {
+        return submit(() -> apiService.getCurrentWeather(cityName), token);
+    }
+
+    public CompletableFuture<Forecast> getForecast(String cityName, CancellationToken token) {
+        return submit(() -> apiService.getForecast(cityName), token);
+    }
+
+    public CompletableFuture<AirQuality> getAirQuality(String cityName, CancellationToken token) {
+        return submit(() -> apiService.getAirQuality(cityName), token);
+    }
+
+    public CompletableFuture<Double> getUvIndex(String cityName, CancellationToken token) {
+        return submit(() -> apiService.getUvIndex(cityName), token);
+    }
+
+    public CompletableFuture<AirQuality> getAirQuality(String cityName, Coordinates coordinates,
+                                                       CancellationToken token) {
+        return submit(() -> apiService.getAirQuality(cityName, coordinates), token);
+    }
+
+    public CompletableFuture<Double> getUvIndex(String cityName, Coordinates coordinates, CancellationToken token) {
+        return submit(() -> apiService.getUvIndex(cityName, coordinates), token);
+    }
+
+    // Runs the task with the token on its worker thread, so cancelling the token also cuts off
+    // the task's HTTP requests
+    public <T> CompletableFuture<T> submit(Callable<T> task, CancellationToken token) {
+        return submit(() -> token.call(task));
+    }
+
+    // Runs any blocking task (e.g. a database call) on the worker pool
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return; // Cancelled before it started
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Unwraps the CompletionException layer that CompletableFuture adds around task failures
+    public static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "weather-fetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package controller;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.WeatherData;
+
+// Fetches current weather for many cities at once, e.g. for the dashboard.
+// Cities whose OpenWeatherMap ID is known go through the group endpoint, up to 20 per call;
+// the rest are fetched one by one. Calls run on a bounded pool under a requests-per-second ceiling,
+// at background priority so they never hold up an interactive search.
+public class BatchWeatherService {
+    private static final int MAX_QUEUED_CALLS = 256;
+
+    // Receives each city's result as soon as its call completes, on a worker thread
+    public interface Listener {
+        void onResult(String cityName, WeatherData weatherData);
+
+        void onError(String cityName, Throwable error);
+    }
+
+    private final WeatherService apiService;
+    private final AsyncWeatherService asyncService;
+    private final RateLimiter rateLimiter;
+
+    // Normalized city name to OpenWeatherMap city ID, learned from single-city responses
+    private final Map<String, Long> cityIds = new ConcurrentHashMap<>();
+
+    public BatchWeatherService(WeatherService apiService, int maxConcurrency, double requestsPerSecond) {
+        this(apiService, maxConcurrency, new RateLimiter(requestsPerSecond));
+    }
+
+    public BatchWeatherService(WeatherService apiService, int maxConcurrency, RateLimiter rateLimiter) {
+        this.apiService = apiService;
+        this.asyncService = new AsyncWeatherService(apiService, maxConcurrency, MAX_QUEUED_CALLS);
+        this.rateLimiter = rateLimiter;
+    }
+
+    // Completes once every city has been reported to the listener
+    public CompletableFuture<Void> fetchAll(List<String> cityNames, Listener listener) {
+        // Drop duplicates, keeping the first spelling of each city
+        Map<String, String> cities = new LinkedHashMap<>();
+        for (String cityName : cityNames) {
+            cities.putIfAbsent(ResponseCache.normalizeKey(cityName), cityName.trim());
+        }
+
+        List<CompletableFuture<?>> calls = new ArrayList<>();
+        List<String> group = new ArrayList<>(WeatherAPIService.MAX_GROUP_SIZE);
+        for (Map.Entry<String, String> city : cities.entrySet()) {
+            if (cityIds.containsKey(city.getKey())) {
+                group.add(city.getValue());
+                if (group.size() == WeatherAPIService.MAX_GROUP_SIZE) {
+                    calls.add(fetchGroup(group, listener));
+                    group = new ArrayList<>(WeatherAPIService.MAX_GROUP_SIZE);
+                }
+            } else {
+                calls.add(fetchSingle(city.getValue(), listener));
+            }
+        }
+        if (!group.isEmpty()) {
+            calls.add(fetchGroup(group, listener));
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Lets callers that already know a city's ID (e.g. from a city list) skip the first single fetch
+    public void rememberCityId(String cityName, long cityId) {
+        cityIds.put(ResponseCache.normalizeKey(cityName), cityId);
+    }
+
+    public Long getCityId(String cityName) {
+        return cityIds.get(ResponseCache.normalizeKey(cityName));
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public void shutdown() {
+        asyncService.shutdown();
+    }
+
+    private CompletableFuture<?> fetchSingle(String cityName, Listener listener) {
+        return asyncService.submit(() -> {
+            rateLimiter.acquire();
+            return RequestPriority.BACKGROUND.call(() -> apiService.getCurrentWeather(cityName));
+        }).whenComplete((weatherData, error) -> {
+            if (error != null) {
+                listener.onError(cityName, AsyncWeatherService.unwrap(error));
+                return;
+            }
+            if (weatherData.getCityId() != 0) {
+                rememberCityId(cityName, weatherData.getCityId());
+            }
+            listener.onResult(cityName, weatherData);
+        });
+    }
+
+    private CompletableFuture<?> fetchGroup(List<String> group, Listener listener) {
+        long[] ids = new long[group.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getCityId(group.get(i));
+        }
+        return asyncService.submit(() -> {
+            rateLimiter.acquire();
+            return RequestPriority.BACKGROUND.call(() -> apiService.getCurrentWeatherGroup(ids));
+        }).whenComplete((results, error) -> {
+            if (error != null) {
+                Throwable cause = AsyncWeatherService.unwrap(error);
+                for (String cityName : group) {
+                    listener.onError(cityName, cause);
+                }
+                return;
+            }
+            // Results come back keyed by ID, not necessarily in request order
+            Map<Long, WeatherData> byId = new HashMap<>();
+            for (WeatherData weatherData : results) {
+                byId.put(weatherData.getCityId(), weatherData);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                WeatherData weatherData = byId.get(ids[i]);
+                if (weatherData != null) {
+                    listener.onResult(group.get(i), weatherData);
+                } else {
+                    listener.onError(group.get(i), new ApiResponseException("City not found.", HttpURLConnection.HTTP_NOT_FOUND));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,180 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import model.AirQuality;
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// Decorates a WeatherService with in-memory caches, one per endpoint.
+// TTLs follow how often OpenWeatherMap refreshes each kind of data.
+public class CachingWeatherService implements WeatherService {
+    static final long CURRENT_WEATHER_TTL = TimeUnit.MINUTES.toMillis(10);
+    static final long FORECAST_TTL = TimeUnit.HOURS.toMillis(3);
+    static final long AIR_QUALITY_TTL = TimeUnit.HOURS.toMillis(1);
+    static final long UV_INDEX_TTL = TimeUnit.MINUTES.toMillis(30); // Changes with the sun through the day
+    public static final int MAX_CITIES = 50;
+
+    private final WeatherService delegate;
+    private final ResponseCache<WeatherData> currentWeatherCache;
+    private final ResponseCache<Forecast> forecastCache;
+    private final ResponseCache<AirQuality> airQualityCache;
+    private final ResponseCache<Double> uvIndexCache;
+    // City ID to the key the city was last searched under. The API's name for a city can differ
+    // from what was typed (e.g. "Munich" comes back as "München"), so group results are cached
+    // under the searched key rather than the name they carry.
+    private final Map<Long, String> searchedKeys;
+
+    public CachingWeatherService(WeatherService delegate) {
+        this(delegate, MAX_CITIES);
+    }
+
+    // A shared instance, e.g. behind the gateway, may need to hold many more cities than one user looks at
+    public CachingWeatherService(WeatherService delegate, int maxCities) {
+        this.delegate = delegate;
+        this.currentWeatherCache = new ResponseCache<>(CURRENT_WEATHER_TTL, maxCities);
+        this.forecastCache = new ResponseCache<>(FORECAST_TTL, maxCities);
+        this.airQualityCache = new ResponseCache<>(AIR_QUALITY_TTL, maxCities);
+        this.uvIndexCache = new ResponseCache<>(UV_INDEX_TTL, maxCities);
+        this.searchedKeys = Collections.synchronizedMap(new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > maxCities;
+            }
+        });
+    }
+
+    @Override
+    public WeatherData getCurrentWeather(String cityName) throws IOException {
+        String key = ResponseCache.normalizeKey(cityName);
+        WeatherData weatherData = currentWeatherCache.get(key, () -> delegate.getCurrentWeather(cityName));
+        if (weatherData.getCityId() != 0) {
+            searchedKeys.put(weatherData.getCityId(), key);
+        }
+        return weatherData;
+    }
+
+    @Override
+    public Forecast getForecast(String cityName) throws IOException {
+        return forecastCache.get(ResponseCache.normalizeKey(cityName), () -> delegate.getForecast(cityName));
+    }
+
+    // Group results are not looked up in the cache, but they refresh it for cities searched before
+    @Override
+    public List<WeatherData> getCurrentWeatherGroup(long[] cityIds) throws IOException {
+        List<WeatherData> results = delegate.getCurrentWeatherGroup(cityIds);
+        for (WeatherData weatherData : results) {
+            String key = searchedKeys.get(weatherData.getCityId());
+            if (key != null) {
+                currentWeatherCache.put(key, weatherData);
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public AirQuality getAirQuality(String cityName) throws IOException {
+        return airQualityCache.get(ResponseCache.normalizeKey(cityName), () -> delegate.getAirQuality(cityName));
+    }
+
+    @Override
+    public double getUvIndex(String cityName) throws IOException {
+        return uvIndexCache.get(ResponseCache.normalizeKey(cityName), () -> delegate.getUvIndex(cityName));
+    }
+
+    @Override
+    public AirQuality getAirQuality(String cityName, Coordinates coordinates) throws IOException {
+        return airQualityCache.get(ResponseCache.normalizeKey(cityName),
+                () -> delegate.getAirQuality(cityName, coordinates));
+    }
+
+    @Override
+    public double getUvIndex(String cityName, Coordinates coordinates) throws IOException {
+        return uvIndexCache.get(ResponseCache.normalizeKey(cityName), () -> delegate.getUvIndex(cityName, coordinates));
+    }
+
+    // Raw payloads are not cached here, they pass straight through to the delegate
+
+    @Override
+    public String fetchCurrentWeatherJson(String cityName) throws IOException {
+        return delegate.fetchCurrentWeatherJson(cityName);
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(long cityId) throws IOException {
+        return delegate.fetchCurrentWeatherJson(cityId);
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchCurrentWeatherJson(coordinates);
+    }
+
+    @Override
+    public String fetchForecastJson(String cityName) throws IOException {
+        return delegate.fetchForecastJson(cityName);
+    }
+
+    @Override
+    public String fetchForecastJson(long cityId) throws IOException {
+        return delegate.fetchForecastJson(cityId);
+    }
+
+    @Override
+    public String fetchForecastJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchForecastJson(coordinates);
+    }
+
+    @Override
+    public String fetchAirQualityJson(String cityName) throws IOException {
+        return delegate.fetchAirQualityJson(cityName);
+    }
+
+    @Override
+    public String fetchAirQualityJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchAirQualityJson(coordinates);
+    }
+
+    @Override
+    public String fetchUvIndexJson(String cityName) throws IOException {
+        return delegate.fetchUvIndexJson(cityName);
+    }
+
+    @Override
+    public String fetchUvIndexJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchUvIndexJson(coordinates);
+    }
+
+    @Override
+    public String fetchCurrentWeatherGroupJson(long[] cityIds) throws IOException {
+        return delegate.fetchCurrentWeatherGroupJson(cityIds);
+    }
+
+    public ResponseCache<WeatherData> getCurrentWeatherCache() {
+        return currentWeatherCache;
+    }
+
+    public ResponseCache<Forecast> getForecastCache() {
+        return forecastCache;
+    }
+
+    public ResponseCache<AirQuality> getAirQualityCache() {
+        return airQualityCache;
+    }
+
+    public ResponseCache<Double> getUvIndexCache() {
+        return uvIndexCache;
+    }
+
+    @Override
+    public String toString() {
+        return "Current [" + currentWeatherCache + "], Forecast [" + forecastCache + "], Air quality [" + airQualityCache
+                + "], UV index [" + uvIndexCache + "]";
+    }
+}
@@ -0,0 +1,98 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// Lets a caller give up on requests it no longer needs, including ones already on the network.
+// Carried per thread like RequestPriority, so the HTTP layer can find it without every call
+// passing it down: requests check it before going out and register a way to abort while running.
+public class CancellationToken {
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    // Told about every request this token stopped, on the thread that ran the request
+    public interface Listener {
+        void onRequestCancelled(boolean sent);
+    }
+
+    private final Listener listener;
+    private final List<Runnable> onCancel = new ArrayList<>(); // Guarded by this
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    public CancellationToken(Listener listener) {
+        this.listener = listener;
+    }
+
+    // The token of the task running on this thread, or null if it can't be cancelled
+    public static CancellationToken current() {
+        return CURRENT.get();
+    }
+
+    // Throws if the current thread's token has been cancelled; called just before a request goes out
+    public static void checkCurrent() throws RequestCancelledException {
+        CancellationToken token = CURRENT.get();
+        if (token != null && token.cancelled) {
+            throw token.cancelledException(false);
+        }
+    }
+
+    // Runs the task with this token on the current thread
+    public <T> T call(Callable<T> task) throws Exception {
+        CancellationToken previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    // Runs the action when the token is cancelled, or right away if it already is.
+    // The returned handle removes it again, once what it would abort has finished.
+    public Runnable onCancel(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                onCancel.add(action);
+                return () -> {
+                    synchronized (this) {
+                        onCancel.remove(action);
+                    }
+                };
+            }
+        }
+        action.run();
+        return () -> { };
+    }
+
+    public void cancel() {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            actions = new ArrayList<>(onCancel);
+            onCancel.clear();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // The exception for a request this token stopped; also reports it to the listener
+    public RequestCancelledException cancelledException(boolean sent) {
+        if (listener != null) {
+            listener.onRequestCancelled(sent);
+        }
+        return new RequestCancelledException(sent ? "Request cancelled while in progress"
+                : "Request cancelled before it was sent", sent);
+    }
+}
@@ -0,0 +1,94 @@
+package controller;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Stops calling an endpoint that keeps failing, so callers fail in microseconds instead of each
+// waiting out timeouts. After enough consecutive failures the breaker opens and rejects calls;
+// once the open period has passed a single probe call is let through, and its outcome either
+// closes the breaker again or reopens it for another period.
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long openedCount;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    // The clock can be replaced to step through the states without waiting
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    // Called before each call; throws if the call must not be made
+    public synchronized void acquire() throws CircuitOpenException {
+        if (state == State.OPEN) {
+            long remaining = openedAt + openMillis - clock.getAsLong();
+            if (remaining > 0) {
+                throw new CircuitOpenException(name + " is failing, not retried for another "
+                        + TimeUnit.MILLISECONDS.toSeconds(remaining + 999) + "s", remaining);
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new CircuitOpenException(name + " is failing, a test request is in progress", 0);
+            }
+            probeInFlight = true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            openedCount++;
+            consecutiveFailures = 0;
+        }
+    }
+
+    // The call ended without saying anything about the endpoint, e.g. it was cancelled
+    public synchronized void onAbandoned() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // Times the breaker has opened
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + " " + state;
+    }
+}
@@ -0,0 +1,19 @@
+package controller;
+
+import java.io.IOException;
+
+// Thrown without making a request while an endpoint's circuit breaker is open. Like a network
+// failure it means the service can't be reached, so stored data may be served instead.
+public class CircuitOpenException extends IOException {
+    private final long retryInMillis;
+
+    public CircuitOpenException(String message, long retryInMillis) {
+        super(message);
+        this.retryInMillis = retryInMillis;
+    }
+
+    // How long until a request is let through to test the endpoint again
+    public long getRetryInMillis() {
+        return retryInMillis;
+    }
+}
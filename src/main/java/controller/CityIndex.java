@@ -0,0 +1,332 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONException;
+
+import model.CitySuggestion;
+import model.Coordinates;
+
+// Prefix index over the OpenWeatherMap city list (city.list.json, ~200k cities).
+// Entries are sorted case-insensitively by name and packed into primitive arrays, all names in
+// one char[], so the whole list costs a few bytes per character instead of several objects per city.
+// A lookup is a binary search for the first match followed by a short scan. Immutable once built.
+public class CityIndex {
+    private static final String[] CITY_FIELDS = {"id", "name", "country", "coord"};
+    private static final String[] COORD_FIELDS = {"lat", "lon"};
+
+    private final int size;
+    private final char[] names;       // All names back to back, in sorted order
+    private final int[] nameOffsets;  // Entry i is names[nameOffsets[i] .. nameOffsets[i + 1])
+    private final char[] countries;   // Two characters per entry, blank if unknown
+    private final long[] cityIds;
+    private final float[] latitudes;
+    private final float[] longitudes;
+
+    private CityIndex(int size, char[] names, int[] nameOffsets, char[] countries, long[] cityIds,
+                      float[] latitudes, float[] longitudes) {
+        this.size = size;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.countries = countries;
+        this.cityIds = cityIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+    }
+
+    // Reads a gzip-compressed city.list.json, e.g. the bundled classpath resource
+    public static CityIndex loadGzip(InputStream in) throws IOException {
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(in, 1 << 16), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    // Parses a JSON array of {"id", "name", "country", "coord": {"lat", "lon"}} objects
+    public static CityIndex parse(String json) {
+        Builder builder = new Builder();
+        JsonStreamReader reader = new JsonStreamReader(json);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            addCity(builder, reader);
+        }
+        reader.endArray();
+        return builder.build();
+    }
+
+    // Same as parse(String), but reads the array one city at a time, so only the city being
+    // parsed is held as text and memory stays bounded by the packed index
+    public static CityIndex parse(Reader in) throws IOException {
+        Builder builder = new Builder();
+        ElementReader elements = new ElementReader(in);
+        String city;
+        while ((city = elements.next()) != null) {
+            addCity(builder, new JsonStreamReader(city));
+        }
+        return builder.build();
+    }
+
+    private static void addCity(Builder builder, JsonStreamReader reader) {
+        long cityId = 0;
+        String name = null;
+        String country = "";
+        float lat = Float.NaN;
+        float lon = Float.NaN;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(CITY_FIELDS)) {
+                case 0:
+                    cityId = reader.nextLong();
+                    break;
+                case 1:
+                    name = reader.nextString();
+                    break;
+                case 2:
+                    country = reader.nextString();
+                    break;
+                case 3:
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.selectName(COORD_FIELDS)) {
+                            case 0: lat = (float) reader.nextDouble(); break;
+                            case 1: lon = (float) reader.nextDouble(); break;
+                            default: reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (name != null && !name.isEmpty()) {
+            builder.add(cityId, name, country, lat, lon);
+        }
+    }
+
+    public static CityIndex empty() {
+        return new Builder().build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Cities whose name starts with the prefix, ignoring case, in alphabetical order
+    public List<CitySuggestion> suggest(String prefix, int limit) {
+        String key = lowerCase(prefix.trim().replaceAll("\\s+", " "));
+        List<CitySuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+        if (key.isEmpty()) {
+            return suggestions;
+        }
+        for (int i = lowerBound(key); i < size && suggestions.size() < limit && compareToPrefix(i, key) == 0; i++) {
+            suggestions.add(get(i));
+        }
+        return suggestions;
+    }
+
+    // Rough heap footprint of the packed arrays
+    public long estimatedMemoryBytes() {
+        return names.length * 2L + nameOffsets.length * 4L + countries.length * 2L + cityIds.length * 8L
+                + latitudes.length * 4L + longitudes.length * 4L;
+    }
+
+    private CitySuggestion get(int i) {
+        String name = new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i]);
+        String country = new String(countries, i * 2, 2).trim();
+        Coordinates coordinates = Float.isNaN(latitudes[i]) ? null : new Coordinates(latitudes[i], longitudes[i]);
+        return new CitySuggestion(cityIds[i], name, country, coordinates);
+    }
+
+    // First entry that is not alphabetically before the prefix
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToPrefix(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Compares the start of entry i's name with the prefix; 0 means the name starts with it
+    private int compareToPrefix(int i, String key) {
+        int start = nameOffsets[i];
+        int length = nameOffsets[i + 1] - start;
+        int common = Math.min(length, key.length());
+        for (int j = 0; j < common; j++) {
+            char c = Character.toLowerCase(names[start + j]);
+            if (c != key.charAt(j)) {
+                return c - key.charAt(j);
+            }
+        }
+        return length < key.length() ? -1 : 0;
+    }
+
+    // Per-character lower case, so sorting and lookups agree even where String.toLowerCase
+    // would change the length of the text
+    private static String lowerCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    // Splits a JSON array read from a stream into the text of each element. Only nesting and
+    // string boundaries are tracked; each element is parsed properly once it has been cut out.
+    private static class ElementReader {
+        private final Reader in;
+        private final char[] buffer = new char[1 << 14];
+        private final StringBuilder element = new StringBuilder(256);
+        private int pos;
+        private int limit;
+        private boolean started;
+        private boolean finished;
+
+        ElementReader(Reader in) {
+            this.in = in;
+        }
+
+        // The next element, or null once the closing bracket has been read
+        String next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            if (!started) {
+                int c = read();
+                while (c >= 0 && Character.isWhitespace(c)) {
+                    c = read();
+                }
+                if (c != '[') {
+                    throw new JSONException("Expected '[' at the start of the city list");
+                }
+                started = true;
+            }
+            element.setLength(0);
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            for (int c = read(); c >= 0; c = read()) {
+                if (inString) {
+                    element.append((char) c);
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                    continue;
+                }
+                if (depth == 0) {
+                    if (c == ',' || c == ']') {
+                        finished = c == ']';
+                        if (element.length() > 0) {
+                            return element.toString();
+                        }
+                        if (finished) {
+                            return null; // Empty array
+                        }
+                        throw new JSONException("Expected a value in the city list");
+                    }
+                    if (Character.isWhitespace(c)) {
+                        continue;
+                    }
+                }
+                if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                element.append((char) c);
+            }
+            throw new JSONException("Unexpected end of the city list");
+        }
+
+        private int read() throws IOException {
+            if (pos == limit) {
+                limit = in.read(buffer);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos++];
+        }
+    }
+
+    // Collects entries in arrival order, then sorts them once into the packed layout
+    private static class Builder {
+        private final List<String> names = new ArrayList<>();
+        private final StringBuilder countries = new StringBuilder();
+        private long[] cityIds = new long[1024];
+        private float[] latitudes = new float[1024];
+        private float[] longitudes = new float[1024];
+
+        void add(long cityId, String name, String country, float lat, float lon) {
+            int i = names.size();
+            if (i == cityIds.length) {
+                cityIds = Arrays.copyOf(cityIds, i * 2);
+                latitudes = Arrays.copyOf(latitudes, i * 2);
+                longitudes = Arrays.copyOf(longitudes, i * 2);
+            }
+            names.add(name);
+            countries.append(country.length() >= 2 ? country.substring(0, 2) : (country + "  ").substring(0, 2));
+            cityIds[i] = cityId;
+            latitudes[i] = lat;
+            longitudes[i] = lon;
+        }
+
+        CityIndex build() {
+            int size = names.size();
+            String[] keys = new String[size];
+            Integer[] order = new Integer[size];
+            int totalChars = 0;
+            for (int i = 0; i < size; i++) {
+                keys[i] = lowerCase(names.get(i));
+                order[i] = i;
+                totalChars += names.get(i).length();
+            }
+            Arrays.sort(order, Comparator.comparing((Integer i) -> keys[i]).thenComparingLong(i -> cityIds[i]));
+
+            char[] packedNames = new char[totalChars];
+            int[] offsets = new int[size + 1];
+            char[] packedCountries = new char[size * 2];
+            long[] sortedIds = new long[size];
+            float[] sortedLatitudes = new float[size];
+            float[] sortedLongitudes = new float[size];
+            int offset = 0;
+            for (int i = 0; i < size; i++) {
+                int source = order[i];
+                String name = names.get(source);
+                name.getChars(0, name.length(), packedNames, offset);
+                offsets[i] = offset;
+                offset += name.length();
+                packedCountries[i * 2] = countries.charAt(source * 2);
+                packedCountries[i * 2 + 1] = countries.charAt(source * 2 + 1);
+                sortedIds[i] = cityIds[source];
+                sortedLatitudes[i] = latitudes[source];
+                sortedLongitudes[i] = longitudes[source];
+            }
+            offsets[size] = offset;
+            return new CityIndex(size, packedNames, offsets, packedCountries, sortedIds, sortedLatitudes, sortedLongitudes);
+        }
+    }
+}
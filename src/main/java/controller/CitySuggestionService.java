@@ -0,0 +1,70 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.json.JSONException;
+
+import model.CitySuggestion;
+
+// Type-ahead suggestions for the search field: matching recent searches first, then the
+// bundled OpenWeatherMap city list. The list is optional; without it only history is suggested.
+public class CitySuggestionService {
+    // Fetched into src/main/resources/cities/ by the build (see pom.xml), or placed there by hand
+    public static final String CITY_LIST_RESOURCE = "/cities/city.list.json.gz";
+
+    private volatile CityIndex index = CityIndex.empty();
+    private volatile List<String> recentCities = Collections.emptyList();
+
+    // Builds the index on a background thread; lookups use whatever is loaded so far
+    public CompletableFuture<CityIndex> loadIndex() {
+        return CompletableFuture.supplyAsync(() -> {
+            InputStream resource = CitySuggestionService.class.getResourceAsStream(CITY_LIST_RESOURCE);
+            if (resource == null) {
+                System.err.println("City list " + CITY_LIST_RESOURCE + " not bundled, suggesting recent searches only");
+                return index;
+            }
+            try (InputStream in = resource) {
+                index = CityIndex.loadGzip(in);
+            } catch (IOException | JSONException e) {
+                System.err.println("Error loading city list: " + e.getMessage());
+            }
+            return index;
+        });
+    }
+
+    public void setRecentCities(List<String> cities) {
+        recentCities = new ArrayList<>(cities);
+    }
+
+    public List<CitySuggestion> suggest(String prefix, int limit) {
+        String key = ResponseCache.normalizeKey(prefix);
+        List<CitySuggestion> suggestions = new ArrayList<>();
+        if (key.isEmpty()) {
+            return suggestions;
+        }
+        Set<String> seen = new HashSet<>();
+        for (String city : recentCities) {
+            if (suggestions.size() < limit && ResponseCache.normalizeKey(city).startsWith(key)
+                    && seen.add(ResponseCache.normalizeKey(city))) {
+                suggestions.add(new CitySuggestion(0, city, "", null));
+            }
+        }
+        for (CitySuggestion suggestion : index.suggest(prefix, limit)) {
+            if (suggestions.size() < limit && seen.add(ResponseCache.normalizeKey(suggestion.toString()))) {
+                suggestions.add(suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    public int getIndexSize() {
+        return index.size();
+    }
+}
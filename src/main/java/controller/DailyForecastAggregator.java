@@ -0,0 +1,75 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.DailyForecast;
+import model.Forecast;
+
+// Groups forecast slots by local calendar day in a single pass.
+// Works on any length of series; slots are expected in time order, as the API returns them.
+public class DailyForecastAggregator {
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private DailyForecastAggregator() {
+    }
+
+    public static List<DailyForecast> aggregate(Forecast forecast) {
+        List<DailyForecast> days = new ArrayList<>();
+        if (forecast.size() == 0) {
+            return days;
+        }
+
+        int offset = forecast.getTimezoneOffsetSeconds();
+        int[] conditionCounts = new int[forecast.getConditionCount()];
+
+        // Accumulators for the day currently being built
+        long currentDay = Long.MIN_VALUE;
+        double min = 0;
+        double max = 0;
+        double sum = 0;
+        double precipitation = 0;
+        int count = 0;
+
+        for (int slot = 0; slot < forecast.size(); slot++) {
+            long day = Math.floorDiv(forecast.getTimestamp(slot) + offset, SECONDS_PER_DAY);
+            if (day != currentDay) {
+                if (count > 0) {
+                    days.add(summarize(forecast, currentDay, min, max, sum, precipitation, count, conditionCounts));
+                }
+                currentDay = day;
+                min = Double.MAX_VALUE;
+                max = -Double.MAX_VALUE;
+                sum = 0;
+                precipitation = 0;
+                count = 0;
+                Arrays.fill(conditionCounts, 0);
+            }
+
+            min = Math.min(min, forecast.getMinTemperature(slot));
+            max = Math.max(max, forecast.getMaxTemperature(slot));
+            sum += forecast.getTemperature(slot);
+            precipitation = Math.max(precipitation, forecast.getPrecipitationProbability(slot));
+            conditionCounts[forecast.getConditionIndex(slot)]++;
+            count++;
+        }
+        days.add(summarize(forecast, currentDay, min, max, sum, precipitation, count, conditionCounts));
+
+        return days;
+    }
+
+    private static DailyForecast summarize(Forecast forecast, long day, double min, double max, double sum,
+                                           double precipitation, int count, int[] conditionCounts) {
+        // Most frequent condition wins; ties go to the one seen first in the forecast
+        int dominant = 0;
+        for (int i = 1; i < conditionCounts.length; i++) {
+            if (conditionCounts[i] > conditionCounts[dominant]) {
+                dominant = i;
+            }
+        }
+        int conditionId = conditionCounts.length > 0 ? forecast.getConditionIdAt(dominant) : 0;
+        String description = conditionCounts.length > 0 ? forecast.getConditionDescription(dominant) : "";
+        return new DailyForecast(day, min, max, sum / count, conditionId, description, precipitation, count);
+    }
+}
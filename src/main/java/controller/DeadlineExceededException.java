@@ -0,0 +1,11 @@
+package controller;
+
+import java.net.SocketTimeoutException;
+
+// Thrown when a request runs past its overall deadline. Unlike a connect or read timeout it means
+// the whole time the caller was willing to wait is used up, so the request isn't tried again.
+public class DeadlineExceededException extends SocketTimeoutException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
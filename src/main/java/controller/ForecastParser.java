@@ -0,0 +1,258 @@
+package controller;
+
+import java.util.Arrays;
+
+import model.Forecast;
+
+// Streams a /forecast response straight into a Forecast, reading only the fields the app uses
+public class ForecastParser {
+    private static final String[] ROOT_FIELDS = {"cnt", "list", "city"};
+    private static final String[] SLOT_FIELDS = {"dt", "main", "weather", "wind", "pop"};
+    private static final String[] CITY_FIELDS = {"timezone"};
+    private static final String[] MAIN_FIELDS = {"temp", "temp_min", "temp_max", "humidity"};
+    private static final String[] WEATHER_FIELDS = {"id", "description"};
+    private static final String[] WIND_FIELDS = {"speed"};
+    private static final int DEFAULT_CAPACITY = 40;
+    // Condition for a slot without a weather entry, the same fallback DailyForecastAggregator uses
+    private static final int UNKNOWN_CONDITION_ID = 0;
+
+    private final JsonStreamReader reader;
+
+    private int size;
+    private long[] timestamps;
+    private double[] temperatures;
+    private double[] minTemperatures;
+    private double[] maxTemperatures;
+    private int[] humidity;
+    private double[] windSpeeds;
+    private double[] precipitationProbabilities;
+    private byte[] conditionIndexes;
+    private int timezoneOffsetSeconds;
+
+    // Condition table, usually only a handful of distinct entries per forecast
+    private int conditionCount;
+    private int[] conditionIds = new int[8];
+    private String[] conditionDescriptions = new String[8];
+
+    private ForecastParser(String json) {
+        this.reader = new JsonStreamReader(json);
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    public static Forecast parse(String json) {
+        return new ForecastParser(json).parseRoot();
+    }
+
+    private Forecast parseRoot() {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(ROOT_FIELDS)) {
+                case 0: // cnt, appears before the list so the arrays can be sized once
+                    int count = reader.nextInt();
+                    if (count > timestamps.length) {
+                        allocate(count);
+                    }
+                    break;
+                case 1:
+                    parseList();
+                    break;
+                case 2:
+                    parseCity();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new Forecast(
+                Arrays.copyOf(timestamps, size),
+                Arrays.copyOf(temperatures, size),
+                Arrays.copyOf(minTemperatures, size),
+                Arrays.copyOf(maxTemperatures, size),
+                Arrays.copyOf(humidity, size),
+                Arrays.copyOf(windSpeeds, size),
+                Arrays.copyOf(precipitationProbabilities, size),
+                Arrays.copyOf(conditionIndexes, size),
+                Arrays.copyOf(conditionIds, conditionCount),
+                Arrays.copyOf(conditionDescriptions, conditionCount),
+                timezoneOffsetSeconds);
+    }
+
+    private void parseList() {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (size == timestamps.length) {
+                allocate(size * 2);
+            }
+            parseSlot(size++);
+        }
+        reader.endArray();
+    }
+
+    private void parseSlot(int slot) {
+        boolean hasCondition = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(SLOT_FIELDS)) {
+                case 0:
+                    timestamps[slot] = reader.nextLong();
+                    break;
+                case 1:
+                    parseMain(slot);
+                    break;
+                case 2:
+                    hasCondition |= parseWeather(slot);
+                    break;
+                case 3:
+                    parseWind(slot);
+                    break;
+                case 4:
+                    precipitationProbabilities[slot] = reader.nextDouble();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // Every slot needs an entry in the condition table, or looking up its description fails
+        if (!hasCondition) {
+            int index = findCondition(UNKNOWN_CONDITION_ID);
+            conditionIndexes[slot] = (byte) (index >= 0 ? index : addCondition(UNKNOWN_CONDITION_ID, ""));
+        }
+    }
+
+    private void parseCity() {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(CITY_FIELDS) == 0) {
+                timezoneOffsetSeconds = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void parseMain(int slot) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.selectName(MAIN_FIELDS)) {
+                case 0:
+                    temperatures[slot] = reader.nextDouble();
+                    break;
+                case 1:
+                    minTemperatures[slot] = reader.nextDouble();
+                    break;
+                case 2:
+                    maxTemperatures[slot] = reader.nextDouble();
+                    break;
+                case 3:
+                    humidity[slot] = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    // Only the first entry of the weather array is used, matching the rest of the app.
+    // Returns false if the array was empty.
+    private boolean parseWeather(int slot) {
+        reader.beginArray();
+        boolean first = true;
+        while (reader.hasNext()) {
+            if (!first) {
+                reader.skipValue();
+                continue;
+            }
+            first = false;
+
+            int conditionId = -1;
+            int index = -1;
+            String description = null; // May come before the id, JSON keys have no fixed order
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(WEATHER_FIELDS)) {
+                    case 0:
+                        conditionId = reader.nextInt();
+                        index = findCondition(conditionId);
+                        break;
+                    case 1:
+                        // The description string is only built the first time a condition is seen
+                        if (index < 0) {
+                            description = reader.nextString();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (index < 0) {
+                index = addCondition(conditionId, description != null ? description : "");
+            }
+            conditionIndexes[slot] = (byte) index;
+        }
+        reader.endArray();
+        return !first;
+    }
+
+    private void parseWind(int slot) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(WIND_FIELDS) == 0) {
+                windSpeeds[slot] = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private int findCondition(int conditionId) {
+        for (int i = 0; i < conditionCount; i++) {
+            if (conditionIds[i] == conditionId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int addCondition(int conditionId, String description) {
+        if (conditionCount == conditionIds.length) {
+            conditionIds = Arrays.copyOf(conditionIds, conditionCount * 2);
+            conditionDescriptions = Arrays.copyOf(conditionDescriptions, conditionCount * 2);
+        }
+        conditionIds[conditionCount] = conditionId;
+        conditionDescriptions[conditionCount] = description;
+        return conditionCount++;
+    }
+
+    private void allocate(int capacity) {
+        if (timestamps == null) {
+            timestamps = new long[capacity];
+            temperatures = new double[capacity];
+            minTemperatures = new double[capacity];
+            maxTemperatures = new double[capacity];
+            humidity = new int[capacity];
+            windSpeeds = new double[capacity];
+            precipitationProbabilities = new double[capacity];
+            conditionIndexes = new byte[capacity];
+        } else {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            temperatures = Arrays.copyOf(temperatures, capacity);
+            minTemperatures = Arrays.copyOf(minTemperatures, capacity);
+            maxTemperatures = Arrays.copyOf(maxTemperatures, capacity);
+            humidity = Arrays.copyOf(humidity, capacity);
+            windSpeeds = Arrays.copyOf(windSpeeds, capacity);
+            precipitationProbabilities = Arrays.copyOf(precipitationProbabilities, capacity);
+            conditionIndexes = Arrays.copyOf(conditionIndexes, capacity);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.Coordinates;
+import model.DatabaseHandler;
+
+// City name to coordinates lookup, kept in memory and optionally backed by the geocode table.
+// Also remembers OpenWeatherMap city IDs picked from suggestions, in memory only.
+public class GeocodeCache {
+    private final Map<String, Coordinates> coordinates = new ConcurrentHashMap<>();
+    private final Map<String, Long> cityIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Coordinates>> inFlight = new ConcurrentHashMap<>();
+    private final DatabaseHandler dbHandler;
+
+    // In-memory only
+    public GeocodeCache() {
+        this(null);
+    }
+
+    public GeocodeCache(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    public Coordinates get(String cityName) {
+        String key = ResponseCache.normalizeKey(cityName);
+        Coordinates cached = coordinates.get(key);
+        if (cached == null && dbHandler != null) {
+            cached = dbHandler.getCoordinates(key);
+            if (cached != null) {
+                coordinates.put(key, cached);
+            }
+        }
+        return cached;
+    }
+
+    public void put(String cityName, Coordinates resolved) {
+        String key = ResponseCache.normalizeKey(cityName);
+        // Only write through the first time a city is seen
+        if (coordinates.put(key, resolved) == null && dbHandler != null) {
+            dbHandler.saveCoordinates(key, resolved);
+        }
+    }
+
+    // Looks the city up, or resolves it with the geocoder if it isn't known yet. Endpoints fetched in
+    // parallel all need the coordinates, so concurrent lookups of a new city share a single geocode.
+    public Coordinates resolve(String cityName, ResponseCache.Loader<Coordinates> geocoder) throws IOException {
+        Coordinates cached = get(cityName);
+        if (cached != null) {
+            return cached;
+        }
+
+        String key = ResponseCache.normalizeKey(cityName);
+        CompletableFuture<Coordinates> pending = new CompletableFuture<>();
+        CompletableFuture<Coordinates> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            try {
+                return ResponseCache.await(existing);
+            } catch (RequestCancelledException e) {
+                // The other caller was cancelled; unless this one was too, drop its failed lookup
+                // and resolve it here
+                CancellationToken.checkCurrent();
+                inFlight.remove(key, existing);
+                return resolve(cityName, geocoder);
+            }
+        }
+
+        try {
+            Coordinates resolved = geocoder.load();
+            put(cityName, resolved);
+            pending.complete(resolved);
+            return resolved;
+        } catch (IOException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    // Null if the city was typed rather than picked from the city list
+    public Long getCityId(String cityName) {
+        return cityIds.get(ResponseCache.normalizeKey(cityName));
+    }
+
+    public void putCityId(String cityName, long cityId) {
+        cityIds.put(ResponseCache.normalizeKey(cityName), cityId);
+    }
+}
@@ -0,0 +1,64 @@
+package controller;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class HttpResponse {
+    private final int statusCode;
+    private final String body;
+    private final Map<String, String> headers;
+    private final RequestTiming timing;
+
+    public HttpResponse(int statusCode, String body, Map<String, String> headers, RequestTiming timing) {
+        this.statusCode = statusCode;
+        this.body = body;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.timing = timing;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    // Header names are stored lower-case
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase());
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public RequestTiming getTiming() {
+        return timing;
+    }
+
+    // Retry-After as milliseconds from now, or -1 if absent or unreadable.
+    // The header is either a number of seconds or an HTTP date.
+    public long getRetryAfterMillis() {
+        String retryAfter = getHeader("Retry-After");
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter)));
+        } catch (NumberFormatException e) {
+            // Not seconds, try a date
+        }
+        try {
+            long at = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
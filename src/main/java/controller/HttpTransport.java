@@ -0,0 +1,14 @@
+package controller;
+
+import java.io.IOException;
+
+// Pluggable HTTP layer used by WeatherAPIService, so the connection handling can be swapped out
+public interface HttpTransport {
+
+    HttpResponse get(String url) throws IOException;
+
+    // Receives the timing breakdown of every completed request
+    interface TimingListener {
+        void onRequestCompleted(String path, int statusCode, RequestTiming timing);
+    }
+}
@@ -0,0 +1,292 @@
+package controller;
+
+import org.json.JSONException;
+
+// Minimal pull-style JSON reader over a string.
+// Values are read on demand and anything not asked for is skipped without building objects,
+// which keeps parsing large API responses cheap compared to a full JSONObject tree.
+public class JsonStreamReader {
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final String json;
+    private int pos;
+
+    public JsonStreamReader(String json) {
+        this.json = json;
+    }
+
+    public void beginObject() {
+        expect('{');
+    }
+
+    public void endObject() {
+        expect('}');
+    }
+
+    public void beginArray() {
+        expect('[');
+    }
+
+    public void endArray() {
+        expect(']');
+    }
+
+    // True while the current object or array has more members; consumes the separating comma
+    public boolean hasNext() {
+        skipWhitespace();
+        char c = peekChar();
+        if (c == ',') {
+            pos++;
+            return true;
+        }
+        return c != '}' && c != ']';
+    }
+
+    // True if the next value is a JSON null, which is consumed
+    public boolean nextNull() {
+        skipWhitespace();
+        if (json.startsWith("null", pos)) {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    public String nextName() {
+        String name = nextString();
+        expectColon();
+        return name;
+    }
+
+    // Reads the next member name and returns its position in the given list, or -1 if it's not
+    // one of them. Avoids allocating a string for every key.
+    public int selectName(String[] names) {
+        skipWhitespace();
+        expect('"');
+        int start = pos;
+        int end = json.indexOf('"', start);
+        if (end < 0) {
+            throw syntaxError("Unterminated name");
+        }
+        int length = end - start;
+        int match = -1;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].length() == length && json.regionMatches(start, names[i], 0, length)) {
+                match = i;
+                break;
+            }
+        }
+        pos = end + 1;
+        expectColon();
+        return match;
+    }
+
+    public String nextString() {
+        skipWhitespace();
+        expect('"');
+        int start = pos;
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return json.substring(start, pos++);
+            }
+            if (c == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    public double nextDouble() {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = false;
+        if (peekChar() == '-') {
+            negative = true;
+            pos++;
+        }
+
+        // Fast path: up to 15 significant digits and a short fraction is exact with one division
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean inFraction = false;
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (inFraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+
+        if (digits == 0) {
+            throw syntaxError("Expected a number");
+        }
+        char next = pos < json.length() ? json.charAt(pos) : ' ';
+        if (next == 'e' || next == 'E' || digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            // Rare in weather data; let the JDK handle exponents and long mantissas
+            while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+                pos++;
+            }
+            return Double.parseDouble(json.substring(start, pos));
+        }
+
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    public long nextLong() {
+        skipWhitespace();
+        boolean negative = false;
+        if (peekChar() == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        int start = pos;
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            pos++;
+        }
+        if (pos == start) {
+            throw syntaxError("Expected an integer");
+        }
+        if (pos < json.length() && json.charAt(pos) == '.') {
+            // Integral fields occasionally come back as decimals; drop the fraction
+            pos++;
+            while (pos < json.length() && Character.isDigit(json.charAt(pos))) {
+                pos++;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    public int nextInt() {
+        return (int) nextLong();
+    }
+
+    // Skips the next value, whatever its type, without materializing it
+    public void skipValue() {
+        skipWhitespace();
+        char c = peekChar();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            while (pos < json.length()) {
+                c = json.charAt(pos);
+                if (c == '"') {
+                    skipString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        pos++;
+                        return;
+                    }
+                }
+                pos++;
+            }
+            throw syntaxError("Unterminated value");
+        } else {
+            // Number, true, false or null
+            while (pos < json.length()) {
+                c = json.charAt(pos);
+                if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                    break;
+                }
+                pos++;
+            }
+        }
+    }
+
+    private void skipString() {
+        pos++; // Opening quote
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                return;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private String readEscapedString(int start) {
+        StringBuilder builder = new StringBuilder(json.substring(start, pos));
+        while (pos < json.length()) {
+            char c = json.charAt(pos++);
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            char escaped = json.charAt(pos++);
+            switch (escaped) {
+                case 'n': builder.append('\n'); break;
+                case 't': builder.append('\t'); break;
+                case 'r': builder.append('\r'); break;
+                case 'b': builder.append('\b'); break;
+                case 'f': builder.append('\f'); break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default: builder.append(escaped); break;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void expectColon() {
+        skipWhitespace();
+        expect(':');
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (peekChar() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private char peekChar() {
+        if (pos >= json.length()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return json.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+}
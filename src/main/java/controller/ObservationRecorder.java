@@ -0,0 +1,82 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import model.DatabaseHandler;
+import model.ObservationBucket;
+import model.WeatherData;
+
+// Collects fetched observations and hands them to the database in batches, at most every
+// FLUSH_INTERVAL_SECONDS or once BATCH_SIZE are queued. Fetch threads only queue.
+public class ObservationRecorder {
+    private static final int BATCH_SIZE = 50;
+    private static final long FLUSH_INTERVAL_SECONDS = 30;
+
+    private final DatabaseHandler dbHandler;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final Map<Long, Long> lastObservedAt = new ConcurrentHashMap<>();
+    private List<WeatherData> pending = new ArrayList<>();
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    public ObservationRecorder(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+        this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "observation-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Queues an observation; the same observation fetched again (same city and time) is dropped here
+    public void record(WeatherData observation) {
+        if (observation.getCityId() == 0 || observation.getObservedAt() == 0) {
+            return;
+        }
+        Long previous = lastObservedAt.put(observation.getCityId(), observation.getObservedAt());
+        if (previous != null && previous == observation.getObservedAt()) {
+            return;
+        }
+        boolean batchFull;
+        synchronized (this) {
+            pending.add(observation);
+            batchFull = pending.size() >= BATCH_SIZE;
+        }
+        if (batchFull) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    // Hands everything queued so far to the database writer; also called on shutdown
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        lastWrite = dbHandler.addObservations(pending);
+        pending = new ArrayList<>();
+    }
+
+    // Downsampled history for a city, including anything still queued.
+    // The database commits writes in order, so waiting for the last one covers all earlier ones;
+    // a failed write was already reported by the database and still leaves the rest readable.
+    public List<ObservationBucket> getBuckets(long cityId, long fromSeconds, long toSeconds, int bucketSeconds) {
+        CompletableFuture<Void> written;
+        synchronized (this) {
+            flush();
+            written = lastWrite;
+        }
+        written.exceptionally(error -> null).join();
+        return dbHandler.getObservationBuckets(cityId, fromSeconds, toSeconds, bucketSeconds);
+    }
+
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+}
@@ -0,0 +1,248 @@
+package controller;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import model.AirQuality;
+import model.CachedPayload;
+import model.CachedSnapshot;
+import model.Coordinates;
+import model.DatabaseHandler;
+import model.Forecast;
+import model.WeatherData;
+
+// Decorates a WeatherService by writing every response to weather_app.db.
+// Current weather and forecasts are stored as binary snapshots (see SnapshotCodec), air quality and UV as raw JSON.
+// When the network is down the last stored response is served instead and flagged as stale.
+// Fresh current weather observations are also handed to an ObservationRecorder, if one is set.
+public class PersistentWeatherService implements WeatherService {
+    public static final String CURRENT_WEATHER = "current";
+    public static final String FORECAST = "forecast";
+    public static final String AIR_QUALITY = "air_quality";
+    public static final String UV_INDEX = "uv_index";
+
+    private interface Fetcher<T> {
+        T fetch() throws IOException;
+    }
+
+    private interface Store<T> {
+        void save(String cityKey, String endpoint, T value, long fetchedAt, long expiresAt);
+    }
+
+    private interface Load<T> {
+        T load(String cityKey, String endpoint);
+    }
+
+    private final WeatherService delegate;
+    private final DatabaseHandler dbHandler;
+    private final ObservationRecorder recorder;
+    private final Set<String> staleCities = ConcurrentHashMap.newKeySet();
+
+    public PersistentWeatherService(WeatherService delegate, DatabaseHandler dbHandler) {
+        this(delegate, dbHandler, null);
+    }
+
+    public PersistentWeatherService(WeatherService delegate, DatabaseHandler dbHandler, ObservationRecorder recorder) {
+        this.delegate = delegate;
+        this.dbHandler = dbHandler;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public WeatherData getCurrentWeather(String cityName) throws IOException {
+        return fetchOrFallback(cityName, CURRENT_WEATHER, CachingWeatherService.CURRENT_WEATHER_TTL,
+                () -> delegate.getCurrentWeather(cityName), this::saveCurrentWeather, this::loadCurrentWeather);
+    }
+
+    @Override
+    public Forecast getForecast(String cityName) throws IOException {
+        return fetchOrFallback(cityName, FORECAST, CachingWeatherService.FORECAST_TTL,
+                () -> delegate.getForecast(cityName), this::saveForecast, this::loadForecast);
+    }
+
+    // Air quality and UV are parsed here from the payloads below, so the stored fallback covers them too
+
+    @Override
+    public AirQuality getAirQuality(String cityName) throws IOException {
+        return WeatherAPIService.parseAirQuality(fetchAirQualityJson(cityName));
+    }
+
+    @Override
+    public double getUvIndex(String cityName) throws IOException {
+        return WeatherAPIService.getUvIndex(cityName, () -> fetchUvIndexJson(cityName));
+    }
+
+    @Override
+    public AirQuality getAirQuality(String cityName, Coordinates coordinates) throws IOException {
+        return WeatherAPIService.parseAirQuality(
+                fetchAirQualityJson(cityName, () -> delegate.fetchAirQualityJson(coordinates)));
+    }
+
+    @Override
+    public double getUvIndex(String cityName, Coordinates coordinates) throws IOException {
+        return WeatherAPIService.getUvIndex(cityName,
+                () -> fetchUvIndexJson(cityName, () -> delegate.fetchUvIndexJson(coordinates)));
+    }
+
+    @Override
+    public String fetchAirQualityJson(String cityName) throws IOException {
+        return fetchAirQualityJson(cityName, () -> delegate.fetchAirQualityJson(cityName));
+    }
+
+    @Override
+    public String fetchUvIndexJson(String cityName) throws IOException {
+        return fetchUvIndexJson(cityName, () -> delegate.fetchUvIndexJson(cityName));
+    }
+
+    private String fetchAirQualityJson(String cityName, Fetcher<String> fetcher) throws IOException {
+        return fetchOrFallback(cityName, AIR_QUALITY, CachingWeatherService.AIR_QUALITY_TTL,
+                fetcher, dbHandler::saveCachedPayload, this::loadPayload);
+    }
+
+    private String fetchUvIndexJson(String cityName, Fetcher<String> fetcher) throws IOException {
+        return fetchOrFallback(cityName, UV_INDEX, CachingWeatherService.UV_INDEX_TTL,
+                fetcher, dbHandler::saveCachedPayload, this::loadPayload);
+    }
+
+    // Raw current weather and forecast payloads pass straight through; they are stored once parsed.
+    // Lookups by city ID or coordinates have no city name to store under, so they pass through too.
+
+    @Override
+    public String fetchCurrentWeatherJson(String cityName) throws IOException {
+        return delegate.fetchCurrentWeatherJson(cityName);
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(long cityId) throws IOException {
+        return delegate.fetchCurrentWeatherJson(cityId);
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchCurrentWeatherJson(coordinates);
+    }
+
+    @Override
+    public String fetchForecastJson(String cityName) throws IOException {
+        return delegate.fetchForecastJson(cityName);
+    }
+
+    @Override
+    public String fetchForecastJson(long cityId) throws IOException {
+        return delegate.fetchForecastJson(cityId);
+    }
+
+    @Override
+    public String fetchForecastJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchForecastJson(coordinates);
+    }
+
+    @Override
+    public String fetchAirQualityJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchAirQualityJson(coordinates);
+    }
+
+    @Override
+    public String fetchUvIndexJson(Coordinates coordinates) throws IOException {
+        return delegate.fetchUvIndexJson(coordinates);
+    }
+
+    // Group results are spread over many cities and are not stored, but they are recorded as observations
+    @Override
+    public List<WeatherData> getCurrentWeatherGroup(long[] cityIds) throws IOException {
+        List<WeatherData> results = delegate.getCurrentWeatherGroup(cityIds);
+        if (recorder != null) {
+            results.forEach(recorder::record);
+        }
+        return results;
+    }
+
+    @Override
+    public String fetchCurrentWeatherGroupJson(long[] cityIds) throws IOException {
+        return delegate.fetchCurrentWeatherGroupJson(cityIds);
+    }
+
+    // Read the stored response without touching the network, or null if there is none
+
+    public WeatherData getStoredCurrentWeather(String cityName) {
+        return loadCurrentWeather(ResponseCache.normalizeKey(cityName), CURRENT_WEATHER);
+    }
+
+    public Forecast getStoredForecast(String cityName) {
+        return loadForecast(ResponseCache.normalizeKey(cityName), FORECAST);
+    }
+
+    // True if the last fetch for this city fell back to stored data
+    public boolean isServingStale(String cityName) {
+        String key = ResponseCache.normalizeKey(cityName);
+        return staleCities.contains(key + "/" + CURRENT_WEATHER) || staleCities.contains(key + "/" + FORECAST);
+    }
+
+    private <T> T fetchOrFallback(String cityName, String endpoint, long ttlMillis, Fetcher<T> fetcher,
+                                  Store<T> store, Load<T> load) throws IOException {
+        String cityKey = ResponseCache.normalizeKey(cityName);
+        String staleKey = cityKey + "/" + endpoint;
+        try {
+            T value = fetcher.fetch();
+            long now = System.currentTimeMillis();
+            store.save(cityKey, endpoint, value, now, now + ttlMillis);
+            staleCities.remove(staleKey);
+            return value;
+        } catch (RequestCancelledException e) {
+            throw e; // Nobody is waiting for the answer, stored or not
+        } catch (IOException e) {
+            // A 4xx means the request itself was wrong (e.g. unknown city), stored data won't help;
+            // a 429 only means we are over the limit for now, so stored data is still the best answer
+            if (e instanceof ApiResponseException && !((ApiResponseException) e).isServerError()
+                    && !((ApiResponseException) e).isRateLimited()) {
+                throw e;
+            }
+            T cached = load.load(cityKey, endpoint);
+            if (cached == null) {
+                throw e;
+            }
+            System.err.println("Serving stored " + endpoint + " data for " + cityName + ": " + e.getMessage());
+            staleCities.add(staleKey);
+            return cached;
+        }
+    }
+
+    private void saveCurrentWeather(String cityKey, String endpoint, WeatherData weatherData, long fetchedAt, long expiresAt) {
+        dbHandler.saveSnapshot(cityKey, endpoint, SnapshotCodec.encodeWeatherData(weatherData), fetchedAt, expiresAt);
+        if (recorder != null) {
+            recorder.record(weatherData);
+        }
+    }
+
+    private void saveForecast(String cityKey, String endpoint, Forecast forecast, long fetchedAt, long expiresAt) {
+        dbHandler.saveSnapshot(cityKey, endpoint, SnapshotCodec.encodeForecast(forecast), fetchedAt, expiresAt);
+    }
+
+    // A snapshot written by another format version is treated as missing
+    private WeatherData loadCurrentWeather(String cityKey, String endpoint) {
+        CachedSnapshot snapshot = dbHandler.getSnapshot(cityKey, endpoint);
+        try {
+            return snapshot != null ? SnapshotCodec.decodeWeatherData(snapshot.getData()) : null;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable stored weather for " + cityKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Forecast loadForecast(String cityKey, String endpoint) {
+        CachedSnapshot snapshot = dbHandler.getSnapshot(cityKey, endpoint);
+        try {
+            return snapshot != null ? SnapshotCodec.decodeForecast(snapshot.getData()) : null;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable stored forecast for " + cityKey + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String loadPayload(String cityKey, String endpoint) {
+        CachedPayload cached = dbHandler.getCachedPayload(cityKey, endpoint);
+        return cached != null ? cached.getPayload() : null;
+    }
+}
@@ -0,0 +1,212 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.StageTimer;
+
+// HttpURLConnection-based transport tuned for connection reuse.
+// The JDK keeps a connection alive only when its response stream (or error stream) has been
+// read to the end and closed, so every response body is drained here, including on errors.
+public class PooledHttpTransport implements HttpTransport {
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+    public static final int DEFAULT_OVERALL_TIMEOUT_MILLIS = 15000;
+    // Size of the JDK keep-alive pool (the http.maxConnections system property) the app starts with
+    public static final int MAX_IDLE_CONNECTIONS_PER_HOST = 10;
+
+    // Aborts requests that run past their overall deadline
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "http-deadline-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Runs host lookups, which can't be interrupted, so the requesting thread can stop waiting for them
+    private static final ExecutorService RESOLVER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-dns-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Stage metrics for every request, split by phase
+    private static final StageTimer DNS_TIMER = phaseTimer("dns");
+    private static final StageTimer CONNECT_TIMER = phaseTimer("connect");
+    private static final StageTimer FIRST_BYTE_TIMER = phaseTimer("first_byte");
+    private static final StageTimer DOWNLOAD_TIMER = phaseTimer("download");
+    private static final Histogram RESPONSE_BYTES = Metrics.histogram("weather_http_response_bytes",
+            "Size of response bodies after decompression", Histogram.BYTE_BOUNDS);
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int overallTimeoutMillis;
+    private volatile TimingListener timingListener;
+
+    public PooledHttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_OVERALL_TIMEOUT_MILLIS);
+    }
+
+    public PooledHttpTransport(int connectTimeoutMillis, int readTimeoutMillis, int overallTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.overallTimeoutMillis = overallTimeoutMillis;
+    }
+
+    public void setTimingListener(TimingListener timingListener) {
+        this.timingListener = timingListener;
+    }
+
+    @Override
+    public HttpResponse get(String urlString) throws IOException {
+        CancellationToken.checkCurrent();
+        URL url = new URL(urlString);
+        long start = System.nanoTime();
+
+        // Nothing goes on the network until connect()
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        // The deadline covers the whole request from here on, the host lookup included
+        CompletableFuture<Void> aborted = new CompletableFuture<>();
+        AtomicBoolean deadlineExceeded = new AtomicBoolean();
+        ScheduledFuture<?> deadline = WATCHDOG.schedule(() -> {
+            deadlineExceeded.set(true);
+            aborted.complete(null);
+            connection.disconnect();
+        }, overallTimeoutMillis, TimeUnit.MILLISECONDS);
+        // A cancelled request is cut off the same way
+        CancellationToken token = CancellationToken.current();
+        Runnable unregister = token != null ? token.onCancel(() -> {
+            aborted.complete(null);
+            connection.disconnect();
+        }) : null;
+
+        try {
+            resolve(url.getHost(), aborted);
+            long resolved = System.nanoTime();
+
+            connection.connect();
+            long connected = System.nanoTime();
+
+            int statusCode = connection.getResponseCode();
+            long firstByte = System.nanoTime();
+
+            String body = readBody(connection, statusCode);
+            long finished = System.nanoTime();
+
+            RequestTiming timing = new RequestTiming(
+                    TimeUnit.NANOSECONDS.toMillis(resolved - start),
+                    TimeUnit.NANOSECONDS.toMillis(connected - resolved),
+                    TimeUnit.NANOSECONDS.toMillis(firstByte - connected),
+                    TimeUnit.NANOSECONDS.toMillis(finished - firstByte));
+            DNS_TIMER.recordNanos(resolved - start);
+            CONNECT_TIMER.recordNanos(connected - resolved);
+            FIRST_BYTE_TIMER.recordNanos(firstByte - connected);
+            DOWNLOAD_TIMER.recordNanos(finished - firstByte);
+
+            TimingListener listener = timingListener;
+            if (listener != null) {
+                listener.onRequestCompleted(url.getPath(), statusCode, timing);
+            }
+            return new HttpResponse(statusCode, body, readHeaders(connection), timing);
+        } catch (IOException e) {
+            if (token != null && token.isCancelled()) {
+                throw token.cancelledException(true);
+            }
+            if (deadlineExceeded.get()) {
+                throw new DeadlineExceededException("Request exceeded overall deadline of " + overallTimeoutMillis + " ms");
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+            if (unregister != null) {
+                unregister.run();
+            }
+        }
+    }
+
+    // Resolves the host up front so DNS time is measured separately; the JVM caches the result for
+    // connect(). Gives up as soon as the request is aborted, leaving the lookup to finish on its own.
+    private static void resolve(String host, CompletableFuture<Void> aborted) throws IOException {
+        CompletableFuture<Void> lookup = new CompletableFuture<>();
+        RESOLVER.execute(() -> {
+            try {
+                InetAddress.getAllByName(host);
+                lookup.complete(null);
+            } catch (Exception e) {
+                lookup.completeExceptionally(e);
+            }
+        });
+        aborted.thenRun(() -> lookup.completeExceptionally(new IOException("Request aborted while resolving " + host)));
+        try {
+            lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving " + host);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static String readBody(HttpURLConnection connection, int statusCode) throws IOException {
+        InputStream stream = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (stream == null) {
+            return "";
+        }
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            stream = new GZIPInputStream(stream);
+        }
+
+        // Read to EOF and close so the connection goes back into the keep-alive pool
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(connection.getContentLength(), 1024));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            RESPONSE_BYTES.record(out.size());
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static StageTimer phaseTimer(String phase) {
+        return Metrics.timer("weather_http_phase_seconds", "Phases of HTTP requests to the weather API", "phase", phase);
+    }
+
+    private static Map<String, String> readHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<>();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null && !header.getValue().isEmpty()) {
+                headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+            }
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,238 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import model.DatabaseHandler;
+
+// Keeps every request made with the API key inside the free-tier limits (60 calls a minute,
+// 1,000,000 a month). Wraps the real transport, so all endpoints share one token bucket,
+// one monthly counter persisted in the api_usage table, and one 429 backoff.
+public class QuotaGovernor implements HttpTransport {
+    public static final int REQUESTS_PER_MINUTE = 60;
+    public static final long REQUESTS_PER_MONTH = 1_000_000;
+
+    // 55 a minute with bursts of 5 never exceeds 60 in any one minute; 2 tokens stay reserved
+    // for searches so background refreshes can't starve them
+    private static final double PERMITS_PER_SECOND = 55 / 60.0;
+    private static final int MAX_BURST = 5;
+    private static final int INTERACTIVE_RESERVE = 2;
+
+    private static final int MAX_RETRIES = 2;
+    private static final long MAX_INTERACTIVE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final int FLUSH_EVERY = 20; // Requests counted between writes to the database
+
+    // Notified after every request and whenever the limit state changes, on the calling thread
+    public interface Listener {
+        void onQuotaChanged(QuotaGovernor governor);
+    }
+
+    private final HttpTransport delegate;
+    private final DatabaseHandler dbHandler;
+    private final RateLimiter rateLimiter;
+    private final long monthlyLimit;
+    private volatile Listener listener;
+
+    // Guarded by this. The lock only covers the counters: reading and writing the stored usage
+    // happen outside it, since the first database access also opens the database.
+    private String month;
+    private long monthUsage = -1; // Loaded from the database on first use
+    private int unsavedUsage;
+    private final ArrayDeque<Long> lastMinute = new ArrayDeque<>();
+    private long blockedUntil;
+    private int consecutiveRateLimits;
+
+    public QuotaGovernor(HttpTransport delegate, DatabaseHandler dbHandler) {
+        this(delegate, dbHandler, new RateLimiter(PERMITS_PER_SECOND, MAX_BURST, INTERACTIVE_RESERVE), REQUESTS_PER_MONTH);
+    }
+
+    public QuotaGovernor(HttpTransport delegate, DatabaseHandler dbHandler, RateLimiter rateLimiter, long monthlyLimit) {
+        this.delegate = delegate;
+        this.dbHandler = dbHandler;
+        this.rateLimiter = rateLimiter;
+        this.monthlyLimit = monthlyLimit;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public HttpResponse get(String url) throws IOException {
+        RequestPriority priority = RequestPriority.current();
+        for (int attempt = 0; ; attempt++) {
+            CancellationToken.checkCurrent();
+            checkMonthlyQuota();
+            waitOutBackoff(priority);
+            try {
+                rateLimiter.acquire(priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+            }
+            // Waiting for a permit can take a while; the request may no longer be wanted
+            CancellationToken.checkCurrent();
+
+            HttpResponse response = delegate.get(url);
+            long retryAfter = recordResponse(response);
+            notifyListener();
+
+            // Background work gives up straight away and lets its own scheduler back off
+            if (retryAfter < 0 || priority == RequestPriority.BACKGROUND || attempt == MAX_RETRIES
+                    || retryAfter > MAX_INTERACTIVE_WAIT_MILLIS) {
+                return response;
+            }
+        }
+    }
+
+    // Writes any counted but unsaved requests, e.g. on shutdown
+    public void flush() {
+        flush(1);
+    }
+
+    public long getMonthUsage() {
+        rollMonth();
+        synchronized (this) {
+            return monthUsage;
+        }
+    }
+
+    public long getMonthlyLimit() {
+        return monthlyLimit;
+    }
+
+    public synchronized int getRequestsLastMinute() {
+        pruneLastMinute(System.currentTimeMillis());
+        return lastMinute.size();
+    }
+
+    // Milliseconds until requests may be sent again after a 429, or 0
+    public synchronized long getBlockedMillis() {
+        return Math.max(0, blockedUntil - System.currentTimeMillis());
+    }
+
+    // Short summary for the status bar
+    public String describe() {
+        String summary = String.format("API %d/%d per min, %,d of %,d this month",
+                getRequestsLastMinute(), REQUESTS_PER_MINUTE, getMonthUsage(), monthlyLimit);
+        long blocked = getBlockedMillis();
+        if (blocked > 0) {
+            summary += ", rate limited for " + TimeUnit.MILLISECONDS.toSeconds(blocked + 999) + "s";
+        }
+        return summary;
+    }
+
+    private void checkMonthlyQuota() throws ApiResponseException {
+        if (getMonthUsage() >= monthlyLimit) {
+            throw new ApiResponseException("Monthly OpenWeatherMap quota used up.", ApiResponseException.TOO_MANY_REQUESTS);
+        }
+    }
+
+    // Interactive requests wait out a short 429 backoff; anything longer fails fast
+    private void waitOutBackoff(RequestPriority priority) throws IOException {
+        long blocked = getBlockedMillis();
+        if (blocked == 0) {
+            return;
+        }
+        if (priority == RequestPriority.BACKGROUND || blocked > MAX_INTERACTIVE_WAIT_MILLIS) {
+            throw new ApiResponseException("Rate limited by OpenWeatherMap, retry in "
+                    + TimeUnit.MILLISECONDS.toSeconds(blocked + 999) + "s.", ApiResponseException.TOO_MANY_REQUESTS, blocked);
+        }
+        try {
+            Thread.sleep(blocked);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    // Counts the request and returns how long to back off if it was rejected with a 429, else -1
+    private long recordResponse(HttpResponse response) {
+        rollMonth();
+        long retryAfter = countResponse(response);
+        flush(FLUSH_EVERY);
+        return retryAfter;
+    }
+
+    private synchronized long countResponse(HttpResponse response) {
+        long now = System.currentTimeMillis();
+        monthUsage++;
+        unsavedUsage++;
+        pruneLastMinute(now);
+        lastMinute.addLast(now);
+
+        if (response.getStatusCode() != ApiResponseException.TOO_MANY_REQUESTS) {
+            consecutiveRateLimits = 0;
+            return -1;
+        }
+        // Honour Retry-After when given, otherwise back off 1s, 2s, 4s ... up to a minute
+        consecutiveRateLimits++;
+        long backoff = response.getRetryAfterMillis();
+        if (backoff < 0) {
+            backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(consecutiveRateLimits - 1, 16));
+        }
+        blockedUntil = Math.max(blockedUntil, now + backoff);
+        return backoff;
+    }
+
+    // Queues the unsaved count for the database writer once it reaches the given size
+    private void flush(int minimum) {
+        String unsavedMonth;
+        int unsaved;
+        synchronized (this) {
+            if (unsavedUsage < minimum) {
+                return;
+            }
+            unsavedMonth = month;
+            unsaved = unsavedUsage;
+            unsavedUsage = 0;
+        }
+        dbHandler.addApiUsage(unsavedMonth, unsaved);
+    }
+
+    // Starts a fresh count when the calendar month (UTC) changes
+    private void rollMonth() {
+        String current = YearMonth.now(ZoneOffset.UTC).toString();
+        synchronized (this) {
+            if (current.equals(month)) {
+                return;
+            }
+        }
+        long storedUsage = dbHandler.getApiUsage(current);
+        String previousMonth;
+        int unsaved;
+        synchronized (this) {
+            // Another thread may have rolled over while the stored count was read
+            if (current.equals(month)) {
+                return;
+            }
+            previousMonth = month;
+            unsaved = unsavedUsage;
+            month = current;
+            monthUsage = storedUsage;
+            unsavedUsage = 0;
+        }
+        if (unsaved > 0) {
+            dbHandler.addApiUsage(previousMonth, unsaved);
+        }
+    }
+
+    private void pruneLastMinute(long now) {
+        while (!lastMinute.isEmpty() && lastMinute.peekFirst() <= now - TimeUnit.MINUTES.toMillis(1)) {
+            lastMinute.removeFirst();
+        }
+    }
+
+    private void notifyListener() {
+        Listener current = listener;
+        if (current != null) {
+            current.onQuotaChanged(this);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package controller;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket that caps how many requests per second are started.
+// Tokens refill continuously; a caller without a token waits until one is due.
+// Interactive callers go first: background callers wait while any interactive caller is
+// waiting, and leave a reserve of tokens untouched for interactive bursts.
+public class RateLimiter {
+    private final double permitsPerSecond;
+    private final double maxPermits;
+    private final double interactiveReserve;
+    private double storedPermits;
+    private long lastRefillNanos;
+    private int interactiveWaiting;
+
+    // No bursts: calls are spaced evenly at the configured rate
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, 1, 0);
+    }
+
+    public RateLimiter(double permitsPerSecond, double maxBurst, double interactiveReserve) {
+        if (permitsPerSecond <= 0 || maxBurst < 1 || interactiveReserve < 0 || interactiveReserve + 1 > maxBurst) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1 plus the reserve");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.maxPermits = maxBurst;
+        this.interactiveReserve = interactiveReserve;
+        this.storedPermits = maxBurst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    // Blocks until a permit is available, at the priority of the current thread
+    public void acquire() throws InterruptedException {
+        acquire(RequestPriority.current());
+    }
+
+    public synchronized void acquire(RequestPriority priority) throws InterruptedException {
+        boolean interactive = priority == RequestPriority.INTERACTIVE;
+        if (interactive) {
+            interactiveWaiting++;
+        }
+        try {
+            while (true) {
+                refill();
+                double needed = interactive ? 1 : 1 + interactiveReserve;
+                boolean yielding = !interactive && interactiveWaiting > 0;
+                if (!yielding && storedPermits >= needed) {
+                    storedPermits -= 1;
+                    return;
+                }
+                long waitNanos = (long) Math.ceil((needed - storedPermits) * 1e9 / permitsPerSecond);
+                TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+        } finally {
+            if (interactive) {
+                interactiveWaiting--;
+                notifyAll(); // Background callers may have been yielding to this one
+            }
+        }
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (storedPermits >= 1) {
+            storedPermits -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        storedPermits = Math.min(maxPermits, storedPermits + (now - lastRefillNanos) * permitsPerSecond / 1e9);
+        lastRefillNanos = now;
+    }
+}
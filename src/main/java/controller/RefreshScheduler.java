@@ -0,0 +1,216 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import model.AirQuality;
+import model.Forecast;
+import model.WeatherData;
+
+// Re-fetches watched cities in the background, each endpoint on the cadence its data changes at.
+// Refreshes go through the caching service, so they start just after the cached entry expires.
+// Listeners only hear about values that differ from the last one delivered.
+public class RefreshScheduler {
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final double JITTER = 0.1; // Up to 10% added, so clients don't poll in lockstep
+
+    // Callbacks run on the scheduler thread
+    public interface Listener {
+        void onCurrentWeather(String cityName, WeatherData weatherData);
+
+        void onForecast(String cityName, Forecast forecast);
+
+        void onAirQuality(String cityName, AirQuality airQuality);
+
+        void onUvIndex(String cityName, double uvIndex);
+
+        void onError(String cityName, Throwable error);
+    }
+
+    private final WeatherService apiService;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, List<RefreshTask<?>>> watched = new ConcurrentHashMap<>();
+    private volatile boolean paused;
+
+    public RefreshScheduler(WeatherService apiService) {
+        this.apiService = apiService;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(2, runnable -> {
+            Thread thread = new Thread(runnable, "weather-refresh-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    // Starts refreshing a city; the first refresh is one interval from now since it was just fetched
+    public void watch(String cityName, Listener listener) {
+        watch(cityName, listener, null);
+    }
+
+    // Same, for the city a search just showed: what the session delivered is the value refreshes
+    // compare against, so the first one only reaches the listener if the data actually changed
+    public void watch(String cityName, Listener listener, WeatherSearchSession session) {
+        String key = ResponseCache.normalizeKey(cityName);
+        RefreshTask<WeatherData> currentWeather = new RefreshTask<>(cityName, CachingWeatherService.CURRENT_WEATHER_TTL,
+                () -> apiService.getCurrentWeather(cityName), data -> listener.onCurrentWeather(cityName, data), listener);
+        RefreshTask<Forecast> forecast = new RefreshTask<>(cityName, CachingWeatherService.FORECAST_TTL,
+                () -> apiService.getForecast(cityName), data -> listener.onForecast(cityName, data), listener);
+        RefreshTask<AirQuality> airQuality = new RefreshTask<>(cityName, CachingWeatherService.AIR_QUALITY_TTL,
+                () -> apiService.getAirQuality(cityName), data -> listener.onAirQuality(cityName, data), listener);
+        RefreshTask<Double> uvIndex = new RefreshTask<>(cityName, CachingWeatherService.UV_INDEX_TTL,
+                () -> apiService.getUvIndex(cityName), data -> listener.onUvIndex(cityName, data), listener);
+        if (session != null) {
+            currentWeather.seedFrom(session.getCurrentWeather());
+            forecast.seedFrom(session.getForecast());
+            airQuality.seedFrom(session.getAirQuality());
+            uvIndex.seedFrom(session.getUvIndex());
+        }
+        List<RefreshTask<?>> tasks = Arrays.asList(currentWeather, forecast, airQuality, uvIndex);
+
+        List<RefreshTask<?>> previous = watched.put(key, tasks);
+        if (previous != null) {
+            previous.forEach(RefreshTask::cancel);
+        }
+        for (RefreshTask<?> task : tasks) {
+            task.scheduleIn(task.nextInterval());
+        }
+    }
+
+    public void unwatch(String cityName) {
+        List<RefreshTask<?>> tasks = watched.remove(ResponseCache.normalizeKey(cityName));
+        if (tasks != null) {
+            tasks.forEach(RefreshTask::cancel);
+        }
+    }
+
+    public boolean isWatching(String cityName) {
+        return watched.containsKey(ResponseCache.normalizeKey(cityName));
+    }
+
+    // Stops polling, e.g. while the window is iconified
+    public void pause() {
+        paused = true;
+        for (List<RefreshTask<?>> tasks : watched.values()) {
+            tasks.forEach(RefreshTask::unschedule);
+        }
+    }
+
+    // Anything that fell due while paused refreshes straight away
+    public void resume() {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+        long now = System.currentTimeMillis();
+        for (List<RefreshTask<?>> tasks : watched.values()) {
+            for (RefreshTask<?> task : tasks) {
+                task.scheduleIn(Math.max(0, task.dueAt - now));
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private class RefreshTask<T> implements Runnable {
+        private final String cityName;
+        private final long intervalMillis;
+        private final Callable<T> fetcher;
+        private final Consumer<T> sink;
+        private final Listener listener;
+        private volatile T lastValue;
+        private int failures;
+        private volatile long dueAt;
+        private volatile boolean cancelled;
+        private ScheduledFuture<?> future;
+
+        RefreshTask(String cityName, long intervalMillis, Callable<T> fetcher, Consumer<T> sink, Listener listener) {
+            this.cityName = cityName;
+            this.intervalMillis = intervalMillis;
+            this.fetcher = fetcher;
+            this.sink = sink;
+            this.listener = listener;
+        }
+
+        // Failed fetches leave it unset, so the first successful refresh is delivered
+        void seedFrom(CompletableFuture<T> delivered) {
+            delivered.thenAccept(value -> {
+                // A refresh that already ran has the newer value
+                if (lastValue == null) {
+                    lastValue = value;
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (cancelled || paused) {
+                return;
+            }
+            long delay;
+            try {
+                T value = RequestPriority.BACKGROUND.call(fetcher);
+                failures = 0;
+                if (!Objects.equals(value, lastValue)) {
+                    lastValue = value;
+                    sink.accept(value);
+                }
+                delay = nextInterval();
+            } catch (Exception e) {
+                failures++;
+                listener.onError(cityName, e);
+                delay = nextBackoff();
+            }
+            if (!paused) {
+                scheduleIn(delay);
+            }
+        }
+
+        // Replaces any pending run, so a task is never scheduled twice
+        synchronized void scheduleIn(long delayMillis) {
+            if (cancelled || executor.isShutdown()) {
+                return;
+            }
+            unschedule();
+            dueAt = System.currentTimeMillis() + delayMillis;
+            future = executor.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void unschedule() {
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        // Permanent, once the city is no longer watched
+        synchronized void cancel() {
+            cancelled = true;
+            unschedule();
+        }
+
+        long nextInterval() {
+            return intervalMillis + (long) (intervalMillis * JITTER * ThreadLocalRandom.current().nextDouble());
+        }
+
+        // 30s, 1m, 2m, ... capped at the normal interval, with the same jitter
+        long nextBackoff() {
+            long backoff = INITIAL_BACKOFF_MILLIS << Math.min(failures - 1, 20);
+            long capped = Math.min(backoff, intervalMillis);
+            return capped + (long) (capped * JITTER * ThreadLocalRandom.current().nextDouble());
+        }
+    }
+}
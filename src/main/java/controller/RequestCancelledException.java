@@ -0,0 +1,19 @@
+package controller;
+
+import java.io.InterruptedIOException;
+
+// Thrown when a request is given up because its CancellationToken was cancelled, e.g. a newer
+// search superseded it. Unlike a timeout it says nothing about the service being unreachable.
+public class RequestCancelledException extends InterruptedIOException {
+    private final boolean sent;
+
+    public RequestCancelledException(String message, boolean sent) {
+        super(message);
+        this.sent = sent;
+    }
+
+    // False if the request was dropped before it went out, so it cost no quota
+    public boolean wasSent() {
+        return sent;
+    }
+}
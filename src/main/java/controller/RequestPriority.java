@@ -0,0 +1,27 @@
+package controller;
+
+import java.util.concurrent.Callable;
+
+// Whether a request was started by the user or by background work such as auto-refresh.
+// Carried per thread, so the HTTP layer can tell without every call passing it down.
+public enum RequestPriority {
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<RequestPriority> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+    public static RequestPriority current() {
+        return CURRENT.get();
+    }
+
+    // Runs the task with this priority on the current thread
+    public <T> T call(Callable<T> task) throws Exception {
+        RequestPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.call();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package controller;
+
+// Where the time went for one HTTP request, in milliseconds
+public class RequestTiming {
+    private final long dnsMillis;
+    private final long connectMillis;
+    private final long timeToFirstByteMillis;
+    private final long bodyMillis;
+
+    public RequestTiming(long dnsMillis, long connectMillis, long timeToFirstByteMillis, long bodyMillis) {
+        this.dnsMillis = dnsMillis;
+        this.connectMillis = connectMillis;
+        this.timeToFirstByteMillis = timeToFirstByteMillis;
+        this.bodyMillis = bodyMillis;
+    }
+
+    public long getDnsMillis() {
+        return dnsMillis;
+    }
+
+    // Includes the TLS handshake; close to zero when a kept-alive connection is reused
+    public long getConnectMillis() {
+        return connectMillis;
+    }
+
+    public long getTimeToFirstByteMillis() {
+        return timeToFirstByteMillis;
+    }
+
+    public long getBodyMillis() {
+        return bodyMillis;
+    }
+
+    public long getTotalMillis() {
+        return dnsMillis + connectMillis + timeToFirstByteMillis + bodyMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "dns=" + dnsMillis + "ms, connect=" + connectMillis + "ms, ttfb=" + timeToFirstByteMillis +
+               "ms, body=" + bodyMillis + "ms, total=" + getTotalMillis() + "ms";
+    }
+}
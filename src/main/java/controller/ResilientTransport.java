@@ -0,0 +1,393 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import metrics.Metrics;
+
+// Keeps transient upstream failures and slow responses from reaching the user. Wraps the quota
+// governor, so every retry and hedge is counted and rate limited like any other request.
+//
+//   Retries: failed connections, timeouts and 5xx responses are retried up to twice after a
+//   random wait of up to 100 ms, 200 ms (full jitter). Retries are paid for out of a budget of
+//   20% of requests, so an outage doesn't turn into three times the load. A request that ran past
+//   its overall deadline is not retried.
+//
+//   Hedging: if an interactive request takes longer than the endpoint's recent p95 latency, a
+//   second copy is sent and whichever answers first is used; the other is cut off. At most 5%
+//   of requests are hedged. Turn off with -Dweather.hedging=false.
+//
+//   Circuit breaking: five failed calls in a row open the endpoint's breaker for 30 seconds,
+//   during which calls fail at once with CircuitOpenException and the services above fall back
+//   to stored data. A single call then tests whether the endpoint has recovered.
+public class ResilientTransport implements HttpTransport {
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final long DEFAULT_BREAKER_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final boolean HEDGING = Boolean.parseBoolean(System.getProperty("weather.hedging", "true"));
+
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    private static final double RETRY_BUDGET_RATIO = 0.2;
+    private static final double HEDGE_BUDGET_RATIO = 0.05;
+    private static final double MAX_BUDGET_CREDITS = 10; // Lets short bursts retry or hedge freely
+    private static final int BREAKER_FAILURE_THRESHOLD = 5;
+    private static final int LATENCY_WINDOW = 256; // Recent successful calls the p95 is taken over
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final long MIN_HEDGE_DELAY_MILLIS = 50;
+
+    // Starts hedges once their delay has passed; they run on their own threads as they block
+    private static final ScheduledExecutorService HEDGE_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "http-hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final ExecutorService HEDGE_POOL = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Spends a fixed share of the request rate, e.g. 0.2 retries per request
+    private static class Budget {
+        private final double ratio;
+        private double credits = MAX_BUDGET_CREDITS; // Guarded by this
+
+        Budget(double ratio) {
+            this.ratio = ratio;
+        }
+
+        synchronized void deposit() {
+            credits = Math.min(MAX_BUDGET_CREDITS, credits + ratio);
+        }
+
+        synchronized boolean tryWithdraw() {
+            if (credits < 1) {
+                return false;
+            }
+            credits--;
+            return true;
+        }
+    }
+
+    // Latencies of an endpoint's recent successful calls; the p95 is recomputed every few samples
+    private static class LatencyWindow {
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples = new long[LATENCY_WINDOW];
+        private int count;
+        private int next;
+        private int sinceRecompute;
+        private long p95 = -1;
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            if (++sinceRecompute >= RECOMPUTE_EVERY || (p95 < 0 && count >= MIN_HEDGE_SAMPLES)) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                p95 = sorted[(int) Math.ceil(0.95 * count) - 1];
+                sinceRecompute = 0;
+            }
+        }
+
+        // -1 until there are enough samples to go by
+        synchronized long getP95() {
+            return count < MIN_HEDGE_SAMPLES ? -1 : p95;
+        }
+    }
+
+    // Per-path state; paths are the API endpoints, e.g. /data/2.5/weather
+    private class Endpoint {
+        private final CircuitBreaker breaker;
+        private final LatencyWindow latency = new LatencyWindow();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong hedges = new AtomicLong();
+        private final AtomicLong hedgeWins = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Endpoint(String path) {
+            breaker = new CircuitBreaker("OpenWeatherMap " + path, BREAKER_FAILURE_THRESHOLD, breakerOpenMillis);
+            Metrics.gauge("weather_upstream_retries", "Requests sent again after a transient failure",
+                    retries::get, "path", path);
+            Metrics.gauge("weather_upstream_hedges", "Second copies sent for slow requests", hedges::get, "path", path);
+            Metrics.gauge("weather_upstream_hedge_wins", "Hedged requests that answered first",
+                    hedgeWins::get, "path", path);
+            Metrics.gauge("weather_upstream_breaker_rejections", "Calls failed at once by an open circuit breaker",
+                    rejected::get, "path", path);
+            Metrics.gauge("weather_upstream_breaker_open", "1 while the endpoint's circuit breaker is not closed",
+                    () -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1, "path", path);
+        }
+
+        // How long to wait for an interactive request before hedging it, or -1 to not hedge
+        long getHedgeDelayMillis() {
+            long p95 = latency.getP95();
+            return p95 < 0 ? -1 : Math.max(MIN_HEDGE_DELAY_MILLIS, p95);
+        }
+    }
+
+    private final HttpTransport delegate;
+    private final int maxRetries;
+    private final boolean hedging;
+    private final long breakerOpenMillis;
+    private final Random random;
+    private final Budget retryBudget = new Budget(RETRY_BUDGET_RATIO);
+    private final Budget hedgeBudget = new Budget(HEDGE_BUDGET_RATIO);
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public ResilientTransport(HttpTransport delegate) {
+        this(delegate, DEFAULT_MAX_RETRIES, HEDGING, DEFAULT_BREAKER_OPEN_MILLIS, new Random());
+    }
+
+    // A seeded Random makes the retry delays repeatable
+    public ResilientTransport(HttpTransport delegate, int maxRetries, boolean hedging, long breakerOpenMillis,
+                              Random random) {
+        this.delegate = delegate;
+        this.maxRetries = maxRetries;
+        this.hedging = hedging;
+        this.breakerOpenMillis = breakerOpenMillis;
+        this.random = random;
+    }
+
+    @Override
+    public HttpResponse get(String url) throws IOException {
+        Endpoint endpoint = endpoints.computeIfAbsent(new URL(url).getPath(), Endpoint::new);
+        try {
+            endpoint.breaker.acquire();
+        } catch (CircuitOpenException e) {
+            endpoint.rejected.incrementAndGet();
+            throw e;
+        }
+        retryBudget.deposit();
+        hedgeBudget.deposit();
+
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse response;
+            try {
+                response = send(url, endpoint);
+            } catch (RuntimeException e) {
+                endpoint.breaker.onAbandoned();
+                throw e;
+            } catch (IOException e) {
+                if (!isTransient(e)) {
+                    // Cancelled, interrupted or refused by our own quota: says nothing about the endpoint
+                    endpoint.breaker.onAbandoned();
+                    throw e;
+                }
+                // A request past its overall deadline has used up the time it had; retrying it would
+                // keep the caller waiting up to three times as long
+                if (attempt < maxRetries && !(e instanceof DeadlineExceededException) && retryBudget.tryWithdraw()) {
+                    endpoint.retries.incrementAndGet();
+                    waitBeforeRetry(attempt, -1, endpoint);
+                    continue;
+                }
+                endpoint.breaker.onFailure();
+                throw e;
+            }
+
+            if (!isServerError(response.getStatusCode())) {
+                endpoint.breaker.onSuccess();
+                return response;
+            }
+            long retryAfter = response.getRetryAfterMillis();
+            if (attempt < maxRetries && retryAfter <= MAX_BACKOFF_MILLIS && retryBudget.tryWithdraw()) {
+                endpoint.retries.incrementAndGet();
+                waitBeforeRetry(attempt, retryAfter, endpoint);
+                continue;
+            }
+            endpoint.breaker.onFailure();
+            return response; // WeatherAPIService turns it into an ApiResponseException
+        }
+    }
+
+    // Sends the request, plus a hedge if it is interactive and outlasts the endpoint's p95
+    private HttpResponse send(String url, Endpoint endpoint) throws IOException {
+        RequestPriority priority = RequestPriority.current();
+        long hedgeDelay = hedging && priority == RequestPriority.INTERACTIVE ? endpoint.getHedgeDelayMillis() : -1;
+        if (hedgeDelay < 0) {
+            return sendTimed(url, endpoint);
+        }
+
+        // Each copy gets its own token so the loser can be cut off; cancelling the caller's
+        // token cancels both
+        CancellationToken caller = CancellationToken.current();
+        CancellationToken primaryToken = new CancellationToken();
+        CancellationToken hedgeToken = new CancellationToken();
+        Runnable unlink = caller != null ? caller.onCancel(() -> {
+            primaryToken.cancel();
+            hedgeToken.cancel();
+        }) : null;
+
+        // Completed with the hedge's response, or with null if no hedge was sent
+        CompletableFuture<HttpResponse> hedge = new CompletableFuture<>();
+        AtomicBoolean primaryDone = new AtomicBoolean();
+        ScheduledFuture<?> hedgeTrigger = HEDGE_TIMER.schedule(() -> HEDGE_POOL.execute(() -> {
+            if (primaryDone.get() || !hedgeBudget.tryWithdraw()) {
+                hedge.complete(null);
+                return;
+            }
+            endpoint.hedges.incrementAndGet();
+            try {
+                HttpResponse response = priority.call(() -> hedgeToken.call(() -> sendTimed(url, endpoint)));
+                hedge.complete(response);
+                if (!isServerError(response.getStatusCode())) {
+                    primaryToken.cancel();
+                }
+            } catch (Exception e) {
+                hedge.completeExceptionally(e);
+            }
+        }), hedgeDelay, TimeUnit.MILLISECONDS);
+
+        try {
+            HttpResponse response = primaryToken.call(() -> sendTimed(url, endpoint));
+            primaryDone.set(true);
+            hedgeTrigger.cancel(false);
+            hedgeToken.cancel();
+            return response;
+        } catch (RequestCancelledException e) {
+            primaryDone.set(true);
+            if (caller != null && caller.isCancelled()) {
+                hedgeToken.cancel();
+                throw caller.cancelledException(e.wasSent());
+            }
+            // Only a successful hedge cancels the primary, and it completes its future first
+            endpoint.hedgeWins.incrementAndGet();
+            return hedge.getNow(null);
+        } catch (IOException e) {
+            // The primary failed; a hedge already on its way may still succeed
+            primaryDone.set(true);
+            if (hedgeTrigger.cancel(false)) {
+                throw e;
+            }
+            HttpResponse hedged = awaitHedge(hedge);
+            if (hedged == null) {
+                throw e;
+            }
+            endpoint.hedgeWins.incrementAndGet();
+            return hedged;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            if (unlink != null) {
+                unlink.run();
+            }
+        }
+    }
+
+    private static HttpResponse awaitHedge(CompletableFuture<HttpResponse> hedge) throws IOException {
+        try {
+            return hedge.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a hedged request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Successful calls feed the latency window the hedge delay is taken from
+    private HttpResponse sendTimed(String url, Endpoint endpoint) throws IOException {
+        long start = System.nanoTime();
+        HttpResponse response = delegate.get(url);
+        if (!isServerError(response.getStatusCode())) {
+            endpoint.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return response;
+    }
+
+    // Full jitter: anywhere between 0 and 100 ms << attempt, or at least what the server asked for
+    private void waitBeforeRetry(int attempt, long retryAfterMillis, Endpoint endpoint) throws IOException {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        long delay = Math.max((long) (random.nextDouble() * cap), retryAfterMillis);
+
+        // Woken early if the request is cancelled while waiting
+        CancellationToken token = CancellationToken.current();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Runnable unregister = token != null ? token.onCancel(cancelled::countDown) : null;
+        try {
+            cancelled.await(delay, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            endpoint.breaker.onAbandoned();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        } finally {
+            if (unregister != null) {
+                unregister.run();
+            }
+        }
+        try {
+            CancellationToken.checkCurrent();
+        } catch (RequestCancelledException e) {
+            endpoint.breaker.onAbandoned();
+            throw e;
+        }
+    }
+
+    // Failures worth another try: the network, not the request or the caller
+    private static boolean isTransient(IOException e) {
+        if (e instanceof ApiResponseException || e instanceof CircuitOpenException) {
+            return false;
+        }
+        return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+    }
+
+    private static boolean isServerError(int statusCode) {
+        return statusCode >= 500;
+    }
+
+    public long getRetryCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.retries.get()).sum();
+    }
+
+    public long getHedgeCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.hedges.get()).sum();
+    }
+
+    public long getHedgeWinCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.hedgeWins.get()).sum();
+    }
+
+    public long getRejectedCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.rejected.get()).sum();
+    }
+
+    // State of the breaker for a path such as /data/2.5/weather; closed if it was never called
+    public CircuitBreaker.State getBreakerState(String path) {
+        Endpoint endpoint = endpoints.get(path);
+        return endpoint == null ? CircuitBreaker.State.CLOSED : endpoint.breaker.getState();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format("retries %d, hedges %d (%d won), rejected %d",
+                getRetryCount(), getHedgeCount(), getHedgeWinCount(), getRejectedCount()));
+        for (Endpoint endpoint : endpoints.values()) {
+            if (endpoint.breaker.getState() != CircuitBreaker.State.CLOSED) {
+                summary.append(", ").append(endpoint.breaker);
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,200 @@
+package controller;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import metrics.Metrics;
+
+// Turns bursts of search input into as few searches as possible. Double taps and cycling
+// through the recent-searches dropdown otherwise start a full search per event, and each one
+// costs several API calls.
+//  - A search for the city already being fetched, or already waiting to start, joins it.
+//  - Searches start at most once per debounce interval. One that comes sooner waits out the
+//    rest of the interval, and is dropped if another search arrives in the meantime.
+//  - Starting a search cancels the one still in progress, including its HTTP requests.
+public class SearchCoordinator {
+    public static final long DEBOUNCE_MILLIS = 300;
+
+    // Told about each search as it starts, while the coordinator holds its lock, so calls arrive
+    // in the order the searches started. Must not block: hand the session to another thread.
+    public interface Listener {
+        void onSearchStarted(WeatherSearchSession session);
+    }
+
+    private final AsyncWeatherService asyncService;
+    private final Listener listener;
+    private final long debounceNanos;
+    private final ScheduledThreadPoolExecutor timer;
+
+    // Guarded by this
+    private WeatherSearchSession active;
+    private String activeKey;
+    private String pendingCity;
+    private String pendingKey;
+    private ScheduledFuture<?> pendingStart;
+    private long lastStartNanos;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong debounced = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    private final AtomicLong fetchesCancelled = new AtomicLong();
+    private final AtomicLong requestsDropped = new AtomicLong();
+    private final AtomicLong requestsAborted = new AtomicLong();
+
+    public SearchCoordinator(AsyncWeatherService asyncService, Listener listener) {
+        this(asyncService, listener, DEBOUNCE_MILLIS);
+    }
+
+    public SearchCoordinator(AsyncWeatherService asyncService, Listener listener, long debounceMillis) {
+        this.asyncService = asyncService;
+        this.listener = listener;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.lastStartNanos = System.nanoTime() - debounceNanos;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "search-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        String help = "Searches asked for, by what became of them";
+        Metrics.gauge("weather_search_requests", help, requested::get, "outcome", "requested");
+        Metrics.gauge("weather_search_requests", help, started::get, "outcome", "started");
+        Metrics.gauge("weather_search_requests", help, joined::get, "outcome", "joined");
+        Metrics.gauge("weather_search_requests", help, debounced::get, "outcome", "debounced");
+        Metrics.gauge("weather_search_requests", help, superseded::get, "outcome", "superseded");
+        Metrics.gauge("weather_search_upstream_calls_saved", "API calls avoided by joining, debouncing and cancelling",
+                this::getUpstreamCallsSaved);
+    }
+
+    // Called for every search the user asks for; the listener hears about the ones that start
+    public synchronized void search(String cityName) {
+        requested.incrementAndGet();
+        String key = ResponseCache.normalizeKey(cityName);
+        if (pendingStart != null) {
+            if (key.equals(pendingKey)) {
+                joined.incrementAndGet();
+                return;
+            }
+            // Only the latest search in a burst is worth running
+            pendingStart.cancel(false);
+            clearPending();
+            debounced.incrementAndGet();
+        }
+        if (active != null && key.equals(activeKey) && !active.isDone()) {
+            joined.incrementAndGet();
+            return;
+        }
+
+        long wait = lastStartNanos + debounceNanos - System.nanoTime();
+        if (wait > 0) {
+            pendingCity = cityName;
+            pendingKey = key;
+            pendingStart = timer.schedule(() -> startPending(key), wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+        start(cityName, key);
+    }
+
+    // Cancels the search in progress and any waiting to start
+    public synchronized void shutdown() {
+        if (pendingStart != null) {
+            pendingStart.cancel(false);
+            clearPending();
+        }
+        if (active != null) {
+            active.cancel();
+        }
+        timer.shutdownNow();
+    }
+
+    private synchronized void startPending(String key) {
+        // A replaced search may still fire if it was already running when it was cancelled
+        if (pendingStart == null || !key.equals(pendingKey)) {
+            return;
+        }
+        String cityName = pendingCity;
+        clearPending();
+        start(cityName, key);
+    }
+
+    // Guarded by this
+    private void start(String cityName, String key) {
+        if (active != null && !active.isDone()) {
+            fetchesCancelled.addAndGet(active.getUnfinishedFetchCount());
+            active.cancel();
+            superseded.incrementAndGet();
+        }
+        active = new WeatherSearchSession(asyncService, cityName, new CancellationToken(this::onRequestCancelled));
+        activeKey = key;
+        lastStartNanos = System.nanoTime();
+        started.incrementAndGet();
+        listener.onSearchStarted(active);
+    }
+
+    // Guarded by this
+    private void clearPending() {
+        pendingStart = null;
+        pendingCity = null;
+        pendingKey = null;
+    }
+
+    private void onRequestCancelled(boolean sent) {
+        (sent ? requestsAborted : requestsDropped).incrementAndGet();
+    }
+
+    // Getters
+    public long getRequestedCount() {
+        return requested.get();
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    // Searches that joined one for the same city instead of starting their own
+    public long getJoinedCount() {
+        return joined.get();
+    }
+
+    // Searches dropped because a newer one arrived before they started
+    public long getDebouncedCount() {
+        return debounced.get();
+    }
+
+    // Searches cancelled while in progress because a newer one started
+    public long getSupersededCount() {
+        return superseded.get();
+    }
+
+    // Requests of superseded searches cut off while on the network
+    public long getRequestsAbortedCount() {
+        return requestsAborted.get();
+    }
+
+    // Requests of superseded searches dropped before they were sent
+    public long getRequestsDroppedCount() {
+        return requestsDropped.get();
+    }
+
+    // API calls avoided: the fetches of every search that never started, plus those of superseded
+    // searches that never went out. An estimate, since some would have been answered from cache.
+    public long getUpstreamCallsSaved() {
+        return (joined.get() + debounced.get()) * WeatherSearchSession.FETCH_COUNT
+                + Math.max(0, fetchesCancelled.get() - requestsAborted.get());
+    }
+
+    @Override
+    public String toString() {
+        return "requested=" + requested.get() + ", started=" + started.get() + ", joined=" + joined.get()
+                + ", debounced=" + debounced.get() + ", superseded=" + superseded.get()
+                + ", aborted=" + requestsAborted.get() + ", callsSaved=" + getUpstreamCallsSaved();
+    }
+}
@@ -0,0 +1,364 @@
+package controller;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// Compact binary snapshots of WeatherData and Forecast, read and written directly over a ByteBuffer.
+// Each snapshot starts with a kind byte and a format version and is self-delimiting, so any number
+// of them can be packed back to back into one buffer.
+//
+// Layout choices, all lossless for what OpenWeatherMap sends with units=metric:
+// - temperatures and wind speeds as shorts in hundredths, pressure as a short in tenths of hPa
+// - humidity and precipitation probability (as a percentage) in a single byte
+// - coordinates as ints in millionths of a degree
+// - forecast timestamps as the first value followed by varint deltas (usually 2 bytes for 3 hours)
+// - condition descriptions and icon codes as an index into a fixed dictionary, spelled out only
+//   when they are not in it
+public final class SnapshotCodec {
+    // Version 2 added the observation time to WeatherData and version 3 its sun times and timezone;
+    // older snapshots are still readable
+    public static final byte FORMAT_VERSION = 3;
+
+    private static final byte WEATHER_DATA = 'W';
+    private static final byte FORECAST = 'F';
+
+    private static final int FLAG_COORDINATES = 1;
+
+    // Append only: the position of each entry is part of the format
+    private static final String[] DESCRIPTIONS = {
+            "clear sky", "few clouds", "scattered clouds", "broken clouds", "overcast clouds",
+            "light rain", "moderate rain", "heavy intensity rain", "very heavy rain", "extreme rain",
+            "freezing rain", "light intensity shower rain", "shower rain", "heavy intensity shower rain",
+            "ragged shower rain", "light intensity drizzle", "drizzle", "heavy intensity drizzle",
+            "light intensity drizzle rain", "drizzle rain", "heavy intensity drizzle rain",
+            "shower rain and drizzle", "heavy shower rain and drizzle", "shower drizzle",
+            "thunderstorm with light rain", "thunderstorm with rain", "thunderstorm with heavy rain",
+            "light thunderstorm", "thunderstorm", "heavy thunderstorm", "ragged thunderstorm",
+            "thunderstorm with light drizzle", "thunderstorm with drizzle", "thunderstorm with heavy drizzle",
+            "light snow", "snow", "heavy snow", "sleet", "light shower sleet", "shower sleet",
+            "light rain and snow", "rain and snow", "light shower snow", "shower snow", "heavy shower snow",
+            "mist", "smoke", "haze", "sand/dust whirls", "fog", "sand", "dust", "volcanic ash", "squalls",
+            "tornado"
+    };
+    private static final String[] ICON_CODES = {
+            "01d", "01n", "02d", "02n", "03d", "03n", "04d", "04n", "09d", "09n",
+            "10d", "10n", "11d", "11n", "13d", "13n", "50d", "50n"
+    };
+
+    private SnapshotCodec() {
+    }
+
+    // Convenience wrappers for storing a single snapshot as a byte array
+
+    public static byte[] encodeWeatherData(WeatherData weatherData) {
+        ByteBuffer buffer = ByteBuffer.allocate(maxEncodedSize(weatherData));
+        writeWeatherData(buffer, weatherData);
+        return toArray(buffer);
+    }
+
+    public static byte[] encodeForecast(Forecast forecast) {
+        ByteBuffer buffer = ByteBuffer.allocate(maxEncodedSize(forecast));
+        writeForecast(buffer, forecast);
+        return toArray(buffer);
+    }
+
+    public static WeatherData decodeWeatherData(byte[] data) {
+        return readWeatherData(ByteBuffer.wrap(data));
+    }
+
+    public static Forecast decodeForecast(byte[] data) {
+        return readForecast(ByteBuffer.wrap(data));
+    }
+
+    // Upper bounds, for sizing buffers; strings are counted at the worst case of 3 UTF-8 bytes per char
+    public static int maxEncodedSize(WeatherData weatherData) {
+        return 80 + maxStringSize(weatherData.getCityName()) + maxStringSize(weatherData.getWeatherDescription())
+                + maxStringSize(weatherData.getIconCode());
+    }
+
+    public static int maxEncodedSize(Forecast forecast) {
+        int size = 32 + forecast.size() * 24;
+        for (int i = 0; i < forecast.getConditionCount(); i++) {
+            size += 5 + maxStringSize(forecast.getConditionDescription(i));
+        }
+        return size;
+    }
+
+    // Writers, advancing the buffer's position past the snapshot
+
+    public static void writeWeatherData(ByteBuffer out, WeatherData weatherData) {
+        Coordinates coordinates = weatherData.getCoordinates();
+        out.put(WEATHER_DATA);
+        out.put(FORMAT_VERSION);
+        out.put((byte) (coordinates != null ? FLAG_COORDINATES : 0));
+        writeString(out, weatherData.getCityName());
+        writeVarLong(out, weatherData.getCityId());
+        writeVarLong(out, weatherData.getObservedAt());
+        out.putShort(hundredths(weatherData.getTemperature()));
+        out.putShort(hundredths(weatherData.getFeelsLike()));
+        out.putShort(hundredths(weatherData.getWindSpeed()));
+        out.putShort(tenths(weatherData.getPressure()));
+        out.put((byte) weatherData.getHumidity());
+        writeVarLong(out, weatherData.getVisibility());
+        writeDictionaryString(out, DESCRIPTIONS, weatherData.getWeatherDescription());
+        writeDictionaryString(out, ICON_CODES, weatherData.getIconCode());
+        if (coordinates != null) {
+            out.putInt(millionths(coordinates.getLatitude()));
+            out.putInt(millionths(coordinates.getLongitude()));
+        }
+        // Sunrise and sunset as offsets from the observation time, which are small
+        writeVarLong(out, zigZag(weatherData.getSunrise() - weatherData.getObservedAt()));
+        writeVarLong(out, zigZag(weatherData.getSunset() - weatherData.getObservedAt()));
+        writeVarLong(out, zigZag(weatherData.getTimezoneOffsetSeconds()));
+    }
+
+    public static void writeForecast(ByteBuffer out, Forecast forecast) {
+        int size = forecast.size();
+        out.put(FORECAST);
+        out.put(FORMAT_VERSION);
+        writeVarLong(out, zigZag(forecast.getTimezoneOffsetSeconds()));
+        writeVarLong(out, size);
+
+        // Condition table, referenced by index from every slot
+        int conditionCount = forecast.getConditionCount();
+        writeVarLong(out, conditionCount);
+        for (int i = 0; i < conditionCount; i++) {
+            writeVarLong(out, forecast.getConditionIdAt(i));
+            writeDictionaryString(out, DESCRIPTIONS, forecast.getConditionDescription(i));
+        }
+
+        long previous = 0;
+        for (int slot = 0; slot < size; slot++) {
+            long timestamp = forecast.getTimestamp(slot);
+            if (slot == 0) {
+                out.putLong(timestamp);
+            } else {
+                writeVarLong(out, zigZag(timestamp - previous));
+            }
+            previous = timestamp;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            out.putShort(hundredths(forecast.getTemperature(slot)));
+            out.putShort(hundredths(forecast.getMinTemperature(slot)));
+            out.putShort(hundredths(forecast.getMaxTemperature(slot)));
+            out.putShort(hundredths(forecast.getWindSpeed(slot)));
+            out.put((byte) forecast.getHumidity(slot));
+            out.put((byte) Math.round(forecast.getPrecipitationProbability(slot) * 100));
+            out.put((byte) forecast.getConditionIndex(slot));
+        }
+    }
+
+    // Readers, advancing the buffer's position past the snapshot.
+    // A buffer that does not hold a snapshot of the expected kind and version is rejected.
+
+    public static WeatherData readWeatherData(ByteBuffer in) {
+        try {
+            int version = readHeader(in, WEATHER_DATA);
+            int flags = in.get();
+            String cityName = readString(in);
+            long cityId = readVarLong(in);
+            long observedAt = version >= 2 ? readVarLong(in) : 0;
+            double temperature = fromHundredths(in.getShort());
+            double feelsLike = fromHundredths(in.getShort());
+            double windSpeed = fromHundredths(in.getShort());
+            double pressure = in.getShort() / 10.0;
+            int humidity = in.get() & 0xFF;
+            int visibility = (int) readVarLong(in);
+            String description = readDictionaryString(in, DESCRIPTIONS);
+            String iconCode = readDictionaryString(in, ICON_CODES);
+            Coordinates coordinates = null;
+            if ((flags & FLAG_COORDINATES) != 0) {
+                double latitude = in.getInt() / 1e6;
+                double longitude = in.getInt() / 1e6;
+                coordinates = new Coordinates(latitude, longitude);
+            }
+            long sunrise = 0;
+            long sunset = 0;
+            int timezoneOffsetSeconds = 0;
+            if (version >= 3) {
+                sunrise = observedAt + unZigZag(readVarLong(in));
+                sunset = observedAt + unZigZag(readVarLong(in));
+                timezoneOffsetSeconds = (int) unZigZag(readVarLong(in));
+            }
+            return new WeatherData(cityName, temperature, description, humidity, windSpeed, feelsLike, iconCode,
+                    pressure, visibility, coordinates, cityId, observedAt, sunrise, sunset, timezoneOffsetSeconds);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated weather snapshot");
+        }
+    }
+
+    public static Forecast readForecast(ByteBuffer in) {
+        try {
+            readHeader(in, FORECAST);
+            int timezoneOffsetSeconds = (int) unZigZag(readVarLong(in));
+            int size = (int) readVarLong(in);
+
+            int conditionCount = (int) readVarLong(in);
+            int[] conditionIds = new int[conditionCount];
+            String[] conditionDescriptions = new String[conditionCount];
+            for (int i = 0; i < conditionCount; i++) {
+                conditionIds[i] = (int) readVarLong(in);
+                conditionDescriptions[i] = readDictionaryString(in, DESCRIPTIONS);
+            }
+
+            long[] timestamps = new long[size];
+            for (int slot = 0; slot < size; slot++) {
+                timestamps[slot] = slot == 0 ? in.getLong() : timestamps[slot - 1] + unZigZag(readVarLong(in));
+            }
+            double[] temperatures = new double[size];
+            double[] minTemperatures = new double[size];
+            double[] maxTemperatures = new double[size];
+            double[] windSpeeds = new double[size];
+            int[] humidity = new int[size];
+            double[] precipitationProbabilities = new double[size];
+            byte[] conditionIndexes = new byte[size];
+            for (int slot = 0; slot < size; slot++) {
+                temperatures[slot] = fromHundredths(in.getShort());
+                minTemperatures[slot] = fromHundredths(in.getShort());
+                maxTemperatures[slot] = fromHundredths(in.getShort());
+                windSpeeds[slot] = fromHundredths(in.getShort());
+                humidity[slot] = in.get() & 0xFF;
+                precipitationProbabilities[slot] = (in.get() & 0xFF) / 100.0;
+                conditionIndexes[slot] = in.get();
+            }
+            return new Forecast(timestamps, temperatures, minTemperatures, maxTemperatures, humidity, windSpeeds,
+                    precipitationProbabilities, conditionIndexes, conditionIds, conditionDescriptions,
+                    timezoneOffsetSeconds);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated forecast snapshot");
+        }
+    }
+
+    private static int readHeader(ByteBuffer in, byte expectedKind) {
+        byte kind = in.get();
+        byte version = in.get();
+        if (kind != expectedKind) {
+            throw new IllegalArgumentException("Not a " + (char) expectedKind + " snapshot: " + (char) kind);
+        }
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        return version;
+    }
+
+    // Quantization
+
+    private static short hundredths(double value) {
+        return (short) Math.round(value * 100);
+    }
+
+    private static short tenths(double value) {
+        return (short) Math.round(value * 10);
+    }
+
+    private static int millionths(double degrees) {
+        return (int) Math.round(degrees * 1e6);
+    }
+
+    // Division rather than multiplying by 0.01 gives back exactly the double the JSON parser produced
+    private static double fromHundredths(short value) {
+        return value / 100.0;
+    }
+
+    // Variable-length integers, 7 bits per byte, low bits first
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot");
+    }
+
+    // Maps signed values to unsigned so small negatives stay short
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Strings: 0 marks null, otherwise UTF-8 byte length + 1 followed by the bytes
+
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    // Dictionary strings: 0 means spelled out, n means dictionary[n - 1]
+    private static void writeDictionaryString(ByteBuffer out, String[] dictionary, String value) {
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                writeVarLong(out, i + 1);
+                return;
+            }
+        }
+        writeVarLong(out, 0);
+        writeString(out, value);
+    }
+
+    private static String readDictionaryString(ByteBuffer in, String[] dictionary) {
+        int code = (int) readVarLong(in);
+        if (code == 0) {
+            return readString(in);
+        }
+        if (code > dictionary.length) {
+            throw new IllegalArgumentException("Unknown dictionary entry " + code + " in snapshot");
+        }
+        return dictionary[code - 1];
+    }
+
+    private static int maxStringSize(String value) {
+        return 10 + (value == null ? 0 : value.length() * 3);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(data);
+        return data;
+    }
+}
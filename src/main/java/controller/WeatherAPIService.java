@@ -1,159 +1,433 @@
 package controller;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import metrics.Counter;
+import metrics.Metrics;
+import metrics.StageTimer;
+import model.AirQuality;
+import model.Coordinates;
+import model.Forecast;
 import model.WeatherData;
 
-public class WeatherAPIService {
+public class WeatherAPIService implements WeatherService {
     private static final String API_KEY = "Add your API Key"; // Replace with your OpenWeatherMap API key
-    private static final String API_URL = "https://api.openweathermap.org/data/2.5/weather";
-    private static final String FORECAST_URL = "https://api.openweathermap.org/data/2.5/forecast";
-    private static final String AIR_QUALITY_URL = "https://api.openweathermap.org/data/2.5/air_pollution";
-    
+    private static final String DEFAULT_BASE_URL = "https://api.openweathermap.org";
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final String FORECAST_PATH = "/data/2.5/forecast";
+    private static final String AIR_QUALITY_PATH = "/data/2.5/air_pollution";
+    private static final String GEO_PATH = "/geo/1.0/direct";
+    private static final String GROUP_PATH = "/data/2.5/group";
+    private static final String ONE_CALL_PATH = "/data/3.0/onecall"; // Needs a One Call subscription on the key
+    public static final int MAX_GROUP_SIZE = 20; // City IDs the group endpoint accepts per call
+    private static final String[] COORD_FIELD = {"coord"};
+    private static final String[] LAT_LON_FIELDS = {"lat", "lon"};
+
+    // Stage metrics, labelled by endpoint and by payload
+    private static final Map<String, StageTimer> CALL_TIMERS = new HashMap<>();
+    private static final Map<String, Counter> CALL_ERRORS = new HashMap<>();
+    private static final StageTimer PARSE_WEATHER = parseTimer("weather");
+    private static final StageTimer PARSE_GROUP = parseTimer("group");
+    private static final StageTimer PARSE_FORECAST = parseTimer("forecast");
+    private static final StageTimer PARSE_AIR_QUALITY = parseTimer("air_quality");
+    private static final StageTimer PARSE_UV_INDEX = parseTimer("uv_index");
+
+    static {
+        String[][] endpoints = {{WEATHER_PATH, "weather"}, {FORECAST_PATH, "forecast"},
+                {AIR_QUALITY_PATH, "air_quality"}, {GEO_PATH, "geocode"}, {GROUP_PATH, "group"},
+                {ONE_CALL_PATH, "one_call"}};
+        for (String[] endpoint : endpoints) {
+            CALL_TIMERS.put(endpoint[0], Metrics.timer("weather_api_call_seconds",
+                    "OpenWeatherMap calls, from request to body read", "endpoint", endpoint[1]));
+            CALL_ERRORS.put(endpoint[0], Metrics.counter("weather_api_errors_total",
+                    "OpenWeatherMap calls that failed or returned a non-200 status", "endpoint", endpoint[1]));
+        }
+    }
+
+    private final String baseUrl;
+    private final HttpTransport transport;
+    private final GeocodeCache geocodeCache;
+
+    public WeatherAPIService() {
+        this(DEFAULT_BASE_URL);
+    }
+
+    public WeatherAPIService(GeocodeCache geocodeCache) {
+        this(DEFAULT_BASE_URL, new PooledHttpTransport(), geocodeCache);
+    }
+
+    // Base URL can be pointed at a local stub server for testing
+    public WeatherAPIService(String baseUrl) {
+        this(baseUrl, new PooledHttpTransport());
+    }
+
+    // Talks to OpenWeatherMap through the given transport, e.g. one that enforces the key's quota
+    public WeatherAPIService(HttpTransport transport, GeocodeCache geocodeCache) {
+        this(DEFAULT_BASE_URL, transport, geocodeCache);
+    }
+
+    public WeatherAPIService(String baseUrl, HttpTransport transport) {
+        this(baseUrl, transport, new GeocodeCache());
+    }
+
+    public WeatherAPIService(String baseUrl, HttpTransport transport, GeocodeCache geocodeCache) {
+        this.baseUrl = baseUrl;
+        this.transport = transport;
+        this.geocodeCache = geocodeCache;
+    }
+
+    @Override
     public WeatherData getCurrentWeather(String cityName) throws IOException {
-        String encodedCityName = URLEncoder.encode(cityName, StandardCharsets.UTF_8.toString());
-        String urlString = API_URL + "?q=" + encodedCityName + "&appid=" + API_KEY + "&units=metric";
-        
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-            
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+        return parseCurrentWeather(fetchCurrentWeatherJson(cityName));
+    }
+
+    @Override
+    public Forecast getForecast(String cityName) throws IOException {
+        return parseForecast(fetchForecastJson(cityName));
+    }
+
+    // Current weather for up to MAX_GROUP_SIZE cities in one call, in the order the API returns them
+    @Override
+    public List<WeatherData> getCurrentWeatherGroup(long[] cityIds) throws IOException {
+        return parseCurrentWeatherGroup(fetchCurrentWeatherGroupJson(cityIds));
+    }
+
+    // UNKNOWN only if the response had no reading; failed requests throw, so they aren't cached
+    @Override
+    public AirQuality getAirQuality(String cityName) throws IOException {
+        return parseAirQuality(fetchAirQualityJson(cityName));
+    }
+
+    // Current UV index, or NaN if the key has no One Call subscription or the response had no
+    // reading. Other failures throw, so they aren't cached as a value.
+    @Override
+    public double getUvIndex(String cityName) throws IOException {
+        return getUvIndex(cityName, () -> fetchUvIndexJson(cityName));
+    }
+
+    @Override
+    public AirQuality getAirQuality(String cityName, Coordinates coordinates) throws IOException {
+        return parseAirQuality(fetchAirQualityJson(coordinates));
+    }
+
+    @Override
+    public double getUvIndex(String cityName, Coordinates coordinates) throws IOException {
+        return getUvIndex(cityName, () -> fetchUvIndexJson(coordinates));
+    }
+
+    // Also used by decorators that fetch the UV payload through themselves
+    static double getUvIndex(String cityName, ResponseCache.Loader<String> fetcher) throws IOException {
+        try {
+            return parseUvIndex(fetcher.load());
+        } catch (ApiResponseException e) {
+            if (!e.isUnauthorized()) {
+                throw e;
             }
-            in.close();
-            
-            JSONObject jsonResponse = new JSONObject(response.toString());
-            
-            // Parse the JSON response
-            JSONObject main = jsonResponse.getJSONObject("main");
-            JSONArray weatherArray = jsonResponse.getJSONArray("weather");
-            JSONObject weather = weatherArray.getJSONObject(0);
-            JSONObject wind = jsonResponse.getJSONObject("wind");
-            
-            double temperature = main.getDouble("temp");
-            double feelsLike = main.getDouble("feels_like");
-            int humidity = main.getInt("humidity");
-            double pressure = main.getDouble("pressure");
-            String description = weather.getString("description");
-            String iconCode = weather.getString("icon");
-            double windSpeed = wind.getDouble("speed");
-            String city = jsonResponse.getString("name");
-            
-            // Get visibility (in meters)
-            int visibility = jsonResponse.has("visibility") ? jsonResponse.getInt("visibility") : 10000; // Default to 10km if not available
-            
-            return new WeatherData(city, temperature, description, humidity, windSpeed, feelsLike, iconCode, pressure, visibility);
-        } else {
-            throw new IOException("Error fetching weather data. Response code: " + responseCode);
-        }
-    }
-    
-    public JSONObject getForecast(String cityName) throws IOException {
+            System.err.println("UV index unavailable for " + cityName + ": " + e.getMessage());
+            return Double.NaN;
+        }
+    }
+
+    // Raw payload fetches, kept separate from parsing so responses can be stored as-is.
+    // A city picked from the city list is queried by its ID; otherwise, once a city's
+    // coordinates are known every endpoint is queried by lat/lon.
+
+    @Override
+    public String fetchCurrentWeatherJson(String cityName) throws IOException {
+        Long cityId = geocodeCache.getCityId(cityName);
+        if (cityId != null) {
+            String json = fetchCurrentWeatherJson(cityId.longValue());
+            rememberCoordinates(cityName, json);
+            return json;
+        }
+
+        Coordinates coordinates = geocodeCache.get(cityName);
+        if (coordinates != null) {
+            return fetchCurrentWeatherJson(coordinates);
+        }
+
         String encodedCityName = URLEncoder.encode(cityName, StandardCharsets.UTF_8.toString());
-        String urlString = FORECAST_URL + "?q=" + encodedCityName + "&appid=" + API_KEY + "&units=metric&cnt=40"; // Get 5 days forecast (40 x 3-hour intervals)
-        
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-            
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+        String urlString = baseUrl + WEATHER_PATH + "?q=" + encodedCityName + "&appid=" + API_KEY + "&units=metric";
+        String json = fetch(urlString, "Error fetching weather data.");
+        rememberCoordinates(cityName, json);
+        return json;
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(long cityId) throws IOException {
+        String urlString = baseUrl + WEATHER_PATH + "?id=" + cityId + "&appid=" + API_KEY + "&units=metric";
+        return fetch(urlString, "Error fetching weather data.");
+    }
+
+    @Override
+    public String fetchCurrentWeatherJson(Coordinates coordinates) throws IOException {
+        String urlString = baseUrl + WEATHER_PATH + "?" + latLon(coordinates) + "&appid=" + API_KEY + "&units=metric";
+        return fetch(urlString, "Error fetching weather data.");
+    }
+
+    @Override
+    public String fetchForecastJson(String cityName) throws IOException {
+        Long cityId = geocodeCache.getCityId(cityName);
+        if (cityId != null) {
+            return fetchForecastJson(cityId.longValue());
+        }
+
+        Coordinates coordinates = geocodeCache.get(cityName);
+        if (coordinates != null) {
+            return fetchForecastJson(coordinates);
+        }
+
+        String encodedCityName = URLEncoder.encode(cityName, StandardCharsets.UTF_8.toString());
+        String urlString = baseUrl + FORECAST_PATH + "?q=" + encodedCityName + "&appid=" + API_KEY + "&units=metric&cnt=40"; // Get 5 days forecast (40 x 3-hour intervals)
+        return fetch(urlString, "Error fetching forecast data.");
+    }
+
+    @Override
+    public String fetchForecastJson(long cityId) throws IOException {
+        String urlString = baseUrl + FORECAST_PATH + "?id=" + cityId + "&appid=" + API_KEY + "&units=metric&cnt=40";
+        return fetch(urlString, "Error fetching forecast data.");
+    }
+
+    @Override
+    public String fetchForecastJson(Coordinates coordinates) throws IOException {
+        String urlString = baseUrl + FORECAST_PATH + "?" + latLon(coordinates) + "&appid=" + API_KEY + "&units=metric&cnt=40";
+        return fetch(urlString, "Error fetching forecast data.");
+    }
+
+    @Override
+    public String fetchAirQualityJson(String cityName) throws IOException {
+        // Geocoding is only needed if this city hasn't been resolved before
+        return fetchAirQualityJson(geocodeCache.resolve(cityName, () -> geocode(cityName)));
+    }
+
+    @Override
+    public String fetchAirQualityJson(Coordinates coordinates) throws IOException {
+        String aqiUrlString = baseUrl + AIR_QUALITY_PATH + "?" + latLon(coordinates) + "&appid=" + API_KEY;
+        return fetch(aqiUrlString, "Error fetching air quality data.");
+    }
+
+    @Override
+    public String fetchUvIndexJson(String cityName) throws IOException {
+        return fetchUvIndexJson(geocodeCache.resolve(cityName, () -> geocode(cityName)));
+    }
+
+    // Only the current conditions; the forecast parts of One Call come from the free endpoints
+    @Override
+    public String fetchUvIndexJson(Coordinates coordinates) throws IOException {
+        String urlString = baseUrl + ONE_CALL_PATH + "?" + latLon(coordinates)
+                + "&exclude=minutely,hourly,daily,alerts&appid=" + API_KEY + "&units=metric";
+        return fetch(urlString, "Error fetching UV index.");
+    }
+
+    @Override
+    public String fetchCurrentWeatherGroupJson(long[] cityIds) throws IOException {
+        if (cityIds.length == 0 || cityIds.length > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("Group requests take 1 to " + MAX_GROUP_SIZE + " city IDs");
+        }
+        StringBuilder ids = new StringBuilder();
+        for (long cityId : cityIds) {
+            if (ids.length() > 0) {
+                ids.append(',');
             }
-            in.close();
-            
-            return new JSONObject(response.toString());
-        } else {
-            throw new IOException("Error fetching forecast data. Response code: " + responseCode);
+            ids.append(cityId);
         }
+        String urlString = baseUrl + GROUP_PATH + "?id=" + ids + "&appid=" + API_KEY + "&units=metric";
+        return fetch(urlString, "Error fetching weather data.");
     }
-    
-    public String getAirQuality(String cityName) throws IOException {
-        // First get coordinates for the city
+
+    private Coordinates geocode(String cityName) throws IOException {
         String encodedCityName = URLEncoder.encode(cityName, StandardCharsets.UTF_8.toString());
-        String geoUrlString = "https://api.openweathermap.org/geo/1.0/direct?q=" + encodedCityName + "&limit=1&appid=" + API_KEY;
-        
-        URL geoUrl = new URL(geoUrlString);
-        HttpURLConnection geoConnection = (HttpURLConnection) geoUrl.openConnection();
-        geoConnection.setRequestMethod("GET");
-        
-        int geoResponseCode = geoConnection.getResponseCode();
-        if (geoResponseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(geoConnection.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-            
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+        String geoUrlString = baseUrl + GEO_PATH + "?q=" + encodedCityName + "&limit=1&appid=" + API_KEY;
+
+        JSONArray locations = new JSONArray(fetch(geoUrlString, "Error fetching city coordinates."));
+        if (locations.length() == 0) {
+            throw new ApiResponseException("City not found.", HttpURLConnection.HTTP_NOT_FOUND);
+        }
+
+        JSONObject location = locations.getJSONObject(0);
+        return new Coordinates(location.getDouble("lat"), location.getDouble("lon"));
+    }
+
+    // The /weather response already carries the coordinates, remember them for the other endpoints
+    private void rememberCoordinates(String cityName, String json) {
+        Coordinates resolved = readCoordinates(json);
+        if (resolved != null) {
+            geocodeCache.put(cityName, resolved);
+        }
+    }
+
+    private static String latLon(Coordinates coordinates) {
+        return "lat=" + coordinates.getLatitude() + "&lon=" + coordinates.getLongitude();
+    }
+
+    private String fetch(String urlString, String errorMessage) throws IOException {
+        String path = urlString.substring(baseUrl.length(), urlString.indexOf('?'));
+        StageTimer timer = CALL_TIMERS.get(path);
+        long start = timer.start();
+        boolean succeeded = false;
+        try {
+            HttpResponse response = transport.get(urlString);
+            if (response.getStatusCode() == ApiResponseException.TOO_MANY_REQUESTS) {
+                throw new ApiResponseException("Too many requests to OpenWeatherMap.", response.getStatusCode(),
+                        response.getRetryAfterMillis());
+            }
+            if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                throw new ApiResponseException(errorMessage, response.getStatusCode());
+            }
+            succeeded = true;
+            return response.getBody();
+        } finally {
+            timer.stop(start);
+            if (!succeeded) {
+                CALL_ERRORS.get(path).increment();
+            }
+        }
+    }
+
+    private static StageTimer parseTimer(String payload) {
+        return Metrics.timer("weather_parse_seconds", "Parsing of OpenWeatherMap responses", "payload", payload);
+    }
+
+    // Parsers
+
+    public static WeatherData parseCurrentWeather(String json) {
+        long start = PARSE_WEATHER.start();
+        try {
+            return parseCurrentWeather(new JSONObject(json));
+        } finally {
+            PARSE_WEATHER.stop(start);
+        }
+    }
+
+    // Each entry of a group response has the same shape as a /weather response
+    public static List<WeatherData> parseCurrentWeatherGroup(String json) {
+        long start = PARSE_GROUP.start();
+        try {
+            JSONArray list = new JSONObject(json).getJSONArray("list");
+            List<WeatherData> results = new ArrayList<>(list.length());
+            for (int i = 0; i < list.length(); i++) {
+                results.add(parseCurrentWeather(list.getJSONObject(i)));
             }
-            in.close();
-            
-            JSONArray locations = new JSONArray(response.toString());
-            if (locations.length() > 0) {
-                JSONObject location = locations.getJSONObject(0);
-                double lat = location.getDouble("lat");
-                double lon = location.getDouble("lon");
-                
-                // Now get air quality data
-                String aqiUrlString = AIR_QUALITY_URL + "?lat=" + lat + "&lon=" + lon + "&appid=" + API_KEY;
-                
-                URL aqiUrl = new URL(aqiUrlString);
-                HttpURLConnection aqiConnection = (HttpURLConnection) aqiUrl.openConnection();
-                aqiConnection.setRequestMethod("GET");
-                
-                int aqiResponseCode = aqiConnection.getResponseCode();
-                if (aqiResponseCode == HttpURLConnection.HTTP_OK) {
-                    BufferedReader aqiIn = new BufferedReader(new InputStreamReader(aqiConnection.getInputStream()));
-                    StringBuilder aqiResponse = new StringBuilder();
-                    
-                    while ((inputLine = aqiIn.readLine()) != null) {
-                        aqiResponse.append(inputLine);
-                    }
-                    aqiIn.close();
-                    
-                    JSONObject aqiData = new JSONObject(aqiResponse.toString());
-                    JSONArray list = aqiData.getJSONArray("list");
-                    if (list.length() > 0) {
-                        JSONObject current = list.getJSONObject(0);
-                        JSONObject components = current.getJSONObject("components");
-                        JSONObject main = current.getJSONObject("main");
-                        int aqi = main.getInt("aqi");
-                        
-                        // AQI values: 1 = Good, 2 = Fair, 3 = Moderate, 4 = Poor, 5 = Very Poor
-                        switch (aqi) {
-                            case 1: return "Good";
-                            case 2: return "Fair";
-                            case 3: return "Moderate";
-                            case 4: return "Poor";
-                            case 5: return "Very Poor";
-                            default: return "Unknown";
-                        }
-                    }
+            return results;
+        } finally {
+            PARSE_GROUP.stop(start);
+        }
+    }
+
+    private static WeatherData parseCurrentWeather(JSONObject jsonResponse) {
+        // Parse the JSON response
+        JSONObject main = jsonResponse.getJSONObject("main");
+        JSONArray weatherArray = jsonResponse.getJSONArray("weather");
+        JSONObject weather = weatherArray.getJSONObject(0);
+        JSONObject wind = jsonResponse.getJSONObject("wind");
+
+        double temperature = main.getDouble("temp");
+        double feelsLike = main.getDouble("feels_like");
+        int humidity = main.getInt("humidity");
+        double pressure = main.getDouble("pressure");
+        String description = weather.getString("description");
+        String iconCode = weather.getString("icon");
+        double windSpeed = wind.getDouble("speed");
+        String city = jsonResponse.getString("name");
+        JSONObject coord = jsonResponse.optJSONObject("coord");
+        Coordinates coordinates = coord != null ? new Coordinates(coord.getDouble("lat"), coord.getDouble("lon")) : null;
+
+        // Get visibility (in meters)
+        int visibility = jsonResponse.has("visibility") ? jsonResponse.getInt("visibility") : 10000; // Default to 10km if not available
+
+        // Sun times are missing while the sun doesn't rise or set, e.g. in polar summer
+        JSONObject sys = jsonResponse.optJSONObject("sys");
+        long sunrise = sys != null ? sys.optLong("sunrise", 0) : 0;
+        long sunset = sys != null ? sys.optLong("sunset", 0) : 0;
+
+        return new WeatherData(city, temperature, description, humidity, windSpeed, feelsLike, iconCode, pressure, visibility,
+                coordinates, jsonResponse.optLong("id", 0), jsonResponse.optLong("dt", 0),
+                sunrise, sunset, jsonResponse.optInt("timezone", 0));
+    }
+
+    // Pulls just the "coord" object out of a /weather response
+    static Coordinates readCoordinates(String json) {
+        JsonStreamReader reader = new JsonStreamReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(COORD_FIELD) != 0) {
+                reader.skipValue();
+                continue;
+            }
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(LAT_LON_FIELDS)) {
+                    case 0: lat = reader.nextDouble(); break;
+                    case 1: lon = reader.nextDouble(); break;
+                    default: reader.skipValue();
                 }
             }
+            reader.endObject();
+            return Double.isNaN(lat) || Double.isNaN(lon) ? null : new Coordinates(lat, lon);
+        }
+        return null;
+    }
+
+    public static Forecast parseForecast(String json) {
+        long start = PARSE_FORECAST.start();
+        try {
+            return ForecastParser.parse(json);
+        } finally {
+            PARSE_FORECAST.stop(start);
+        }
+    }
+
+    public static AirQuality parseAirQuality(String json) {
+        long start = PARSE_AIR_QUALITY.start();
+        try {
+            return describeAirQuality(json);
+        } finally {
+            PARSE_AIR_QUALITY.stop(start);
+        }
+    }
+
+    private static AirQuality describeAirQuality(String json) {
+        JSONObject aqiData = new JSONObject(json);
+        JSONArray list = aqiData.getJSONArray("list");
+        if (list.length() > 0) {
+            JSONObject current = list.getJSONObject(0);
+            JSONObject main = current.getJSONObject("main");
+            int aqi = main.getInt("aqi");
+
+            // Concentrations in μg/m³, e.g. pm2_5, pm10, o3, no2
+            Map<String, Double> components = new HashMap<>();
+            JSONObject componentsJson = current.optJSONObject("components");
+            if (componentsJson != null) {
+                for (String name : componentsJson.keySet()) {
+                    components.put(name, componentsJson.getDouble(name));
+                }
+            }
+
+            // AQI values: 1 = Good, 2 = Fair, 3 = Moderate, 4 = Poor, 5 = Very Poor
+            return aqi >= 1 && aqi <= 5 ? new AirQuality(aqi, components) : AirQuality.UNKNOWN;
+        }
+        return AirQuality.UNKNOWN;
+    }
+
+    public static double parseUvIndex(String json) {
+        long start = PARSE_UV_INDEX.start();
+        try {
+            JSONObject current = new JSONObject(json).optJSONObject("current");
+            return current != null ? current.optDouble("uvi", Double.NaN) : Double.NaN;
+        } finally {
+            PARSE_UV_INDEX.stop(start);
         }
-        
-        return "Unknown"; // Default if we can't get air quality data
     }
 }
@@ -0,0 +1,88 @@
+package controller;
+
+import java.util.concurrent.CompletableFuture;
+
+import model.AirQuality;
+import model.Forecast;
+import model.WeatherData;
+
+// Holds the results of a single search so every panel shares one fetch per endpoint.
+// Current weather and forecast are started together and run concurrently on the async service.
+// Air quality and UV are looked up by the coordinates the current weather carries, so they start
+// once it arrives and a new city needs no geocoding call; each still comes from its own cache.
+public class WeatherSearchSession {
+    public static final int FETCH_COUNT = 4; // Current weather, forecast, air quality and UV index
+
+    private final String cityName;
+    private final CompletableFuture<WeatherData> currentWeather;
+    private final CompletableFuture<Forecast> forecast;
+    private final CompletableFuture<AirQuality> airQuality;
+    private final CompletableFuture<Double> uvIndex;
+    private final CancellationToken token;
+    private volatile boolean cancelled;
+
+    public WeatherSearchSession(AsyncWeatherService asyncService, String cityName) {
+        this(asyncService, cityName, new CancellationToken());
+    }
+
+    // Cancelling the session cancels the token, which aborts its requests still on the network
+    public WeatherSearchSession(AsyncWeatherService asyncService, String cityName, CancellationToken token) {
+        this.cityName = cityName;
+        this.token = token;
+        this.currentWeather = asyncService.getCurrentWeather(cityName, token);
+        this.forecast = asyncService.getForecast(cityName, token);
+        this.airQuality = currentWeather.thenCompose(weatherData -> weatherData.getCoordinates() != null
+                ? asyncService.getAirQuality(cityName, weatherData.getCoordinates(), token)
+                : asyncService.getAirQuality(cityName, token));
+        this.uvIndex = currentWeather.thenCompose(weatherData -> weatherData.getCoordinates() != null
+                ? asyncService.getUvIndex(cityName, weatherData.getCoordinates(), token)
+                : asyncService.getUvIndex(cityName, token));
+    }
+
+    public String getCityName() {
+        return cityName;
+    }
+
+    public CompletableFuture<WeatherData> getCurrentWeather() {
+        return currentWeather;
+    }
+
+    public CompletableFuture<Forecast> getForecast() {
+        return forecast;
+    }
+
+    public CompletableFuture<AirQuality> getAirQuality() {
+        return airQuality;
+    }
+
+    // NaN if the UV index isn't available for this key
+    public CompletableFuture<Double> getUvIndex() {
+        return uvIndex;
+    }
+
+    // Called when a newer search supersedes this one; pending results are dropped, fetches that
+    // haven't started never will, and requests in progress are aborted
+    public void cancel() {
+        cancelled = true;
+        token.cancel();
+        currentWeather.cancel(false);
+        forecast.cancel(false);
+        airQuality.cancel(false);
+        uvIndex.cancel(false);
+    }
+
+    // True once every fetch has finished, one way or another
+    public boolean isDone() {
+        return currentWeather.isDone() && forecast.isDone() && airQuality.isDone() && uvIndex.isDone();
+    }
+
+    // Fetches that hadn't finished yet, e.g. when the session is cancelled
+    public int getUnfinishedFetchCount() {
+        return (currentWeather.isDone() ? 0 : 1) + (forecast.isDone() ? 0 : 1) + (airQuality.isDone() ? 0 : 1)
+                + (uvIndex.isDone() ? 0 : 1);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,58 @@
+package controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import model.AirQuality;
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// What callers fetch weather through. WeatherAPIService talks to OpenWeatherMap; the decorators
+// (CachingWeatherService, PersistentWeatherService) wrap another WeatherService and pass on
+// whatever they don't handle themselves.
+public interface WeatherService {
+
+    WeatherData getCurrentWeather(String cityName) throws IOException;
+
+    Forecast getForecast(String cityName) throws IOException;
+
+    // Current weather for up to WeatherAPIService.MAX_GROUP_SIZE cities in one call
+    List<WeatherData> getCurrentWeatherGroup(long[] cityIds) throws IOException;
+
+    AirQuality getAirQuality(String cityName) throws IOException;
+
+    // NaN if the key has no One Call subscription or the response had no reading
+    double getUvIndex(String cityName) throws IOException;
+
+    // The same for a city whose coordinates are already known, e.g. from its current weather;
+    // the results are still cached and stored under the city name
+
+    AirQuality getAirQuality(String cityName, Coordinates coordinates) throws IOException;
+
+    double getUvIndex(String cityName, Coordinates coordinates) throws IOException;
+
+    // Raw payloads, looked up by city name, by city ID or by coordinates
+
+    String fetchCurrentWeatherJson(String cityName) throws IOException;
+
+    String fetchCurrentWeatherJson(long cityId) throws IOException;
+
+    String fetchCurrentWeatherJson(Coordinates coordinates) throws IOException;
+
+    String fetchForecastJson(String cityName) throws IOException;
+
+    String fetchForecastJson(long cityId) throws IOException;
+
+    String fetchForecastJson(Coordinates coordinates) throws IOException;
+
+    String fetchAirQualityJson(String cityName) throws IOException;
+
+    String fetchAirQualityJson(Coordinates coordinates) throws IOException;
+
+    String fetchUvIndexJson(String cityName) throws IOException;
+
+    String fetchUvIndexJson(Coordinates coordinates) throws IOException;
+
+    String fetchCurrentWeatherGroupJson(long[] cityIds) throws IOException;
+}
@@ -0,0 +1,100 @@
+package controller;
+
+import metrics.Metrics;
+import model.DatabaseHandler;
+
+// Builds the service stack shared by the desktop UI and the headless batch mode:
+// in-memory cache -> database cache and history -> API client -> retries, hedging and circuit
+// breakers -> key quota -> HTTP.
+// Nothing here touches AWT, so it can run on a server or from cron.
+public class WeatherServices {
+    private final DatabaseHandler dbHandler;
+    private final QuotaGovernor quotaGovernor;
+    private final ResilientTransport resilientTransport;
+    private final GeocodeCache geocodeCache;
+    private final ObservationRecorder observationRecorder;
+    private final PersistentWeatherService persistentService;
+    private final CachingWeatherService apiService;
+
+    // Against OpenWeatherMap, within the key's default rate limit and monthly quota
+    public WeatherServices(DatabaseHandler dbHandler) {
+        this(dbHandler, null, new QuotaGovernor(new PooledHttpTransport(), dbHandler));
+    }
+
+    // Base URL may be null for OpenWeatherMap; the governor decides how fast requests may go
+    public WeatherServices(DatabaseHandler dbHandler, String baseUrl, QuotaGovernor quotaGovernor) {
+        this(dbHandler, baseUrl, quotaGovernor, CachingWeatherService.MAX_CITIES);
+    }
+
+    // Cached cities is how many cities the in-memory caches hold, per endpoint
+    public WeatherServices(DatabaseHandler dbHandler, String baseUrl, QuotaGovernor quotaGovernor, int cachedCities) {
+        this.dbHandler = dbHandler;
+        this.quotaGovernor = quotaGovernor;
+        this.resilientTransport = new ResilientTransport(quotaGovernor);
+        this.geocodeCache = new GeocodeCache(dbHandler);
+        this.observationRecorder = new ObservationRecorder(dbHandler);
+        WeatherAPIService client = baseUrl == null
+                ? new WeatherAPIService(resilientTransport, geocodeCache)
+                : new WeatherAPIService(baseUrl, resilientTransport, geocodeCache);
+        this.persistentService = new PersistentWeatherService(client, dbHandler, observationRecorder);
+        this.apiService = new CachingWeatherService(persistentService, cachedCities);
+        registerGauges();
+    }
+
+    // State the stages keep themselves, read whenever the metrics are exported
+    private void registerGauges() {
+        Metrics.gauge("weather_db_pending_writes", "Database writes queued but not yet committed",
+                dbHandler::getPendingWriteCount);
+        Metrics.gauge("weather_api_month_usage", "API calls made with the key this calendar month",
+                quotaGovernor::getMonthUsage);
+        Metrics.gauge("weather_api_requests_last_minute", "API calls made with the key in the last minute",
+                quotaGovernor::getRequestsLastMinute);
+        registerCacheGauges("current", apiService.getCurrentWeatherCache());
+        registerCacheGauges("forecast", apiService.getForecastCache());
+        registerCacheGauges("air_quality", apiService.getAirQualityCache());
+        registerCacheGauges("uv_index", apiService.getUvIndexCache());
+    }
+
+    private static void registerCacheGauges(String cache, ResponseCache<?> responseCache) {
+        Metrics.gauge("weather_cache_hits", "In-memory cache hits", responseCache::getHitCount, "cache", cache);
+        Metrics.gauge("weather_cache_misses", "In-memory cache misses", responseCache::getMissCount, "cache", cache);
+        Metrics.gauge("weather_cache_evictions", "In-memory cache evictions", responseCache::getEvictionCount,
+                "cache", cache);
+    }
+
+    public DatabaseHandler getDbHandler() {
+        return dbHandler;
+    }
+
+    public QuotaGovernor getQuotaGovernor() {
+        return quotaGovernor;
+    }
+
+    public ResilientTransport getResilientTransport() {
+        return resilientTransport;
+    }
+
+    public GeocodeCache getGeocodeCache() {
+        return geocodeCache;
+    }
+
+    public ObservationRecorder getObservationRecorder() {
+        return observationRecorder;
+    }
+
+    public PersistentWeatherService getPersistentService() {
+        return persistentService;
+    }
+
+    // The top of the stack; what callers should fetch through
+    public CachingWeatherService getApiService() {
+        return apiService;
+    }
+
+    // Saves the quota counters and queued observations, then closes the database once they're written
+    public void shutdown() {
+        quotaGovernor.flush();
+        observationRecorder.shutdown();
+        dbHandler.closeConnection();
+    }
+}
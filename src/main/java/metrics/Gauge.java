@@ -0,0 +1,35 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+// A value read when the metrics are exported, e.g. the database write queue length.
+// Counts kept elsewhere (cache hits, search coordinator counters) are exposed this way too.
+public class Gauge extends Metric {
+    private final DoubleSupplier value;
+
+    Gauge(String name, String help, String labels, DoubleSupplier value) {
+        super(name, help, labels);
+        this.value = value;
+    }
+
+    public double getValue() {
+        return value.getAsDouble();
+    }
+
+    @Override
+    String getType() {
+        return "gauge";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        out.append(series("", null)).append(' ').append(formatDouble(getValue())).append('\n');
+    }
+
+    @Override
+    Map<String, Object> getAttributes() {
+        return Collections.singletonMap("value", getValue());
+    }
+}
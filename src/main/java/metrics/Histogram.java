@@ -0,0 +1,123 @@
+package metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distribution of values over fixed bucket bounds, e.g. response sizes in bytes.
+// Recording is lock-free: one bucket, the sum and the maximum are updated per value.
+// Percentiles are estimated by interpolating within the bucket they fall in.
+public class Histogram extends Metric {
+    // Response and payload sizes
+    public static final long[] BYTE_BOUNDS = {256, 1024, 4096, 16384, 65536, 262144, 1048576};
+
+    private final long[] bounds; // Upper bounds, inclusive, ascending; one more bucket catches the rest
+    private final double exportScale; // Multiplies raw values when exported, e.g. 1e-9 for nanos to seconds
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private volatile long last;
+
+    Histogram(String name, String help, String labels, long[] bounds, double exportScale) {
+        super(name, help, labels);
+        this.bounds = bounds.clone();
+        this.exportScale = exportScale;
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        if (!Metrics.ENABLED) {
+            return;
+        }
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(value);
+        last = value;
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // Lost a race with another thread; retry against its value
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    // In raw units
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    // Estimated value below which the given fraction (0..1) of recorded values fall, in raw units
+    public double getPercentile(double quantile) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = quantile * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                double lower = i == 0 ? 0 : bounds[i - 1];
+                double upper = i < bounds.length ? bounds[i] : Math.max(lower, max.get());
+                return Math.min(lower + (upper - lower) * (rank - seen) / counts[i], max.get());
+            }
+            seen += counts[i];
+        }
+        return max.get();
+    }
+
+    @Override
+    String getType() {
+        return "histogram";
+    }
+
+    @Override
+    void writePrometheus(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String bound = i < bounds.length ? formatDouble(bounds[i] * exportScale) : "+Inf";
+            out.append(series("_bucket", "le=\"" + bound + "\"")).append(' ').append(cumulative).append('\n');
+        }
+        out.append(series("_sum", null)).append(' ').append(formatDouble(sum.sum() * exportScale)).append('\n');
+        out.append(series("_count", null)).append(' ').append(cumulative).append('\n');
+    }
+
+    @Override
+    Map<String, Object> getAttributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        long count = getCount();
+        attributes.put("count", count);
+        attributes.put("mean", count == 0 ? 0.0 : sum.sum() * exportScale / count);
+        attributes.put("p50", getPercentile(0.50) * exportScale);
+        attributes.put("p95", getPercentile(0.95) * exportScale);
+        attributes.put("p99", getPercentile(0.99) * exportScale);
+        attributes.put("max", max.get() * exportScale);
+        return attributes;
+    }
+}
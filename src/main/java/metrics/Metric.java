@@ -0,0 +1,58 @@
+package metrics;
+
+import java.util.Map;
+
+// A named series in the registry, with optional Prometheus labels such as endpoint="weather"
+public abstract class Metric {
+    private final String name;
+    private final String help;
+    private final String labels; // Rendered label set without braces, or "" if none
+
+    Metric(String name, String help, String labels) {
+        this.name = name;
+        this.help = help;
+        this.labels = labels;
+    }
+
+    // Getters
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    public String getLabels() {
+        return labels;
+    }
+
+    // Prometheus type: counter, gauge or histogram
+    abstract String getType();
+
+    // Appends this series' sample lines in the Prometheus text format
+    abstract void writePrometheus(StringBuilder out);
+
+    // Values exposed as JMX attributes, keyed by a suffix such as "count" or "p99"
+    abstract Map<String, Object> getAttributes();
+
+    // name{labels} with any extra label appended, e.g. le="0.5" for a histogram bucket
+    String series(String suffix, String extraLabel) {
+        StringBuilder series = new StringBuilder(name).append(suffix);
+        if (!labels.isEmpty() || extraLabel != null) {
+            series.append('{').append(labels);
+            if (extraLabel != null) {
+                series.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            series.append('}');
+        }
+        return series.toString();
+    }
+
+    static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,103 @@
+package metrics;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.DoubleSupplier;
+
+// Entry point for the stage metrics. Recording is off unless the JVM is started with
+// -Dweather.metrics=true (or -Dweather.metrics.overlay=true for the on-screen overlay), and
+// ENABLED is a static final so that disabled timers cost one folded branch on the hot path.
+//
+// When enabled the registry is published over JMX as weather:type=Metrics, served by the
+// gateway at /metrics, and written in the Prometheus format to -Dweather.metrics.file on exit.
+public final class Metrics {
+    public static final boolean OVERLAY = Boolean.getBoolean("weather.metrics.overlay");
+    public static final boolean ENABLED = Boolean.getBoolean("weather.metrics") || OVERLAY;
+
+    private static final String MBEAN_NAME = "weather:type=Metrics";
+    private static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(REGISTRY),
+                        new ObjectName(MBEAN_NAME));
+            } catch (Exception e) {
+                System.err.println("Error registering metrics MBean: " + e.getMessage());
+            }
+            String file = System.getProperty("weather.metrics.file");
+            if (file != null && !file.isEmpty()) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> writeTo(file), "metrics-dump"));
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static MetricsRegistry registry() {
+        return REGISTRY;
+    }
+
+    // labels are name/value pairs, e.g. timer("weather_api_call_seconds", "...", "endpoint", "weather")
+    public static StageTimer timer(String name, String help, String... labels) {
+        String rendered = renderLabels(labels);
+        return REGISTRY.getOrCreate(name, rendered, StageTimer.class, () -> new StageTimer(name, help, rendered));
+    }
+
+    public static Counter counter(String name, String help, String... labels) {
+        String rendered = renderLabels(labels);
+        return REGISTRY.getOrCreate(name, rendered, Counter.class, () -> new Counter(name, help, rendered));
+    }
+
+    public static Histogram histogram(String name, String help, long[] bounds, String... labels) {
+        String rendered = renderLabels(labels);
+        return REGISTRY.getOrCreate(name, rendered, Histogram.class,
+                () -> new Histogram(name, help, rendered, bounds, 1));
+    }
+
+    // An existing timer, or null if the stage hasn't registered it yet
+    public static StageTimer findTimer(String name, String... labels) {
+        Metric metric = REGISTRY.find(name, renderLabels(labels));
+        return metric instanceof StageTimer ? (StageTimer) metric : null;
+    }
+
+    // Registered only when enabled, so a disabled run never holds on to the supplier's owner
+    public static void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        if (ENABLED) {
+            REGISTRY.replace(new Gauge(name, help, renderLabels(labels), value));
+        }
+    }
+
+    public static String toPrometheus() {
+        return REGISTRY.toPrometheus();
+    }
+
+    private static void writeTo(String file) {
+        try {
+            Files.write(Paths.get(file), toPrometheus().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Error writing metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String renderLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+        StringBuilder rendered = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return rendered.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Publishes the registry over JMX as weather:type=Metrics. The set of series grows as stages
+// run for the first time, so the attributes are worked out on every request rather than fixed
+// in an interface. Attribute names are flattened, e.g. weather_api_call_seconds{endpoint=weather}.p95
+class MetricsMBean implements DynamicMBean {
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    private Map<String, Object> snapshot() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Metric metric : registry.getMetrics()) {
+            String prefix = MetricsRegistry.key(metric.getName(), metric.getLabels().replace("\"", ""));
+            for (Map.Entry<String, Object> value : metric.getAttributes().entrySet()) {
+                attributes.put(prefix + "." + value.getKey(), value.getValue());
+            }
+        }
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, Object> attributes = snapshot();
+        if (!attributes.containsKey(attribute)) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return attributes.get(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = snapshot();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            if (attributes.containsKey(name)) {
+                list.add(new Attribute(name, attributes.get(name)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        if ("prometheus".equals(actionName)) {
+            return registry.toPrometheus();
+        }
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String, Object> attribute : snapshot().entrySet()) {
+            infos.add(new MBeanAttributeInfo(attribute.getKey(), attribute.getValue().getClass().getName(),
+                    attribute.getKey(), true, false, false));
+        }
+        MBeanOperationInfo prometheus = new MBeanOperationInfo("prometheus",
+                "All metrics in the Prometheus text format", new MBeanParameterInfo[0],
+                String.class.getName(), MBeanOperationInfo.INFO);
+        return new MBeanInfo(getClass().getName(), "Weather application stage timings and counters",
+                infos.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{prometheus}, null);
+    }
+}
@@ -0,0 +1,60 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Holds every metric series by name and label set. Asking for an existing series returns it,
+// so call sites can look their metrics up once into static fields without coordinating.
+public class MetricsRegistry {
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    <T extends Metric> T getOrCreate(String name, String labels, Class<T> type, Supplier<T> factory) {
+        Metric metric = metrics.computeIfAbsent(key(name, labels), key -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(key(name, labels) + " is already registered as a " + metric.getType());
+        }
+        return (T) metric;
+    }
+
+    Metric find(String name, String labels) {
+        return metrics.get(key(name, labels));
+    }
+
+    // Gauges read state owned by another object, so a newer owner replaces an older one
+    void replace(Metric metric) {
+        metrics.put(key(metric.getName(), metric.getLabels()), metric);
+    }
+
+    // Snapshot sorted by name, then labels, so series of one name stay together
+    public List<Metric> getMetrics() {
+        List<Metric> snapshot = new ArrayList<>(metrics.values());
+        snapshot.sort((a, b) -> {
+            int byName = a.getName().compareTo(b.getName());
+            return byName != 0 ? byName : a.getLabels().compareTo(b.getLabels());
+        });
+        return snapshot;
+    }
+
+    // Prometheus text exposition format, version 0.0.4
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        String previousName = null;
+        for (Metric metric : getMetrics()) {
+            if (!metric.getName().equals(previousName)) {
+                out.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+                out.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+                previousName = metric.getName();
+            }
+            metric.writePrometheus(out);
+        }
+        return out.toString();
+    }
+
+    static String key(String name, String labels) {
+        return labels.isEmpty() ? name : name + "{" + labels + "}";
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Air quality at a location: OpenWeatherMap's 1-5 index and the pollutant concentrations behind it
+public class AirQuality {
+    public static final AirQuality UNKNOWN = new AirQuality(0, Collections.emptyMap());
+
+    private static final String[] LABELS = {"Unknown", "Good", "Fair", "Moderate", "Poor", "Very Poor"};
+
+    private final int index;
+    private final Map<String, Double> components;
+
+    // Constructor; components are keyed by OpenWeatherMap's names, e.g. "pm2_5", in μg/m³
+    public AirQuality(int index, Map<String, Double> components) {
+        this.index = index;
+        this.components = Collections.unmodifiableMap(new TreeMap<>(components));
+    }
+
+    // Getters
+    // 1 = Good to 5 = Very Poor, or 0 if unknown
+    public int getIndex() {
+        return index;
+    }
+
+    public String getLabel() {
+        return index >= 1 && index < LABELS.length ? LABELS[index] : LABELS[0];
+    }
+
+    // Sorted by name
+    public Map<String, Double> getComponents() {
+        return components;
+    }
+
+    // NaN if the response didn't include this pollutant
+    public double getComponent(String name) {
+        Double value = components.get(name);
+        return value != null ? value : Double.NaN;
+    }
+
+    public boolean isKnown() {
+        return index != 0;
+    }
+
+    // Value equality, used to skip UI updates when a refresh returns the same reading
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof AirQuality)) {
+            return false;
+        }
+        AirQuality that = (AirQuality) other;
+        return index == that.index && components.equals(that.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, components);
+    }
+
+    @Override
+    public String toString() {
+        return getLabel();
+    }
+}
@@ -0,0 +1,31 @@
+package model;
+
+public class CachedPayload {
+    private String payload;
+    private long fetchedAt;
+    private long expiresAt;
+
+    // Constructor
+    public CachedPayload(String payload, long fetchedAt, long expiresAt) {
+        this.payload = payload;
+        this.fetchedAt = fetchedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public String getPayload() {
+        return payload;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+}
@@ -0,0 +1,32 @@
+package model;
+
+// A binary snapshot (see controller.SnapshotCodec) as stored in the weather_snapshot table
+public class CachedSnapshot {
+    private byte[] data;
+    private long fetchedAt;
+    private long expiresAt;
+
+    // Constructor
+    public CachedSnapshot(byte[] data, long fetchedAt, long expiresAt) {
+        this.data = data;
+        this.fetchedAt = fetchedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public byte[] getData() {
+        return data;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+}
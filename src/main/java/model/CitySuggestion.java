@@ -0,0 +1,40 @@
+package model;
+
+// One entry of the city list, offered while typing in the search field
+public class CitySuggestion {
+    private long cityId;             // OpenWeatherMap city ID, or 0 for cities only known from history
+    private String name;
+    private String country;          // ISO 3166 code, may be empty
+    private Coordinates coordinates; // May be null
+
+    // Constructor
+    public CitySuggestion(long cityId, String name, String country, Coordinates coordinates) {
+        this.cityId = cityId;
+        this.name = name;
+        this.country = country;
+        this.coordinates = coordinates;
+    }
+
+    // Getters
+    public long getCityId() {
+        return cityId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public Coordinates getCoordinates() {
+        return coordinates;
+    }
+
+    // Text put into the search field, e.g. "London, GB"
+    @Override
+    public String toString() {
+        return country.isEmpty() ? name : name + ", " + country;
+    }
+}
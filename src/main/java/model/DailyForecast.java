@@ -0,0 +1,68 @@
+package model;
+
+// Summary of one local calendar day, built from the 3-hour forecast slots that fall on it
+public class DailyForecast {
+    private long epochDay;               // Days since 1970-01-01 in the location's local time
+    private double minTemperature;
+    private double maxTemperature;
+    private double meanTemperature;
+    private int conditionId;             // Most frequent condition of the day
+    private String description;
+    private double precipitationProbability; // Highest slot probability of the day, 0..1
+    private int slotCount;
+
+    // Constructor
+    public DailyForecast(long epochDay, double minTemperature, double maxTemperature, double meanTemperature,
+                         int conditionId, String description, double precipitationProbability, int slotCount) {
+        this.epochDay = epochDay;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = maxTemperature;
+        this.meanTemperature = meanTemperature;
+        this.conditionId = conditionId;
+        this.description = description;
+        this.precipitationProbability = precipitationProbability;
+        this.slotCount = slotCount;
+    }
+
+    // Getters
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public double getMeanTemperature() {
+        return meanTemperature;
+    }
+
+    public int getConditionId() {
+        return conditionId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getPrecipitationProbability() {
+        return precipitationProbability;
+    }
+
+    // Fewer than 8 slots means the day is only partly covered by the forecast
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Day " + epochDay +
+               ": " + minTemperature + "°C to " + maxTemperature + "°C" +
+               " (mean " + meanTemperature + "°C), " + description +
+               ", precipitation " + Math.round(precipitationProbability * 100) + "%";
+    }
+}
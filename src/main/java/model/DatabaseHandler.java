@@ -7,86 +7,905 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.StageTimer;
+
+// SQLite storage for search history, stored responses, geocoding, API usage and observations.
+// Writes are queued and applied by a single writer thread, which commits everything queued at that
+// point in one transaction (group commit); each write returns a future completed once it is committed.
+// Reads take one of a few read-only connections and, with WAL, run alongside the writer and each
+// other instead of waiting. Every connection prepares each statement once and reuses it.
 public class DatabaseHandler {
-    private Connection connection;
     private static final String DB_URL = "jdbc:sqlite:weather_app.db";
     
+    // Bumped whenever a migration is added to migrateSchema()
+    private static final int SCHEMA_VERSION = 4;
+    
+    // Raw search history is only kept for auditing; recent cities come from the cities table
+    private static final int DEFAULT_MAX_HISTORY_ROWS = 10000;
+    private static final int HISTORY_RETENTION_DAYS = 90;
+    private static final int COMPACTION_INTERVAL = 500; // Saves between compactions
+    
+    private static final int HOUR_SECONDS = 3600; // Width of the observation_hourly rollup buckets
+    
+    private static final int MAX_GROUP_SIZE = 256; // Most writes committed in one transaction
+    private static final int READ_CONNECTIONS = 3;  // Reads that can run at once
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+    
+    // Stage metrics: writes from being queued to being committed, commits, and reads
+    private static final StageTimer SAVE_SEARCH_WRITE = writeTimer("save_search");
+    private static final StageTimer COMPACT_HISTORY_WRITE = writeTimer("compact_history");
+    private static final StageTimer SAVE_PAYLOAD_WRITE = writeTimer("save_cached_payload");
+    private static final StageTimer SAVE_SNAPSHOT_WRITE = writeTimer("save_snapshot");
+    private static final StageTimer ADD_OBSERVATIONS_WRITE = writeTimer("add_observations");
+    private static final StageTimer SAVE_COORDINATES_WRITE = writeTimer("save_coordinates");
+    private static final StageTimer ADD_API_USAGE_WRITE = writeTimer("add_api_usage");
+    private static final StageTimer COMMIT_TIMER = Metrics.timer("weather_db_commit_seconds",
+            "Group commits by the database writer thread");
+    private static final Histogram COMMIT_GROUP_SIZE = Metrics.histogram("weather_db_commit_group_size",
+            "Writes committed per transaction", new long[]{1, 2, 4, 8, 16, 32, 64, 128, 256});
+    private static final StageTimer RECENT_SEARCHES_READ = readTimer("recent_searches");
+    private static final StageTimer CACHED_PAYLOAD_READ = readTimer("cached_payload");
+    private static final StageTimer SNAPSHOT_READ = readTimer("snapshot");
+    private static final StageTimer OBSERVATION_BUCKETS_READ = readTimer("observation_buckets");
+    private static final StageTimer COORDINATES_READ = readTimer("coordinates");
+    private static final StageTimer API_USAGE_READ = readTimer("api_usage");
+    
+    // A queued write; runs inside the writer's transaction
+    private interface WriteTask {
+        void run(StatementCache statements) throws SQLException;
+    }
+    
+    private static class PendingWrite {
+        private final String description;
+        private final StageTimer timer;
+        private final WriteTask task;
+        private final long queuedAt;
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+        
+        PendingWrite(String description, StageTimer timer, WriteTask task) {
+            this.description = description;
+            this.timer = timer;
+            this.task = task;
+            this.queuedAt = timer != null ? timer.start() : 0;
+        }
+    }
+    
+    // Tells the writer to stop once everything queued before it is committed
+    private static final PendingWrite SHUTDOWN = new PendingWrite("shutdown", null, null);
+    
+    // Left in the reader pool once the database is closed or couldn't be opened; reads then find no connection
+    private static final StatementCache NO_READER = new StatementCache(null);
+    
+    private final String dbUrl;
+    private final int maxHistoryRows;
+    private final BlockingQueue<PendingWrite> writeQueue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<StatementCache> idleReaders = new LinkedBlockingQueue<>();
+    private volatile List<StatementCache> readers = new ArrayList<>();
+    private volatile boolean opened;
+    private volatile boolean closed;
+    private Thread writer;
+    private StatementCache writeStatements; // Only used by the writer thread once open
+    private int savesSinceCompaction;       // Only used by the writer thread
+    
     public DatabaseHandler() {
-        createTableIfNotExists();
+        this(DB_URL);
     }
     
-    private void createTableIfNotExists() {
+    // Allows a different database file, e.g. a scratch database for benchmarks.
+    // Must be a file: the reader and the writer each open their own connection to it.
+    public DatabaseHandler(String dbUrl) {
+        this(dbUrl, DEFAULT_MAX_HISTORY_ROWS);
+    }
+    
+    public DatabaseHandler(String dbUrl, int maxHistoryRows) {
+        this.dbUrl = dbUrl;
+        this.maxHistoryRows = maxHistoryRows;
+    }
+    
+    // Opens the database on first use, so creating the handler never delays the window;
+    // loading the native driver and checking the schema takes hundreds of milliseconds
+    private void ensureOpen() {
+        if (opened) {
+            return;
+        }
+        synchronized (this) {
+            if (!opened && !closed) {
+                open();
+                opened = true;
+            }
+        }
+    }
+    
+    private void open() {
+        Connection writeConnection = null;
+        List<StatementCache> readStatements = new ArrayList<>(READ_CONNECTIONS);
         try {
             // Load the SQLite JDBC driver
             Class.forName("org.sqlite.JDBC");
             
-            connection = DriverManager.getConnection(DB_URL);
-            Statement statement = connection.createStatement();
-            statement.execute("CREATE TABLE IF NOT EXISTS search_history " +
-                    "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "city_name TEXT NOT NULL, " +
-                    "search_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            writeConnection = DriverManager.getConnection(dbUrl);
+            try (Statement statement = writeConnection.createStatement()) {
+                // WAL lets the reader connection work while the writer commits; synchronous=NORMAL
+                // only syncs at checkpoints, so a power cut can lose the last commits but never corrupts
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+                statement.execute("PRAGMA temp_store=MEMORY");
+                createTables(statement);
+                migrateSchema(writeConnection, statement);
+            }
+            
+            for (int i = 0; i < READ_CONNECTIONS; i++) {
+                Connection readConnection = DriverManager.getConnection(dbUrl);
+                readStatements.add(new StatementCache(readConnection));
+                try (Statement statement = readConnection.createStatement()) {
+                    statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+                    statement.execute("PRAGMA query_only=1");
+                }
+            }
+            writeStatements = new StatementCache(writeConnection);
         } catch (SQLException e) {
             System.err.println("Database initialization error: " + e.getMessage());
+            readStatements.forEach(StatementCache::close);
+            closeQuietly(writeConnection);
+            idleReaders.add(NO_READER);
+            return;
         } catch (ClassNotFoundException e) {
             System.err.println("SQLite JDBC driver not found: " + e.getMessage());
+            idleReaders.add(NO_READER);
+            return;
         }
+        readers = readStatements;
+        idleReaders.addAll(readStatements);
+        
+        writer = new Thread(this::runWriter, "db-writer");
+        writer.setDaemon(true);
+        writer.start();
+        writeQueue.add(new PendingWrite("compacting search history", COMPACT_HISTORY_WRITE, this::compactHistory));
+    }
+    
+    private static void createTables(Statement statement) throws SQLException {
+        statement.execute("CREATE TABLE IF NOT EXISTS search_history " +
+                "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "city_name TEXT NOT NULL, " +
+                "search_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        // Last raw API payload per city and endpoint, used for warm starts and offline mode
+        statement.execute("CREATE TABLE IF NOT EXISTS weather_cache " +
+                "(city_key TEXT NOT NULL, " +
+                "endpoint TEXT NOT NULL, " +
+                "payload TEXT NOT NULL, " +
+                "fetched_at INTEGER NOT NULL, " +
+                "expires_at INTEGER NOT NULL, " +
+                "PRIMARY KEY (city_key, endpoint))");
+        // Resolved coordinates per city, so geocoding only happens once
+        statement.execute("CREATE TABLE IF NOT EXISTS geocode " +
+                "(city_key TEXT PRIMARY KEY, " +
+                "latitude REAL NOT NULL, " +
+                "longitude REAL NOT NULL, " +
+                "resolved_at INTEGER NOT NULL)");
     }
     
-    public void saveSearch(String cityName) {
+    private static void migrateSchema(Connection connection, Statement statement) throws SQLException {
+        int version;
+        try (ResultSet rs = statement.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+        
+        connection.setAutoCommit(false);
         try {
-            PreparedStatement pstmt = connection.prepareStatement(
-                    "INSERT INTO search_history (city_name) VALUES (?)");
-            pstmt.setString(1, cityName);
-            pstmt.executeUpdate();
+            if (version < 1) {
+                // One row per distinct city, so "recent cities" is an index scan instead of
+                // a DISTINCT sort over the whole history
+                statement.execute("CREATE TABLE IF NOT EXISTS cities " +
+                        "(id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "city_key TEXT NOT NULL UNIQUE, " +
+                        "city_name TEXT NOT NULL, " +
+                        "last_searched INTEGER NOT NULL, " +
+                        "search_count INTEGER NOT NULL DEFAULT 0)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_cities_last_searched ON cities (last_searched DESC)");
+                statement.execute("CREATE INDEX IF NOT EXISTS idx_search_history_time ON search_history (search_time)");
+                
+                backfillCities(connection, statement);
+            }
+            if (version < 2) {
+                // API calls made with the key per calendar month (UTC), e.g. '2024-10'
+                statement.execute("CREATE TABLE IF NOT EXISTS api_usage " +
+                        "(month TEXT PRIMARY KEY, " +
+                        "request_count INTEGER NOT NULL DEFAULT 0)");
+            }
+            if (version < 3) {
+                // Current weather and forecasts are stored as binary snapshots instead of raw JSON;
+                // only air quality payloads stay in weather_cache
+                statement.execute("CREATE TABLE IF NOT EXISTS weather_snapshot " +
+                        "(city_key TEXT NOT NULL, " +
+                        "endpoint TEXT NOT NULL, " +
+                        "data BLOB NOT NULL, " +
+                        "fetched_at INTEGER NOT NULL, " +
+                        "expires_at INTEGER NOT NULL, " +
+                        "PRIMARY KEY (city_key, endpoint))");
+                statement.execute("DELETE FROM weather_cache WHERE endpoint IN ('current', 'forecast')");
+            }
+            if (version < 4) {
+                // Every fetched observation, keyed by OpenWeatherMap city ID and observation time (epoch seconds).
+                // The primary key doubles as the (city_id, observed_at) index and repeated fetches of the
+                // same observation collapse into one row.
+                statement.execute("CREATE TABLE IF NOT EXISTS observations " +
+                        "(city_id INTEGER NOT NULL, " +
+                        "observed_at INTEGER NOT NULL, " +
+                        "temperature REAL NOT NULL, " +
+                        "feels_like REAL NOT NULL, " +
+                        "humidity INTEGER NOT NULL, " +
+                        "pressure REAL NOT NULL, " +
+                        "wind_speed REAL NOT NULL, " +
+                        "PRIMARY KEY (city_id, observed_at)) WITHOUT ROWID");
+                // Hourly aggregates kept up to date on every write, so long ranges read one row per hour
+                statement.execute("CREATE TABLE IF NOT EXISTS observation_hourly " +
+                        "(city_id INTEGER NOT NULL, " +
+                        "hour_start INTEGER NOT NULL, " +
+                        "sample_count INTEGER NOT NULL, " +
+                        "temp_min REAL NOT NULL, " +
+                        "temp_max REAL NOT NULL, " +
+                        "temp_sum REAL NOT NULL, " +
+                        "pressure_min REAL NOT NULL, " +
+                        "pressure_max REAL NOT NULL, " +
+                        "pressure_sum REAL NOT NULL, " +
+                        "PRIMARY KEY (city_id, hour_start)) WITHOUT ROWID");
+            }
+            statement.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+            connection.commit();
         } catch (SQLException e) {
-            System.err.println("Error saving search: " + e.getMessage());
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
     }
     
-    public List<String> getRecentSearches(int limit) {
-        List<String> searches = new ArrayList<>();
+    // Writer thread: takes whatever is queued, up to MAX_GROUP_SIZE writes, and commits it at once
+    private void runWriter() {
+        List<PendingWrite> group = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(writeQueue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            writeQueue.drainTo(group, MAX_GROUP_SIZE - 1);
+            stopping = group.remove(SHUTDOWN);
+            commitGroup(group);
+            group.clear();
+        }
+        
+        // Writes that raced with closeConnection()
+        writeQueue.drainTo(group);
+        group.remove(SHUTDOWN);
+        commitGroup(group);
+        writeStatements.close();
+    }
+    
+    // Catches Throwable, not just SQLException: a write task that throws anything else must neither
+    // stop the writer thread nor leave its callers waiting on futures that never complete
+    private void commitGroup(List<PendingWrite> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        Connection connection = writeStatements.getConnection();
+        long start = COMMIT_TIMER.start();
+        try {
+            connection.setAutoCommit(false);
+            for (PendingWrite write : group) {
+                write.task.run(writeStatements);
+            }
+            connection.commit();
+        } catch (Throwable e) {
+            rollbackQuietly(connection);
+            if (group.size() == 1) {
+                fail(group.get(0), e);
+            } else {
+                // One bad write shouldn't take the rest of the group with it
+                for (PendingWrite write : group) {
+                    commitAlone(connection, write);
+                }
+            }
+        } finally {
+            restoreAutoCommit(connection);
+            COMMIT_TIMER.stop(start);
+            COMMIT_GROUP_SIZE.record(group.size());
+            for (PendingWrite write : group) {
+                write.timer.stop(write.queuedAt);
+                write.committed.complete(null); // No effect on writes that already failed
+            }
+        }
+    }
+    
+    private void commitAlone(Connection connection, PendingWrite write) {
         try {
-            PreparedStatement pstmt = connection.prepareStatement(
-                    "SELECT DISTINCT city_name FROM search_history " +
-                    "ORDER BY search_time DESC LIMIT ?");
-            pstmt.setInt(1, limit);
-            ResultSet rs = pstmt.executeQuery();
+            write.task.run(writeStatements);
+            connection.commit();
+        } catch (Throwable e) {
+            rollbackQuietly(connection);
+            fail(write, e);
+        }
+    }
+    
+    private static void fail(PendingWrite write, Throwable e) {
+        System.err.println("Error " + write.description + ": " + e);
+        write.committed.completeExceptionally(e);
+    }
+    
+    // Queues a write. The future completes once it is committed, or exceptionally once it has failed
+    // and been reported; callers that need to read their own write back wait on it.
+    private CompletableFuture<Void> enqueue(String description, StageTimer timer, WriteTask task) {
+        ensureOpen();
+        PendingWrite write = new PendingWrite(description, timer, task);
+        if (closed || writer == null) {
+            System.err.println("Database unavailable, skipped " + description);
+            write.committed.completeExceptionally(new IllegalStateException("Database unavailable"));
+        } else {
+            writeQueue.add(write);
+        }
+        return write.committed;
+    }
+    
+    public CompletableFuture<Void> saveSearch(String cityName) {
+        String cityKey = normalizeCityKey(cityName);
+        String trimmedName = cityName.trim();
+        long searchedAt = System.currentTimeMillis();
+        return enqueue("saving search", SAVE_SEARCH_WRITE, statements -> {
+            PreparedStatement insert = statements.prepare(
+                    "INSERT INTO search_history (city_name) VALUES (?)");
+            insert.setString(1, cityName);
+            insert.executeUpdate();
             
-            while (rs.next()) {
-                searches.add(rs.getString("city_name"));
+            PreparedStatement upsert = statements.prepare(
+                    "INSERT INTO cities (city_key, city_name, last_searched, search_count) VALUES (?, ?, ?, 1) " +
+                    "ON CONFLICT (city_key) DO UPDATE SET city_name = excluded.city_name, " +
+                    "last_searched = excluded.last_searched, search_count = search_count + 1");
+            upsert.setString(1, cityKey);
+            upsert.setString(2, trimmedName);
+            upsert.setLong(3, searchedAt);
+            upsert.executeUpdate();
+            
+            if (++savesSinceCompaction >= COMPACTION_INTERVAL) {
+                compactHistory(statements);
             }
-        } catch (SQLException e) {
-            System.err.println("Error retrieving searches: " + e.getMessage());
+        });
+    }
+    
+    // Trims raw history to the newest maxHistoryRows rows and the retention window
+    public CompletableFuture<Void> compactHistory() {
+        return enqueue("compacting search history", COMPACT_HISTORY_WRITE, this::compactHistory);
+    }
+    
+    private void compactHistory(StatementCache statements) throws SQLException {
+        savesSinceCompaction = 0;
+        PreparedStatement byCount = statements.prepare(
+                "DELETE FROM search_history WHERE id <= " +
+                "(SELECT id FROM search_history ORDER BY id DESC LIMIT 1 OFFSET ?)");
+        byCount.setInt(1, maxHistoryRows);
+        byCount.executeUpdate();
+        
+        PreparedStatement byAge = statements.prepare(
+                "DELETE FROM search_history WHERE search_time < datetime('now', ?)");
+        byAge.setString(1, "-" + HISTORY_RETENTION_DAYS + " days");
+        byAge.executeUpdate();
+    }
+    
+    public List<String> getRecentSearches(int limit) {
+        long start = RECENT_SEARCHES_READ.start();
+        try {
+            ensureOpen();
+            List<String> searches = new ArrayList<>();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return searches;
+            }
+            try {
+                PreparedStatement pstmt = reader.prepare(
+                        "SELECT city_name FROM cities " +
+                        "ORDER BY last_searched DESC LIMIT ?");
+                pstmt.setInt(1, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        searches.add(rs.getString("city_name"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving searches: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return searches;
+        } finally {
+            RECENT_SEARCHES_READ.stop(start);
         }
-        return searches;
     }
     
     public String getLastSearchedCity() {
+        List<String> last = getRecentSearches(1);
+        return last.isEmpty() ? "London" : last.get(0); // Default city if no history exists
+    }
+    
+    public CompletableFuture<Void> saveCachedPayload(String cityKey, String endpoint, String payload,
+                                                     long fetchedAt, long expiresAt) {
+        return enqueue("saving cached payload", SAVE_PAYLOAD_WRITE, statements -> {
+            PreparedStatement pstmt = statements.prepare(
+                    "INSERT OR REPLACE INTO weather_cache (city_key, endpoint, payload, fetched_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?)");
+            pstmt.setString(1, cityKey);
+            pstmt.setString(2, endpoint);
+            pstmt.setString(3, payload);
+            pstmt.setLong(4, fetchedAt);
+            pstmt.setLong(5, expiresAt);
+            pstmt.executeUpdate();
+        });
+    }
+    
+    public CachedPayload getCachedPayload(String cityKey, String endpoint) {
+        long start = CACHED_PAYLOAD_READ.start();
         try {
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery(
-                    "SELECT city_name FROM search_history " +
-                    "ORDER BY search_time DESC LIMIT 1");
+            ensureOpen();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return null;
+            }
+            try {
+                PreparedStatement pstmt = reader.prepare(
+                        "SELECT payload, fetched_at, expires_at FROM weather_cache " +
+                        "WHERE city_key = ? AND endpoint = ?");
+                pstmt.setString(1, cityKey);
+                pstmt.setString(2, endpoint);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new CachedPayload(rs.getString("payload"), rs.getLong("fetched_at"), rs.getLong("expires_at"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving cached payload: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return null;
+        } finally {
+            CACHED_PAYLOAD_READ.stop(start);
+        }
+    }
+    
+    public CompletableFuture<Void> saveSnapshot(String cityKey, String endpoint, byte[] data,
+                                                long fetchedAt, long expiresAt) {
+        return enqueue("saving snapshot", SAVE_SNAPSHOT_WRITE, statements -> {
+            PreparedStatement pstmt = statements.prepare(
+                    "INSERT OR REPLACE INTO weather_snapshot (city_key, endpoint, data, fetched_at, expires_at) " +
+                    "VALUES (?, ?, ?, ?, ?)");
+            pstmt.setString(1, cityKey);
+            pstmt.setString(2, endpoint);
+            pstmt.setBytes(3, data);
+            pstmt.setLong(4, fetchedAt);
+            pstmt.setLong(5, expiresAt);
+            pstmt.executeUpdate();
+        });
+    }
+    
+    public CachedSnapshot getSnapshot(String cityKey, String endpoint) {
+        long start = SNAPSHOT_READ.start();
+        try {
+            ensureOpen();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return null;
+            }
+            try {
+                PreparedStatement pstmt = reader.prepare(
+                        "SELECT data, fetched_at, expires_at FROM weather_snapshot " +
+                        "WHERE city_key = ? AND endpoint = ?");
+                pstmt.setString(1, cityKey);
+                pstmt.setString(2, endpoint);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new CachedSnapshot(rs.getBytes("data"), rs.getLong("fetched_at"), rs.getLong("expires_at"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving snapshot: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return null;
+        } finally {
+            SNAPSHOT_READ.stop(start);
+        }
+    }
+    
+    // Appends observations and refreshes the hourly rollups they touch, in the same transaction.
+    // Observations without a city ID or observation time can't be keyed and are skipped.
+    public CompletableFuture<Void> addObservations(List<WeatherData> observations) {
+        List<WeatherData> batch = new ArrayList<>(observations);
+        return enqueue("saving observations", ADD_OBSERVATIONS_WRITE, statements -> {
+            PreparedStatement insert = statements.prepare(
+                    "INSERT OR IGNORE INTO observations " +
+                    "(city_id, observed_at, temperature, feels_like, humidity, pressure, wind_speed) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)");
+            Set<List<Long>> hours = new LinkedHashSet<>();
+            for (WeatherData observation : batch) {
+                if (observation.getCityId() == 0 || observation.getObservedAt() == 0) {
+                    continue;
+                }
+                insert.setLong(1, observation.getCityId());
+                insert.setLong(2, observation.getObservedAt());
+                insert.setDouble(3, observation.getTemperature());
+                insert.setDouble(4, observation.getFeelsLike());
+                insert.setInt(5, observation.getHumidity());
+                insert.setDouble(6, observation.getPressure());
+                insert.setDouble(7, observation.getWindSpeed());
+                insert.addBatch();
+                hours.add(Arrays.asList(observation.getCityId(),
+                        observation.getObservedAt() / HOUR_SECONDS * HOUR_SECONDS));
+            }
+            insert.executeBatch();
             
-            if (rs.next()) {
-                return rs.getString("city_name");
+            // Recomputed from the raw rows rather than incremented, so duplicates can't skew them
+            PreparedStatement rollup = statements.prepare(
+                    "INSERT OR REPLACE INTO observation_hourly " +
+                    "(city_id, hour_start, sample_count, temp_min, temp_max, temp_sum, " +
+                    "pressure_min, pressure_max, pressure_sum) " +
+                    "SELECT city_id, ?, COUNT(*), MIN(temperature), MAX(temperature), SUM(temperature), " +
+                    "MIN(pressure), MAX(pressure), SUM(pressure) FROM observations " +
+                    "WHERE city_id = ? AND observed_at >= ? AND observed_at < ? GROUP BY city_id");
+            for (List<Long> hour : hours) {
+                rollup.setLong(1, hour.get(1));
+                rollup.setLong(2, hour.get(0));
+                rollup.setLong(3, hour.get(1));
+                rollup.setLong(4, hour.get(1) + HOUR_SECONDS);
+                rollup.addBatch();
+            }
+            rollup.executeBatch();
+        });
+    }
+    
+    // Min/max/avg per bucket between two epoch-second bounds, oldest first. Bucket widths that are
+    // whole hours are served from the hourly rollups (with the bounds rounded down to the hour),
+    // anything finer from the raw observations.
+    public List<ObservationBucket> getObservationBuckets(long cityId, long fromSeconds, long toSeconds,
+                                                         int bucketSeconds) {
+        long start = OBSERVATION_BUCKETS_READ.start();
+        try {
+            ensureOpen();
+            List<ObservationBucket> buckets = new ArrayList<>();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return buckets;
+            }
+            try {
+                PreparedStatement pstmt;
+                if (bucketSeconds % HOUR_SECONDS == 0) {
+                    pstmt = reader.prepare(
+                            "SELECT (hour_start / ?) * ? AS bucket_start, SUM(sample_count), MIN(temp_min), MAX(temp_max), " +
+                            "SUM(temp_sum) / SUM(sample_count), MIN(pressure_min), MAX(pressure_max), " +
+                            "SUM(pressure_sum) / SUM(sample_count) FROM observation_hourly " +
+                            "WHERE city_id = ? AND hour_start >= ? AND hour_start < ? " +
+                            "GROUP BY bucket_start ORDER BY bucket_start");
+                    fromSeconds = fromSeconds / HOUR_SECONDS * HOUR_SECONDS;
+                } else {
+                    pstmt = reader.prepare(
+                            "SELECT (observed_at / ?) * ? AS bucket_start, COUNT(*), MIN(temperature), MAX(temperature), " +
+                            "AVG(temperature), MIN(pressure), MAX(pressure), AVG(pressure) FROM observations " +
+                            "WHERE city_id = ? AND observed_at >= ? AND observed_at < ? " +
+                            "GROUP BY bucket_start ORDER BY bucket_start");
+                }
+                pstmt.setInt(1, bucketSeconds);
+                pstmt.setInt(2, bucketSeconds);
+                pstmt.setLong(3, cityId);
+                pstmt.setLong(4, fromSeconds);
+                pstmt.setLong(5, toSeconds);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        buckets.add(new ObservationBucket(rs.getLong(1), rs.getInt(2), rs.getDouble(3), rs.getDouble(4),
+                                rs.getDouble(5), rs.getDouble(6), rs.getDouble(7), rs.getDouble(8)));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving observations: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return buckets;
+        } finally {
+            OBSERVATION_BUCKETS_READ.stop(start);
+        }
+    }
+    
+    public CompletableFuture<Void> saveCoordinates(String cityKey, Coordinates coordinates) {
+        long resolvedAt = System.currentTimeMillis();
+        return enqueue("saving coordinates", SAVE_COORDINATES_WRITE, statements -> {
+            PreparedStatement pstmt = statements.prepare(
+                    "INSERT OR REPLACE INTO geocode (city_key, latitude, longitude, resolved_at) VALUES (?, ?, ?, ?)");
+            pstmt.setString(1, cityKey);
+            pstmt.setDouble(2, coordinates.getLatitude());
+            pstmt.setDouble(3, coordinates.getLongitude());
+            pstmt.setLong(4, resolvedAt);
+            pstmt.executeUpdate();
+        });
+    }
+    
+    public Coordinates getCoordinates(String cityKey) {
+        long start = COORDINATES_READ.start();
+        try {
+            ensureOpen();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return null;
+            }
+            try {
+                PreparedStatement pstmt = reader.prepare(
+                        "SELECT latitude, longitude FROM geocode WHERE city_key = ?");
+                pstmt.setString(1, cityKey);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new Coordinates(rs.getDouble("latitude"), rs.getDouble("longitude"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving coordinates: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return null;
+        } finally {
+            COORDINATES_READ.stop(start);
+        }
+    }
+    
+    public CompletableFuture<Void> addApiUsage(String month, int requests) {
+        return enqueue("saving API usage", ADD_API_USAGE_WRITE, statements -> {
+            PreparedStatement pstmt = statements.prepare(
+                    "INSERT INTO api_usage (month, request_count) VALUES (?, ?) " +
+                    "ON CONFLICT (month) DO UPDATE SET request_count = request_count + excluded.request_count");
+            pstmt.setString(1, month);
+            pstmt.setInt(2, requests);
+            pstmt.executeUpdate();
+        });
+    }
+    
+    public long getApiUsage(String month) {
+        long start = API_USAGE_READ.start();
+        try {
+            ensureOpen();
+            StatementCache reader = acquireReader();
+            if (reader == null) {
+                return 0;
+            }
+            try {
+                PreparedStatement pstmt = reader.prepare(
+                        "SELECT request_count FROM api_usage WHERE month = ?");
+                pstmt.setString(1, month);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getLong("request_count");
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error retrieving API usage: " + e.getMessage());
+            } finally {
+                releaseReader(reader);
+            }
+            return 0;
+        } finally {
+            API_USAGE_READ.stop(start);
+        }
+    }
+    
+    // Writes queued but not yet committed
+    public int getPendingWriteCount() {
+        return writeQueue.size();
+    }
+    
+    // Prepared statements held open by the reader connections; bounded by the number of distinct
+    // queries per connection. Only exact while no reads are running.
+    public int getCachedStatementCount() {
+        int count = 0;
+        for (StatementCache reader : readers) {
+            count += reader.size();
+        }
+        return count;
+    }
+    
+    // Waits for an idle reader connection; null if the database is closed or couldn't be opened
+    private StatementCache acquireReader() {
+        ensureOpen();
+        StatementCache reader;
+        try {
+            reader = idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (reader == NO_READER) {
+            idleReaders.add(NO_READER); // For the next read
+            return null;
+        }
+        return reader;
+    }
+    
+    private void releaseReader(StatementCache reader) {
+        idleReaders.add(reader);
+    }
+    
+    // Fills the cities table from existing history. Keys are built with normalizeCityKey rather than
+    // in SQL, whose lower() only folds ASCII and trim() leaves inner runs of spaces, so old rows land
+    // on the same keys saveSearch uses. The name shown comes from the latest search of each city.
+    private static void backfillCities(Connection connection, Statement statement) throws SQLException {
+        Map<String, BackfilledCity> cities = new LinkedHashMap<>();
+        try (ResultSet rs = statement.executeQuery("SELECT city_name, " +
+                "CAST(strftime('%s', search_time) AS INTEGER) * 1000 FROM search_history ORDER BY id")) {
+            while (rs.next()) {
+                String cityName = rs.getString(1);
+                long searchedAt = rs.getLong(2);
+                BackfilledCity city = cities.computeIfAbsent(normalizeCityKey(cityName), key -> new BackfilledCity());
+                if (city.searchCount++ == 0 || searchedAt >= city.lastSearched) {
+                    city.cityName = cityName.trim();
+                    city.lastSearched = searchedAt;
+                }
+            }
+        }
+        if (cities.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT OR IGNORE INTO cities (city_key, city_name, last_searched, search_count) VALUES (?, ?, ?, ?)")) {
+            for (Map.Entry<String, BackfilledCity> entry : cities.entrySet()) {
+                BackfilledCity city = entry.getValue();
+                insert.setString(1, entry.getKey());
+                insert.setString(2, city.cityName);
+                insert.setLong(3, city.lastSearched);
+                insert.setInt(4, city.searchCount);
+                insert.addBatch();
             }
+            insert.executeBatch();
+        }
+    }
+    
+    private static class BackfilledCity {
+        String cityName;
+        long lastSearched;
+        int searchCount;
+    }
+    
+    private static StageTimer writeTimer(String operation) {
+        return Metrics.timer("weather_db_write_seconds", "Database writes, from being queued to being committed",
+                "operation", operation);
+    }
+    
+    private static StageTimer readTimer(String operation) {
+        return Metrics.timer("weather_db_read_seconds", "Database reads, including waiting for a reader connection",
+                "operation", operation);
+    }
+    
+    private static String normalizeCityKey(String cityName) {
+        return cityName.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
         } catch (SQLException e) {
-            System.err.println("Error retrieving last search: " + e.getMessage());
+            System.err.println("Error rolling back: " + e.getMessage());
         }
-        return "London"; // Default city if no history exists
     }
     
-    public void closeConnection() {
+    private static void restoreAutoCommit(Connection connection) {
         try {
-            if (connection != null && !connection.isClosed()) {
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error restoring auto-commit: " + e.getMessage());
+        }
+    }
+    
+    private static void closeQuietly(Connection connection) {
+        try {
+            if (connection != null) {
                 connection.close();
             }
         } catch (SQLException e) {
             System.err.println("Error closing connection: " + e.getMessage());
         }
     }
+    
+    // Commits everything still queued, then closes both connections and their statements
+    public void closeConnection() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (writer != null) {
+            writeQueue.add(SHUTDOWN);
+            try {
+                writer.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                System.err.println("Database writer did not finish, " + writeQueue.size() + " writes not saved");
+            }
+        }
+        // Reads still running finish first; any that start later find no connection
+        for (int i = 0; i < readers.size(); i++) {
+            StatementCache reader;
+            try {
+                reader = idleReaders.poll(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (reader == null) {
+                System.err.println("Database read did not finish, reader connection left open");
+                break;
+            }
+            reader.close();
+        }
+        idleReaders.add(NO_READER);
+    }
+    
+    // Prepared statements for one connection, created on first use and kept until the connection closes.
+    // Parameters are cleared on every reuse.
+    private static class StatementCache {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        
+        StatementCache(Connection connection) {
+            this.connection = connection;
+        }
+        
+        Connection getConnection() {
+            return connection;
+        }
+        
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+        
+        int size() {
+            return statements.size();
+        }
+        
+        void close() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing statement: " + e.getMessage());
+                }
+            }
+            statements.clear();
+            closeQuietly(connection);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package model;
+
+import java.util.Arrays;
+
+// Compact forecast series: one slot per 3-hour interval, stored in parallel primitive arrays.
+// Weather conditions are stored once in a small table and referenced by index from each slot.
+public class Forecast {
+    private final long[] timestamps;       // Epoch seconds (UTC)
+    private final double[] temperatures;
+    private final double[] minTemperatures;
+    private final double[] maxTemperatures;
+    private final int[] humidity;
+    private final double[] windSpeeds;
+    private final double[] precipitationProbabilities; // 0..1
+    private final byte[] conditionIndexes;
+    private final int[] conditionIds;      // OpenWeatherMap condition codes, e.g. 500 = light rain
+    private final String[] conditionDescriptions;
+    private final int timezoneOffsetSeconds;  // Shift from UTC for the forecast location
+
+    // Constructor
+    public Forecast(long[] timestamps, double[] temperatures, double[] minTemperatures, double[] maxTemperatures,
+                    int[] humidity, double[] windSpeeds, double[] precipitationProbabilities, byte[] conditionIndexes,
+                    int[] conditionIds, String[] conditionDescriptions, int timezoneOffsetSeconds) {
+        this.timestamps = timestamps;
+        this.temperatures = temperatures;
+        this.minTemperatures = minTemperatures;
+        this.maxTemperatures = maxTemperatures;
+        this.humidity = humidity;
+        this.windSpeeds = windSpeeds;
+        this.precipitationProbabilities = precipitationProbabilities;
+        this.conditionIndexes = conditionIndexes;
+        this.conditionIds = conditionIds;
+        this.conditionDescriptions = conditionDescriptions;
+        this.timezoneOffsetSeconds = timezoneOffsetSeconds;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public int getTimezoneOffsetSeconds() {
+        return timezoneOffsetSeconds;
+    }
+
+    // Getters, indexed by forecast slot
+    public long getTimestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    public double getTemperature(int slot) {
+        return temperatures[slot];
+    }
+
+    public double getMinTemperature(int slot) {
+        return minTemperatures[slot];
+    }
+
+    public double getMaxTemperature(int slot) {
+        return maxTemperatures[slot];
+    }
+
+    public int getHumidity(int slot) {
+        return humidity[slot];
+    }
+
+    public double getWindSpeed(int slot) {
+        return windSpeeds[slot];
+    }
+
+    public double getPrecipitationProbability(int slot) {
+        return precipitationProbabilities[slot];
+    }
+
+    public int getConditionId(int slot) {
+        return conditionIds[conditionIndexes[slot]];
+    }
+
+    public String getDescription(int slot) {
+        return conditionDescriptions[conditionIndexes[slot]];
+    }
+
+    // Index into the condition table, useful for counting conditions without string comparisons
+    public int getConditionIndex(int slot) {
+        return conditionIndexes[slot];
+    }
+
+    public int getConditionCount() {
+        return conditionIds.length;
+    }
+
+    public int getConditionIdAt(int conditionIndex) {
+        return conditionIds[conditionIndex];
+    }
+
+    public String getConditionDescription(int conditionIndex) {
+        return conditionDescriptions[conditionIndex];
+    }
+
+    // Value equality, used to skip UI updates when a refresh returns the same series
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Forecast)) {
+            return false;
+        }
+        Forecast that = (Forecast) other;
+        return timezoneOffsetSeconds == that.timezoneOffsetSeconds
+                && Arrays.equals(timestamps, that.timestamps)
+                && Arrays.equals(temperatures, that.temperatures)
+                && Arrays.equals(minTemperatures, that.minTemperatures)
+                && Arrays.equals(maxTemperatures, that.maxTemperatures)
+                && Arrays.equals(humidity, that.humidity)
+                && Arrays.equals(windSpeeds, that.windSpeeds)
+                && Arrays.equals(precipitationProbabilities, that.precipitationProbabilities)
+                && Arrays.equals(conditionIndexes, that.conditionIndexes)
+                && Arrays.equals(conditionIds, that.conditionIds)
+                && Arrays.equals(conditionDescriptions, that.conditionDescriptions);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(timestamps) + Arrays.hashCode(temperatures);
+    }
+}
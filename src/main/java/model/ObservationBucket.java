@@ -0,0 +1,60 @@
+package model;
+
+// Observations downsampled to one time bucket: min, max and average per measure
+public class ObservationBucket {
+    private long bucketStart;
+    private int sampleCount;
+    private double minTemperature;
+    private double maxTemperature;
+    private double avgTemperature;
+    private double minPressure;
+    private double maxPressure;
+    private double avgPressure;
+
+    // Constructor
+    public ObservationBucket(long bucketStart, int sampleCount, double minTemperature, double maxTemperature,
+                             double avgTemperature, double minPressure, double maxPressure, double avgPressure) {
+        this.bucketStart = bucketStart;
+        this.sampleCount = sampleCount;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = maxTemperature;
+        this.avgTemperature = avgTemperature;
+        this.minPressure = minPressure;
+        this.maxPressure = maxPressure;
+        this.avgPressure = avgPressure;
+    }
+
+    // Getters
+    // Start of the bucket in epoch seconds (UTC)
+    public long getBucketStart() {
+        return bucketStart;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    public double getMaxTemperature() {
+        return maxTemperature;
+    }
+
+    public double getAvgTemperature() {
+        return avgTemperature;
+    }
+
+    public double getMinPressure() {
+        return minPressure;
+    }
+
+    public double getMaxPressure() {
+        return maxPressure;
+    }
+
+    public double getAvgPressure() {
+        return avgPressure;
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import java.util.Objects;
+
 public class WeatherData {
     private String cityName;
     private double temperature;
@@ -10,11 +12,46 @@ public class WeatherData {
     private String iconCode;
     private double pressure;
     private int visibility;
+    private Coordinates coordinates;
+    private long cityId;
+    private long observedAt;
+    private long sunrise;
+    private long sunset;
+    private int timezoneOffsetSeconds;
     
     // Constructor
     public WeatherData(String cityName, double temperature, String weatherDescription, 
                       int humidity, double windSpeed, double feelsLike, String iconCode,
                       double pressure, int visibility) {
+        this(cityName, temperature, weatherDescription, humidity, windSpeed, feelsLike, iconCode,
+             pressure, visibility, null);
+    }
+    
+    public WeatherData(String cityName, double temperature, String weatherDescription, 
+                      int humidity, double windSpeed, double feelsLike, String iconCode,
+                      double pressure, int visibility, Coordinates coordinates) {
+        this(cityName, temperature, weatherDescription, humidity, windSpeed, feelsLike, iconCode,
+             pressure, visibility, coordinates, 0);
+    }
+    
+    public WeatherData(String cityName, double temperature, String weatherDescription, 
+                      int humidity, double windSpeed, double feelsLike, String iconCode,
+                      double pressure, int visibility, Coordinates coordinates, long cityId) {
+        this(cityName, temperature, weatherDescription, humidity, windSpeed, feelsLike, iconCode,
+             pressure, visibility, coordinates, cityId, 0);
+    }
+    
+    public WeatherData(String cityName, double temperature, String weatherDescription, 
+                      int humidity, double windSpeed, double feelsLike, String iconCode,
+                      double pressure, int visibility, Coordinates coordinates, long cityId, long observedAt) {
+        this(cityName, temperature, weatherDescription, humidity, windSpeed, feelsLike, iconCode,
+             pressure, visibility, coordinates, cityId, observedAt, 0, 0, 0);
+    }
+    
+    public WeatherData(String cityName, double temperature, String weatherDescription, 
+                      int humidity, double windSpeed, double feelsLike, String iconCode,
+                      double pressure, int visibility, Coordinates coordinates, long cityId, long observedAt,
+                      long sunrise, long sunset, int timezoneOffsetSeconds) {
         this.cityName = cityName;
         this.temperature = temperature;
         this.weatherDescription = weatherDescription;
@@ -24,6 +61,12 @@ public class WeatherData {
         this.iconCode = iconCode;
         this.pressure = pressure;
         this.visibility = visibility;
+        this.coordinates = coordinates;
+        this.cityId = cityId;
+        this.observedAt = observedAt;
+        this.sunrise = sunrise;
+        this.sunset = sunset;
+        this.timezoneOffsetSeconds = timezoneOffsetSeconds;
     }
     
     // Getters
@@ -63,6 +106,68 @@ public class WeatherData {
         return visibility;
     }
     
+    // May be null if the response had no coordinates
+    public Coordinates getCoordinates() {
+        return coordinates;
+    }
+    
+    // OpenWeatherMap city ID, or 0 if the response had none
+    public long getCityId() {
+        return cityId;
+    }
+    
+    // Time of the observation in epoch seconds (UTC), or 0 if the response had none
+    public long getObservedAt() {
+        return observedAt;
+    }
+    
+    // Sunrise and sunset of the current day in epoch seconds (UTC), or 0 if the response had none,
+    // e.g. during polar day or night
+    public long getSunrise() {
+        return sunrise;
+    }
+    
+    public long getSunset() {
+        return sunset;
+    }
+    
+    // Shift from UTC for the city, for showing times in its local time
+    public int getTimezoneOffsetSeconds() {
+        return timezoneOffsetSeconds;
+    }
+    
+    // Value equality, used to skip UI updates when a refresh returns the same observation
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof WeatherData)) {
+            return false;
+        }
+        WeatherData that = (WeatherData) other;
+        return Double.compare(temperature, that.temperature) == 0
+                && humidity == that.humidity
+                && Double.compare(windSpeed, that.windSpeed) == 0
+                && Double.compare(feelsLike, that.feelsLike) == 0
+                && Double.compare(pressure, that.pressure) == 0
+                && visibility == that.visibility
+                && cityId == that.cityId
+                && observedAt == that.observedAt
+                && sunrise == that.sunrise
+                && sunset == that.sunset
+                && timezoneOffsetSeconds == that.timezoneOffsetSeconds
+                && Objects.equals(cityName, that.cityName)
+                && Objects.equals(weatherDescription, that.weatherDescription)
+                && Objects.equals(iconCode, that.iconCode)
+                && Objects.equals(coordinates, that.coordinates);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(cityName, temperature, weatherDescription, humidity, windSpeed, iconCode, cityId);
+    }
+    
     @Override
     public String toString() {
         return "City: " + cityName + 
@@ -0,0 +1,99 @@
+package server;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.json.JSONObject;
+
+import model.AirQuality;
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// JSON bodies served by the gateway. Built by hand so fields keep a fixed order, which also
+// keeps the ETag of an unchanged value stable across restarts.
+final class GatewayJson {
+    private GatewayJson() {
+    }
+
+    static String weather(WeatherData data) {
+        StringBuilder json = new StringBuilder(320);
+        json.append("{\"name\":").append(JSONObject.quote(data.getCityName()));
+        json.append(",\"city_id\":").append(data.getCityId());
+        json.append(",\"observed_at\":").append(data.getObservedAt());
+        json.append(",\"temperature\":").append(data.getTemperature());
+        json.append(",\"feels_like\":").append(data.getFeelsLike());
+        json.append(",\"humidity\":").append(data.getHumidity());
+        json.append(",\"pressure\":").append(data.getPressure());
+        json.append(",\"wind_speed\":").append(data.getWindSpeed());
+        json.append(",\"visibility\":").append(data.getVisibility());
+        json.append(",\"sunrise\":").append(data.getSunrise());
+        json.append(",\"sunset\":").append(data.getSunset());
+        json.append(",\"timezone_offset\":").append(data.getTimezoneOffsetSeconds());
+        json.append(",\"description\":").append(JSONObject.quote(data.getWeatherDescription()));
+        json.append(",\"icon\":").append(JSONObject.quote(data.getIconCode()));
+        Coordinates coordinates = data.getCoordinates();
+        if (coordinates != null) {
+            json.append(",\"lat\":").append(coordinates.getLatitude());
+            json.append(",\"lon\":").append(coordinates.getLongitude());
+        }
+        return json.append('}').toString();
+    }
+
+    // One entry per 3-hour slot; times are epoch seconds (UTC)
+    static String forecast(String city, Forecast forecast) {
+        StringBuilder json = new StringBuilder(64 + forecast.size() * 190);
+        json.append("{\"city\":").append(JSONObject.quote(city));
+        json.append(",\"timezone_offset\":").append(forecast.getTimezoneOffsetSeconds());
+        json.append(",\"slots\":[");
+        for (int slot = 0; slot < forecast.size(); slot++) {
+            if (slot > 0) {
+                json.append(',');
+            }
+            json.append("{\"time\":").append(forecast.getTimestamp(slot));
+            json.append(",\"temperature\":").append(forecast.getTemperature(slot));
+            json.append(",\"min_temperature\":").append(forecast.getMinTemperature(slot));
+            json.append(",\"max_temperature\":").append(forecast.getMaxTemperature(slot));
+            json.append(",\"humidity\":").append(forecast.getHumidity(slot));
+            json.append(",\"wind_speed\":").append(forecast.getWindSpeed(slot));
+            json.append(",\"precipitation_probability\":").append(forecast.getPrecipitationProbability(slot));
+            json.append(",\"condition_id\":").append(forecast.getConditionId(slot));
+            json.append(",\"description\":").append(JSONObject.quote(forecast.getDescription(slot)));
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    // Concentrations in μg/m³, keyed by OpenWeatherMap's pollutant names
+    static String airQuality(String city, AirQuality airQuality) {
+        StringBuilder json = new StringBuilder(240);
+        json.append("{\"city\":").append(JSONObject.quote(city));
+        json.append(",\"air_quality\":").append(JSONObject.quote(airQuality.getLabel()));
+        json.append(",\"aqi\":").append(airQuality.getIndex());
+        json.append(",\"components\":{");
+        boolean first = true;
+        for (Map.Entry<String, Double> component : airQuality.getComponents().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(JSONObject.quote(component.getKey())).append(':').append(component.getValue());
+        }
+        return json.append("}}").toString();
+    }
+
+    // Null when the key has no One Call access
+    static String uvIndex(String city, double uvIndex) {
+        return "{\"city\":" + JSONObject.quote(city) + ",\"uv_index\":"
+                + (Double.isNaN(uvIndex) ? "null" : String.valueOf(uvIndex)) + "}";
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + JSONObject.quote(message) + "}";
+    }
+
+    static String health(long requests, long notModified, long errors, String cache) {
+        return String.format(Locale.ROOT, "{\"status\":\"ok\",\"requests\":%d,\"not_modified\":%d,\"errors\":%d,\"cache\":%s}",
+                requests, notModified, errors, JSONObject.quote(cache));
+    }
+}
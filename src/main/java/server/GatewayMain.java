@@ -0,0 +1,108 @@
+package server;
+
+import java.io.IOException;
+
+import controller.PooledHttpTransport;
+import controller.QuotaGovernor;
+import controller.RateLimiter;
+import controller.WeatherServices;
+import model.DatabaseHandler;
+
+// Runs the gateway until the process is stopped; see USAGE
+public class GatewayMain {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: WeatherApp --serve [options]",
+            "Serves current weather, forecasts and air quality over HTTP from one shared cache and API key.",
+            "",
+            "  --port N            port to listen on (default 8080)",
+            "  --threads N         request handler threads (default " + WeatherGateway.DEFAULT_THREADS + ")",
+            "  --cache-cities N    cities kept in memory per endpoint (default 1000)",
+            "  --rpm N             API requests per minute (default: the API key's limit)",
+            "  --base-url URL      API server, e.g. a local stub (default: OpenWeatherMap)",
+            "  --db PATH           SQLite database for caching and history (default weather_app.db)");
+
+    private static final int EXIT_USAGE = 1;
+
+    public static void main(String[] args) {
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    // Returns once the server has started, which keeps the JVM running, or with a non-zero status
+    // if the options are wrong or the port can't be bound
+    public static int run(String[] args) {
+        int port = 8080;
+        int threads = WeatherGateway.DEFAULT_THREADS;
+        int cachedCities = 1000;
+        int requestsPerMinute = 0;
+        String baseUrl = null;
+        String dbPath = "weather_app.db";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":
+                        port = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--cache-cities":
+                        cachedCities = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--rpm":
+                        requestsPerMinute = Integer.parseInt(value(args, ++i));
+                        break;
+                    case "--base-url":
+                        baseUrl = value(args, ++i);
+                        break;
+                    case "--db":
+                        dbPath = value(args, ++i);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (port < 0 || threads < 1 || cachedCities < 1 || requestsPerMinute < 0) {
+                throw new IllegalArgumentException("Numbers must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            // Including NumberFormatException
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        DatabaseHandler dbHandler = new DatabaseHandler("jdbc:sqlite:" + dbPath);
+        QuotaGovernor quotaGovernor = requestsPerMinute > 0
+                ? new QuotaGovernor(new PooledHttpTransport(), dbHandler,
+                        new RateLimiter(requestsPerMinute / 60.0), QuotaGovernor.REQUESTS_PER_MONTH)
+                : new QuotaGovernor(new PooledHttpTransport(), dbHandler);
+        WeatherServices services = new WeatherServices(dbHandler, baseUrl, quotaGovernor, cachedCities);
+        WeatherGateway gateway;
+        try {
+            gateway = new WeatherGateway(services.getApiService(), port, threads, cachedCities);
+        } catch (IOException e) {
+            System.err.println("Error starting the gateway on port " + port + ": " + e.getMessage());
+            services.shutdown();
+            return EXIT_USAGE;
+        }
+
+        // Ctrl+C or a kill lets requests in progress finish and saves what's queued for the database
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gateway.stop();
+            services.shutdown();
+        }, "gateway-shutdown"));
+        gateway.start();
+        System.err.println("Weather gateway listening on port " + gateway.getPort());
+        return 0;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+}
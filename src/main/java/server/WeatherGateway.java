@@ -0,0 +1,347 @@
+package server;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import controller.ApiResponseException;
+import controller.CachingWeatherService;
+import controller.ResponseCache;
+import metrics.Metrics;
+import metrics.StageTimer;
+import model.AirQuality;
+import model.Forecast;
+import model.WeatherData;
+
+// Serves the weather service stack over HTTP so many clients share one API key and one cache:
+//
+//   GET /v1/weather?city=London       current weather, with sunrise and sunset
+//   GET /v1/forecast?city=London      5-day forecast in 3-hour slots
+//   GET /v1/air-quality?city=London   air quality index and pollutant concentrations
+//   GET /v1/uv-index?city=London      current UV index, if the key has One Call access
+//   GET /health                       request counters and cache statistics
+//   GET /metrics                      stage metrics in the Prometheus text format, with -Dweather.metrics=true
+//
+// Concurrent requests for the same city wait on a single upstream call (see ResponseCache).
+// Bodies are rendered once per cached value and carry a strong ETag; a client sending it back
+// in If-None-Match gets an empty 304 until the value changes.
+public class WeatherGateway {
+    public static final int DEFAULT_THREADS = 32;
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int BACKLOG = 1024; // Pending connections; load tests open a thousand at once
+    private static final long RENDERED_TTL = TimeUnit.DAYS.toMillis(1); // Replaced whenever the value changes anyway
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    static {
+        // Without TCP_NODELAY the header and body writes hit delayed-ACK stalls of ~40ms each
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // Looks up the value for a city, and renders it as a JSON body
+    private interface Endpoint {
+        Object load(String city) throws IOException;
+
+        String render(String city, Object value);
+    }
+
+    private final CachingWeatherService apiService;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    // Port 0 picks a free port; see getPort
+    public WeatherGateway(CachingWeatherService apiService, int port, int threads, int cachedCities) throws IOException {
+        this.apiService = apiService;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        // A fixed pool: requests that miss the cache block on the upstream call. Once the queue is
+        // full the accepting thread runs requests itself, which stops it accepting more for a while.
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), new GatewayThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.server.setExecutor(executor);
+
+        serve("/v1/weather", cachedCities, new Endpoint() {
+            @Override
+            public Object load(String city) throws IOException {
+                return apiService.getCurrentWeather(city);
+            }
+
+            @Override
+            public String render(String city, Object value) {
+                return GatewayJson.weather((WeatherData) value);
+            }
+        });
+        serve("/v1/forecast", cachedCities, new Endpoint() {
+            @Override
+            public Object load(String city) throws IOException {
+                return apiService.getForecast(city);
+            }
+
+            @Override
+            public String render(String city, Object value) {
+                return GatewayJson.forecast(city, (Forecast) value);
+            }
+        });
+        serve("/v1/air-quality", cachedCities, new Endpoint() {
+            @Override
+            public Object load(String city) throws IOException {
+                return apiService.getAirQuality(city);
+            }
+
+            @Override
+            public String render(String city, Object value) {
+                return GatewayJson.airQuality(city, (AirQuality) value);
+            }
+        });
+        serve("/v1/uv-index", cachedCities, new Endpoint() {
+            @Override
+            public Object load(String city) throws IOException {
+                return apiService.getUvIndex(city);
+            }
+
+            @Override
+            public String render(String city, Object value) {
+                return GatewayJson.uvIndex(city, (Double) value);
+            }
+        });
+        server.createContext("/health", exchange -> {
+            try {
+                String body = GatewayJson.health(requests.get(), notModified.get(), errors.get(), apiService.toString());
+                send(exchange, HttpURLConnection.HTTP_OK, body.getBytes(StandardCharsets.UTF_8), null);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/metrics", exchange -> {
+            try {
+                if (!Metrics.ENABLED) {
+                    sendError(exchange, HttpURLConnection.HTTP_NOT_FOUND,
+                            "Metrics are off; start with -Dweather.metrics=true");
+                    return;
+                }
+                send(exchange, HttpURLConnection.HTTP_OK, Metrics.toPrometheus().getBytes(StandardCharsets.UTF_8), null,
+                        PROMETHEUS_CONTENT_TYPE);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Waits up to a second for exchanges in progress to finish
+    public void stop() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    private void serve(String path, int cachedCities, Endpoint endpoint) {
+        ResponseCache<Rendered> rendered = new ResponseCache<>(RENDERED_TTL, cachedCities);
+        StageTimer timer = Metrics.timer("weather_gateway_request_seconds",
+                "Gateway requests, from handling to response sent", "path", path);
+        server.createContext(path, exchange -> {
+            requests.incrementAndGet();
+            long start = timer.start();
+            try {
+                handle(exchange, endpoint, rendered);
+            } catch (IOException | RuntimeException e) {
+                // Usually the client hanging up; the exchange is closed below either way
+                errors.incrementAndGet();
+                System.err.println("Error serving " + exchange.getRequestURI() + ": " + e.getMessage());
+            } finally {
+                exchange.close();
+                timer.stop(start);
+            }
+        });
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint, ResponseCache<Rendered> renderedCache) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            sendError(exchange, HttpURLConnection.HTTP_BAD_METHOD, "Only GET and HEAD are supported");
+            return;
+        }
+        String city = queryParameter(exchange.getRequestURI().getRawQuery(), "city");
+        if (city == null || city.trim().isEmpty()) {
+            sendError(exchange, HttpURLConnection.HTTP_BAD_REQUEST, "Missing city parameter, e.g. ?city=London");
+            return;
+        }
+
+        Object value;
+        try {
+            value = endpoint.load(city);
+        } catch (ApiResponseException e) {
+            int status = e.isRateLimited() || e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND
+                    ? e.getResponseCode() : HttpURLConnection.HTTP_BAD_GATEWAY;
+            if (e.getRetryAfterMillis() > 0) {
+                exchange.getResponseHeaders().set("Retry-After",
+                        String.valueOf(TimeUnit.MILLISECONDS.toSeconds(e.getRetryAfterMillis() + 999)));
+            }
+            sendError(exchange, status, e.getMessage());
+            return;
+        } catch (InterruptedIOException e) {
+            sendError(exchange, HttpURLConnection.HTTP_UNAVAILABLE, "Interrupted while fetching weather data");
+            return;
+        } catch (IOException e) {
+            sendError(exchange, HttpURLConnection.HTTP_BAD_GATEWAY, "Upstream error: " + e.getMessage());
+            return;
+        }
+
+        // The caches hand out the same instance until it's refreshed, so the rendering of that
+        // instance can be reused as is
+        String key = ResponseCache.normalizeKey(city);
+        Rendered rendered = renderedCache.getIfPresent(key);
+        if (rendered == null || rendered.source != value) {
+            rendered = new Rendered(value, endpoint.render(city, value).getBytes(StandardCharsets.UTF_8));
+            renderedCache.put(key, rendered);
+        }
+
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), rendered.etag)) {
+            notModified.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", rendered.etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
+        }
+        send(exchange, HttpURLConnection.HTTP_OK, rendered.body, rendered.etag);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        errors.incrementAndGet();
+        send(exchange, status, GatewayJson.error(message).getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    // Clients may keep the body, but must check the ETag with us before using it again
+    private static void send(HttpExchange exchange, int status, byte[] body, String etag) throws IOException {
+        send(exchange, status, body, etag, JSON_CONTENT_TYPE);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, String etag, String contentType)
+            throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        headers.set("Cache-Control", "no-cache");
+        if (etag != null) {
+            headers.set("ETag", etag);
+        }
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            headers.set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // If-None-Match holds "*" or a comma-separated list of tags; weak tags compare by value for GET
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                    return null; // Malformed escapes are treated like a missing parameter
+                }
+            }
+        }
+        return null;
+    }
+
+    // A value rendered as a response body, with its ETag: the first 64 bits of the body's SHA-256
+    private static class Rendered {
+        private final Object source;
+        private final byte[] body;
+        private final String etag;
+
+        Rendered(Object source, byte[] body) {
+            this.source = source;
+            this.body = body;
+            this.etag = etagFor(body);
+        }
+
+        private static String etagFor(byte[] body) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+                StringBuilder etag = new StringBuilder(18).append('"');
+                for (int i = 0; i < 8; i++) {
+                    etag.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+                }
+                return etag.append('"').toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new AssertionError(e); // Every JRE has SHA-256
+            }
+        }
+    }
+
+    private static class GatewayThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "gateway-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
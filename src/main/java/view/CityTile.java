@@ -0,0 +1,47 @@
+package view;
+
+import java.awt.GridLayout;
+import java.awt.Label;
+
+import model.WeatherData;
+
+// Compact current-weather tile for one dashboard city
+public class CityTile extends RoundedPanel {
+    private final Label cityLabel = new Label("", Label.CENTER);
+    private final IconPanel iconPanel;
+    private final Label temperatureLabel = new Label("--", Label.CENTER);
+    private final Label descriptionLabel = new Label("Loading...", Label.CENTER);
+
+    public CityTile(String cityName, IconAtlas atlas) {
+        super(new GridLayout(4, 1, 2, 2));
+
+        cityLabel.setText(cityName);
+        cityLabel.setFont(UIStyle.BODY_BOLD_FONT);
+        cityLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        iconPanel = new IconPanel(atlas, IconAtlas.SMALL, 0);
+
+        temperatureLabel.setFont(UIStyle.VALUE_FONT);
+        temperatureLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        descriptionLabel.setFont(UIStyle.STATUS_FONT);
+        descriptionLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
+
+        add(cityLabel);
+        add(iconPanel);
+        add(temperatureLabel);
+        add(descriptionLabel);
+    }
+
+    public void bind(WeatherData weatherData) {
+        String description = weatherData.getWeatherDescription();
+        iconPanel.setIconKey(ForecastCardBuilder.getIconKeyFromDescription(description.toLowerCase()));
+        temperatureLabel.setText(String.format("%.0f°", weatherData.getTemperature()));
+        descriptionLabel.setText(description);
+    }
+
+    public void showError(String message) {
+        temperatureLabel.setText("--");
+        descriptionLabel.setText(message);
+    }
+}
@@ -0,0 +1,52 @@
+package view;
+
+import java.awt.GridLayout;
+import java.awt.Label;
+import java.awt.Panel;
+
+// One daily forecast row; created once and rebound on every search
+public class DailyCardView extends ForecastCardView {
+    private final Label dayLabel = new Label("", Label.LEFT);
+    private final Label dateLabel = new Label("", Label.LEFT);
+    private final IconPanel iconPanel;
+    private final Label temperatureLabel = new Label("", Label.RIGHT);
+
+    public DailyCardView(IconAtlas atlas) {
+        super(new GridLayout(1, 4, 15, 5)); // Increase horizontal padding
+
+        dayLabel.setFont(UIStyle.BODY_FONT);
+        dayLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        dateLabel.setFont(UIStyle.BODY_FONT);
+        dateLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
+
+        iconPanel = new IconPanel(atlas, IconAtlas.SMALL, 0);
+
+        // Temperature range
+        temperatureLabel.setFont(UIStyle.BODY_BOLD_FONT);
+        temperatureLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        Panel dayDatePanel = new Panel(new GridLayout(2, 1));
+        dayDatePanel.setBackground(UIStyle.PANEL_COLOR);
+        dayDatePanel.add(dayLabel);
+        dayDatePanel.add(dateLabel);
+
+        add(dayDatePanel);
+        add(iconPanel);
+        add(new Label("", Label.CENTER)); // Spacer
+        add(temperatureLabel);
+    }
+
+    @Override
+    public void bind(ForecastCard card) {
+        dayLabel.setText(card.getTitle());
+        dateLabel.setText(card.getSubtitle());
+        iconPanel.setIconKey(card.getIconKey());
+        temperatureLabel.setText(card.getTemperatureText());
+    }
+
+    @Override
+    public void repaintIcon() {
+        iconPanel.repaint();
+    }
+}
@@ -0,0 +1,122 @@
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.Button;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.EventQueue;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.GridLayout;
+import java.awt.Label;
+import java.awt.Panel;
+import java.awt.ScrollPane;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import controller.BatchWeatherService;
+import controller.ResponseCache;
+import model.WeatherData;
+
+// Grid of compact tiles showing current weather for many cities at once.
+// Tiles update individually as each batch or single-city call completes.
+public class DashboardFrame extends Frame {
+    private static final int COLUMNS = 5;
+
+    private final BatchWeatherService batchService;
+    private final List<String> cityNames;
+    private final Map<String, CityTile> tiles = new LinkedHashMap<>(); // By normalized city name
+    private final Label statusLabel = new Label("", Label.LEFT);
+    private final Button refreshButton = new Button("Refresh");
+
+    public DashboardFrame(BatchWeatherService batchService, IconAtlas iconAtlas, List<String> cityNames) {
+        this.batchService = batchService;
+        this.cityNames = new ArrayList<>(cityNames.size());
+
+        setTitle("Weather Dashboard");
+        setSize(900, 600);
+        setLayout(new BorderLayout(10, 10));
+        setBackground(UIStyle.BACKGROUND_COLOR);
+
+        Panel toolbar = new Panel(new FlowLayout(FlowLayout.LEFT, 15, 10));
+        toolbar.setBackground(UIStyle.BACKGROUND_COLOR);
+        Label title = new Label("");
+        title.setFont(UIStyle.SECTION_TITLE_FONT);
+        title.setForeground(UIStyle.TEXT_COLOR);
+        refreshButton.setFont(UIStyle.BODY_BOLD_FONT);
+        refreshButton.setBackground(UIStyle.ACCENT_COLOR);
+        refreshButton.setForeground(Color.BLACK);
+        refreshButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        refreshButton.addActionListener(e -> refresh());
+        toolbar.add(title);
+        toolbar.add(refreshButton);
+
+        Panel tilePanel = new Panel(new GridLayout(0, COLUMNS, 10, 10));
+        tilePanel.setBackground(UIStyle.BACKGROUND_COLOR);
+        for (String cityName : cityNames) {
+            String key = ResponseCache.normalizeKey(cityName);
+            if (!key.isEmpty() && !tiles.containsKey(key)) {
+                CityTile tile = new CityTile(cityName.trim(), iconAtlas);
+                tiles.put(key, tile);
+                tilePanel.add(tile);
+                this.cityNames.add(cityName.trim());
+            }
+        }
+        title.setText(this.cityNames.size() + " cities");
+
+        ScrollPane scrollPane = new ScrollPane(ScrollPane.SCROLLBARS_AS_NEEDED);
+        scrollPane.setBackground(UIStyle.BACKGROUND_COLOR);
+        scrollPane.add(tilePanel);
+        scrollPane.setWheelScrollingEnabled(true);
+
+        statusLabel.setFont(UIStyle.STATUS_FONT);
+        statusLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
+
+        add("North", toolbar);
+        add("Center", scrollPane);
+        add("South", statusLabel);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                dispose();
+            }
+        });
+
+        setLocationRelativeTo(null);
+        setVisible(true);
+        refresh();
+    }
+
+    private void refresh() {
+        refreshButton.setEnabled(false);
+        statusLabel.setText("Fetching weather for " + cityNames.size() + " cities...");
+        long start = System.nanoTime();
+        AtomicInteger failures = new AtomicInteger();
+
+        batchService.fetchAll(cityNames, new BatchWeatherService.Listener() {
+            @Override
+            public void onResult(String cityName, WeatherData weatherData) {
+                EventQueue.invokeLater(() -> tiles.get(ResponseCache.normalizeKey(cityName)).bind(weatherData));
+            }
+
+            @Override
+            public void onError(String cityName, Throwable error) {
+                failures.incrementAndGet();
+                EventQueue.invokeLater(() -> tiles.get(ResponseCache.normalizeKey(cityName)).showError(error.getMessage()));
+            }
+        }).whenComplete((ignored, error) -> EventQueue.invokeLater(() -> {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            statusLabel.setText("Updated " + (cityNames.size() - failures.get()) + " of " + cityNames.size()
+                    + " cities in " + elapsedMillis + " ms (limit "
+                    + batchService.getRateLimiter().getPermitsPerSecond() + " requests/s)");
+            refreshButton.setEnabled(true);
+        }));
+    }
+}
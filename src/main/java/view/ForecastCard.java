@@ -0,0 +1,32 @@
+package view;
+
+// Display values for one hourly or daily forecast card, ready to put into labels
+public class ForecastCard {
+    private final String title;
+    private final String subtitle;
+    private final String iconKey;
+    private final String temperatureText;
+
+    public ForecastCard(String title, String subtitle, String iconKey, String temperatureText) {
+        this.title = title;
+        this.subtitle = subtitle;
+        this.iconKey = iconKey;
+        this.temperatureText = temperatureText;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getSubtitle() {
+        return subtitle;
+    }
+
+    public String getIconKey() {
+        return iconKey;
+    }
+
+    public String getTemperatureText() {
+        return temperatureText;
+    }
+}
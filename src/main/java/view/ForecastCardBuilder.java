@@ -0,0 +1,75 @@
+package view;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import controller.DailyForecastAggregator;
+import model.DailyForecast;
+import model.Forecast;
+
+// Turns a Forecast into the values shown on the hourly and daily cards.
+// Kept free of AWT components so it can be benchmarked headless; not thread-safe.
+public class ForecastCardBuilder {
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    // Forecast times are in UTC
+    private final SimpleDateFormat timeFormat = createUtcFormat("HH:mm");
+    private final SimpleDateFormat dayFormat = createUtcFormat("E");
+    private final SimpleDateFormat dateFormat = createUtcFormat("M/d");
+
+    public List<ForecastCard> buildHourlyCards(Forecast forecast, int count) {
+        List<ForecastCard> cards = new ArrayList<>(count);
+        for (int i = 0; i < count && i < forecast.size(); i++) {
+            String time = timeFormat.format(new Date(forecast.getTimestamp(i) * 1000L));
+            cards.add(new ForecastCard(time, null,
+                    getIconKeyFromDescription(forecast.getDescription(i).toLowerCase()),
+                    String.format("%.0f°", forecast.getTemperature(i))));
+        }
+        return cards;
+    }
+
+    public List<ForecastCard> buildDailyCards(Forecast forecast, int count) {
+        List<DailyForecast> days = DailyForecastAggregator.aggregate(forecast);
+        List<ForecastCard> cards = new ArrayList<>(Math.min(count, days.size()));
+        for (int i = 0; i < count && i < days.size(); i++) {
+            DailyForecast day = days.get(i);
+            // Local midnight of the day, formatted in UTC so the date doesn't shift again
+            Date forecastDate = new Date(day.getEpochDay() * MILLIS_PER_DAY);
+            cards.add(new ForecastCard(dayFormat.format(forecastDate), dateFormat.format(forecastDate),
+                    getIconKeyFromDescription(day.getDescription().toLowerCase()),
+                    String.format("%.0f° / %.0f°", day.getMaxTemperature(), day.getMinTemperature())));
+        }
+        return cards;
+    }
+
+    public static String getIconKeyFromDescription(String description) {
+        if (description.contains("overcast") || description.contains("broken clouds")) {
+            return "clouds"; // Full cloud cover
+        } else if (description.contains("cloud")) {
+            if (description.contains("scattered") || description.contains("few")) {
+                return "partly_cloudy";
+            } else {
+                return "clouds";
+            }
+        } else if (description.contains("rain") || description.contains("drizzle")) {
+            return "rain";
+        } else if (description.contains("snow")) {
+            return "snow";
+        } else if (description.contains("thunder")) {
+            return "thunderstorm";
+        } else if (description.contains("mist") || description.contains("fog")) {
+            return "mist";
+        } else {
+            return "clear";
+        }
+    }
+
+    private static SimpleDateFormat createUtcFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+}
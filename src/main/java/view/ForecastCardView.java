@@ -0,0 +1,16 @@
+package view;
+
+import java.awt.LayoutManager;
+
+// A forecast card that keeps its components and is rebound to new values in place
+public abstract class ForecastCardView extends RoundedPanel {
+
+    protected ForecastCardView(LayoutManager layout) {
+        super(layout);
+    }
+
+    public abstract void bind(ForecastCard card);
+
+    // Redraws the icon, e.g. once the icon images have finished loading
+    public abstract void repaintIcon();
+}
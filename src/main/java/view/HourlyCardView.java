@@ -0,0 +1,40 @@
+package view;
+
+import java.awt.GridLayout;
+import java.awt.Label;
+
+// One hourly forecast card; created once and rebound on every search
+public class HourlyCardView extends ForecastCardView {
+    private final Label timeLabel = new Label("", Label.CENTER);
+    private final IconPanel iconPanel;
+    private final Label temperatureLabel = new Label("", Label.CENTER);
+
+    public HourlyCardView(IconAtlas atlas) {
+        super(new GridLayout(3, 1, 5, 5));
+
+        timeLabel.setFont(UIStyle.BODY_FONT);
+        timeLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        iconPanel = new IconPanel(atlas, IconAtlas.SMALL, 10);
+
+        temperatureLabel.setFont(UIStyle.VALUE_FONT);
+        temperatureLabel.setForeground(UIStyle.TEXT_COLOR);
+
+        add(timeLabel);
+        add(iconPanel);
+        add(temperatureLabel);
+    }
+
+    // Label.setText skips the relayout when the text is unchanged
+    @Override
+    public void bind(ForecastCard card) {
+        timeLabel.setText(card.getTitle());
+        iconPanel.setIconKey(card.getIconKey());
+        temperatureLabel.setText(card.getTemperatureText());
+    }
+
+    @Override
+    public void repaintIcon() {
+        iconPanel.repaint();
+    }
+}
@@ -0,0 +1,85 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Weather icons pre-rendered once at every size the UI draws them, so painting is a plain
+// copy of a screen-compatible image instead of scaling the full-size PNG on each repaint.
+// Icons may be added from loader threads while the UI is already painting.
+public class IconAtlas {
+    public static final int LARGE = 100; // Current weather icon
+    public static final int SMALL = 30;  // Hourly and daily forecast cards
+
+    private final int[] sizes;
+    private final Map<String, BufferedImage[]> icons = new ConcurrentHashMap<>();
+
+    public IconAtlas(int... sizes) {
+        this.sizes = sizes.clone();
+    }
+
+    // Renders the source icon at every atlas size
+    public void add(String iconKey, Image source) {
+        BufferedImage[] rendered = new BufferedImage[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            rendered[i] = render(source, sizes[i]);
+        }
+        icons.put(iconKey, rendered);
+    }
+
+    // Returns null if the icon is unknown or was not rendered at this size
+    public BufferedImage get(String iconKey, int size) {
+        BufferedImage[] rendered = icons.get(iconKey);
+        if (rendered == null) {
+            return null;
+        }
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] == size) {
+                return rendered[i];
+            }
+        }
+        return null;
+    }
+
+    // Halves the image until it is close to the target size; a single bilinear step from
+    // 512px down to 30px would skip most source pixels and alias badly
+    private static BufferedImage render(Image source, int size) {
+        Image current = source;
+        int width = source.getWidth(null);
+        int height = source.getHeight(null);
+        while (width / 2 >= size && height / 2 >= size) {
+            width /= 2;
+            height /= 2;
+            current = scale(current, width, height, new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB));
+        }
+        return scale(current, size, size, createCompatibleImage(size));
+    }
+
+    private static BufferedImage scale(Image source, int width, int height, BufferedImage target) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // Matches the screen's pixel layout so drawing the icon needs no conversion
+    private static BufferedImage createCompatibleImage(int size) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+    }
+}
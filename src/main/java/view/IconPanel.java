@@ -0,0 +1,44 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Panel;
+
+// Draws one pre-rendered atlas icon; the key is set when data is bound, not worked out in paint
+public class IconPanel extends Panel {
+    private final IconAtlas atlas;
+    private final int size;
+    private final int offsetX;
+    private String iconKey;
+
+    public IconPanel(IconAtlas atlas, int size, int offsetX) {
+        this.atlas = atlas;
+        this.size = size;
+        this.offsetX = offsetX;
+        setBackground(UIStyle.PANEL_COLOR);
+        setPreferredSize(new Dimension(size + offsetX * 2, size));
+    }
+
+    public void setIconKey(String iconKey) {
+        if (iconKey == null ? this.iconKey != null : !iconKey.equals(this.iconKey)) {
+            this.iconKey = iconKey;
+            repaint();
+        }
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (iconKey != null) {
+            Image icon = atlas.get(iconKey, size);
+            if (icon != null) {
+                g.drawImage(icon, offsetX, 0, null);
+            } else {
+                // Placeholder while the icons are still loading
+                g.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+                g.drawOval(offsetX + size / 4, size / 4, size / 2, size / 2);
+            }
+        }
+    }
+}
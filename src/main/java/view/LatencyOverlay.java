@@ -0,0 +1,79 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.Arrays;
+
+import javax.swing.Timer;
+
+import metrics.Metrics;
+import metrics.StageTimer;
+
+// Latency of each stage of a search, shown under the window with -Dweather.metrics.overlay=true.
+// The last value is what the latest search spent in that stage; p50 and p95 cover the whole run.
+public class LatencyOverlay extends RoundedPanel {
+    private static final Font OVERLAY_FONT = new Font("Monospaced", Font.PLAIN, 11);
+    private static final int REFRESH_MILLIS = 1000;
+    private static final int COLUMNS = 2;
+    private static final int LINE_HEIGHT = 14;
+
+    // Display name, metric name, then label name/value pairs
+    private static final String[][] STAGES = {
+            {"search", "weather_search_seconds"},
+            {"api weather", "weather_api_call_seconds", "endpoint", "weather"},
+            {"api forecast", "weather_api_call_seconds", "endpoint", "forecast"},
+            {"api air quality", "weather_api_call_seconds", "endpoint", "air_quality"},
+            {"parse weather", "weather_parse_seconds", "payload", "weather"},
+            {"parse forecast", "weather_parse_seconds", "payload", "forecast"},
+            {"db snapshot read", "weather_db_read_seconds", "operation", "snapshot"},
+            {"db commit", "weather_db_commit_seconds"},
+            {"ui current", "weather_ui_update_seconds", "panel", "current"},
+            {"ui hourly", "weather_ui_update_seconds", "panel", "hourly"},
+            {"ui daily", "weather_ui_update_seconds", "panel", "daily"},
+            {"ui history paint", "weather_ui_paint_seconds", "panel", "history"}};
+    private static final int ROWS = (STAGES.length + COLUMNS - 1) / COLUMNS;
+
+    private final Timer refreshTimer;
+
+    public LatencyOverlay() {
+        setPreferredSize(new Dimension(600, (ROWS + 1) * LINE_HEIGHT + 20)); // A header row, then the stages
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> repaint());
+        refreshTimer.start();
+    }
+
+    public void stop() {
+        refreshTimer.stop();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(OVERLAY_FONT);
+        g2d.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+        FontMetrics metrics = g2d.getFontMetrics();
+
+        int columnWidth = (getWidth() - 20) / COLUMNS;
+        for (int column = 0; column < COLUMNS; column++) {
+            String header = String.format("%-16s%8s%8s%8s", "stage (ms)", "last", "p50", "p95");
+            g2d.drawString(header, 10 + column * columnWidth, 10 + metrics.getAscent());
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            int x = 10 + (i / ROWS) * columnWidth;
+            int y = 10 + (i % ROWS + 1) * LINE_HEIGHT + metrics.getAscent();
+            String[] stage = STAGES[i];
+            // Looked up on every paint, as a stage registers its timer when its class is first used
+            StageTimer timer = Metrics.findTimer(stage[1], Arrays.copyOfRange(stage, 2, stage.length));
+            String line = timer == null || timer.getCount() == 0
+                    ? String.format("%-16s%8s", stage[0], "-")
+                    : String.format("%-16s%8.1f%8.1f%8.1f", stage[0], timer.getLastMillis(),
+                            timer.getPercentileMillis(0.50), timer.getPercentileMillis(0.95));
+            g2d.drawString(line, x, y);
+        }
+    }
+}
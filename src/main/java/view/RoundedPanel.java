@@ -0,0 +1,37 @@
+package view;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.LayoutManager;
+import java.awt.Panel;
+import java.awt.RenderingHints;
+
+// Panel with a rounded background and internal padding, used for every card and section
+public class RoundedPanel extends Panel {
+    private static final Insets PADDING = new Insets(10, 10, 10, 10);
+
+    public RoundedPanel() {
+        setBackground(UIStyle.PANEL_COLOR);
+    }
+
+    public RoundedPanel(LayoutManager layout) {
+        super(layout);
+        setBackground(UIStyle.PANEL_COLOR);
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(UIStyle.PANEL_COLOR);
+        g2d.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
+        super.paint(g);
+    }
+
+    // Add insets to create padding inside the panel
+    @Override
+    public Insets getInsets() {
+        return (Insets) PADDING.clone();
+    }
+}
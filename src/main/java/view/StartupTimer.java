@@ -0,0 +1,40 @@
+package view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Records how long startup milestones take, measured from the start of main
+public final class StartupTimer {
+    private static final long CLASS_LOADED_NANOS = System.nanoTime();
+    private static volatile long mainStartedNanos;
+    private static final Map<String, Long> milestones = new LinkedHashMap<>();
+
+    private StartupTimer() {
+    }
+
+    // Called first thing in main; otherwise times are measured from when this class loaded
+    public static void markMainStarted() {
+        mainStartedNanos = System.nanoTime();
+    }
+
+    // Records the first occurrence of a milestone and logs the elapsed time
+    public static void mark(String milestone) {
+        long start = mainStartedNanos != 0 ? mainStartedNanos : CLASS_LOADED_NANOS;
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        synchronized (milestones) {
+            if (milestones.containsKey(milestone)) {
+                return;
+            }
+            milestones.put(milestone, elapsedMillis);
+        }
+        System.out.println("Startup: " + milestone + " after " + elapsedMillis + " ms");
+    }
+
+    // Elapsed milliseconds per milestone, in the order they were reached
+    public static Map<String, Long> getMilestones() {
+        synchronized (milestones) {
+            return new LinkedHashMap<>(milestones);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package view;
+
+import java.awt.Frame;
+import java.awt.List;
+import java.awt.Point;
+import java.awt.TextField;
+import java.awt.Window;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import model.CitySuggestion;
+
+// Drop-down list of city suggestions shown under the search field
+public class SuggestionPopup {
+    private static final int MAX_VISIBLE_ROWS = 8;
+    private static final int ROW_HEIGHT = 20;
+
+    private final TextField field;
+    private final Window window;
+    private final List list = new List();
+    private final Consumer<CitySuggestion> onSelect;
+    private java.util.List<CitySuggestion> suggestions = new ArrayList<>();
+
+    public SuggestionPopup(Frame owner, TextField field, Consumer<CitySuggestion> onSelect) {
+        this.field = field;
+        this.onSelect = onSelect;
+        this.window = new Window(owner);
+
+        list.setFont(UIStyle.BODY_FONT);
+        list.setBackground(UIStyle.PANEL_COLOR);
+        list.setForeground(UIStyle.TEXT_COLOR);
+        window.add(list);
+
+        // Double-click or Enter picks the highlighted city
+        list.addActionListener(e -> selectHighlighted());
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    hide();
+                    SuggestionPopup.this.field.requestFocus();
+                }
+            }
+        });
+    }
+
+    public void show(java.util.List<CitySuggestion> newSuggestions) {
+        if (newSuggestions.isEmpty() || !field.isShowing()) {
+            hide();
+            return;
+        }
+        suggestions = newSuggestions;
+        list.removeAll();
+        for (CitySuggestion suggestion : newSuggestions) {
+            list.add(suggestion.toString());
+        }
+        Point location = field.getLocationOnScreen();
+        int rows = Math.min(newSuggestions.size(), MAX_VISIBLE_ROWS);
+        window.setBounds(location.x, location.y + field.getHeight(), Math.max(field.getWidth(), 220), rows * ROW_HEIGHT + 6);
+        window.setVisible(true);
+    }
+
+    public void hide() {
+        window.setVisible(false);
+    }
+
+    // Moves keyboard focus into the list, e.g. on the down arrow
+    public void focusList() {
+        if (window.isVisible()) {
+            list.select(0);
+            list.requestFocus();
+        }
+    }
+
+    private void selectHighlighted() {
+        int index = list.getSelectedIndex();
+        if (index >= 0 && index < suggestions.size()) {
+            hide();
+            onSelect.accept(suggestions.get(index));
+        }
+    }
+}
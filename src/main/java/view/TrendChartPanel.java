@@ -0,0 +1,178 @@
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import metrics.Metrics;
+import metrics.StageTimer;
+import model.ObservationBucket;
+
+// Temperature history drawn from downsampled buckets: the min-max range as a band, the average as a line.
+// Gaps where nothing was recorded are left open rather than interpolated.
+public class TrendChartPanel extends RoundedPanel {
+    private static final Color BAND_COLOR = new Color(255, 204, 0, 60);
+    private static final Color GRID_COLOR = new Color(255, 255, 255, 30);
+    private static final Stroke LINE_STROKE = new BasicStroke(2f);
+    private static final int LEFT_MARGIN = 45;
+    private static final int BOTTOM_MARGIN = 22;
+    private static final int TOP_MARGIN = 22;
+    private static final StageTimer PAINT_TIMER = Metrics.timer("weather_ui_paint_seconds",
+            "Painting of custom-drawn panels", "panel", "history");
+
+    private List<ObservationBucket> buckets = Collections.emptyList();
+    private long fromSeconds;
+    private long toSeconds;
+    private int bucketSeconds;
+
+    public TrendChartPanel() {
+        setPreferredSize(new Dimension(600, 220));
+    }
+
+    public void setData(List<ObservationBucket> buckets, long fromSeconds, long toSeconds, int bucketSeconds) {
+        this.buckets = buckets;
+        this.fromSeconds = fromSeconds;
+        this.toSeconds = toSeconds;
+        this.bucketSeconds = bucketSeconds;
+        repaint();
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        long start = PAINT_TIMER.start();
+        try {
+            paintChart(g);
+        } finally {
+            PAINT_TIMER.stop(start);
+        }
+    }
+
+    private void paintChart(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(UIStyle.STATUS_FONT);
+        FontMetrics metrics = g2d.getFontMetrics();
+
+        if (buckets.isEmpty()) {
+            String message = "No history yet. Observations are recorded each time this city's weather is fetched.";
+            g2d.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+            g2d.drawString(message, (getWidth() - metrics.stringWidth(message)) / 2, getHeight() / 2);
+            return;
+        }
+
+        double minTemperature = Double.MAX_VALUE;
+        double maxTemperature = -Double.MAX_VALUE;
+        double minPressure = Double.MAX_VALUE;
+        double maxPressure = -Double.MAX_VALUE;
+        for (ObservationBucket bucket : buckets) {
+            minTemperature = Math.min(minTemperature, bucket.getMinTemperature());
+            maxTemperature = Math.max(maxTemperature, bucket.getMaxTemperature());
+            minPressure = Math.min(minPressure, bucket.getMinPressure());
+            maxPressure = Math.max(maxPressure, bucket.getMaxPressure());
+        }
+        // Whole degrees with a little headroom, so a flat week doesn't fill the chart
+        double low = Math.floor(minTemperature) - 1;
+        double high = Math.ceil(maxTemperature) + 1;
+
+        int left = LEFT_MARGIN;
+        int right = getWidth() - 15;
+        int top = TOP_MARGIN;
+        int bottom = getHeight() - BOTTOM_MARGIN;
+
+        drawGrid(g2d, metrics, left, right, top, bottom, low, high);
+
+        g2d.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+        String pressure = String.format("Pressure %.0f–%.0f hPa", minPressure, maxPressure);
+        g2d.drawString(pressure, right - metrics.stringWidth(pressure), top - 6);
+
+        // One band and one line per run of consecutive buckets
+        int runStart = 0;
+        for (int i = 1; i <= buckets.size(); i++) {
+            if (i == buckets.size() || buckets.get(i).getBucketStart() - buckets.get(i - 1).getBucketStart() > bucketSeconds) {
+                drawRun(g2d, runStart, i, left, right, top, bottom, low, high);
+                runStart = i;
+            }
+        }
+    }
+
+    private void drawGrid(Graphics2D g2d, FontMetrics metrics, int left, int right, int top, int bottom,
+                          double low, double high) {
+        // Horizontal lines at the top, middle and bottom temperatures
+        for (int i = 0; i <= 2; i++) {
+            double temperature = low + (high - low) * i / 2;
+            int y = yFor(temperature, top, bottom, low, high);
+            g2d.setColor(GRID_COLOR);
+            g2d.drawLine(left, y, right, y);
+            g2d.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+            String label = String.format("%.0f°", temperature);
+            g2d.drawString(label, left - 8 - metrics.stringWidth(label), y + metrics.getAscent() / 2);
+        }
+
+        // A line and a weekday label at each local midnight
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = Instant.ofEpochSecond(fromSeconds).atZone(zone).toLocalDate().plusDays(1);
+        long midnight = day.atStartOfDay(zone).toEpochSecond();
+        while (midnight < toSeconds) {
+            int x = xFor(midnight, left, right);
+            g2d.setColor(GRID_COLOR);
+            g2d.drawLine(x, top, x, bottom);
+            g2d.setColor(UIStyle.SECONDARY_TEXT_COLOR);
+            g2d.drawString(day.getDayOfWeek().getDisplayName(TextStyle.SHORT, Locale.getDefault()), x + 4,
+                    bottom + metrics.getAscent() + 4);
+            day = day.plusDays(1);
+            midnight = day.atStartOfDay(zone).toEpochSecond();
+        }
+    }
+
+    private void drawRun(Graphics2D g2d, int from, int to, int left, int right, int top, int bottom,
+                         double low, double high) {
+        int count = to - from;
+        int[] xs = new int[count];
+        int[] averages = new int[count];
+        Polygon band = new Polygon();
+        for (int i = 0; i < count; i++) {
+            ObservationBucket bucket = buckets.get(from + i);
+            // Each bucket is drawn at its midpoint
+            xs[i] = xFor(bucket.getBucketStart() + bucketSeconds / 2, left, right);
+            averages[i] = yFor(bucket.getAvgTemperature(), top, bottom, low, high);
+            band.addPoint(xs[i], yFor(bucket.getMaxTemperature(), top, bottom, low, high));
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            band.addPoint(xs[i], yFor(buckets.get(from + i).getMinTemperature(), top, bottom, low, high));
+        }
+
+        g2d.setColor(BAND_COLOR);
+        g2d.fillPolygon(band);
+        g2d.setColor(UIStyle.ACCENT_COLOR);
+        if (count == 1) {
+            g2d.fillOval(xs[0] - 2, averages[0] - 2, 5, 5);
+        } else {
+            Stroke previous = g2d.getStroke();
+            g2d.setStroke(LINE_STROKE);
+            g2d.drawPolyline(xs, averages, count);
+            g2d.setStroke(previous);
+        }
+    }
+
+    private int xFor(long epochSeconds, int left, int right) {
+        return left + (int) ((epochSeconds - fromSeconds) * (right - left) / Math.max(1, toSeconds - fromSeconds));
+    }
+
+    private static int yFor(double temperature, int top, int bottom, double low, double high) {
+        return bottom - (int) Math.round((temperature - low) * (bottom - top) / (high - low));
+    }
+}
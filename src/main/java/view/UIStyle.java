@@ -0,0 +1,27 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Font;
+
+// Colors and fonts shared by every panel and card, created once instead of per component
+public final class UIStyle {
+    // Colors
+    public static final Color BACKGROUND_COLOR = new Color(25, 31, 69); // Dark blue background
+    public static final Color PANEL_COLOR = new Color(35, 41, 79);      // Slightly lighter blue panels
+    public static final Color ACCENT_COLOR = new Color(255, 204, 0);    // Yellow accent
+    public static final Color TEXT_COLOR = new Color(255, 255, 255);    // White text
+    public static final Color SECONDARY_TEXT_COLOR = new Color(200, 200, 200); // Light gray text
+
+    // Fonts
+    public static final Font STATUS_FONT = new Font("SansSerif", Font.PLAIN, 12);
+    public static final Font BODY_FONT = new Font("SansSerif", Font.PLAIN, 14);
+    public static final Font BODY_BOLD_FONT = new Font("SansSerif", Font.BOLD, 14);
+    public static final Font DESCRIPTION_FONT = new Font("SansSerif", Font.PLAIN, 16);
+    public static final Font VALUE_FONT = new Font("SansSerif", Font.BOLD, 16);
+    public static final Font SECTION_TITLE_FONT = new Font("SansSerif", Font.BOLD, 18);
+    public static final Font CITY_FONT = new Font("SansSerif", Font.BOLD, 24);
+    public static final Font TEMPERATURE_FONT = new Font("SansSerif", Font.BOLD, 36);
+
+    private UIStyle() {
+    }
+}
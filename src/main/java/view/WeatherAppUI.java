@@ -5,43 +5,91 @@ import java.awt.Choice;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.FlowLayout;
-import java.awt.Font;
 import java.awt.Frame;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
 import java.awt.GridLayout;
 import java.awt.Image;
-import java.awt.Insets;
 import java.awt.Label;
 import java.awt.Panel;
-import java.awt.RenderingHints;
 import java.awt.TextField;
 import java.awt.event.ItemEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 
 import javax.imageio.ImageIO;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
+import javax.swing.Timer;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import controller.WeatherAPIService;
+import controller.AsyncWeatherService;
+import controller.BatchWeatherService;
+import controller.CitySuggestionService;
+import controller.GeocodeCache;
+import controller.ObservationRecorder;
+import controller.PersistentWeatherService;
+import controller.QuotaGovernor;
+import controller.RefreshScheduler;
+import controller.ResponseCache;
+import controller.SearchCoordinator;
+import controller.WeatherSearchSession;
+import controller.WeatherService;
+import controller.WeatherServices;
+import metrics.Metrics;
+import metrics.StageTimer;
+import model.AirQuality;
+import model.CitySuggestion;
 import model.DatabaseHandler;
+import model.Forecast;
 import model.WeatherData;
 
 public class WeatherAppUI extends Frame {
-    private final WeatherAPIService apiService;
+    private final WeatherServices services;
+    private final WeatherService apiService;
+    private final PersistentWeatherService persistentService;
+    private final AsyncWeatherService asyncService;
     private final DatabaseHandler dbHandler;
+    private final QuotaGovernor quotaGovernor;
+    private final GeocodeCache geocodeCache;
+    private final ObservationRecorder observationRecorder;
+    private BatchWeatherService batchService; // Created when the dashboard is first opened
+    private final RefreshScheduler refreshScheduler;
+    
+    // City currently on screen and kept fresh by the scheduler; only used on the event thread
+    private String displayedCity;
+    
+    // Cities kept refreshed in the background even when not shown, from -Dweather.pinned.cities
+    private final List<String> pinnedCities = parseCityList(System.getProperty("weather.pinned.cities", ""));
+    
+    // Stage metrics for what the user waits on; recorded only with -Dweather.metrics=true
+    private static final StageTimer SEARCH_TIMER = Metrics.timer("weather_search_seconds",
+            "Searches, from starting to both current weather and forecast being shown");
+    private static final StageTimer CURRENT_UPDATE = updateTimer("current");
+    private static final StageTimer HOURLY_UPDATE = updateTimer("hourly");
+    private static final StageTimer DAILY_UPDATE = updateTimer("daily");
+    private static final StageTimer HISTORY_UPDATE = updateTimer("history");
+    
+    // Dashboard settings, overridable with -D system properties
+    private static final int DASHBOARD_MAX_CITIES = 60;
+    private static final double DASHBOARD_REQUESTS_PER_SECOND =
+            Double.parseDouble(System.getProperty("weather.dashboard.rps", "1"));
+    private static final int DASHBOARD_CONCURRENCY =
+            Integer.getInteger("weather.dashboard.concurrency", 4);
+    
+    // Debounces searches and merges duplicates; the session it last started is the active one
+    private final SearchCoordinator searchCoordinator;
+    // The search whose results are allowed to update the UI
+    private volatile WeatherSearchSession activeSession;
     
     // UI Components
     private TextField searchField;
@@ -52,6 +100,9 @@ public class WeatherAppUI extends Frame {
     private Panel dailyForecastPanel;
     private Panel additionalInfoPanel;
     private Label statusLabel;
+    private LatencyOverlay latencyOverlay; // Only with -Dweather.metrics.overlay=true
+    private String statusMessage = "Ready";
+    private volatile String quotaSummary = ""; // Refreshed off the event thread after each API call
     
     // Weather info components
     private Label cityLabel;
@@ -63,48 +114,144 @@ public class WeatherAppUI extends Frame {
     private Label pressureLabel;
     private Label visibilityLabel;
     private Label airQualityLabel;
+    private Label uvIndexLabel;
+    private Label sunriseLabel;
+    private Label sunsetLabel;
+    private IconPanel weatherIconPanel;
+    
+    // Sun times are shifted to the city's local time and then formatted as UTC; event thread only
+    private final SimpleDateFormat sunTimeFormat = createUtcFormat("h:mm a");
+    // Shown in the detail cards until their own request returns for a newly shown city, and when
+    // the request failed or the data doesn't exist for the city
+    private static final String DETAIL_PENDING = "--";
+    private static final String DETAIL_UNAVAILABLE = "N/A";
     
-    // Weather icons
-    private Map<String, Image> weatherIcons = new HashMap<>();
+    // Weather icons, pre-rendered at each display size
+    private static final String[] ICON_TYPES = {"clear", "clouds", "rain", "snow", "thunderstorm", "mist", "partly_cloudy"};
+    private final IconAtlas iconAtlas = new IconAtlas(IconAtlas.LARGE, IconAtlas.SMALL);
     
-    // Colors
-    private final Color BACKGROUND_COLOR = new Color(25, 31, 69); // Dark blue background
-    private final Color PANEL_COLOR = new Color(35, 41, 79);      // Slightly lighter blue panels
-    private final Color ACCENT_COLOR = new Color(255, 204, 0);    // Yellow accent
-    private final Color TEXT_COLOR = new Color(255, 255, 255);    // White text
-    private final Color SECONDARY_TEXT_COLOR = new Color(200, 200, 200); // Light gray text
+    // Forecast cards are created once and rebound on every search
+    private final HourlyCardView[] hourlyCards = new HourlyCardView[8];
+    private final DailyCardView[] dailyCards = new DailyCardView[10];
+    
+    // History chart: the past week in 3-hour buckets, read from the hourly rollups
+    private static final int HISTORY_DAYS = 7;
+    private static final int HISTORY_BUCKET_SECONDS = 3 * 3600;
+    private TrendChartPanel historyChart;
+    private long historyCityId; // City the chart is showing or loading; only used on the event thread
+    
+    // Type-ahead: suggestions are looked up once typing pauses for SUGGESTION_DEBOUNCE_MS
+    private static final int SUGGESTION_DEBOUNCE_MS = 150;
+    private static final int MAX_SUGGESTIONS = 8;
+    private final CitySuggestionService suggestionService = new CitySuggestionService();
+    private SuggestionPopup suggestionPopup;
+    private Timer suggestionTimer;
+    // Text last set by the app rather than typed; AWT reports such changes later, like typing
+    private String programmaticSearchText;
+    
+    // Formats forecast data for the cards; only used on the event thread
+    private final ForecastCardBuilder cardBuilder = new ForecastCardBuilder();
     
     public WeatherAppUI() {
-        apiService = new WeatherAPIService();
-        dbHandler = new DatabaseHandler();
+        // Every endpoint shares the key's rate limit and monthly quota
+        services = new WeatherServices(new DatabaseHandler());
+        dbHandler = services.getDbHandler();
+        quotaGovernor = services.getQuotaGovernor();
+        quotaGovernor.setListener(governor -> {
+            quotaSummary = governor.describe();
+            EventQueue.invokeLater(this::refreshStatus);
+        });
+        geocodeCache = services.getGeocodeCache();
+        observationRecorder = services.getObservationRecorder();
+        persistentService = services.getPersistentService();
+        apiService = services.getApiService();
+        asyncService = new AsyncWeatherService(apiService);
+        searchCoordinator = new SearchCoordinator(asyncService,
+                session -> EventQueue.invokeLater(() -> showSearchResults(session)));
+        refreshScheduler = new RefreshScheduler(apiService);
         
-        loadWeatherIcons();
         setupUI();
+        loadWeatherIcons();
         loadLastSearchedCity();
+        loadCitySuggestions();
+        for (String pinnedCity : pinnedCities) {
+            refreshScheduler.watch(pinnedCity, pinnedRefreshListener);
+        }
         
         // Window closing event
         addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                StartupTimer.mark("first frame");
+            }
+            
+            // Nobody is looking at a minimized window, so stop polling until it comes back
+            @Override
+            public void windowIconified(WindowEvent e) {
+                refreshScheduler.pause();
+            }
+            
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                refreshScheduler.resume();
+            }
+            
             @Override
             public void windowClosing(WindowEvent e) {
-                dbHandler.closeConnection();
+                refreshScheduler.shutdown();
+                searchCoordinator.shutdown();
+                if (latencyOverlay != null) {
+                    latencyOverlay.stop();
+                }
+                asyncService.shutdown();
+                if (batchService != null) {
+                    batchService.shutdown();
+                }
+                services.shutdown();
                 dispose();
                 System.exit(0);
             }
         });
     }
     
+    // Decodes the icons in parallel off the event thread; icon panels draw a placeholder until then
     private void loadWeatherIcons() {
+        ImageIO.setUseCache(false); // Decode in memory rather than through a temp file
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[ICON_TYPES.length];
+        for (int i = 0; i < ICON_TYPES.length; i++) {
+            String type = ICON_TYPES[i];
+            loads[i] = CompletableFuture.runAsync(() -> loadWeatherIcon(type));
+        }
+        CompletableFuture.allOf(loads).thenRun(() -> EventQueue.invokeLater(() -> {
+            StartupTimer.mark("icons ready");
+            repaintIcons();
+        }));
+    }
+    
+    private void loadWeatherIcon(String type) {
+        // Load from the classpath so icons are found inside the packaged jar too
+        URL resource = WeatherAppUI.class.getResource("/icons/" + type + ".png");
+        if (resource == null) {
+            System.err.println("Weather icon not found: " + type);
+            return;
+        }
         try {
-            // Load weather icons from resources
-            String[] iconTypes = {"clear", "clouds", "rain", "snow", "thunderstorm", "mist", "partly_cloudy"};
-            for (String type : iconTypes) {
-                // Change this line to load from file system instead of resources
-                Image icon = ImageIO.read(new File("src/main/resources/icons/" + type + ".png"));
-                weatherIcons.put(type, icon);
+            Image icon = ImageIO.read(resource);
+            if (icon != null) {
+                iconAtlas.add(type, icon);
             }
         } catch (IOException e) {
-            System.err.println("Error loading weather icons: " + e.getMessage());
-            e.printStackTrace(); // Add this to get more detailed error information
+            System.err.println("Error loading weather icon " + type + ": " + e.getMessage());
+        }
+    }
+    
+    private void repaintIcons() {
+        weatherIconPanel.repaint();
+        for (ForecastCardView card : hourlyCards) {
+            card.repaintIcon();
+        }
+        for (ForecastCardView card : dailyCards) {
+            card.repaintIcon();
         }
     }
     
@@ -112,19 +259,19 @@ public class WeatherAppUI extends Frame {
         setTitle("Weather App");
         setSize(800, 700);
         setLayout(new BorderLayout(20, 20));
-        setBackground(BACKGROUND_COLOR);
+        setBackground(UIStyle.BACKGROUND_COLOR);
         currentWeatherPanel = createRoundedPanel();
         currentWeatherPanel.setLayout(new BorderLayout(20, 20));
-        currentWeatherPanel.setBackground(PANEL_COLOR);
+        currentWeatherPanel.setBackground(UIStyle.PANEL_COLOR);
 
         // Add padding to the current weather panel
         currentWeatherPanel = createRoundedPanel();
         currentWeatherPanel.setLayout(new BorderLayout(20, 20));
-        currentWeatherPanel.setBackground(PANEL_COLOR);
+        currentWeatherPanel.setBackground(UIStyle.PANEL_COLOR);
         
         // Add internal padding to the panel
         Panel currentWeatherInnerPanel = new Panel(new BorderLayout(20, 20));
-        currentWeatherInnerPanel.setBackground(PANEL_COLOR);
+        currentWeatherInnerPanel.setBackground(UIStyle.PANEL_COLOR);
         currentWeatherInnerPanel.add(Box.createHorizontalStrut(15), BorderLayout.WEST);
         currentWeatherInnerPanel.add(Box.createHorizontalStrut(15), BorderLayout.EAST);
         currentWeatherInnerPanel.add(Box.createVerticalStrut(15), BorderLayout.NORTH);
@@ -132,30 +279,30 @@ public class WeatherAppUI extends Frame {
         
         // Initialize weather info components
         Panel weatherInfoPanel = new Panel(new BorderLayout(15, 15));
-        weatherInfoPanel.setBackground(PANEL_COLOR);
+        weatherInfoPanel.setBackground(UIStyle.PANEL_COLOR);
         
         // City and temperature panel
         Panel mainWeatherPanel = new Panel(new BorderLayout(10, 10));
-        mainWeatherPanel.setBackground(PANEL_COLOR);
+        mainWeatherPanel.setBackground(UIStyle.PANEL_COLOR);
         
         cityLabel = new Label("", Label.LEFT);
-        cityLabel.setFont(new Font("SansSerif", Font.BOLD, 24));
-        cityLabel.setForeground(TEXT_COLOR);
+        cityLabel.setFont(UIStyle.CITY_FONT);
+        cityLabel.setForeground(UIStyle.TEXT_COLOR);
         
         temperatureLabel = new Label("", Label.LEFT);
-        temperatureLabel.setFont(new Font("SansSerif", Font.BOLD, 36));
-        temperatureLabel.setForeground(TEXT_COLOR);
+        temperatureLabel.setFont(UIStyle.TEMPERATURE_FONT);
+        temperatureLabel.setForeground(UIStyle.TEXT_COLOR);
         
         descriptionLabel = new Label("", Label.LEFT);
-        descriptionLabel.setFont(new Font("SansSerif", Font.PLAIN, 16));
-        descriptionLabel.setForeground(SECONDARY_TEXT_COLOR);
+        descriptionLabel.setFont(UIStyle.DESCRIPTION_FONT);
+        descriptionLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
         
         feelsLikeLabel = new Label("", Label.LEFT);
-        feelsLikeLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
-        feelsLikeLabel.setForeground(SECONDARY_TEXT_COLOR);
+        feelsLikeLabel.setFont(UIStyle.BODY_FONT);
+        feelsLikeLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
         
         Panel tempPanel = new Panel(new GridLayout(3, 1, 5, 5));
-        tempPanel.setBackground(PANEL_COLOR);
+        tempPanel.setBackground(UIStyle.PANEL_COLOR);
         tempPanel.add(cityLabel);
         tempPanel.add(temperatureLabel);
         tempPanel.add(descriptionLabel);
@@ -163,10 +310,8 @@ public class WeatherAppUI extends Frame {
         mainWeatherPanel.add(tempPanel, BorderLayout.CENTER);
         mainWeatherPanel.add(feelsLikeLabel, BorderLayout.SOUTH);
         
-        // Create a placeholder for the weather icon
-        Panel weatherIconPanel = new Panel();
-        weatherIconPanel.setPreferredSize(new Dimension(100, 100));
-        weatherIconPanel.setBackground(PANEL_COLOR);
+        // Weather icon, filled in once data arrives
+        weatherIconPanel = new IconPanel(iconAtlas, IconAtlas.LARGE, 0);
         
         // Add components to the weather info panel
         weatherInfoPanel.add(mainWeatherPanel, BorderLayout.CENTER);
@@ -175,53 +320,69 @@ public class WeatherAppUI extends Frame {
         currentWeatherInnerPanel.add(weatherInfoPanel, BorderLayout.CENTER);
         currentWeatherPanel.add(currentWeatherInnerPanel, BorderLayout.CENTER);
         
-        // Initialize additional info labels
-        humidityLabel = new Label("", Label.CENTER);
-        windLabel = new Label("", Label.CENTER);
-        pressureLabel = new Label("", Label.CENTER);
-        visibilityLabel = new Label("", Label.CENTER);
-        airQualityLabel = new Label("", Label.CENTER);
-        
         currentWeatherPanel.add(currentWeatherInnerPanel, BorderLayout.CENTER);
-        // Define fonts
-        Font defaultFont = new Font("SansSerif", Font.PLAIN, 14);
-        Font boldFont = new Font("SansSerif", Font.BOLD, 16);
-        Font titleFont = new Font("SansSerif", Font.BOLD, 24);
         
         // North panel - Search area
         Panel searchPanel = new Panel();
         searchPanel.setLayout(new FlowLayout(FlowLayout.CENTER, 15, 20));
-        searchPanel.setBackground(BACKGROUND_COLOR);
+        searchPanel.setBackground(UIStyle.BACKGROUND_COLOR);
         
         searchField = new TextField(20);
-        searchField.setFont(new Font("SansSerif", Font.PLAIN, 14));
-        searchField.setBackground(PANEL_COLOR);
-        searchField.setForeground(TEXT_COLOR);
+        searchField.setFont(UIStyle.BODY_FONT);
+        searchField.setBackground(UIStyle.PANEL_COLOR);
+        searchField.setForeground(UIStyle.TEXT_COLOR);
         
         searchButton = new Button("Search");
-        searchButton.setFont(new Font("SansSerif", Font.BOLD, 14));
-        searchButton.setBackground(ACCENT_COLOR);
+        searchButton.setFont(UIStyle.BODY_BOLD_FONT);
+        searchButton.setBackground(UIStyle.ACCENT_COLOR);
         searchButton.setForeground(Color.BLACK);
         searchButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
         
         recentSearchesDropdown = new Choice();
-        recentSearchesDropdown.setFont(new Font("SansSerif", Font.PLAIN, 14));
-        recentSearchesDropdown.setBackground(PANEL_COLOR);
-        recentSearchesDropdown.setForeground(TEXT_COLOR);
+        recentSearchesDropdown.setFont(UIStyle.BODY_FONT);
+        recentSearchesDropdown.setBackground(UIStyle.PANEL_COLOR);
+        recentSearchesDropdown.setForeground(UIStyle.TEXT_COLOR);
         recentSearchesDropdown.add("Recent Searches");
         
         // Change this variable name to avoid conflict with the class field
         Label cityPromptLabel = new Label("City:");
-        cityPromptLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-        cityPromptLabel.setForeground(TEXT_COLOR);
+        cityPromptLabel.setFont(UIStyle.BODY_BOLD_FONT);
+        cityPromptLabel.setForeground(UIStyle.TEXT_COLOR);
+        
+        Button dashboardButton = new Button("Dashboard");
+        dashboardButton.setFont(UIStyle.BODY_BOLD_FONT);
+        dashboardButton.setBackground(UIStyle.PANEL_COLOR);
+        dashboardButton.setForeground(UIStyle.TEXT_COLOR);
+        dashboardButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        dashboardButton.addActionListener(e -> openDashboard());
         
         searchButton.addActionListener(e -> searchWeather());
         searchField.addActionListener(e -> searchWeather());
         
+        // Type-ahead suggestions, debounced so fast typing only triggers one lookup
+        suggestionPopup = new SuggestionPopup(this, searchField, this::selectSuggestion);
+        suggestionTimer = new Timer(SUGGESTION_DEBOUNCE_MS, e -> showSuggestions());
+        suggestionTimer.setRepeats(false);
+        searchField.addTextListener(e -> {
+            if (!searchField.getText().equals(programmaticSearchText)) {
+                suggestionTimer.restart();
+            }
+        });
+        searchField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+                    suggestionPopup.focusList();
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    suggestionPopup.hide();
+                }
+            }
+        });
+        
         recentSearchesDropdown.addItemListener(e -> {
             if (e.getStateChange() == ItemEvent.SELECTED && recentSearchesDropdown.getSelectedIndex() > 0) {
                 String selectedCity = recentSearchesDropdown.getSelectedItem();
-                searchField.setText(selectedCity);
+                setSearchText(selectedCity);
                 searchWeather();
                 recentSearchesDropdown.select(0); // Reset to prompt
             }
@@ -234,70 +395,86 @@ public class WeatherAppUI extends Frame {
         searchPanel.add(searchField);
         searchPanel.add(searchButton);
         searchPanel.add(recentSearchesDropdown);
+        searchPanel.add(dashboardButton);
         
         // Main content panel with vertical layout and scrolling
         Panel contentPanel = new Panel();
         // Add more padding to the content panel
         contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        contentPanel.setBackground(BACKGROUND_COLOR);
+        contentPanel.setBackground(UIStyle.BACKGROUND_COLOR);
         
         // Improve scrolling with better padding
         java.awt.ScrollPane scrollPane = new java.awt.ScrollPane(java.awt.ScrollPane.SCROLLBARS_AS_NEEDED);
-        scrollPane.setBackground(BACKGROUND_COLOR);
+        scrollPane.setBackground(UIStyle.BACKGROUND_COLOR);
         scrollPane.add(contentPanel);
         scrollPane.setScrollPosition(0, 0);
         scrollPane.setWheelScrollingEnabled(true);
         
         // Create the missing containers
         Panel hourlyContainer = new Panel(new BorderLayout(0, 10));
-        hourlyContainer.setBackground(BACKGROUND_COLOR);
+        hourlyContainer.setBackground(UIStyle.BACKGROUND_COLOR);
         
         Label hourlyTitle = new Label("Hourly forecast", Label.LEFT);
-        hourlyTitle.setFont(new Font("SansSerif", Font.BOLD, 18));
-        hourlyTitle.setForeground(TEXT_COLOR);
+        hourlyTitle.setFont(UIStyle.SECTION_TITLE_FONT);
+        hourlyTitle.setForeground(UIStyle.TEXT_COLOR);
         
         hourlyForecastPanel = createRoundedPanel();
         hourlyForecastPanel.setLayout(new GridLayout(1, 8, 10, 10));
-        hourlyForecastPanel.setBackground(PANEL_COLOR);
+        hourlyForecastPanel.setBackground(UIStyle.PANEL_COLOR);
+        for (int i = 0; i < hourlyCards.length; i++) {
+            hourlyCards[i] = new HourlyCardView(iconAtlas);
+            hourlyCards[i].setVisible(false);
+            hourlyForecastPanel.add(hourlyCards[i]);
+        }
         
         hourlyContainer.add(hourlyTitle, BorderLayout.NORTH);
         hourlyContainer.add(hourlyForecastPanel, BorderLayout.CENTER);
         
         // Create the missing additional container
         Panel additionalContainer = new Panel(new BorderLayout(0, 10));
-        additionalContainer.setBackground(BACKGROUND_COLOR);
+        additionalContainer.setBackground(UIStyle.BACKGROUND_COLOR);
         
         // Add title for the additional info section
         Label additionalTitle = new Label("Additional Information", Label.LEFT);
-        additionalTitle.setFont(new Font("SansSerif", Font.BOLD, 18));
-        additionalTitle.setForeground(TEXT_COLOR);
+        additionalTitle.setFont(UIStyle.SECTION_TITLE_FONT);
+        additionalTitle.setForeground(UIStyle.TEXT_COLOR);
         additionalContainer.add(additionalTitle, BorderLayout.NORTH);
         
         additionalInfoPanel = createRoundedPanel();
         additionalInfoPanel.setLayout(new GridLayout(2, 4, 10, 10));
-        additionalInfoPanel.setBackground(PANEL_COLOR);
+        additionalInfoPanel.setBackground(UIStyle.PANEL_COLOR);
+        
+        // Info cards are built once; values are filled in as data arrives
+        humidityLabel = createInfoCard("Humidity", "");
+        windLabel = createInfoCard("Wind", "");
+        pressureLabel = createInfoCard("Pressure", "");
+        visibilityLabel = createInfoCard("Visibility", "");
+        airQualityLabel = createInfoCard("Air Quality", "");
+        uvIndexLabel = createInfoCard("UV Index", "");
+        sunriseLabel = createInfoCard("Sunrise", "");
+        sunsetLabel = createInfoCard("Sunset", "");
         
         // Add padding around the additional info panel using the same approach
         Panel additionalPaddingPanel = new Panel(new BorderLayout());
-        additionalPaddingPanel.setBackground(PANEL_COLOR);
+        additionalPaddingPanel.setBackground(UIStyle.PANEL_COLOR);
         additionalPaddingPanel.add(additionalInfoPanel, BorderLayout.CENTER);
         
         // Reuse the padding approach (create new panels for each container)
         Panel addWestPadding = new Panel();
         addWestPadding.setPreferredSize(new Dimension(15, 1));
-        addWestPadding.setBackground(PANEL_COLOR);
+        addWestPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel addEastPadding = new Panel();
         addEastPadding.setPreferredSize(new Dimension(15, 1));
-        addEastPadding.setBackground(PANEL_COLOR);
+        addEastPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel addNorthPadding = new Panel();
         addNorthPadding.setPreferredSize(new Dimension(1, 15));
-        addNorthPadding.setBackground(PANEL_COLOR);
+        addNorthPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel addSouthPadding = new Panel();
         addSouthPadding.setPreferredSize(new Dimension(1, 15));
-        addSouthPadding.setBackground(PANEL_COLOR);
+        addSouthPadding.setBackground(UIStyle.PANEL_COLOR);
         
         additionalPaddingPanel.add(addWestPadding, BorderLayout.WEST);
         additionalPaddingPanel.add(addEastPadding, BorderLayout.EAST);
@@ -308,37 +485,42 @@ public class WeatherAppUI extends Frame {
         
         // 10-day forecast panel
         Panel dailyContainer = new Panel(new BorderLayout(0, 10));
-        dailyContainer.setBackground(BACKGROUND_COLOR);
+        dailyContainer.setBackground(UIStyle.BACKGROUND_COLOR);
         
         Label dailyTitle = new Label("10-day forecast", Label.LEFT);
-        dailyTitle.setFont(new Font("SansSerif", Font.BOLD, 18));
-        dailyTitle.setForeground(TEXT_COLOR);
+        dailyTitle.setFont(UIStyle.SECTION_TITLE_FONT);
+        dailyTitle.setForeground(UIStyle.TEXT_COLOR);
         
         dailyForecastPanel = createRoundedPanel();
         dailyForecastPanel.setLayout(new GridLayout(5, 2, 10, 10));
-        dailyForecastPanel.setBackground(PANEL_COLOR);
+        dailyForecastPanel.setBackground(UIStyle.PANEL_COLOR);
+        for (int i = 0; i < dailyCards.length; i++) {
+            dailyCards[i] = new DailyCardView(iconAtlas);
+            dailyCards[i].setVisible(false);
+            dailyForecastPanel.add(dailyCards[i]);
+        }
         
         // Add padding around the daily forecast panel using the same approach
         Panel dailyPaddingPanel = new Panel(new BorderLayout());
-        dailyPaddingPanel.setBackground(PANEL_COLOR);
+        dailyPaddingPanel.setBackground(UIStyle.PANEL_COLOR);
         dailyPaddingPanel.add(dailyForecastPanel, BorderLayout.CENTER);
         
         // Create padding panels for daily forecast
         Panel dayWestPadding = new Panel();
         dayWestPadding.setPreferredSize(new Dimension(15, 1));
-        dayWestPadding.setBackground(PANEL_COLOR);
+        dayWestPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel dayEastPadding = new Panel();
         dayEastPadding.setPreferredSize(new Dimension(15, 1));
-        dayEastPadding.setBackground(PANEL_COLOR);
+        dayEastPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel dayNorthPadding = new Panel();
         dayNorthPadding.setPreferredSize(new Dimension(1, 15));
-        dayNorthPadding.setBackground(PANEL_COLOR);
+        dayNorthPadding.setBackground(UIStyle.PANEL_COLOR);
         
         Panel daySouthPadding = new Panel();
         daySouthPadding.setPreferredSize(new Dimension(1, 15));
-        daySouthPadding.setBackground(PANEL_COLOR);
+        daySouthPadding.setBackground(UIStyle.PANEL_COLOR);
         
         dailyPaddingPanel.add(dayWestPadding, BorderLayout.WEST);
         dailyPaddingPanel.add(dayEastPadding, BorderLayout.EAST);
@@ -348,75 +530,88 @@ public class WeatherAppUI extends Frame {
         dailyContainer.add(dailyTitle, BorderLayout.NORTH);
         dailyContainer.add(dailyPaddingPanel, BorderLayout.CENTER);
         
+        // Past week panel, filled in from the observation history
+        Panel historyContainer = new Panel(new BorderLayout(0, 10));
+        historyContainer.setBackground(UIStyle.BACKGROUND_COLOR);
+        
+        Label historyTitle = new Label("Past " + HISTORY_DAYS + " days", Label.LEFT);
+        historyTitle.setFont(UIStyle.SECTION_TITLE_FONT);
+        historyTitle.setForeground(UIStyle.TEXT_COLOR);
+        
+        historyChart = new TrendChartPanel();
+        historyContainer.add(historyTitle, BorderLayout.NORTH);
+        historyContainer.add(historyChart, BorderLayout.CENTER);
+        
         // Add all panels to content panel with spacing
         contentPanel.add(currentWeatherPanel);
         
         Panel spacer1 = new Panel();
         spacer1.setPreferredSize(new Dimension(getWidth(), 30));
-        spacer1.setBackground(BACKGROUND_COLOR);
+        spacer1.setBackground(UIStyle.BACKGROUND_COLOR);
         contentPanel.add(spacer1);
         
         contentPanel.add(hourlyContainer);
         
         Panel spacer2 = new Panel();
         spacer2.setPreferredSize(new Dimension(getWidth(), 30));
-        spacer2.setBackground(BACKGROUND_COLOR);
+        spacer2.setBackground(UIStyle.BACKGROUND_COLOR);
         contentPanel.add(spacer2);
         
         contentPanel.add(additionalContainer);
         
         Panel spacer3 = new Panel();
         spacer3.setPreferredSize(new Dimension(getWidth(), 30));
-        spacer3.setBackground(BACKGROUND_COLOR);
+        spacer3.setBackground(UIStyle.BACKGROUND_COLOR);
         contentPanel.add(spacer3);
         
         contentPanel.add(dailyContainer);
         
+        Panel spacer4 = new Panel();
+        spacer4.setPreferredSize(new Dimension(getWidth(), 30));
+        spacer4.setBackground(UIStyle.BACKGROUND_COLOR);
+        contentPanel.add(spacer4);
+        
+        contentPanel.add(historyContainer);
+        
         // Status bar
-        statusLabel = new Label("Ready", Label.LEFT);
-        statusLabel.setFont(new Font("SansSerif", Font.PLAIN, 12));
-        statusLabel.setForeground(SECONDARY_TEXT_COLOR);
+        statusLabel = new Label(statusMessage, Label.LEFT);
+        statusLabel.setFont(UIStyle.STATUS_FONT);
+        statusLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
         
         // Add panels to frame
         add("North", searchPanel);
         add("Center", scrollPane);
-        add("South", statusLabel);
+        if (Metrics.OVERLAY) {
+            latencyOverlay = new LatencyOverlay();
+            Panel southPanel = new Panel(new BorderLayout());
+            southPanel.setBackground(UIStyle.BACKGROUND_COLOR);
+            southPanel.add(latencyOverlay, BorderLayout.CENTER);
+            southPanel.add(statusLabel, BorderLayout.SOUTH);
+            add("South", southPanel);
+        } else {
+            add("South", statusLabel);
+        }
 
         setLocationRelativeTo(null);
         setVisible(true);
     }
     
     private Panel createRoundedPanel() {
-        return new Panel() {
-            @Override
-            public void paint(Graphics g) {
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2d.setColor(PANEL_COLOR);
-                g2d.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
-                super.paint(g);
-            }
-            
-            // Add insets to create padding inside the panel
-            @Override
-            public Insets getInsets() {
-                return new Insets(10, 10, 10, 10);
-            }
-        };
+        return new RoundedPanel();
     }
     
     private Label createInfoCard(String title, String value) {
         Panel card = createRoundedPanel();
         card.setLayout(new GridLayout(2, 1, 5, 5));
-        card.setBackground(PANEL_COLOR);
+        card.setBackground(UIStyle.PANEL_COLOR);
         
         Label titleLabel = new Label(title, Label.CENTER);
-        titleLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-        titleLabel.setForeground(SECONDARY_TEXT_COLOR);
+        titleLabel.setFont(UIStyle.BODY_BOLD_FONT);
+        titleLabel.setForeground(UIStyle.SECONDARY_TEXT_COLOR);
         
         Label valueLabel = new Label(value, Label.CENTER);
-        valueLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
-        valueLabel.setForeground(TEXT_COLOR);
+        valueLabel.setFont(UIStyle.VALUE_FONT);
+        valueLabel.setForeground(UIStyle.TEXT_COLOR);
         
         card.add(titleLabel);
         card.add(valueLabel);
@@ -427,342 +622,470 @@ public class WeatherAppUI extends Frame {
     }
     
     private void loadRecentSearches() {
+        asyncService.submit(() -> dbHandler.getRecentSearches(5))
+                .thenAccept(recentSearches -> EventQueue.invokeLater(() -> showRecentSearches(recentSearches)));
+    }
+    
+    private void showRecentSearches(List<String> recentSearches) {
         recentSearchesDropdown.removeAll();
         recentSearchesDropdown.add("Recent Searches");
         
-        List<String> recentSearches = dbHandler.getRecentSearches(5);
         for (String city : recentSearches) {
             recentSearchesDropdown.add(city);
         }
     }
     
+    // The city list index builds in the background; history is available as soon as it is read
+    private void loadCitySuggestions() {
+        asyncService.submit(() -> dbHandler.getRecentSearches(100)).thenAccept(suggestionService::setRecentCities);
+        suggestionService.loadIndex().thenAccept(index -> StartupTimer.mark("city index ready (" + index.size() + " cities)"));
+    }
+    
+    private void showSuggestions() {
+        suggestionPopup.show(suggestionService.suggest(searchField.getText(), MAX_SUGGESTIONS));
+    }
+    
+    // Cities from the list carry their ID and coordinates, so the API is queried by ID
+    // and no geocoding lookup is needed
+    private void selectSuggestion(CitySuggestion suggestion) {
+        String cityName = suggestion.toString();
+        if (suggestion.getCityId() != 0) {
+            geocodeCache.putCityId(cityName, suggestion.getCityId());
+        }
+        if (suggestion.getCoordinates() != null) {
+            geocodeCache.put(cityName, suggestion.getCoordinates());
+        }
+        setSearchText(cityName);
+        searchWeather();
+    }
+    
+    private void setSearchText(String text) {
+        programmaticSearchText = text;
+        searchField.setText(text);
+    }
+    
     private void loadLastSearchedCity() {
-        String lastCity = dbHandler.getLastSearchedCity();
-        if (lastCity != null && !lastCity.isEmpty()) {
-            searchField.setText(lastCity);
+        asyncService.submit(dbHandler::getLastSearchedCity).thenAccept(lastCity -> {
+            if (lastCity == null || lastCity.isEmpty()) {
+                return;
+            }
+            
+            // Paint whatever was stored last time before going to the network
+            WeatherData cachedWeather = persistentService.getStoredCurrentWeather(lastCity);
+            Forecast cachedForecastData = persistentService.getStoredForecast(lastCity);
+            showCachedThenRefresh(lastCity, cachedWeather, cachedForecastData);
+        });
+    }
+    
+    private void showCachedThenRefresh(String lastCity, WeatherData cachedWeather, Forecast cachedForecastData) {
+        EventQueue.invokeLater(() -> {
+            setSearchText(lastCity);
+            if (cachedWeather != null) {
+                showCurrentWeather(cachedWeather);
+            }
+            if (cachedForecastData != null) {
+                showForecast(cachedForecastData);
+            }
+            
+            // Revalidate in the background
             searchWeather();
+        });
+    }
+    
+    // Cities come from -Dweather.dashboard.cities (comma separated), or else the recent searches
+    private void openDashboard() {
+        if (batchService == null) {
+            batchService = new BatchWeatherService(apiService, DASHBOARD_CONCURRENCY, DASHBOARD_REQUESTS_PER_SECOND);
+        }
+        String configuredCities = System.getProperty("weather.dashboard.cities");
+        CompletableFuture<List<String>> cities = configuredCities != null
+                ? CompletableFuture.completedFuture(parseCityList(configuredCities))
+                : asyncService.submit(() -> dbHandler.getRecentSearches(DASHBOARD_MAX_CITIES));
+        cities.thenAccept(cityNames -> EventQueue.invokeLater(() -> {
+            if (cityNames.isEmpty()) {
+                setStatus("Search for a few cities first to fill the dashboard");
+                return;
+            }
+            new DashboardFrame(batchService, iconAtlas, cityNames);
+        }));
+    }
+    
+    // Keeps the shown city refreshed in the background and stops refreshing the previous one
+    private void watchDisplayedCity(WeatherSearchSession session) {
+        String cityName = session.getCityName();
+        if (displayedCity != null && !isSameCity(displayedCity, cityName)) {
+            if (isPinned(displayedCity)) {
+                refreshScheduler.watch(displayedCity, pinnedRefreshListener);
+            } else {
+                refreshScheduler.unwatch(displayedCity);
+            }
+        }
+        // Restarts the timers, since the search has just fetched everything
+        refreshScheduler.watch(cityName, displayedRefreshListener, session);
+        displayedCity = cityName;
+    }
+    
+    // Scheduler callbacks only reach the screen if the city is still the one displayed;
+    // unchanged values are already filtered out by the scheduler
+    private final RefreshScheduler.Listener displayedRefreshListener = new RefreshScheduler.Listener() {
+        @Override
+        public void onCurrentWeather(String cityName, WeatherData weatherData) {
+            applyIfDisplayed(cityName, () -> {
+                showCurrentWeather(weatherData);
+                setStatus("Weather for " + cityName + " refreshed automatically");
+            });
+        }
+        
+        @Override
+        public void onForecast(String cityName, Forecast forecast) {
+            applyIfDisplayed(cityName, () -> showForecast(forecast));
+        }
+        
+        @Override
+        public void onAirQuality(String cityName, AirQuality airQuality) {
+            applyIfDisplayed(cityName, () -> showAirQuality(airQuality));
+        }
+        
+        @Override
+        public void onUvIndex(String cityName, double uvIndex) {
+            applyIfDisplayed(cityName, () -> showUvIndex(uvIndex));
+        }
+        
+        @Override
+        public void onError(String cityName, Throwable error) {
+            System.err.println("Background refresh failed for " + cityName + ": " + error.getMessage());
+        }
+    };
+    
+    // Pinned cities that aren't shown just keep the caches and saved data warm
+    private final RefreshScheduler.Listener pinnedRefreshListener = new RefreshScheduler.Listener() {
+        @Override
+        public void onCurrentWeather(String cityName, WeatherData weatherData) {
+        }
+        
+        @Override
+        public void onForecast(String cityName, Forecast forecast) {
+        }
+        
+        @Override
+        public void onAirQuality(String cityName, AirQuality airQuality) {
+        }
+        
+        @Override
+        public void onUvIndex(String cityName, double uvIndex) {
         }
+        
+        @Override
+        public void onError(String cityName, Throwable error) {
+            System.err.println("Background refresh failed for " + cityName + ": " + error.getMessage());
+        }
+    };
+    
+    private void applyIfDisplayed(String cityName, Runnable update) {
+        EventQueue.invokeLater(() -> {
+            if (displayedCity != null && isSameCity(displayedCity, cityName)) {
+                update.run();
+            }
+        });
+    }
+    
+    private boolean isPinned(String cityName) {
+        for (String pinnedCity : pinnedCities) {
+            if (isSameCity(pinnedCity, cityName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isSameCity(String first, String second) {
+        return ResponseCache.normalizeKey(first).equals(ResponseCache.normalizeKey(second));
+    }
+    
+    private static List<String> parseCityList(String cities) {
+        List<String> cityNames = new ArrayList<>();
+        for (String cityName : cities.split(",")) {
+            if (!cityName.trim().isEmpty()) {
+                cityNames.add(cityName.trim());
+            }
+        }
+        return cityNames;
     }
     
     private void searchWeather() {
+        suggestionTimer.stop();
+        suggestionPopup.hide();
         String cityName = searchField.getText().trim();
         if (cityName.isEmpty()) {
-            statusLabel.setText("Error: Please enter a city name");
+            setStatus("Error: Please enter a city name");
             return;
         }
         
-        statusLabel.setText("Fetching weather data for " + cityName + "...");
+        setStatus("Fetching weather data for " + cityName + "...");
         
-        try {
-            // Get current weather
-            WeatherData weatherData = apiService.getCurrentWeather(cityName);
-            
-            // Update UI with weather data
-            cityLabel.setText(weatherData.getCityName());
-            temperatureLabel.setText(String.format("%.0f°", weatherData.getTemperature()));
-            descriptionLabel.setText(capitalizeFirst(weatherData.getWeatherDescription()));
-            feelsLikeLabel.setText("Feels like " + String.format("%.0f°", weatherData.getFeelsLike()));
-            humidityLabel.setText(weatherData.getHumidity() + "%");
-            
-            // Update additional info
-            updateAdditionalInfo(weatherData);
-            
-            // Get forecast data
-            updateHourlyForecast(cityName);
-            updateDailyForecast(cityName);
-            
-            // Update weather icon
-            updateWeatherIcon(weatherData.getWeatherDescription());
-            
-            // Save search to database
-            dbHandler.saveSearch(cityName);
-            
-            // Reload recent searches
-            loadRecentSearches();
-            
-            statusLabel.setText("Weather data updated successfully");
-        } catch (IOException e) {
-            statusLabel.setText("Error: " + e.getMessage());
-            System.err.println("Weather data fetch error: " + e.getMessage());
+        // Repeated taps and dropdown cycling are merged there; a newer search cancels the older one
+        searchCoordinator.search(cityName);
+    }
+    
+    // One session per search; current weather, forecast, air quality and UV are fetched concurrently
+    private void showSearchResults(WeatherSearchSession session) {
+        activeSession = session;
+        String cityName = session.getCityName();
+        long searchStart = SEARCH_TIMER.start();
+        
+        session.getCurrentWeather().whenComplete((weatherData, error) -> applyToUI(session, () -> {
+            if (error != null) {
+                Throwable cause = AsyncWeatherService.unwrap(error);
+                setStatus("Error: " + cause.getMessage());
+                System.err.println("Weather data fetch error: " + cause.getMessage());
+                return;
+            }
+            boolean newCity = displayedCity == null || !isSameCity(displayedCity, cityName);
+            showCurrentWeather(weatherData);
+            showDetailsAsTheyArrive(session, newCity);
+            watchDisplayedCity(session);
+        }));
+        
+        session.getForecast().whenComplete((forecastData, error) -> applyToUI(session, () -> {
+            if (error != null) {
+                setStatus("Error loading forecast: " + AsyncWeatherService.unwrap(error).getMessage());
+                return;
+            }
+            showForecast(forecastData);
+        }));
+        
+        // Save search to database and reload recent searches once the city is known to be valid
+        session.getCurrentWeather()
+                .thenCompose(weatherData -> asyncService.submit(() -> {
+                    // Committed, so the list below includes it; a failed save was already reported
+                    dbHandler.saveSearch(cityName).exceptionally(error -> null).join();
+                    return dbHandler.getRecentSearches(5);
+                }))
+                .thenAccept(recentSearches -> applyToUI(session, () -> showRecentSearches(recentSearches)));
+        
+        CompletableFuture.allOf(session.getCurrentWeather(), session.getForecast())
+                .thenRun(() -> applyToUI(session, () -> {
+                    SEARCH_TIMER.stop(searchStart);
+                    if (persistentService.isServingStale(cityName)) {
+                        setStatus("Offline: showing saved weather data for " + cityName);
+                    } else {
+                        setStatus("Weather data updated successfully");
+                    }
+                }));
+    }
+    
+    // Air quality and UV fill in their cards independently, once the city is known to be valid. A
+    // different city's values are cleared first; the same city's stay up until the new ones arrive.
+    private void showDetailsAsTheyArrive(WeatherSearchSession session, boolean newCity) {
+        if (newCity) {
+            airQualityLabel.setText(DETAIL_PENDING);
+            uvIndexLabel.setText(DETAIL_PENDING);
         }
+        session.getAirQuality().whenComplete((airQuality, error) -> applyToUI(session, () -> {
+            if (error != null) {
+                airQualityLabel.setText(DETAIL_UNAVAILABLE);
+                System.err.println("Air quality fetch error: " + AsyncWeatherService.unwrap(error).getMessage());
+            } else {
+                showAirQuality(airQuality);
+            }
+        }));
+        session.getUvIndex().whenComplete((uvIndex, error) -> applyToUI(session, () -> {
+            if (error != null) {
+                uvIndexLabel.setText(DETAIL_UNAVAILABLE);
+                System.err.println("UV index fetch error: " + AsyncWeatherService.unwrap(error).getMessage());
+            } else {
+                showUvIndex(uvIndex);
+            }
+        }));
     }
     
-    private void updateAdditionalInfo(WeatherData weatherData) {
-        // Clear previous info cards
-        additionalInfoPanel.removeAll();
+    private void showCurrentWeather(WeatherData weatherData) {
+        long start = CURRENT_UPDATE.start();
+        // Update UI with weather data
+        cityLabel.setText(weatherData.getCityName());
+        temperatureLabel.setText(String.format("%.0f°", weatherData.getTemperature()));
+        descriptionLabel.setText(capitalizeFirst(weatherData.getWeatherDescription()));
+        feelsLikeLabel.setText("Feels like " + String.format("%.0f°", weatherData.getFeelsLike()));
+        humidityLabel.setText(weatherData.getHumidity() + "%");
+        
+        // Update additional info
+        updateAdditionalInfo(weatherData);
+        
+        // Update weather icon
+        updateWeatherIcon(weatherData);
         
-        // Create info cards for each piece of additional information
-        humidityLabel = createInfoCard("Humidity", weatherData.getHumidity() + "%");
+        loadHistory(weatherData.getCityId());
+        
+        CURRENT_UPDATE.stop(start);
+        StartupTimer.mark("first data paint");
+    }
+    
+    // Reloaded with every observation shown, so the chart picks up the one just recorded
+    private void loadHistory(long cityId) {
+        historyCityId = cityId;
+        if (cityId == 0) {
+            historyChart.setData(new ArrayList<>(), 0, 0, HISTORY_BUCKET_SECONDS);
+            return;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long to = (now / HISTORY_BUCKET_SECONDS + 1) * HISTORY_BUCKET_SECONDS;
+        long from = to - HISTORY_DAYS * 24 * 3600L;
+        asyncService.submit(() -> observationRecorder.getBuckets(cityId, from, to, HISTORY_BUCKET_SECONDS))
+                .thenAccept(buckets -> EventQueue.invokeLater(() -> {
+                    if (historyCityId == cityId) {
+                        long start = HISTORY_UPDATE.start();
+                        historyChart.setData(buckets, from, to, HISTORY_BUCKET_SECONDS);
+                        HISTORY_UPDATE.stop(start);
+                    }
+                }));
+    }
+    
+    private void showForecast(Forecast forecastData) {
+        updateHourlyForecast(forecastData);
+        updateDailyForecast(forecastData);
+    }
+    
+    // Status messages are followed by the live API quota usage
+    private void setStatus(String message) {
+        statusMessage = message;
+        refreshStatus();
+    }
+    
+    private void refreshStatus() {
+        statusLabel.setText(quotaSummary.isEmpty() ? statusMessage : statusMessage + "   |   " + quotaSummary);
+    }
+    
+    // Runs a UI update on the event thread, unless a newer search has superseded the session
+    private void applyToUI(WeatherSearchSession session, Runnable update) {
+        EventQueue.invokeLater(() -> {
+            if (session == activeSession && !session.isCancelled()) {
+                update.run();
+            }
+        });
+    }
+    
+    private void updateAdditionalInfo(WeatherData weatherData) {
+        // Cards were built in setupUI; only their values change
+        humidityLabel.setText(weatherData.getHumidity() + "%");
         
         // Update wind (convert from m/s to mph for display)
         double windSpeedMph = weatherData.getWindSpeed() * 2.237;
-        windLabel = createInfoCard("Wind", String.format("%.1f mph", windSpeedMph));
+        windLabel.setText(String.format("%.1f mph", windSpeedMph));
         
         // Update pressure (convert from hPa to inHg for display)
         double pressureInHg = weatherData.getPressure() * 0.02953;
-        pressureLabel = createInfoCard("Pressure", String.format("%.2f inHg", pressureInHg));
+        pressureLabel.setText(String.format("%.2f inHg", pressureInHg));
         
         // Update visibility (convert from meters to miles)
         double visibilityMiles = weatherData.getVisibility() / 1609.34;
-        visibilityLabel = createInfoCard("Visibility", String.format("%.1f mi", visibilityMiles));
-        
-        // Air quality (this would need to be added to your API service)
-        // For now, we'll use a placeholder
-        airQualityLabel = createInfoCard("Air Quality", "Good");
-        
-        // Add more info cards if needed
-        createInfoCard("UV Index", "Low");
-        createInfoCard("Sunrise", "6:45 AM");
-        createInfoCard("Sunset", "7:30 PM");
+        visibilityLabel.setText(String.format("%.1f mi", visibilityMiles));
         
-        additionalInfoPanel.revalidate();
-        additionalInfoPanel.repaint();
+        // Sun times come with the current weather, in the city's own time; air quality and UV
+        // are filled in by their own requests
+        sunriseLabel.setText(formatSunTime(weatherData.getSunrise(), weatherData.getTimezoneOffsetSeconds()));
+        sunsetLabel.setText(formatSunTime(weatherData.getSunset(), weatherData.getTimezoneOffsetSeconds()));
     }
     
-    private void updateWeatherIcon(String description) {
-        // Improve icon selection logic to be more accurate
-        String iconKey = "clear"; // Default
-        
-        description = description.toLowerCase();
-        
-        // First check description for specific weather conditions
-        if (description.contains("overcast") || description.contains("broken clouds")) {
-            iconKey = "clouds"; // Full cloud cover
-        } else if (description.contains("cloud")) {
-            if (description.contains("scattered") || description.contains("few")) {
-                iconKey = "partly_cloudy";
-            } else {
-                iconKey = "clouds";
-            }
-        } else if (description.contains("rain") || description.contains("drizzle")) {
-            iconKey = "rain";
-        } else if (description.contains("snow")) {
-            iconKey = "snow";
-        } else if (description.contains("thunder")) {
-            iconKey = "thunderstorm";
-        } else if (description.contains("mist") || description.contains("fog")) {
-            iconKey = "mist";
-        } else if (description.contains("clear")) {
-            iconKey = "clear";
+    // The index label, with the fine particle concentration that usually drives it
+    private void showAirQuality(AirQuality airQuality) {
+        double pm25 = airQuality.getComponent("pm2_5");
+        if (!airQuality.isKnown()) {
+            airQualityLabel.setText(DETAIL_UNAVAILABLE);
+        } else if (Double.isNaN(pm25)) {
+            airQualityLabel.setText(airQuality.getLabel());
+        } else {
+            airQualityLabel.setText(String.format("%s (PM2.5 %.0f)", airQuality.getLabel(), pm25));
         }
-        
-        // For Antarctica or very cold places, override with clouds if temperature is very low
-        try {
-            WeatherData currentData = apiService.getCurrentWeather(cityLabel.getText());
-            if (currentData.getTemperature() < -20) {
-                iconKey = "clouds"; // Very cold places typically have cloud cover
-            }
-        } catch (IOException e) {
-            // Fallback to default if we can't get temperature
+    }
+    
+    // WHO exposure categories
+    private void showUvIndex(double uvIndex) {
+        if (Double.isNaN(uvIndex)) {
+            uvIndexLabel.setText(DETAIL_UNAVAILABLE);
+            return;
         }
+        long rounded = Math.round(uvIndex);
+        String category;
+        if (rounded <= 2) {
+            category = "Low";
+        } else if (rounded <= 5) {
+            category = "Moderate";
+        } else if (rounded <= 7) {
+            category = "High";
+        } else if (rounded <= 10) {
+            category = "Very High";
+        } else {
+            category = "Extreme";
+        }
+        uvIndexLabel.setText(rounded + " " + category);
+    }
+    
+    // No sunrise or sunset during polar day or night
+    private String formatSunTime(long epochSeconds, int timezoneOffsetSeconds) {
+        if (epochSeconds == 0) {
+            return "None";
+        }
+        return sunTimeFormat.format(new Date((epochSeconds + timezoneOffsetSeconds) * 1000L));
+    }
+    
+    private void updateWeatherIcon(WeatherData weatherData) {
+        // Resolved once per update; the icon panel only draws the pre-rendered image
+        String iconKey = ForecastCardBuilder.getIconKeyFromDescription(weatherData.getWeatherDescription().toLowerCase());
         
-        final String finalIconKey = iconKey;
-        
-        // Find the weather icon panel inside the currentWeatherInnerPanel
-        Panel currentWeatherInnerPanel = (Panel) currentWeatherPanel.getComponent(0);
-        Panel weatherInfoPanel = (Panel) currentWeatherInnerPanel.getComponent(4); // Get the weatherInfoPanel
-        
-        // Create a new weather icon panel
-        Panel weatherIconPanel = new Panel() {
-            @Override
-            public void paint(Graphics g) {
-                super.paint(g);
-                if (weatherIcons.containsKey(finalIconKey)) {
-                    g.drawImage(weatherIcons.get(finalIconKey), 0, 0, 100, 100, this);
-                }
-            }
-        };
-        weatherIconPanel.setPreferredSize(new Dimension(100, 100));
-        weatherIconPanel.setBackground(PANEL_COLOR);
-        
-        // Replace the existing icon panel or add a new one
-        try {
-            weatherInfoPanel.add(weatherIconPanel, BorderLayout.EAST);
-        } catch (Exception e) {
-            // If there's an error, try to add it to the currentWeatherPanel directly
-            currentWeatherPanel.add(weatherIconPanel, BorderLayout.EAST);
+        // For Antarctica or very cold places, override with clouds if temperature is very low
+        if (weatherData.getTemperature() < -20) {
+            iconKey = "clouds"; // Very cold places typically have cloud cover
         }
         
-        // Refresh the UI
-        weatherInfoPanel.revalidate();
-        weatherInfoPanel.repaint();
-        currentWeatherPanel.revalidate();
-        currentWeatherPanel.repaint();
+        weatherIconPanel.setIconKey(iconKey);
     }
     
-    private void updateHourlyForecast(String cityName) {
+    private void updateHourlyForecast(Forecast forecastData) {
+        long start = HOURLY_UPDATE.start();
         try {
-            JSONObject forecastData = apiService.getForecast(cityName);
-            JSONArray forecastList = forecastData.getJSONArray("list");
-            
-            // Clear previous forecast
-            hourlyForecastPanel.removeAll();
-            
             // We'll display 8 hourly points
-            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
-            
-            for (int i = 0; i < 8; i++) {
-                if (i < forecastList.length()) {
-                    JSONObject timepoint = forecastList.getJSONObject(i);
-                    
-                    JSONObject main = timepoint.getJSONObject("main");
-                    JSONArray weatherArray = timepoint.getJSONArray("weather");
-                    JSONObject weather = weatherArray.getJSONObject(0);
-                    String timestamp = timepoint.getString("dt_txt");
-                    
-                    // Parse timestamp
-                    Date forecastTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(timestamp);
-                    String time = timeFormat.format(forecastTime);
-                    
-                    // Create hourly forecast card
-                    Panel card = createRoundedPanel();
-                    card.setLayout(new GridLayout(3, 1, 5, 5));
-                    card.setBackground(PANEL_COLOR);
-                    
-                    Label timeLabel = new Label(time, Label.CENTER);
-                    timeLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
-                    timeLabel.setForeground(TEXT_COLOR);
-                    
-                    // Weather icon panel
-                    final String weatherDesc = weather.getString("description").toLowerCase();
-                    Panel iconPanel = new Panel() {
-                        @Override
-                        public void paint(Graphics g) {
-                            super.paint(g);
-                            String iconKey = getIconKeyFromDescription(weatherDesc);
-                            if (weatherIcons.containsKey(iconKey)) {
-                                g.drawImage(weatherIcons.get(iconKey), 10, 0, 30, 30, this);
-                            }
-                        }
-                    };
-                    iconPanel.setPreferredSize(new Dimension(50, 30));
-                    
-                    Label tempLabel = new Label(String.format("%.0f°", main.getDouble("temp")), Label.CENTER);
-                    tempLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
-                    tempLabel.setForeground(TEXT_COLOR);
-                    
-                    card.add(timeLabel);
-                    card.add(iconPanel);
-                    card.add(tempLabel);
-                    
-                    hourlyForecastPanel.add(card);
-                }
-            }
-            
-            hourlyForecastPanel.revalidate();
-            hourlyForecastPanel.repaint();
-            
+            bindCards(hourlyCards, cardBuilder.buildHourlyCards(forecastData, hourlyCards.length));
         } catch (Exception e) {
-            statusLabel.setText("Error loading hourly forecast: " + e.getMessage());
+            setStatus("Error loading hourly forecast: " + e.getMessage());
+        } finally {
+            HOURLY_UPDATE.stop(start);
         }
     }
     
-    private void updateDailyForecast(String cityName) {
+    private void updateDailyForecast(Forecast forecastData) {
+        long start = DAILY_UPDATE.start();
         try {
-            JSONObject forecastData = apiService.getForecast(cityName);
-            JSONArray forecastList = forecastData.getJSONArray("list");
-            
-            // Clear previous forecast
-            dailyForecastPanel.removeAll();
-            
-            // We'll display 10 days (we'll need to group by day)
-            SimpleDateFormat dayFormat = new SimpleDateFormat("E");
-            SimpleDateFormat dateFormat = new SimpleDateFormat("M/d");
-            
-            // For demo purposes, we'll just show the same day multiple times
-            // In a real app, you'd need to group by day and calculate min/max temps
-            for (int i = 0; i < 10; i++) {
-                int index = Math.min(i * 8, forecastList.length() - 1);
-                if (index < forecastList.length()) {
-                    JSONObject timepoint = forecastList.getJSONObject(index);
-                    
-                    JSONObject main = timepoint.getJSONObject("main");
-                    JSONArray weatherArray = timepoint.getJSONArray("weather");
-                    JSONObject weather = weatherArray.getJSONObject(0);
-                    String timestamp = timepoint.getString("dt_txt");
-                    
-                    // Parse timestamp
-                    Date forecastDate = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(timestamp);
-                    String day = dayFormat.format(forecastDate);
-                    String date = dateFormat.format(forecastDate);
-                    
-                    // Create daily forecast card
-                    Panel card = createRoundedPanel();
-                    card.setLayout(new GridLayout(1, 4, 15, 5)); // Increase horizontal padding
-                    card.setBackground(PANEL_COLOR);
-                    
-                    Label dayLabel = new Label(day, Label.LEFT);
-                    dayLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
-                    dayLabel.setForeground(TEXT_COLOR);
-                    
-                    Label dateLabel = new Label(date, Label.LEFT);
-                    dateLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
-                    dateLabel.setForeground(SECONDARY_TEXT_COLOR);
-                    
-                    // Weather icon panel
-                    final String weatherDesc = weather.getString("description").toLowerCase();
-                    Panel iconPanel = new Panel() {
-                        @Override
-                        public void paint(Graphics g) {
-                            super.paint(g);
-                            String iconKey = getIconKeyFromDescription(weatherDesc);
-                            if (weatherIcons.containsKey(iconKey)) {
-                                g.drawImage(weatherIcons.get(iconKey), 0, 0, 30, 30, this);
-                            }
-                        }
-                    };
-                    
-                    // Temperature range
-                    double maxTemp = main.getDouble("temp_max");
-                    double minTemp = main.getDouble("temp_min");
-                    Label tempLabel = new Label(String.format("%.0f° / %.0f°", maxTemp, minTemp), Label.RIGHT);
-                    tempLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-                    tempLabel.setForeground(TEXT_COLOR);
-                    
-                    Panel dayDatePanel = new Panel(new GridLayout(2, 1));
-                    dayDatePanel.setBackground(PANEL_COLOR);
-                    dayDatePanel.add(dayLabel);
-                    dayDatePanel.add(dateLabel);
-                    
-                    card.add(dayDatePanel);
-                    card.add(iconPanel);
-                    card.add(new Label("", Label.CENTER)); // Spacer
-                    card.add(tempLabel);
-                    
-                    dailyForecastPanel.add(card);
-                }
-            }
-            
-            dailyForecastPanel.revalidate();
-            dailyForecastPanel.repaint();
-            
+            // We'll display up to 10 days
+            bindCards(dailyCards, cardBuilder.buildDailyCards(forecastData, dailyCards.length));
         } catch (Exception e) {
-            statusLabel.setText("Error loading daily forecast: " + e.getMessage());
+            setStatus("Error loading daily forecast: " + e.getMessage());
+        } finally {
+            DAILY_UPDATE.stop(start);
         }
     }
     
-    private String getIconKeyFromDescription(String description) {
-        if (description.contains("overcast") || description.contains("broken clouds")) {
-            return "clouds"; // Full cloud cover
-        } else if (description.contains("cloud")) {
-            if (description.contains("scattered") || description.contains("few")) {
-                return "partly_cloudy";
+    // Rebinds the recycled cards in place; cards without data are hidden rather than removed
+    private void bindCards(ForecastCardView[] views, List<ForecastCard> cards) {
+        for (int i = 0; i < views.length; i++) {
+            if (i < cards.size()) {
+                views[i].bind(cards.get(i));
+                views[i].setVisible(true);
             } else {
-                return "clouds";
+                views[i].setVisible(false);
             }
-        } else if (description.contains("rain") || description.contains("drizzle")) {
-            return "rain";
-        } else if (description.contains("snow")) {
-            return "snow";
-        } else if (description.contains("thunder")) {
-            return "thunderstorm";
-        } else if (description.contains("mist") || description.contains("fog")) {
-            return "mist";
-        } else {
-            return "clear";
         }
     }
     
+    private static SimpleDateFormat createUtcFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+    
+    private static StageTimer updateTimer(String panel) {
+        return Metrics.timer("weather_ui_update_seconds", "Rebuilds of a panel on the event thread", "panel", panel);
+    }
+    
     private String capitalizeFirst(String text) {
         if (text == null || text.isEmpty()) {
             return text;
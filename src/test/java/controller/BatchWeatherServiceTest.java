@@ -0,0 +1,155 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.WeatherData;
+
+// Fetches batches of cities against the stub server, which echoes the requested cities with a
+// stable ID each and adds a fixed latency to every call
+public class BatchWeatherServiceTest {
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final String GROUP_PATH = "/data/2.5/group";
+    private static final long LATENCY_MILLIS = 50;
+
+    private StubWeatherServer server;
+    private WeatherAPIService apiService;
+    private BatchWeatherService batchService;
+
+    // Collects what the listener is told, and when
+    private static class Results implements BatchWeatherService.Listener {
+        private final Map<String, WeatherData> results = new ConcurrentHashMap<>();
+        private final Map<String, Throwable> errors = new ConcurrentHashMap<>();
+        private final List<Long> arrivalNanos = new ArrayList<>();
+
+        @Override
+        public void onResult(String cityName, WeatherData weatherData) {
+            results.put(cityName, weatherData);
+            arrived();
+        }
+
+        @Override
+        public void onError(String cityName, Throwable error) {
+            errors.put(cityName, error);
+            arrived();
+        }
+
+        private synchronized void arrived() {
+            arrivalNanos.add(System.nanoTime());
+        }
+
+        synchronized long firstArrivalNanos() {
+            return arrivalNanos.get(0);
+        }
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubWeatherServer();
+        String current = Fixtures.load(Fixtures.CURRENT);
+        server.serve(WEATHER_PATH, query -> {
+            String cityName = StubWeatherServer.queryParameter(query, "q");
+            return new JSONObject(current).put("name", cityName).put("id", cityId(cityName)).toString();
+        });
+        server.serve(GROUP_PATH, query -> {
+            JSONArray list = new JSONArray();
+            for (String id : StubWeatherServer.queryParameter(query, "id").split(",")) {
+                list.put(new JSONObject(current).put("name", "City " + id).put("id", Long.parseLong(id)));
+            }
+            return new JSONObject().put("cnt", list.length()).put("list", list).toString();
+        });
+        server.setLatencyMillis(LATENCY_MILLIS);
+        apiService = new WeatherAPIService(server.getBaseUrl());
+    }
+
+    @After
+    public void stopServer() {
+        if (batchService != null) {
+            batchService.shutdown();
+        }
+        server.close();
+    }
+
+    @Test
+    public void citiesWithKnownIdsAreGroupedTwentyPerCall() throws Exception {
+        batchService = new BatchWeatherService(apiService, 8, 1000);
+        List<String> cities = cities(45);
+
+        // Nothing is known yet, so every city is fetched on its own and its ID remembered
+        Results first = fetchAll(cities);
+        assertEquals(45, first.results.size());
+        assertEquals(45, server.getCallCount(WEATHER_PATH));
+        assertEquals(0, server.getCallCount(GROUP_PATH));
+
+        Results second = fetchAll(cities);
+        assertEquals(45, server.getCallCount(WEATHER_PATH));
+        assertEquals("group calls for 20 + 20 + 5 cities", 3, server.getCallCount(GROUP_PATH));
+        assertTrue(second.errors.isEmpty());
+        for (String cityName : cities) {
+            assertEquals(cityName, cityId(cityName), second.results.get(cityName).getCityId());
+        }
+    }
+
+    @Test
+    public void duplicateCitiesAreFetchedOnce() throws Exception {
+        batchService = new BatchWeatherService(apiService, 8, 1000);
+        Results results = fetchAll(Arrays.asList("London", " london ", "Paris", "LONDON"));
+        assertEquals(2, server.getCallCount(WEATHER_PATH));
+        assertEquals(2, results.results.size());
+    }
+
+    @Test
+    public void eachCityIsReportedAsSoonAsItsCallCompletes() throws Exception {
+        batchService = new BatchWeatherService(apiService, 4, 1000);
+        long start = System.nanoTime();
+        Results results = fetchAll(cities(20));
+        long finished = System.nanoTime();
+        // Five rounds of four calls; the first round is reported long before the last one ends
+        assertTrue(finished - results.firstArrivalNanos() >= TimeUnit.MILLISECONDS.toNanos(3 * LATENCY_MILLIS));
+        assertTrue(results.firstArrivalNanos() - start < TimeUnit.MILLISECONDS.toNanos(3 * LATENCY_MILLIS));
+    }
+
+    @Test
+    public void callsStayUnderTheRequestsPerSecondCeiling() throws Exception {
+        server.setLatencyMillis(0);
+        batchService = new BatchWeatherService(apiService, 8, 20);
+        long start = System.nanoTime();
+        fetchAll(cities(21));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // The first call starts at once and the other 20 are spaced 50 ms apart
+        assertTrue("21 calls at 20 per second took " + elapsedMillis + " ms", elapsedMillis >= 950);
+    }
+
+    private Results fetchAll(List<String> cityNames) throws Exception {
+        Results results = new Results();
+        batchService.fetchAll(cityNames, results).get(1, TimeUnit.MINUTES);
+        return results;
+    }
+
+    private static List<String> cities(int count) {
+        List<String> cities = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cities.add("City " + i);
+        }
+        return cities;
+    }
+
+    // Stable fake OpenWeatherMap ID for a city name
+    private static long cityId(String cityName) {
+        return (cityName.toLowerCase().hashCode() & 0x7fffffffL) % 10_000_000L + 1;
+    }
+}
@@ -0,0 +1,58 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.WeatherData;
+
+// The stub server answers a search for "Munich" with the API's own name for the city, and the
+// group endpoint with a newer reading for the same city ID
+public class CachingWeatherServiceTest {
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final String GROUP_PATH = "/data/2.5/group";
+    private static final long CITY_ID = 2867714;
+
+    private StubWeatherServer server;
+    private CachingWeatherService cachingService;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubWeatherServer();
+        JSONObject current = new JSONObject(Fixtures.load(Fixtures.CURRENT)).put("name", "München").put("id", CITY_ID);
+        server.serve(WEATHER_PATH, current.toString());
+        JSONObject newer = new JSONObject(current.toString());
+        newer.getJSONObject("main").put("temp", 21.5);
+        server.serve(GROUP_PATH, new JSONObject().put("cnt", 1).put("list", new JSONArray().put(newer)).toString());
+        cachingService = new CachingWeatherService(new WeatherAPIService(server.getBaseUrl()));
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void groupResultsRefreshTheSearchedCity() throws IOException {
+        cachingService.getCurrentWeather("Munich");
+        cachingService.getCurrentWeatherGroup(new long[] {CITY_ID});
+
+        WeatherData cached = cachingService.getCurrentWeather(" munich ");
+        assertEquals(21.5, cached.getTemperature(), 0);
+        assertEquals(1, server.getCallCount(WEATHER_PATH));
+        assertNull("cached under the API's name", cachingService.getCurrentWeatherCache().getIfPresent("münchen"));
+    }
+
+    @Test
+    public void groupResultsForCitiesNeverSearchedAreNotCached() throws IOException {
+        cachingService.getCurrentWeatherGroup(new long[] {CITY_ID});
+        assertEquals(0, cachingService.getCurrentWeatherCache().size());
+    }
+}
@@ -0,0 +1,99 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import model.CitySuggestion;
+
+// Loads city lists shaped like OpenWeatherMap's city.list.json, both from a string and streamed
+// from gzip, and checks that both ways build the same index
+public class CityIndexTest {
+    // Names with quotes, escapes, brackets and non-ASCII text, which the streamed reader has to
+    // keep inside one element; plus fields the index doesn't use, nested or not
+    private static final String CITY_LIST = "[\n"
+            + "  {\"id\": 2643743, \"name\": \"London\", \"state\": \"\", \"country\": \"GB\","
+            + " \"coord\": {\"lon\": -0.12574, \"lat\": 51.50853}},\n"
+            + "  {\"id\": 6058560, \"name\": \"London\", \"state\": \"ON\", \"country\": \"CA\","
+            + " \"coord\": {\"lon\": -81.23304, \"lat\": 42.983391}},\n"
+            + "  {\"id\": 2867714, \"name\": \"M\\u00fcnchen\", \"country\": \"DE\","
+            + " \"coord\": {\"lon\": 11.57549, \"lat\": 48.137428}, \"langs\": [{\"de\": \"München\"}]},\n"
+            + "  {\"id\": 1, \"name\": \"Quote \\\" and ] and } and , city\", \"country\": \"\"},\n"
+            + "  {\"id\": 1850147, \"name\": \"東京\", \"country\": \"JP\","
+            + " \"coord\": {\"lon\": 139.691711, \"lat\": 35.689499}},\n"
+            + "  {\"id\": 2, \"country\": \"XX\"}\n"
+            + "]";
+
+    @Test
+    public void streamedListMatchesParsedString() throws IOException {
+        CityIndex parsed = CityIndex.parse(CITY_LIST);
+        CityIndex streamed = CityIndex.loadGzip(gzip(CITY_LIST));
+        assertEquals("the city without a name is skipped", 5, parsed.size());
+        assertEquals(parsed.size(), streamed.size());
+        for (String prefix : new String[] {"lon", "mü", "quote \"", "東", "x"}) {
+            assertEquals(prefix, describe(parsed.suggest(prefix, 10)), describe(streamed.suggest(prefix, 10)));
+        }
+        assertEquals("[2643743 London, GB 51.50853, 6058560 London, CA 42.98339]",
+                describe(streamed.suggest("LON", 10)).toString());
+        assertEquals("[1 Quote \" and ] and } and , city null]", describe(streamed.suggest("quote", 10)).toString());
+    }
+
+    @Test
+    public void largeListIsStreamedAcrossBufferBoundaries() throws IOException {
+        JSONArray cities = new JSONArray();
+        for (int i = 0; i < 20000; i++) {
+            cities.put(new JSONObject().put("id", i + 1).put("name", "City " + i).put("country", "GB")
+                    .put("coord", new JSONObject().put("lat", i % 90).put("lon", i % 180)));
+        }
+        String json = cities.toString();
+        CityIndex streamed = CityIndex.loadGzip(gzip(json));
+        assertEquals(20000, streamed.size());
+        assertEquals(describe(CityIndex.parse(json).suggest("city 1999", 20)), describe(streamed.suggest("city 1999", 20)));
+    }
+
+    @Test
+    public void emptyList() throws IOException {
+        assertEquals(0, CityIndex.parse(new StringReader(" [ ] ")).size());
+    }
+
+    @Test
+    public void truncatedListIsRejected() throws IOException {
+        String truncated = CITY_LIST.substring(0, CITY_LIST.indexOf("M\\u00fcnchen"));
+        try {
+            CityIndex.loadGzip(gzip(truncated));
+            fail("truncated list was loaded");
+        } catch (JSONException expected) {
+            // CitySuggestionService logs it and keeps suggesting recent searches
+        }
+    }
+
+    private static ByteArrayInputStream gzip(String json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    private static List<String> describe(List<CitySuggestion> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (CitySuggestion suggestion : suggestions) {
+            described.add(suggestion.getCityId() + " " + suggestion + " " + (suggestion.getCoordinates() == null
+                    ? null : (float) suggestion.getCoordinates().getLatitude()));
+        }
+        return described;
+    }
+}
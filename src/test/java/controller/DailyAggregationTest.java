@@ -0,0 +1,183 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import model.DailyForecast;
+import model.Forecast;
+
+// Checks ForecastParser and DailyForecastAggregator against a reference computed straight from the
+// recorded forecast with org.json and java.time: every parsed slot, and every day's min, max, mean,
+// dominant condition, precipitation and slot count
+public class DailyAggregationTest {
+    private static final double TOLERANCE = 1e-9;
+    private static final long SLOT_SECONDS = 3 * 3600;
+
+    private final String recorded = Fixtures.load(Fixtures.FORECAST);
+
+    @Test
+    public void recordedForecast() {
+        verify(recorded);
+    }
+
+    // UTC, whole hours either side, a half-hour zone and the extremes, so days split at different slots.
+    // The variants are written back out by org.json, which doesn't keep the API's key order.
+    @Test
+    public void otherTimezones() {
+        for (int offset : new int[] {0, -36000, 19800, 50400, -43200}) {
+            JSONObject shifted = new JSONObject(recorded);
+            shifted.getJSONObject("city").put("timezone", offset);
+            verify(shifted.toString());
+        }
+    }
+
+    @Test
+    public void longSeries() {
+        verify(repeat(new JSONObject(recorded), 10).toString());
+    }
+
+    @Test
+    public void emptyForecast() {
+        JSONObject empty = new JSONObject(recorded);
+        empty.put("cnt", 0);
+        empty.put("list", new JSONArray());
+        verify(empty.toString());
+    }
+
+    // Slots with no weather entry, or an empty one, get a blank condition instead of pointing
+    // into an empty condition table
+    @Test
+    public void slotsWithoutWeather() {
+        JSONObject json = new JSONObject(recorded);
+        JSONArray list = json.getJSONArray("list");
+        list.getJSONObject(0).remove("weather");
+        list.getJSONObject(1).put("weather", new JSONArray());
+        Forecast forecast = ForecastParser.parse(json.toString());
+        for (int slot = 0; slot < 2; slot++) {
+            assertEquals(0, forecast.getConditionId(slot));
+            assertEquals("", forecast.getDescription(slot));
+        }
+        assertEquals(list.getJSONObject(2).getJSONArray("weather").getJSONObject(0).getString("description"),
+                forecast.getDescription(2));
+
+        json.put("list", new JSONArray().put(list.getJSONObject(0)));
+        List<DailyForecast> days = DailyForecastAggregator.aggregate(ForecastParser.parse(json.toString()));
+        assertEquals(1, days.size());
+        assertEquals(0, days.get(0).getConditionId());
+        assertEquals("", days.get(0).getDescription());
+    }
+
+    private static void verify(String text) {
+        JSONObject json = new JSONObject(text);
+        Forecast forecast = ForecastParser.parse(text);
+        checkSlots(json, forecast);
+        checkDays(json, DailyForecastAggregator.aggregate(forecast));
+    }
+
+    private static void checkSlots(JSONObject json, Forecast forecast) {
+        JSONArray list = json.getJSONArray("list");
+        assertEquals("slot count", list.length(), forecast.size());
+        assertEquals("timezone offset", json.getJSONObject("city").getInt("timezone"), forecast.getTimezoneOffsetSeconds());
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject slot = list.getJSONObject(i);
+            JSONObject main = slot.getJSONObject("main");
+            JSONObject weather = slot.getJSONArray("weather").getJSONObject(0);
+            String at = "slot " + i + ": ";
+            assertEquals(at + "timestamp", slot.getLong("dt"), forecast.getTimestamp(i));
+            assertEquals(at + "temperature", main.getDouble("temp"), forecast.getTemperature(i), TOLERANCE);
+            assertEquals(at + "minimum", main.getDouble("temp_min"), forecast.getMinTemperature(i), TOLERANCE);
+            assertEquals(at + "maximum", main.getDouble("temp_max"), forecast.getMaxTemperature(i), TOLERANCE);
+            assertEquals(at + "humidity", main.getInt("humidity"), forecast.getHumidity(i));
+            assertEquals(at + "wind speed", slot.getJSONObject("wind").getDouble("speed"), forecast.getWindSpeed(i), TOLERANCE);
+            assertEquals(at + "precipitation", slot.optDouble("pop", 0), forecast.getPrecipitationProbability(i), TOLERANCE);
+            assertEquals(at + "condition", weather.getInt("id"), forecast.getConditionId(i));
+            assertEquals(at + "description", weather.getString("description"), forecast.getDescription(i));
+        }
+    }
+
+    // Reference days built with java.time dates and collections, independently of the aggregator
+    private static void checkDays(JSONObject json, List<DailyForecast> days) {
+        ZoneOffset zone = ZoneOffset.ofTotalSeconds(json.getJSONObject("city").getInt("timezone"));
+        JSONArray list = json.getJSONArray("list");
+
+        // Ties for the dominant condition go to the one seen first in the whole forecast
+        List<Integer> conditionOrder = new ArrayList<>();
+        Map<LocalDate, List<JSONObject>> slotsByDay = new LinkedHashMap<>();
+        for (int i = 0; i < list.length(); i++) {
+            JSONObject slot = list.getJSONObject(i);
+            int conditionId = slot.getJSONArray("weather").getJSONObject(0).getInt("id");
+            if (!conditionOrder.contains(conditionId)) {
+                conditionOrder.add(conditionId);
+            }
+            LocalDate day = Instant.ofEpochSecond(slot.getLong("dt")).atOffset(zone).toLocalDate();
+            slotsByDay.computeIfAbsent(day, key -> new ArrayList<>()).add(slot);
+        }
+
+        assertEquals("day count at offset " + zone, slotsByDay.size(), days.size());
+        int index = 0;
+        for (Map.Entry<LocalDate, List<JSONObject>> entry : slotsByDay.entrySet()) {
+            DailyForecast day = days.get(index++);
+            List<JSONObject> slots = entry.getValue();
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            double precipitation = 0;
+            Map<Integer, Integer> conditionCounts = new LinkedHashMap<>();
+            Map<Integer, String> descriptions = new LinkedHashMap<>();
+            for (JSONObject slot : slots) {
+                JSONObject main = slot.getJSONObject("main");
+                JSONObject weather = slot.getJSONArray("weather").getJSONObject(0);
+                min = Math.min(min, main.getDouble("temp_min"));
+                max = Math.max(max, main.getDouble("temp_max"));
+                sum += main.getDouble("temp");
+                precipitation = Math.max(precipitation, slot.optDouble("pop", 0));
+                conditionCounts.merge(weather.getInt("id"), 1, Integer::sum);
+                descriptions.putIfAbsent(weather.getInt("id"), weather.getString("description"));
+            }
+            int dominant = -1;
+            for (int conditionId : conditionOrder) {
+                Integer count = conditionCounts.get(conditionId);
+                if (count != null && (dominant < 0 || count > conditionCounts.get(dominant))) {
+                    dominant = conditionId;
+                }
+            }
+
+            String at = entry.getKey() + " at offset " + zone + ": ";
+            assertEquals(at + "date", entry.getKey().toEpochDay(), day.getEpochDay());
+            assertEquals(at + "slot count", slots.size(), day.getSlotCount());
+            assertEquals(at + "minimum", min, day.getMinTemperature(), TOLERANCE);
+            assertEquals(at + "maximum", max, day.getMaxTemperature(), TOLERANCE);
+            assertEquals(at + "mean", sum / slots.size(), day.getMeanTemperature(), TOLERANCE);
+            assertEquals(at + "precipitation", precipitation, day.getPrecipitationProbability(), TOLERANCE);
+            assertEquals(at + "condition", dominant, day.getConditionId());
+            assertEquals(at + "description", descriptions.get(dominant), day.getDescription());
+        }
+    }
+
+    // The fixture's slots over and over, each copy continuing where the last one ended
+    private static JSONObject repeat(JSONObject fixture, int times) {
+        JSONObject repeated = new JSONObject(fixture.toString());
+        JSONArray source = fixture.getJSONArray("list");
+        JSONArray list = new JSONArray();
+        long start = source.getJSONObject(0).getLong("dt");
+        for (int i = 0; i < source.length() * times; i++) {
+            JSONObject slot = new JSONObject(source.getJSONObject(i % source.length()).toString());
+            slot.put("dt", start + i * SLOT_SECONDS);
+            list.put(slot);
+        }
+        repeated.put("cnt", list.length());
+        repeated.put("list", list);
+        return repeated;
+    }
+}
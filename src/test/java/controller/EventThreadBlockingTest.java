@@ -0,0 +1,177 @@
+package controller;
+
+import static org.junit.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+// Measures how long each search keeps the AWT event thread busy, headless and against the stub
+// server. A search made the way searchWeather() used to, with every fetch on the event thread, is
+// the baseline. A search through a session, with each result applied by EventQueue.invokeLater as
+// the UI does, must never hold the event thread for as long as one upstream call. A probe posts an
+// empty event every few milliseconds and records how long it waited, which is the freeze a user
+// would see.
+public class EventThreadBlockingTest {
+    private static final long LATENCY_MILLIS = 50;
+    private static final int SEARCHES = 10;
+    private static final long PROBE_INTERVAL_MILLIS = 2;
+
+    private static StubWeatherServer server;
+    private static WeatherAPIService apiService;
+    private static AsyncWeatherService asyncService;
+
+    // Event thread time of each search and the longest wait the probe saw meanwhile
+    private static class Run {
+        private final long[] eventThreadNanos = new long[SEARCHES];
+        private long probeMaxNanos;
+
+        double medianMillis() {
+            long[] sorted = eventThreadNanos.clone();
+            Arrays.sort(sorted);
+            return sorted[SEARCHES / 2] / 1e6;
+        }
+
+        double maxMillis() {
+            return Arrays.stream(eventThreadNanos).max().orElse(0) / 1e6;
+        }
+    }
+
+    // One search the way the UI runs it; returns once everything it shows has been applied
+    private interface Search {
+        void run(String cityName, AtomicLong eventThreadNanos) throws Exception;
+    }
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        server = new StubWeatherServer();
+        server.serve("/data/2.5/weather", Fixtures.load(Fixtures.CURRENT));
+        server.serve("/data/2.5/forecast", Fixtures.load(Fixtures.FORECAST));
+        server.serve("/geo/1.0/direct", Fixtures.load(Fixtures.GEO));
+        server.serve("/data/2.5/air_pollution", Fixtures.load(Fixtures.AIR_POLLUTION));
+        server.setLatencyMillis(LATENCY_MILLIS);
+        apiService = new WeatherAPIService(server.getBaseUrl());
+        asyncService = new AsyncWeatherService(apiService);
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        asyncService.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void blockingSearchHoldsTheEventThreadForItsFetches() throws Exception {
+        Run run = run("blocking", this::blockingSearch);
+        // At least current weather, forecast and air quality, one after another
+        assertTrue("median " + run.medianMillis() + " ms", run.medianMillis() >= 3 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void asyncSearchLeavesTheEventThreadFree() throws Exception {
+        Run run = run("async", this::asyncSearch);
+        assertTrue("longest search " + run.maxMillis() + " ms", run.maxMillis() < LATENCY_MILLIS);
+        assertTrue("longest probe wait " + run.probeMaxNanos / 1e6 + " ms", run.probeMaxNanos / 1e6 < LATENCY_MILLIS);
+    }
+
+    private Run run(String name, Search search) throws Exception {
+        search.run(name + " warm-up", new AtomicLong()); // Class loading, not blocking
+        Run run = new Run();
+        Probe probe = new Probe();
+        probe.start();
+        for (int i = 0; i < SEARCHES; i++) {
+            AtomicLong eventThreadNanos = new AtomicLong();
+            search.run(name + " city " + i, eventThreadNanos);
+            run.eventThreadNanos[i] = eventThreadNanos.get();
+        }
+        run.probeMaxNanos = probe.finish();
+        System.out.printf("%s: event thread %.2f ms median, %.2f ms max per search; probe waited %.2f ms at most%n",
+                name, run.medianMillis(), run.maxMillis(), run.probeMaxNanos / 1e6);
+        return run;
+    }
+
+    // How searchWeather() used to work: every call made inline by the button handler
+    private void blockingSearch(String cityName, AtomicLong eventThreadNanos) throws Exception {
+        onEventThreadAndWait(eventThreadNanos, () -> {
+            try {
+                apiService.getCurrentWeather(cityName);
+                apiService.getForecast(cityName);
+                apiService.getAirQuality(cityName);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    // How the UI searches now: the handler only starts a session, and each result is applied in
+    // its own event once it arrives
+    private void asyncSearch(String cityName, AtomicLong eventThreadNanos) throws Exception {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[3];
+        CountDownLatch applied = new CountDownLatch(results.length);
+        onEventThreadAndWait(eventThreadNanos, () -> {
+            WeatherSearchSession session = new WeatherSearchSession(asyncService, cityName);
+            results[0] = session.getCurrentWeather();
+            results[1] = session.getForecast();
+            results[2] = session.getAirQuality();
+            for (CompletableFuture<?> result : results) {
+                result.whenComplete((value, error) ->
+                        EventQueue.invokeLater(() -> timed(eventThreadNanos, applied::countDown)));
+            }
+        });
+        assertTrue("search for " + cityName + " finished", applied.await(1, TimeUnit.MINUTES));
+    }
+
+    private static void onEventThreadAndWait(AtomicLong eventThreadNanos, Runnable event)
+            throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(() -> timed(eventThreadNanos, event));
+    }
+
+    private static void timed(AtomicLong eventThreadNanos, Runnable event) {
+        long start = System.nanoTime();
+        try {
+            event.run();
+        } finally {
+            eventThreadNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Posts empty events from its own thread and keeps the longest time one waited to run
+    private static class Probe extends Thread {
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private volatile boolean running = true;
+
+        Probe() {
+            super("event-thread-probe");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long posted = System.nanoTime();
+                try {
+                    EventQueue.invokeAndWait(() -> maxWaitNanos.accumulateAndGet(System.nanoTime() - posted, Math::max));
+                    Thread.sleep(PROBE_INTERVAL_MILLIS);
+                } catch (InterruptedException | InvocationTargetException e) {
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            running = false;
+            join();
+            return maxWaitNanos.get();
+        }
+    }
+}
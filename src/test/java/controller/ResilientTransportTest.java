@@ -0,0 +1,60 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Sends requests through the real transport stack to a stub server that answers too slowly, and
+// counts how often each one reached the server
+public class ResilientTransportTest {
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final long LATENCY_MILLIS = 500;
+
+    private StubWeatherServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubWeatherServer();
+        server.serve(WEATHER_PATH, Fixtures.load(Fixtures.CURRENT));
+        server.setLatencyMillis(LATENCY_MILLIS);
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void readTimeoutsAreRetried() {
+        SocketTimeoutException e = getThrough(new PooledHttpTransport(1000, 100, 5000));
+        assertEquals(SocketTimeoutException.class, e.getClass());
+        assertEquals("first try and two retries", 3, server.getCallCount(WEATHER_PATH));
+    }
+
+    @Test
+    public void requestsPastTheirDeadlineAreNotRetried() {
+        SocketTimeoutException e = getThrough(new PooledHttpTransport(1000, 5000, 100));
+        assertEquals(DeadlineExceededException.class, e.getClass());
+        assertEquals(1, server.getCallCount(WEATHER_PATH));
+    }
+
+    private SocketTimeoutException getThrough(PooledHttpTransport pooled) {
+        ResilientTransport transport = new ResilientTransport(pooled, 2, false, 30000, new Random(1));
+        try {
+            transport.get(server.getBaseUrl() + WEATHER_PATH + "?q=London");
+            fail("the request was answered in time");
+            return null;
+        } catch (SocketTimeoutException e) {
+            return e;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
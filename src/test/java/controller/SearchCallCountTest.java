@@ -0,0 +1,111 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Runs searches through the service stack the UI uses, against the stub server, and counts the
+// upstream calls each one makes
+public class SearchCallCountTest {
+    private static final String WEATHER_PATH = "/data/2.5/weather";
+    private static final String FORECAST_PATH = "/data/2.5/forecast";
+    private static final String AIR_QUALITY_PATH = "/data/2.5/air_pollution";
+    private static final String UV_INDEX_PATH = "/data/3.0/onecall";
+    private static final String GEO_PATH = "/geo/1.0/direct";
+    private static final String[] PATHS = {WEATHER_PATH, FORECAST_PATH, AIR_QUALITY_PATH, UV_INDEX_PATH, GEO_PATH};
+    private static final String UNKNOWN_CITY = "Nowhere";
+
+    private StubWeatherServer server;
+    private AsyncWeatherService asyncService;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new StubWeatherServer();
+        String current = Fixtures.load(Fixtures.CURRENT);
+        server.serve(WEATHER_PATH, query ->
+                UNKNOWN_CITY.equals(StubWeatherServer.queryParameter(query, "q")) ? null : current);
+        server.serve(FORECAST_PATH, Fixtures.load(Fixtures.FORECAST));
+        server.serve(GEO_PATH, Fixtures.load(Fixtures.GEO));
+        server.serve(AIR_QUALITY_PATH, Fixtures.load(Fixtures.AIR_POLLUTION));
+        server.serve(UV_INDEX_PATH, Fixtures.load(Fixtures.ONE_CALL));
+        asyncService = new AsyncWeatherService(new CachingWeatherService(new WeatherAPIService(server.getBaseUrl())));
+    }
+
+    @After
+    public void stopServer() {
+        asyncService.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void eachSearchFetchesEveryEndpointOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Map<String, Long> calls = search("City " + i);
+            assertEquals("current weather calls", 1, (long) calls.get(WEATHER_PATH));
+            assertEquals("forecast calls", 1, (long) calls.get(FORECAST_PATH));
+            assertEquals("air quality calls", 1, (long) calls.get(AIR_QUALITY_PATH));
+            assertEquals("UV index calls", 1, (long) calls.get(UV_INDEX_PATH));
+            // Air quality and UV use the coordinates from the current weather
+            assertEquals("geocoding calls", 0, (long) calls.get(GEO_PATH));
+        }
+    }
+
+    @Test
+    public void repeatedSearchIsServedFromTheCaches() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            search("City " + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            Map<String, Long> calls = search(" city  " + i);
+            assertTrue("city " + i + " again: " + calls, calls.values().stream().allMatch(count -> count == 0));
+        }
+    }
+
+    @Test
+    public void failedFetchIsNotRetriedWithinASearch() throws InterruptedException {
+        WeatherSearchSession session = new WeatherSearchSession(asyncService, UNKNOWN_CITY);
+        for (int i = 0; i < 2; i++) {
+            try {
+                session.getCurrentWeather().get();
+            } catch (ExecutionException expected) {
+                // Every panel sees the same failure
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+        }
+        assertTrue(session.getCurrentWeather().isCompletedExceptionally());
+        assertEquals(1, server.getCallCount(WEATHER_PATH));
+    }
+
+    // Upstream calls per path made by one search, once every panel has its data. The current
+    // conditions and the weather icon both use current weather, and the hourly and daily panels
+    // both use the forecast.
+    private Map<String, Long> search(String cityName) throws Exception {
+        Map<String, Long> before = callCounts();
+        WeatherSearchSession session = new WeatherSearchSession(asyncService, cityName);
+        session.getCurrentWeather().get();
+        session.getCurrentWeather().get();
+        session.getForecast().get();
+        session.getForecast().get();
+        session.getAirQuality().get();
+        session.getUvIndex().get();
+        Map<String, Long> calls = callCounts();
+        calls.replaceAll((path, count) -> count - before.get(path));
+        return calls;
+    }
+
+    private Map<String, Long> callCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String path : PATHS) {
+            counts.put(path, server.getCallCount(path));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,241 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import model.Coordinates;
+import model.Forecast;
+import model.WeatherData;
+
+// Checks that binary snapshots give back exactly what was encoded: the recorded responses, values
+// at the edges of each field's range, strings missing from the dictionaries and many snapshots
+// packed into heap and direct buffers, and snapshots written by format versions 1 and 2. Also checks that
+// truncated and foreign data is rejected rather than misread.
+public class SnapshotRoundTripTest {
+    private static final int PACKED_SNAPSHOTS = 1000;
+
+    private final WeatherData current = WeatherAPIService.parseCurrentWeather(Fixtures.load(Fixtures.CURRENT));
+    private final Forecast forecast = WeatherAPIService.parseForecast(Fixtures.load(Fixtures.FORECAST));
+
+    @Test
+    public void recordedResponses() {
+        checkWeatherData(current);
+        checkForecast(forecast);
+    }
+
+    @Test
+    public void weatherDataVariants() {
+        for (WeatherData weatherData : weatherDataVariants(current)) {
+            checkWeatherData(weatherData);
+        }
+    }
+
+    @Test
+    public void unlistedDescriptionsAndNegativeTemperatures() {
+        checkForecast(unusualForecast(forecast));
+    }
+
+    @Test
+    public void emptyForecast() {
+        checkForecast(new Forecast(new long[0], new double[0], new double[0], new double[0],
+                new int[0], new double[0], new double[0], new byte[0], new int[0], new String[0], 0));
+    }
+
+    @Test
+    public void packedIntoAHeapBuffer() {
+        checkPacked(weatherDataVariants(current), forecast, false);
+    }
+
+    @Test
+    public void packedIntoADirectBuffer() {
+        checkPacked(weatherDataVariants(current), forecast, true);
+    }
+
+    // Older snapshots are built from a current one by dropping the fields later versions added:
+    // version 3 appended sunrise, sunset and timezone, version 2 the observation time after the city ID
+    @Test
+    public void olderVersionsAreRead() {
+        WeatherData noSunTimes = new WeatherData(current.getCityName(), current.getTemperature(),
+                current.getWeatherDescription(), current.getHumidity(), current.getWindSpeed(), current.getFeelsLike(),
+                current.getIconCode(), current.getPressure(), current.getVisibility(), current.getCoordinates(),
+                current.getCityId(), current.getObservedAt());
+        // Sun times equal to the observation time and no timezone encode as three single zero bytes
+        WeatherData sunAtObservation = new WeatherData(current.getCityName(), current.getTemperature(),
+                current.getWeatherDescription(), current.getHumidity(), current.getWindSpeed(), current.getFeelsLike(),
+                current.getIconCode(), current.getPressure(), current.getVisibility(), current.getCoordinates(),
+                current.getCityId(), current.getObservedAt(), current.getObservedAt(), current.getObservedAt(), 0);
+        byte[] version3 = SnapshotCodec.encodeWeatherData(sunAtObservation);
+        byte[] version2 = Arrays.copyOf(version3, version3.length - 3);
+        version2[1] = 2;
+        assertEquals(noSunTimes, SnapshotCodec.decodeWeatherData(version2));
+
+        WeatherData noObservationTime = new WeatherData(current.getCityName(), current.getTemperature(),
+                current.getWeatherDescription(), current.getHumidity(), current.getWindSpeed(), current.getFeelsLike(),
+                current.getIconCode(), current.getPressure(), current.getVisibility(), current.getCoordinates(),
+                current.getCityId());
+        byte[] unobserved = SnapshotCodec.encodeWeatherData(noObservationTime);
+        int nameLength = current.getCityName().getBytes(StandardCharsets.UTF_8).length;
+        int observedAtOffset = 3 + varLongSize(nameLength + 1) + nameLength + varLongSize(current.getCityId());
+        byte[] version1 = new byte[unobserved.length - 4];
+        System.arraycopy(unobserved, 0, version1, 0, observedAtOffset);
+        System.arraycopy(unobserved, observedAtOffset + 1, version1, observedAtOffset, version1.length - observedAtOffset);
+        version1[1] = 1;
+        assertEquals(noObservationTime, SnapshotCodec.decodeWeatherData(version1));
+
+        // The forecast layout is the same in every version
+        for (byte version = 1; version < SnapshotCodec.FORMAT_VERSION; version++) {
+            byte[] older = SnapshotCodec.encodeForecast(forecast);
+            older[1] = version;
+            assertEquals("version " + version, forecast, SnapshotCodec.decodeForecast(older));
+        }
+    }
+
+    @Test
+    public void foreignDataIsRejected() {
+        byte[] weatherSnapshot = SnapshotCodec.encodeWeatherData(current);
+        byte[] forecastSnapshot = SnapshotCodec.encodeForecast(forecast);
+        byte[] newer = weatherSnapshot.clone();
+        newer[1] = SnapshotCodec.FORMAT_VERSION + 1;
+
+        assertRejected("forecast read as weather", () -> SnapshotCodec.decodeWeatherData(forecastSnapshot));
+        assertRejected("weather read as forecast", () -> SnapshotCodec.decodeForecast(weatherSnapshot));
+        assertRejected("newer format version", () -> SnapshotCodec.decodeWeatherData(newer));
+        assertRejected("empty data", () -> SnapshotCodec.decodeWeatherData(new byte[0]));
+        assertRejected("JSON instead of a snapshot", () ->
+                SnapshotCodec.decodeForecast(Fixtures.load(Fixtures.FORECAST).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void truncatedSnapshotsAreRejected() {
+        byte[] weatherSnapshot = SnapshotCodec.encodeWeatherData(current);
+        for (int length = 0; length < weatherSnapshot.length; length++) {
+            byte[] truncated = Arrays.copyOf(weatherSnapshot, length);
+            assertRejected("weather snapshot cut to " + length + " bytes", () -> SnapshotCodec.decodeWeatherData(truncated));
+        }
+        byte[] forecastSnapshot = SnapshotCodec.encodeForecast(forecast);
+        for (int length = 0; length < forecastSnapshot.length; length++) {
+            byte[] truncated = Arrays.copyOf(forecastSnapshot, length);
+            assertRejected("forecast snapshot cut to " + length + " bytes", () -> SnapshotCodec.decodeForecast(truncated));
+        }
+    }
+
+    private static void checkWeatherData(WeatherData weatherData) {
+        byte[] data = SnapshotCodec.encodeWeatherData(weatherData);
+        assertEquals(weatherData, SnapshotCodec.decodeWeatherData(data));
+        assertTrue(weatherData.getCityName() + ": within the size bound",
+                data.length <= SnapshotCodec.maxEncodedSize(weatherData));
+    }
+
+    private static void checkForecast(Forecast forecast) {
+        byte[] data = SnapshotCodec.encodeForecast(forecast);
+        assertEquals(forecast, SnapshotCodec.decodeForecast(data));
+        assertTrue("within the size bound", data.length <= SnapshotCodec.maxEncodedSize(forecast));
+    }
+
+    // Each one exercises a different optional or edge part of the layout
+    private static List<WeatherData> weatherDataVariants(WeatherData current) {
+        List<WeatherData> variants = new ArrayList<>();
+        variants.add(copy(current, "No coordinates", current.getWeatherDescription(), current.getIconCode(),
+                null, current.getTemperature(), current.getSunrise(), current.getSunset(), 0));
+        // Strings that aren't in the dictionaries are spelled out, including multi-byte UTF-8
+        variants.add(copy(current, "Zürich", "leichter Schneefall", "99x", current.getCoordinates(),
+                current.getTemperature(), current.getSunrise(), current.getSunset(), 3600));
+        variants.add(copy(current, "東京", "薄い雲", current.getIconCode(), new Coordinates(35.689487, 139.691706),
+                current.getTemperature(), current.getSunrise(), current.getSunset(), 32400));
+        // Polar night: no sun times, far below zero, west of Greenwich
+        variants.add(copy(current, "Utqiagvik", "light snow", "13n", new Coordinates(71.290556, -156.788611),
+                -41.37, 0, 0, -32400));
+        variants.add(copy(current, "Death Valley", "clear sky", "01d", new Coordinates(36.5323, -116.9325),
+                53.94, current.getSunrise(), current.getSunset(), -25200));
+        variants.add(copy(current, null, null, null, null, 0, 0, 0, 0));
+        return variants;
+    }
+
+    private static WeatherData copy(WeatherData source, String cityName, String description, String iconCode,
+                                    Coordinates coordinates, double temperature, long sunrise, long sunset,
+                                    int timezoneOffsetSeconds) {
+        return new WeatherData(cityName, temperature, description, source.getHumidity(), source.getWindSpeed(),
+                source.getFeelsLike(), iconCode, source.getPressure(), source.getVisibility(), coordinates,
+                source.getCityId(), source.getObservedAt(), sunrise, sunset, timezoneOffsetSeconds);
+    }
+
+    // The recorded forecast with its conditions renamed to strings outside the dictionary and every
+    // temperature mirrored below zero, which keeps it an exact number of hundredths
+    private static Forecast unusualForecast(Forecast forecast) {
+        int size = forecast.size();
+        long[] timestamps = new long[size];
+        double[] temperatures = new double[size];
+        double[] minTemperatures = new double[size];
+        double[] maxTemperatures = new double[size];
+        int[] humidity = new int[size];
+        double[] windSpeeds = new double[size];
+        double[] precipitation = new double[size];
+        byte[] conditionIndexes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = forecast.getTimestamp(i);
+            temperatures[i] = -Math.abs(forecast.getTemperature(i));
+            minTemperatures[i] = -Math.abs(forecast.getMaxTemperature(i));
+            maxTemperatures[i] = -Math.abs(forecast.getMinTemperature(i));
+            humidity[i] = forecast.getHumidity(i);
+            windSpeeds[i] = forecast.getWindSpeed(i);
+            precipitation[i] = forecast.getPrecipitationProbability(i);
+            conditionIndexes[i] = (byte) forecast.getConditionIndex(i);
+        }
+        int[] conditionIds = new int[forecast.getConditionCount()];
+        String[] descriptions = new String[conditionIds.length];
+        for (int i = 0; i < conditionIds.length; i++) {
+            conditionIds[i] = forecast.getConditionIdAt(i);
+            descriptions[i] = "état " + forecast.getConditionDescription(i);
+        }
+        return new Forecast(timestamps, temperatures, minTemperatures, maxTemperatures, humidity, windSpeeds,
+                precipitation, conditionIndexes, conditionIds, descriptions, -18000);
+    }
+
+    // Snapshots written back to back must each read back in order and leave nothing over
+    private static void checkPacked(List<WeatherData> cities, Forecast forecast, boolean direct) {
+        int capacity = 0;
+        for (int i = 0; i < PACKED_SNAPSHOTS; i++) {
+            capacity += SnapshotCodec.maxEncodedSize(cities.get(i % cities.size()))
+                    + SnapshotCodec.maxEncodedSize(forecast);
+        }
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        for (int i = 0; i < PACKED_SNAPSHOTS; i++) {
+            SnapshotCodec.writeWeatherData(buffer, cities.get(i % cities.size()));
+            SnapshotCodec.writeForecast(buffer, forecast);
+        }
+        buffer.flip();
+        for (int i = 0; i < PACKED_SNAPSHOTS; i++) {
+            assertEquals("weather snapshot " + i, cities.get(i % cities.size()), SnapshotCodec.readWeatherData(buffer));
+            assertEquals("forecast snapshot " + i, forecast, SnapshotCodec.readForecast(buffer));
+        }
+        assertFalse("bytes left over", buffer.hasRemaining());
+    }
+
+    private static void assertRejected(String what, Runnable decode) {
+        try {
+            decode.run();
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        fail(what + " was decoded");
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
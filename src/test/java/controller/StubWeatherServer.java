@@ -0,0 +1,106 @@
+package controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Local stand-in for api.openweathermap.org. Each path answers with a fixed body or with one built
+// from the query string; a body of null answers 404, as the API does for an unknown city.
+// Counts calls per path and can add a fixed latency to every response.
+class StubWeatherServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<>();
+    private volatile long latencyMillis;
+
+    static {
+        // Without TCP_NODELAY the header and body writes hit delayed-ACK stalls of ~40ms each
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    StubWeatherServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void serve(String path, String body) {
+        serve(path, query -> body);
+    }
+
+    void serve(String path, Function<String, String> bodyForQuery) {
+        callCounts.put(path, new AtomicLong());
+        server.createContext(path, exchange -> respond(exchange, path,
+                bodyForQuery.apply(exchange.getRequestURI().getRawQuery())));
+    }
+
+    void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    long getCallCount(String path) {
+        AtomicLong count = callCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    static String queryParameter(String query, String name) {
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void respond(HttpExchange exchange, String path, String body) throws IOException {
+        callCounts.get(path).incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,167 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs DatabaseHandler against a scratch database file: concurrent saves while readers keep
+// reading, read-your-writes through the returned futures, and writes still queued at close
+public class DatabaseHandlerTest {
+    private static final int SEARCHES = 2000;
+    private static final int SAVERS = 8;
+    private static final int READERS = 2;
+    private static final int DISTINCT_CITIES = 100;
+    private static final int MAX_STATEMENTS = 20;
+    private static final int FD_SLACK = 4; // Allows for e.g. the WAL index being mapped lazily
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String dbUrl;
+    private DatabaseHandler dbHandler;
+
+    @Before
+    public void openDatabase() throws IOException {
+        dbUrl = "jdbc:sqlite:" + new File(folder.getRoot(), "weather.db").getAbsolutePath();
+        dbHandler = new DatabaseHandler(dbUrl);
+    }
+
+    @After
+    public void closeDatabase() {
+        dbHandler.closeConnection();
+    }
+
+    @Test
+    public void concurrentSavesAreAllCommittedWhileReadersRun() throws InterruptedException {
+        // Open and warm up before taking the baseline count
+        dbHandler.saveSearch("Warm up").join();
+        dbHandler.getRecentSearches(5);
+        dbHandler.getCoordinates("warm up");
+        int baselineFds = openFileDescriptors();
+
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> savers = new ArrayList<>();
+        for (int t = 0; t < SAVERS; t++) {
+            // Like the search flow, each saver waits for its write before the next one
+            savers.add(start("saver-" + t, () -> {
+                int i;
+                while ((i = next.getAndIncrement()) < SEARCHES) {
+                    dbHandler.saveSearch("City " + (i % DISTINCT_CITIES)).join();
+                }
+            }));
+        }
+        AtomicBoolean saving = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < READERS; t++) {
+            readers.add(start("reader-" + t, () -> {
+                while (saving.get()) {
+                    dbHandler.getRecentSearches(5);
+                    dbHandler.getCoordinates("city " + (reads.get() % DISTINCT_CITIES));
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread saver : savers) {
+            saver.join();
+        }
+        saving.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0, dbHandler.getPendingWriteCount());
+        assertEquals("distinct cities stored", DISTINCT_CITIES + 1,
+                dbHandler.getRecentSearches(DISTINCT_CITIES + 10).size());
+        assertTrue("reads ran alongside the saves", reads.get() > 0);
+        assertTrue("cached statements: " + dbHandler.getCachedStatementCount(),
+                dbHandler.getCachedStatementCount() <= MAX_STATEMENTS);
+        int fds = openFileDescriptors();
+        assertTrue("open files: " + baselineFds + " before, " + fds + " after",
+                baselineFds < 0 || fds <= baselineFds + FD_SLACK);
+    }
+
+    @Test
+    public void searchesAreMergedByCityAndNewestFirst() throws InterruptedException {
+        dbHandler.saveSearch("London").join();
+        Thread.sleep(5); // Distinct last_searched times
+        dbHandler.saveSearch(" paris ").join();
+        Thread.sleep(5);
+        dbHandler.saveSearch("LONDON").join();
+
+        assertEquals(Arrays.asList("LONDON", "paris"), dbHandler.getRecentSearches(10));
+        assertEquals("LONDON", dbHandler.getLastSearchedCity());
+    }
+
+    @Test
+    public void closeCommitsWritesStillQueued() {
+        dbHandler.saveSearch("Opened").join();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < DISTINCT_CITIES; i++) {
+            writes.add(dbHandler.saveSearch("City " + i));
+        }
+        dbHandler.closeConnection();
+        for (CompletableFuture<Void> write : writes) {
+            assertTrue(write.isDone());
+        }
+
+        dbHandler = new DatabaseHandler(dbUrl);
+        List<String> stored = dbHandler.getRecentSearches(DISTINCT_CITIES + 10);
+        assertEquals(DISTINCT_CITIES + 1, new HashSet<>(stored).size());
+    }
+
+    // History written before the cities table existed is merged with the same keys saveSearch
+    // uses, including non-ASCII case and extra inner spaces
+    @Test
+    public void migrationMergesOldHistoryByCityKey() throws IOException, SQLException {
+        dbHandler.closeConnection();
+        String oldUrl = "jdbc:sqlite:" + new File(folder.getRoot(), "old.db").getAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(oldUrl);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE search_history (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "city_name TEXT NOT NULL, search_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO search_history (city_name, search_time) VALUES " +
+                    "('MÜNCHEN', '2024-01-01 10:00:00'), " +
+                    "('New  York', '2024-01-02 10:00:00'), " +
+                    "(' München ', '2024-01-03 10:00:00'), " +
+                    "('new york', '2024-01-01 09:00:00')");
+        }
+
+        dbHandler = new DatabaseHandler(oldUrl);
+        assertEquals(Arrays.asList("München", "New  York"), dbHandler.getRecentSearches(10));
+
+        dbHandler.saveSearch("münchen").join();
+        assertEquals(Arrays.asList("münchen", "New  York"), dbHandler.getRecentSearches(10));
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, "database-test-" + name);
+        thread.start();
+        return thread;
+    }
+
+    // Linux only; -1 elsewhere, which skips the file check
+    private static int openFileDescriptors() {
+        String[] fds = new File("/proc/self/fd").list();
+        return fds == null ? -1 : fds.length;
+    }
+}